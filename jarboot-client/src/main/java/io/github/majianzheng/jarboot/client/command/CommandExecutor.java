@@ -16,6 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.websocket.*;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -206,6 +207,15 @@ public class CommandExecutor implements CommandExecutorService, MessageListener
         this.onEvent(new MessageRecvEvent(text));
     }
 
+    /**
+     * 服务端以二进制转发的Agent输出，格式与文本消息一致
+     * @param data UTF-8字节
+     */
+    @OnMessage
+    public void onBinaryMessage(byte[] data) {
+        this.onMessage(new String(data, StandardCharsets.UTF_8));
+    }
+
     @Override
     @OnClose
     public void onClose() {
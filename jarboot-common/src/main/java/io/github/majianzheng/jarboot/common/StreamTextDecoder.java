@@ -0,0 +1,198 @@
+package io.github.majianzheng.jarboot.common;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 流式文本解码，分块读取的输出逐块解码，跨块的多字节字符和未结束的ANSI控制符留到下一块，
+ * 解码使用的缓冲复用，非线程安全，每个流使用一个实例。
+ * @author majianzheng
+ */
+public class StreamTextDecoder {
+    /** ANSI控制符起始 */
+    private static final byte ESC = 0x1b;
+    private static final byte BEL = 0x07;
+    private static final byte CSI = '[';
+    private static final byte OSC = ']';
+    private static final byte ST = '\\';
+    /** CSI控制符结束字节的范围 */
+    private static final byte CSI_FINAL_MIN = 0x40;
+    private static final byte CSI_FINAL_MAX = 0x7e;
+    /** 保留的未结束控制符的最大长度，超出时视为普通文本 */
+    private static final int MAX_ANSI_LENGTH = 128;
+    /** UTF-8多字节字符的最大长度 */
+    private static final int MAX_UTF8_LEN = 4;
+
+    private final CharsetDecoder decoder;
+    /** 待解码的字节，包含上一块遗留的部分，写模式 */
+    private ByteBuffer in;
+    private CharBuffer out;
+
+    /**
+     * 构造
+     * @param charset 字符集
+     * @param bufferSize 初始缓冲大小
+     */
+    public StreamTextDecoder(Charset charset, int bufferSize) {
+        this.decoder = charset
+                .newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.in = ByteBuffer.allocate(bufferSize + MAX_ANSI_LENGTH);
+        this.out = CharBuffer.allocate(bufferSize + MAX_ANSI_LENGTH);
+    }
+
+    /**
+     * 解码一块数据
+     * @param b 字节
+     * @param off 偏移
+     * @param len 长度
+     * @return 完整的文本，没有完整内容时为空字符串
+     */
+    public String decode(byte[] b, int off, int len) {
+        ensureInput(len);
+        in.put(b, off, len);
+        in.flip();
+        final int limit = in.limit();
+        in.limit(ansiStart(in.array(), 0, limit));
+        final String text = decodeInput(false);
+        in.limit(limit);
+        in.compact();
+        return text;
+    }
+
+    /**
+     * 流结束，解码剩余的全部内容
+     * @return 剩余文本
+     */
+    public String flush() {
+        in.flip();
+        String text = decodeInput(true);
+        out.clear();
+        decoder.flush(out);
+        out.flip();
+        if (out.hasRemaining()) {
+            text += out.toString();
+        }
+        in.clear();
+        decoder.reset();
+        return text;
+    }
+
+    /**
+     * 完整内容的长度，末尾不完整的UTF-8字符和未结束的ANSI控制符不计入，用于不解码直接转发的字节流
+     * @param b 字节
+     * @param off 偏移
+     * @param len 长度
+     * @return 完整内容的长度
+     */
+    public static int completeLength(byte[] b, int off, int len) {
+        final int end = utf8Boundary(b, off, off + len);
+        return ansiStart(b, off, end) - off;
+    }
+
+    private String decodeInput(boolean endOfInput) {
+        out.clear();
+        for (;;) {
+            CoderResult result = decoder.decode(in, out, endOfInput);
+            if (!result.isOverflow()) {
+                break;
+            }
+            CharBuffer grown = CharBuffer.allocate(out.capacity() << 1);
+            out.flip();
+            grown.put(out);
+            out = grown;
+        }
+        return out.position() == 0 ? "" : new String(out.array(), 0, out.position());
+    }
+
+    private void ensureInput(int len) {
+        if (in.remaining() >= len) {
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(in.position() + len + MAX_ANSI_LENGTH);
+        in.flip();
+        grown.put(in);
+        in = grown;
+    }
+
+    /**
+     * 末尾完整UTF-8字符的结束位置
+     * @param b 字节
+     * @param from 起始位置
+     * @param end 结束位置
+     * @return 结束位置
+     */
+    private static int utf8Boundary(byte[] b, int from, int end) {
+        final int min = Math.max(from, end - MAX_UTF8_LEN);
+        for (int i = end - 1; i >= min; --i) {
+            final int c = b[i] & 0xff;
+            if ((c & 0xc0) == 0x80) {
+                // 后续字节，继续向前寻找首字节
+                continue;
+            }
+            final int expected;
+            if (c < 0x80) {
+                expected = 1;
+            } else if ((c & 0xe0) == 0xc0) {
+                expected = 2;
+            } else if ((c & 0xf0) == 0xe0) {
+                expected = 3;
+            } else {
+                expected = MAX_UTF8_LEN;
+            }
+            return (i + expected > end) ? i : end;
+        }
+        return end;
+    }
+
+    /**
+     * 末尾未结束的ANSI控制符的起始位置
+     * @param b 字节
+     * @param from 起始位置
+     * @param end 结束位置
+     * @return 控制符起始位置，都已结束时返回end
+     */
+    private static int ansiStart(byte[] b, int from, int end) {
+        final int min = Math.max(from, end - MAX_ANSI_LENGTH);
+        for (int i = end - 1; i >= min; --i) {
+            if (ESC == b[i]) {
+                return isAnsiComplete(b, i + 1, end) ? end : i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isAnsiComplete(byte[] b, int from, int end) {
+        if (from >= end) {
+            return false;
+        }
+        final byte type = b[from];
+        if (CSI == type) {
+            for (int i = from + 1; i < end; ++i) {
+                if (b[i] >= CSI_FINAL_MIN && b[i] <= CSI_FINAL_MAX) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (OSC == type) {
+            //以BEL或ESC \结束
+            for (int i = from + 1; i < end; ++i) {
+                if (BEL == b[i]) {
+                    return true;
+                }
+                final boolean stringTerminator = ESC == b[i] && i + 1 < end && ST == b[i + 1];
+                if (stringTerminator) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+}
@@ -3,7 +3,7 @@ package io.github.majianzheng.jarboot.common.notify;
 /**
  * @author majianzheng
  */
-@SuppressWarnings({ "squid:S1181", "ConditionalBreakInInfiniteLoop" })
+@SuppressWarnings({ "squid:S1181" })
 public abstract class AbstractEventLoop extends Thread {
     private volatile boolean initialized = false;
     protected volatile boolean shutdown = false;
@@ -28,7 +28,7 @@ public abstract class AbstractEventLoop extends Thread {
 
     @Override
     public final void run() {
-        for (; ; ) {
+        while (!shutdown) {
             try {
                 loop();
             } catch (InterruptedException ex) {
@@ -0,0 +1,103 @@
+package io.github.majianzheng.jarboot.common.notify;
+
+import io.github.majianzheng.jarboot.common.utils.MathUtil;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列（Vyukov序列号算法），多生产者写入，事件循环消费。
+ * 出队同样基于CAS，因此生产者在{@link OverflowPolicy#DROP_OLDEST}时可以安全地淘汰最旧的元素。
+ * @author majianzheng
+ */
+public class MpscRingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public MpscRingBuffer(int capacity) {
+        int size = MathUtil.nextPowerOfTwo(capacity);
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队
+     * @param e 元素
+     * @return 队列已满时返回false
+     */
+    public boolean offer(E e) {
+        for (; ; ) {
+            final long pos = tail.get();
+            final int index = (int) (pos & mask);
+            final long diff = sequences.get(index) - pos;
+            if (0 == diff) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, e);
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 出队
+     * @return 队列为空时返回null
+     */
+    public E poll() {
+        for (; ; ) {
+            final long pos = head.get();
+            final int index = (int) (pos & mask);
+            final long diff = sequences.get(index) - (pos + 1);
+            if (0 == diff) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    final E e = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequences.lazySet(index, pos + mask + 1);
+                    return e;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 当前元素个数（近似值）
+     * @return 元素个数
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity());
+    }
+
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 清空队列
+     */
+    public void clear() {
+        while (null != poll()) {
+            // drain
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.majianzheng.jarboot.common.notify;
+
+/**
+ * 事件队列满时的处理策略
+ * @author majianzheng
+ */
+public enum OverflowPolicy {
+    /**
+     * 阻塞发布者直到队列有空闲
+     */
+    BLOCK,
+
+    /**
+     * 丢弃队列中最旧的事件
+     */
+    DROP_OLDEST,
+
+    /**
+     * 将{@link ShardedEvent}按主题和分片键合并，只保留合并后的事件；其他事件按{@link #BLOCK}处理
+     */
+    COALESCE;
+
+    /**
+     * 从字符串解析，无法识别时使用默认值
+     * @param name 名称
+     * @param def 默认值
+     * @return 溢出策略
+     */
+    public static OverflowPolicy of(String name, OverflowPolicy def) {
+        for (OverflowPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        return def;
+    }
+}
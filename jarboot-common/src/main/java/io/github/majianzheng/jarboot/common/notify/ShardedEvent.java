@@ -0,0 +1,32 @@
+package io.github.majianzheng.jarboot.common.notify;
+
+import io.github.majianzheng.jarboot.api.event.JarbootEvent;
+
+/**
+ * 可分片的事件，相同分片键的事件在同一个事件循环中按发布顺序投递
+ * @author majianzheng
+ */
+public interface ShardedEvent extends JarbootEvent {
+    /**
+     * 分片键，例如sid；返回null时使用主题分片
+     * @return 分片键
+     */
+    String shardKey();
+
+    /**
+     * 队列溢出时是否允许与同主题、同分片键的待投递事件合并
+     * @return 是否可合并
+     */
+    default boolean isCoalescable() {
+        return false;
+    }
+
+    /**
+     * 与尚未投递的同键事件合并，默认仅保留最新的事件
+     * @param pending 尚未投递的事件
+     * @return 合并后的事件
+     */
+    default ShardedEvent coalesce(ShardedEvent pending) {
+        return this;
+    }
+}
@@ -0,0 +1,339 @@
+package io.github.majianzheng.jarboot.common.notify;
+
+import io.github.majianzheng.jarboot.api.event.JarbootEvent;
+import io.github.majianzheng.jarboot.api.event.Subscriber;
+import io.github.majianzheng.jarboot.common.utils.MathUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分片事件发布者，按分片键（{@link ShardedEvent#shardKey()}，默认为主题）将事件分配到N个事件循环，
+ * 每个事件循环使用无锁环形队列，互不阻塞。<br>
+ * 可作为{@link NotifyReactor}的默认发布者，在META-INF/services/io.github.majianzheng.jarboot.common.notify.EventPublisher
+ * 中声明即可，参数通过系统属性配置：
+ * <ul>
+ *     <li>jarboot.publisher.shards 事件循环个数</li>
+ *     <li>jarboot.publisher.capacity 每个事件循环的队列容量</li>
+ *     <li>jarboot.publisher.wait-strategy 等待策略，见{@link WaitStrategy}</li>
+ *     <li>jarboot.publisher.overflow 溢出策略，见{@link OverflowPolicy}</li>
+ * </ul>
+ * @author majianzheng
+ */
+@SuppressWarnings({"java:S1181", "unchecked", "java:S3740", "rawtypes"})
+public class ShardedPublisher implements EventPublisher {
+    protected static final Logger logger = LoggerFactory.getLogger(ShardedPublisher.class);
+    public static final String SHARDS_PROP = "jarboot.publisher.shards";
+    public static final String CAPACITY_PROP = "jarboot.publisher.capacity";
+    public static final String WAIT_STRATEGY_PROP = "jarboot.publisher.wait-strategy";
+    public static final String OVERFLOW_PROP = "jarboot.publisher.overflow";
+    private static final int DEFAULT_CAPACITY = 16384;
+    private static final int MAX_DEFAULT_SHARDS = 4;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final EventLoop[] loops;
+    private final int shardMask;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final Map<Class<? extends JarbootEvent>, Set<Subscriber>> subscribers = new ConcurrentHashMap<>(16);
+    private final Map<Class<?>, TopicStats> stats = new ConcurrentHashMap<>(16);
+    private volatile boolean closed = false;
+
+    /**
+     * 供ServiceLoader加载，参数从系统属性读取
+     */
+    public ShardedPublisher() {
+        this(Integer.getInteger(CAPACITY_PROP, DEFAULT_CAPACITY), "jarboot.sharded.publisher");
+    }
+
+    /**
+     * 指定队列容量和名称，分片个数、等待策略和溢出策略从系统属性读取
+     * @param capacity 每个事件循环的队列容量
+     * @param name 名称
+     */
+    public ShardedPublisher(int capacity, String name) {
+        this(Integer.getInteger(SHARDS_PROP, Math.min(MAX_DEFAULT_SHARDS, Runtime.getRuntime().availableProcessors())),
+                capacity,
+                WaitStrategy.of(System.getProperty(WAIT_STRATEGY_PROP), WaitStrategy.BLOCKING),
+                OverflowPolicy.of(System.getProperty(OVERFLOW_PROP), OverflowPolicy.BLOCK),
+                name);
+    }
+
+    public ShardedPublisher(int shards, int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy, String name) {
+        final int size = shards <= 1 ? 1 : MathUtil.nextPowerOfTwo(shards);
+        this.shardMask = size - 1;
+        this.waitStrategy = null == waitStrategy ? WaitStrategy.BLOCKING : waitStrategy;
+        this.overflowPolicy = null == overflowPolicy ? OverflowPolicy.BLOCK : overflowPolicy;
+        this.loops = new EventLoop[size];
+        for (int i = 0; i < size; ++i) {
+            loops[i] = new EventLoop(name + "-" + i, capacity);
+        }
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+    }
+
+    /**
+     * 发布事件
+     *
+     * @param event jarboot事件
+     * @return 是否成功
+     */
+    @Override
+    public boolean publishEvent(JarbootEvent event) {
+        if (closed || null == event) {
+            return false;
+        }
+        final TopicStats topicStats = statsOf(event.getClass());
+        String key = null;
+        if (event instanceof ShardedEvent) {
+            key = ((ShardedEvent) event).shardKey();
+        }
+        if (null == key) {
+            key = topicStats.getTopic();
+        }
+        final int h = key.hashCode();
+        final EventLoop loop = loops[(h ^ (h >>> 16)) & shardMask];
+        topicStats.onPublished();
+        return loop.enqueue(event, key, topicStats);
+    }
+
+    /**
+     * Add listener.
+     *
+     * @param subscriber {@link Subscriber}
+     */
+    @Override
+    public void addSubscriber(Subscriber<? extends JarbootEvent> subscriber) {
+        subscribers.computeIfAbsent(subscriber.subscribeType(), k -> new CopyOnWriteArraySet<>()).add(subscriber);
+    }
+
+    /**
+     * Remove listener.
+     *
+     * @param subscriber {@link Subscriber}
+     */
+    @Override
+    public void removeSubscriber(Subscriber<? extends JarbootEvent> subscriber) {
+        Set<Subscriber> subs = subscribers.get(subscriber.subscribeType());
+        if (null != subs) {
+            subs.remove(subscriber);
+        }
+    }
+
+    /**
+     * Notify listener.
+     *
+     * @param subscriber {@link Subscriber}
+     * @param event      {@link JarbootEvent}
+     */
+    @Override
+    public void notifySubscriber(Subscriber<JarbootEvent> subscriber, JarbootEvent event) {
+        final Executor executor = subscriber.executor();
+        if (executor != null) {
+            executor.execute(() -> subscriber.onEvent(event));
+        } else {
+            try {
+                subscriber.onEvent(event);
+            } catch (Throwable e) {
+                logger.error("Event callback exception: ", e);
+            }
+        }
+    }
+
+    /**
+     * Shutdown publisher
+     */
+    @Override
+    public void shutdown() {
+        this.closed = true;
+        for (EventLoop loop : loops) {
+            loop.close();
+        }
+    }
+
+    /**
+     * 各主题的队列统计
+     * @return 主题统计
+     */
+    public Collection<TopicStats> getTopicStats() {
+        return Collections.unmodifiableCollection(stats.values());
+    }
+
+    /**
+     * 获取主题的统计
+     * @param topic 主题，事件类名
+     * @return 主题统计，不存在时返回null
+     */
+    public TopicStats getTopicStats(String topic) {
+        for (TopicStats topicStats : stats.values()) {
+            if (topicStats.getTopic().equals(topic)) {
+                return topicStats;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 各事件循环当前的队列深度
+     * @return 队列深度
+     */
+    public List<Integer> getShardDepths() {
+        List<Integer> depths = new ArrayList<>(loops.length);
+        for (EventLoop loop : loops) {
+            depths.add(loop.ring.size() + loop.coalesced.size());
+        }
+        return depths;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    private TopicStats statsOf(Class<?> cls) {
+        TopicStats topicStats = stats.get(cls);
+        if (null == topicStats) {
+            topicStats = stats.computeIfAbsent(cls, k -> new TopicStats(k.getName()));
+        }
+        return topicStats;
+    }
+
+    private void receiveEvent(JarbootEvent event) {
+        final Set<Subscriber> subs = subscribers.get(event.getClass());
+        if (null == subs || subs.isEmpty()) {
+            return;
+        }
+        for (Subscriber sub : subs) {
+            notifySubscriber(sub, event);
+        }
+    }
+
+    /**
+     * 单个分片的事件循环
+     */
+    final class EventLoop extends AbstractEventLoop {
+        private final MpscRingBuffer<JarbootEvent> ring;
+        private final Map<String, ShardedEvent> coalesced = new ConcurrentHashMap<>(16);
+        private volatile boolean waiting = false;
+
+        EventLoop(String name, int capacity) {
+            super(name);
+            this.ring = new MpscRingBuffer<>(capacity);
+        }
+
+        boolean enqueue(JarbootEvent event, String key, TopicStats topicStats) {
+            final boolean coalescable = OverflowPolicy.COALESCE == overflowPolicy
+                    && event instanceof ShardedEvent && ((ShardedEvent) event).isCoalescable();
+            if (coalescable && !coalesced.isEmpty()) {
+                // 已有同键事件处于合并状态时继续合并，保证同键事件的顺序
+                final String coalesceKey = topicStats.getTopic() + '/' + key;
+                if (coalesced.containsKey(coalesceKey)) {
+                    coalesce(coalesceKey, (ShardedEvent) event, topicStats);
+                    return true;
+                }
+            }
+            while (!ring.offer(event)) {
+                if (shutdown) {
+                    topicStats.onDropped();
+                    return false;
+                }
+                if (coalescable) {
+                    coalesce(topicStats.getTopic() + '/' + key, (ShardedEvent) event, topicStats);
+                    return true;
+                }
+                if (OverflowPolicy.DROP_OLDEST == overflowPolicy || Thread.currentThread() == this) {
+                    // 在事件循环线程中发布时不能阻塞自身，退化为丢弃最旧的事件
+                    dropOldest();
+                } else {
+                    signal();
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+            signal();
+            return true;
+        }
+
+        private void coalesce(String coalesceKey, ShardedEvent event, TopicStats topicStats) {
+            coalesced.merge(coalesceKey, event, (pending, newer) -> {
+                topicStats.onCoalesced();
+                return ((ShardedEvent) newer).coalesce(pending);
+            });
+            signal();
+        }
+
+        private void dropOldest() {
+            final JarbootEvent oldest = ring.poll();
+            if (null != oldest) {
+                statsOf(oldest.getClass()).onDropped();
+            }
+        }
+
+        void signal() {
+            if (waiting) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        void parkUntilSignal() {
+            waiting = true;
+            if (ring.isEmpty() && coalesced.isEmpty() && !shutdown) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            waiting = false;
+        }
+
+        void close() {
+            this.shutdown = true;
+            LockSupport.unpark(this);
+            ring.clear();
+            coalesced.clear();
+        }
+
+        @Override
+        protected void loop() {
+            int idle = 0;
+            while (!shutdown) {
+                final JarbootEvent event = ring.poll();
+                if (null != event) {
+                    idle = 0;
+                    statsOf(event.getClass()).onDequeued();
+                    receiveEvent(event);
+                } else if (!coalesced.isEmpty()) {
+                    idle = 0;
+                    flushCoalesced();
+                } else {
+                    idle = waitStrategy.idle(idle, this);
+                }
+            }
+        }
+
+        private void flushCoalesced() {
+            final Iterator<Map.Entry<String, ShardedEvent>> it = coalesced.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<String, ShardedEvent> entry = it.next();
+                final ShardedEvent event = entry.getValue();
+                if (coalesced.remove(entry.getKey(), event)) {
+                    statsOf(event.getClass()).onDequeued();
+                    receiveEvent(event);
+                }
+            }
+        }
+    }
+}
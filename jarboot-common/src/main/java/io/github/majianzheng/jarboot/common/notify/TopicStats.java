@@ -0,0 +1,73 @@
+package io.github.majianzheng.jarboot.common.notify;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 主题的队列统计
+ * @author majianzheng
+ */
+public class TopicStats {
+    private final String topic;
+    private final LongAdder depth = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    TopicStats(String topic) {
+        this.topic = topic;
+    }
+
+    void onPublished() {
+        published.increment();
+        depth.increment();
+    }
+
+    void onDequeued() {
+        depth.decrement();
+    }
+
+    void onDropped() {
+        dropped.increment();
+        depth.decrement();
+    }
+
+    void onCoalesced() {
+        coalesced.increment();
+        depth.decrement();
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * 尚未投递的事件数
+     * @return 队列深度
+     */
+    public long getQueueDepth() {
+        return Math.max(0L, depth.sum());
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDropCount() {
+        return dropped.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TopicStats{" +
+                "topic='" + topic + '\'' +
+                ", depth=" + getQueueDepth() +
+                ", published=" + getPublishedCount() +
+                ", dropped=" + getDropCount() +
+                ", coalesced=" + getCoalescedCount() +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.majianzheng.jarboot.common.notify;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 事件循环空闲时的等待策略
+ * @author majianzheng
+ */
+public enum WaitStrategy {
+    /**
+     * 自旋后挂起，由发布者唤醒，CPU占用最低
+     */
+    BLOCKING,
+
+    /**
+     * 自旋、让出CPU后短暂休眠
+     */
+    SLEEPING,
+
+    /**
+     * 自旋后让出CPU
+     */
+    YIELDING,
+
+    /**
+     * 持续自旋，延迟最低但独占一个CPU
+     */
+    BUSY_SPIN;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = SPIN_TRIES + 100;
+    private static final long SLEEP_NANOS = 100_000L;
+
+    /**
+     * 空闲一次
+     * @param counter 连续空闲次数
+     * @param loop 事件循环
+     * @return 下一次的空闲计数
+     */
+    int idle(int counter, ShardedPublisher.EventLoop loop) {
+        if (BUSY_SPIN == this || counter < SPIN_TRIES) {
+            return counter + 1;
+        }
+        if (YIELDING == this || counter < YIELD_TRIES) {
+            Thread.yield();
+            return counter + 1;
+        }
+        if (SLEEPING == this) {
+            LockSupport.parkNanos(SLEEP_NANOS);
+        } else {
+            loop.parkUntilSignal();
+        }
+        return counter;
+    }
+
+    /**
+     * 从字符串解析，无法识别时使用默认值
+     * @param name 名称
+     * @param def 默认值
+     * @return 等待策略
+     */
+    public static WaitStrategy of(String name, WaitStrategy def) {
+        for (WaitStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        return def;
+    }
+}
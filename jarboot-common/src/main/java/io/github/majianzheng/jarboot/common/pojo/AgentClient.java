@@ -12,6 +12,7 @@ public class AgentClient extends ResponseSimple {
     private String sid;
     private String host;
     private Boolean diagnose;
+    private Integer protocolVersion;
 
     public String getClientAddr() {
         return clientAddr;
@@ -61,6 +62,14 @@ public class AgentClient extends ResponseSimple {
         this.diagnose = diagnose;
     }
 
+    public Integer getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public void setProtocolVersion(Integer protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
     public String getUserDir() {
         return userDir;
     }
@@ -79,6 +88,7 @@ public class AgentClient extends ResponseSimple {
                 ", sid='" + sid + '\'' +
                 ", host='" + host + '\'' +
                 ", diagnose=" + diagnose +
+                ", protocolVersion=" + protocolVersion +
                 '}';
     }
 }
@@ -0,0 +1,74 @@
+package io.github.majianzheng.jarboot.common.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 固定大小的缓冲池，编码时复用缓冲，避免每条消息都申请新的数组。
+ * 超出池中缓冲大小的请求直接分配，不回收。
+ * @author majianzheng
+ */
+public class BufferPool {
+    private final int bufferSize;
+    private final boolean direct;
+    private final ArrayBlockingQueue<ByteBuffer> pool;
+
+    /**
+     * 构造
+     * @param bufferSize 缓冲大小
+     * @param maxPooled 最多缓存的个数
+     * @param direct 是否使用直接内存
+     */
+    public BufferPool(int bufferSize, int maxPooled, boolean direct) {
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.pool = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /**
+     * 获取缓冲，已清空为写模式
+     * @param minCapacity 最小容量
+     * @return 缓冲，limit为最小容量
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity > bufferSize) {
+            return ByteBuffer.allocate(minCapacity);
+        }
+        ByteBuffer buf = pool.poll();
+        if (null == buf) {
+            buf = direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        } else {
+            buf.clear();
+        }
+        buf.limit(minCapacity);
+        return buf;
+    }
+
+    /**
+     * 归还缓冲，非本池大小的缓冲或池已满时丢弃
+     * @param buf 缓冲
+     */
+    public void release(ByteBuffer buf) {
+        if (null == buf || buf.capacity() != bufferSize || buf.isDirect() != direct) {
+            return;
+        }
+        buf.clear();
+        pool.offer(buf);
+    }
+
+    /**
+     * 缓冲大小
+     * @return 缓冲大小
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 池中空闲的缓冲个数
+     * @return 个数
+     */
+    public int idleCount() {
+        return pool.size();
+    }
+}
@@ -2,10 +2,10 @@ package io.github.majianzheng.jarboot.common.protocol;
 
 import io.github.majianzheng.jarboot.api.event.JarbootEvent;
 import io.github.majianzheng.jarboot.common.JarbootException;
-import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.api.constant.CommonConst;
+import io.github.majianzheng.jarboot.common.utils.Utf8Utils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -13,6 +13,7 @@ import java.nio.charset.StandardCharsets;
  * @author majianzheng
  */
 public class CommandRequest implements CmdProtocol, JarbootEvent {
+    private static final byte SIZE_SPLIT = ',';
     private CommandType commandType = CommandType.UNKNOWN;
     private String commandLine = "";
     private String sessionId;
@@ -22,20 +23,20 @@ public class CommandRequest implements CmdProtocol, JarbootEvent {
 
     @Override
     public byte[] toRaw() {
-        byte[] buf = null;
-        try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream(128)) {
-            byteStream.write(commandType.value());
-            if (StringUtils.isNotEmpty(sessionId)) {
-                byteStream.write(sessionId.getBytes(StandardCharsets.UTF_8));
-            }
-            byteStream.write(CommandConst.PROTOCOL_SPLIT);
-            String size = String.format("%d,%d", row, col);
-            byteStream.write(size.getBytes(StandardCharsets.UTF_8));
-            byteStream.write(CommandConst.PROTOCOL_SPLIT);
-            byteStream.write(commandLine.getBytes(StandardCharsets.UTF_8));
-            buf = byteStream.toByteArray();
-        } catch (IOException e) {
-            //ignore
+        //终端尺寸为纯数字，按ASCII直接写入
+        final String size = row + CommonConst.COMMA_SPLIT + col;
+        final int sessionLen = Utf8Utils.length(sessionId);
+        byte[] buf = new byte[1 + sessionLen + 1 + size.length() + 1 + Utf8Utils.length(commandLine)];
+        ByteBuffer dst = ByteBuffer.wrap(buf);
+        dst.put(commandType.value());
+        if (sessionLen > 0) {
+            Utf8Utils.encode(sessionId, 0, dst);
+        }
+        dst.put(CommandConst.PROTOCOL_SPLIT);
+        Utf8Utils.encode(size, 0, dst);
+        dst.put(CommandConst.PROTOCOL_SPLIT);
+        if (null != commandLine) {
+            Utf8Utils.encode(commandLine, 0, dst);
         }
         return buf;
     }
@@ -47,31 +48,43 @@ public class CommandRequest implements CmdProtocol, JarbootEvent {
         }
         commandType = CommandType.fromChar(raw[0]);
         //从第二个字符到第一个空格，为sessionId
-        int index = -1;
-        for (int i = 1; i < raw.length; ++i) {
-            if (CommandConst.PROTOCOL_SPLIT == raw[i]) {
-                index = i;
-                break;
-            }
-        }
+        int index = indexOfSplit(raw, 1);
         if (index < CommandConst.MIN_CMD_LEN - 1) {
             throw new JarbootException("协议错误，缺少sessionId参数！");
         }
         if ((index - 1) > 0) {
             sessionId = new String(raw, 1, index - 1, StandardCharsets.UTF_8);
         }
-        int begin = index;
-        for (int i = index + 1; i < raw.length; ++i) {
+        //终端尺寸 row,col 直接按数字解析，不创建中间字符串
+        int i = index + 1;
+        int value = 0;
+        boolean rowParsed = false;
+        for (; i < raw.length && CommandConst.PROTOCOL_SPLIT != raw[i]; ++i) {
+            final byte c = raw[i];
+            if (SIZE_SPLIT == c && !rowParsed) {
+                row = value;
+                value = 0;
+                rowParsed = true;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else {
+                throw new JarbootException("协议错误，终端尺寸格式错误！");
+            }
+        }
+        if (!rowParsed || i >= raw.length) {
+            throw new JarbootException("协议错误，终端尺寸格式错误！");
+        }
+        col = value;
+        commandLine = new String(raw, i + 1, raw.length - i - 1, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOfSplit(byte[] raw, int from) {
+        for (int i = from; i < raw.length; ++i) {
             if (CommandConst.PROTOCOL_SPLIT == raw[i]) {
-                index = i;
-                break;
+                return i;
             }
         }
-        String size = new String(raw, begin + 1, (index - begin - 1), StandardCharsets.UTF_8);
-        String[] sizes = size.split(",");
-        row = Integer.parseInt(sizes[0]);
-        col = Integer.parseInt(sizes[1]);
-        commandLine = new String(raw, index + 1, raw.length - index - 1, StandardCharsets.UTF_8);
+        return -1;
     }
 
     public CommandType getCommandType() {
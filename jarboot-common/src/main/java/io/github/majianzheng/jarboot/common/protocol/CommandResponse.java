@@ -2,9 +2,10 @@ package io.github.majianzheng.jarboot.common.protocol;
 
 import io.github.majianzheng.jarboot.api.event.JarbootEvent;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.common.utils.Utf8Utils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -12,9 +13,18 @@ import java.nio.charset.StandardCharsets;
  * @author majianzheng
  */
 public class CommandResponse implements CmdProtocol, JarbootEvent {
+    /** 批量标准输出头部的固定长度：控制位 + 2字节会话列表长度 */
+    public static final int STD_BATCH_HEADER_LEN = 3;
+    private static final int STD_BATCH_MAX_SESSION_LEN = 0xffff;
+    /** 控制位和分隔符的长度 */
+    private static final int FIXED_LEN = 2;
     private Boolean success;
     private ResponseType responseType = ResponseType.UNKNOWN;
     private String body;
+    /** 未解码的消息体所在的数组，仅在需要字符串时才解码 */
+    private byte[] bodyRaw;
+    private int bodyOffset;
+    private int bodyLength;
     private String sessionId;
 
     /**
@@ -23,31 +33,78 @@ public class CommandResponse implements CmdProtocol, JarbootEvent {
      */
     @Override
     public byte[] toRaw() {
+        final byte[] session = Utf8Utils.encode(sessionId);
+        if (null != bodyRaw || null == body) {
+            byte[] buf = new byte[FIXED_LEN + bodyLength + session.length];
+            buf[0] = controlByte();
+            if (null != bodyRaw) {
+                System.arraycopy(bodyRaw, bodyOffset, buf, 1, bodyLength);
+            }
+            buf[1 + bodyLength] = CommandConst.PROTOCOL_SPLIT;
+            System.arraycopy(session, 0, buf, FIXED_LEN + bodyLength, session.length);
+            return buf;
+        }
+        //字符串消息体使用JDK内置的编码，结果一次拷贝到精确大小的数组
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        byte[] buf = new byte[FIXED_LEN + bytes.length + session.length];
+        buf[0] = controlByte();
+        System.arraycopy(bytes, 0, buf, 1, bytes.length);
+        buf[1 + bytes.length] = CommandConst.PROTOCOL_SPLIT;
+        System.arraycopy(session, 0, buf, FIXED_LEN + bytes.length, session.length);
+        return buf;
+    }
+
+    /**
+     * 编码后的字节数
+     * @return 字节数
+     */
+    public int rawLength() {
+        return FIXED_LEN + bodyByteLength() + Utf8Utils.length(sessionId);
+    }
+
+    /**
+     * 直接编码到目标缓冲，不产生中间数组
+     * @param dst 目标缓冲，剩余空间不小于{@link #rawLength()}
+     */
+    public void encodeTo(ByteBuffer dst) {
+        dst.put(controlByte());
+        if (null != bodyRaw) {
+            dst.put(bodyRaw, bodyOffset, bodyLength);
+        } else if (null != body) {
+            encodeText(body, dst);
+        }
+        dst.put(CommandConst.PROTOCOL_SPLIT);
+        if (StringUtils.isNotEmpty(sessionId)) {
+            encodeText(sessionId, dst);
+        }
+    }
+
+    private static void encodeText(String text, ByteBuffer dst) {
+        if (Utf8Utils.encode(text, 0, dst) < text.length()) {
+            throw new BufferOverflowException();
+        }
+    }
+
+    private byte controlByte() {
         //控制位 0 响应类型、1 是否成功、2保留填-
         byte cb = this.responseType.value();
         if (Boolean.TRUE.equals(success)) {
             cb = (byte)(cb | CommandConst.SUCCESS_FLAG);
         }
-        byte[] buf = null;
-        try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream(1024)) {
-            byteStream.write(cb);
-            byteStream.write(body.getBytes(StandardCharsets.UTF_8));
-            byteStream.write(CommandConst.PROTOCOL_SPLIT);
-            if (StringUtils.isNotEmpty(sessionId)) {
-                byteStream.write(sessionId.getBytes(StandardCharsets.UTF_8));
-            }
-            buf = byteStream.toByteArray();
-        } catch (IOException e) {
-            //ignore
-        }
-        return buf;
+        return cb;
     }
+
     @Override
     public void fromRaw(byte[] raw) {
         byte h = raw[0];
         this.success = CommandConst.SUCCESS_FLAG == (CommandConst.SUCCESS_FLAG & h);
         //取反再与得到真实响应类型
         this.responseType = ResponseType.fromChar(h);
+        if (ResponseType.STD_BATCH == this.responseType) {
+            this.fromStdBatch(raw);
+            return;
+        }
+        //会话id在最后一个分隔符之后，从尾部查找只需扫描会话id的长度
         int index = -1;
         for (int i = raw.length - 1; i > 0; --i) {
             if (CommandConst.PROTOCOL_SPLIT == raw[i]) {
@@ -57,16 +114,49 @@ public class CommandResponse implements CmdProtocol, JarbootEvent {
         }
         if (-1 == index) {
             this.success = false;
-            this.body = "协议错误，未发现sessionId";
+            this.setBody("协议错误，未发现sessionId");
             return;
         }
-        this.body = new String(raw, 1, index - 1, StandardCharsets.UTF_8);
+        this.setBody(raw, 1, index - 1);
         final int len = (raw.length - index - 1);
         if (len > 0) {
             this.sessionId = new String(raw, index + 1, len, StandardCharsets.UTF_8);
         }
     }
 
+    /**
+     * 批量标准输出的协议头：控制位、2字节会话列表长度、会话列表，其后紧跟原始的输出字节
+     * @param sessionId 逗号分隔的会话列表
+     * @return 协议头
+     */
+    public static byte[] stdBatchHeader(String sessionId) {
+        byte[] session = null == sessionId ? new byte[0] : sessionId.getBytes(StandardCharsets.UTF_8);
+        final int len = Math.min(session.length, STD_BATCH_MAX_SESSION_LEN);
+        byte[] header = new byte[STD_BATCH_HEADER_LEN + len];
+        header[0] = (byte) (ResponseType.STD_BATCH.value() | CommandConst.SUCCESS_FLAG);
+        header[1] = (byte) (len >>> 8);
+        header[2] = (byte) len;
+        System.arraycopy(session, 0, header, STD_BATCH_HEADER_LEN, len);
+        return header;
+    }
+
+    private void fromStdBatch(byte[] raw) {
+        if (raw.length < STD_BATCH_HEADER_LEN) {
+            this.success = false;
+            this.setBody("协议错误，批量输出头部不完整");
+            return;
+        }
+        final int len = ((raw[1] & 0xff) << 8) | (raw[2] & 0xff);
+        final int bodyOffset = STD_BATCH_HEADER_LEN + len;
+        if (bodyOffset > raw.length) {
+            this.success = false;
+            this.setBody("协议错误，会话列表长度越界");
+            return;
+        }
+        this.sessionId = new String(raw, STD_BATCH_HEADER_LEN, len, StandardCharsets.UTF_8);
+        this.setBody(raw, bodyOffset, raw.length - bodyOffset);
+    }
+
     public static CommandResponse createFromRaw(byte[] raw) {
         CommandResponse response = new CommandResponse();
         response.fromRaw(raw);
@@ -89,12 +179,62 @@ public class CommandResponse implements CmdProtocol, JarbootEvent {
         this.success = success;
     }
 
+    /**
+     * 获取消息体，首次调用时才从原始字节解码
+     * @return 消息体
+     */
     public String getBody() {
+        if (null == body && null != bodyRaw) {
+            body = new String(bodyRaw, bodyOffset, bodyLength, StandardCharsets.UTF_8);
+        }
         return body;
     }
 
     public void setBody(String body) {
         this.body = body;
+        this.bodyRaw = null;
+        this.bodyOffset = 0;
+        this.bodyLength = 0;
+    }
+
+    /**
+     * 设置未解码的消息体，引用原数组不拷贝
+     * @param raw 数组
+     * @param offset 偏移
+     * @param length 长度
+     */
+    public void setBody(byte[] raw, int offset, int length) {
+        this.body = null;
+        this.bodyRaw = raw;
+        this.bodyOffset = offset;
+        this.bodyLength = length;
+    }
+
+    /**
+     * 消息体的UTF-8字节视图，从网络接收的消息直接引用原始字节，不解码为字符串
+     * @return 只读缓冲
+     */
+    public ByteBuffer bodyBuffer() {
+        if (null != bodyRaw) {
+            return ByteBuffer.wrap(bodyRaw, bodyOffset, bodyLength).slice().asReadOnlyBuffer();
+        }
+        return ByteBuffer.wrap(Utf8Utils.encode(body)).asReadOnlyBuffer();
+    }
+
+    /**
+     * 消息体是否为未解码的原始字节
+     * @return 是否为原始字节
+     */
+    boolean hasRawBody() {
+        return null != bodyRaw;
+    }
+
+    /**
+     * 消息体的UTF-8字节数
+     * @return 字节数
+     */
+    public int bodyByteLength() {
+        return null == bodyRaw ? Utf8Utils.length(body) : bodyLength;
     }
 
     public String getSessionId() {
@@ -0,0 +1,110 @@
+package io.github.majianzheng.jarboot.common.protocol;
+
+import io.github.majianzheng.jarboot.common.JarbootException;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 帧重组，将同一流id的首帧和续帧合并为完整的响应。
+ * 每个连接一个实例，同一连接的消息按顺序到达，非线程安全。
+ * @author majianzheng
+ */
+public class FrameAssembler {
+    /** 单个消息的最大字节数 */
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    /** 未完成消息的过期时间 */
+    private static final long EXPIRE_MILLIS = 60_000L;
+    private final Map<Integer, Partial> partials = new HashMap<>(4);
+
+    /**
+     * 接收一帧
+     * @param frame 帧
+     * @return 消息完整时返回响应，否则返回null
+     */
+    public CommandResponse onFrame(ByteBuffer frame) {
+        FrameCodec.Header header = FrameCodec.readHeader(frame);
+        if (FrameCodec.TYPE_RESPONSE == header.getType()) {
+            if (header.isFin()) {
+                return header.toResponse(header.getBody());
+            }
+            evictExpired();
+            Partial partial = new Partial(header);
+            partial.append(header.getBody());
+            partials.put(header.getStreamId(), partial);
+            return null;
+        }
+        if (FrameCodec.TYPE_CONTINUATION != header.getType()) {
+            throw new JarbootException("协议错误，不支持的帧类型：" + header.getType());
+        }
+        Partial partial = partials.get(header.getStreamId());
+        if (null == partial) {
+            // 首帧已过期或丢弃
+            return null;
+        }
+        if (!partial.append(header.getBody())) {
+            partials.remove(header.getStreamId());
+            throw new JarbootException("消息过大，已丢弃");
+        }
+        if (!header.isFin()) {
+            return null;
+        }
+        partials.remove(header.getStreamId());
+        return partial.header.toResponse(partial.buf, 0, partial.size);
+    }
+
+    /**
+     * 未完成的消息个数
+     * @return 个数
+     */
+    public int pendingCount() {
+        return partials.size();
+    }
+
+    private void evictExpired() {
+        if (partials.isEmpty()) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        Iterator<Partial> it = partials.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().createTime > EXPIRE_MILLIS) {
+                it.remove();
+            }
+        }
+    }
+
+    private static class Partial {
+        private final FrameCodec.Header header;
+        private final long createTime = System.currentTimeMillis();
+        private byte[] buf;
+        private int size;
+
+        Partial(FrameCodec.Header header) {
+            this.header = header;
+            this.buf = new byte[Math.max(header.getBody().remaining() * 2, 1024)];
+        }
+
+        boolean append(ByteBuffer body) {
+            final int len = body.remaining();
+            final int required = size + len;
+            if (required > MAX_MESSAGE_SIZE) {
+                return false;
+            }
+            if (required > buf.length) {
+                int capacity = buf.length;
+                while (capacity < required) {
+                    capacity = Math.min(MAX_MESSAGE_SIZE, capacity << 1);
+                }
+                byte[] grown = new byte[capacity];
+                System.arraycopy(buf, 0, grown, 0, size);
+                buf = grown;
+            }
+            body.get(buf, size, len);
+            size = required;
+            return true;
+        }
+    }
+}
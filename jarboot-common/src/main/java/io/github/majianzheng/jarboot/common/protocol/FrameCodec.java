@@ -0,0 +1,383 @@
+package io.github.majianzheng.jarboot.common.protocol;
+
+import io.github.majianzheng.jarboot.common.JarbootException;
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.common.utils.Utf8Utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 带版本号的二进制帧协议，大的消息体拆分为多个续帧在同一个WebSocket连接上发送。
+ * <pre>
+ * 0      魔数 'J'
+ * 1      版本号
+ * 2      帧类型 {@link #TYPE_RESPONSE} {@link #TYPE_REQUEST} {@link #TYPE_CONTINUATION}
+ * 3      标志位 {@link #FLAG_FIN} {@link #FLAG_SUCCESS}
+ * 4      响应类型或命令类型
+ * 5-6    会话id长度，仅首帧
+ * 7-10   流id，同一消息的所有帧相同
+ * 11-14  本帧消息体长度
+ * 15-    会话id、消息体
+ * </pre>
+ * 请求的消息体以2字节的行数、列数开头，其后为命令行。
+ * @author majianzheng
+ */
+public class FrameCodec {
+    public static final byte MAGIC = 'J';
+    public static final byte VERSION = 1;
+    public static final int HEADER_LEN = 15;
+    /** Agent连接时声明支持的协议版本的参数名 */
+    public static final String PROTOCOL_PARAM = "protocol";
+
+    public static final byte TYPE_RESPONSE = 1;
+    public static final byte TYPE_REQUEST = 2;
+    public static final byte TYPE_CONTINUATION = 3;
+
+    /** 消息的最后一帧 */
+    public static final byte FLAG_FIN = 1;
+    /** 执行成功 */
+    public static final byte FLAG_SUCCESS = 2;
+
+    private static final int VERSION_OFFSET = 1;
+    private static final int TYPE_OFFSET = 2;
+    private static final int FLAGS_OFFSET = 3;
+    private static final int CODE_OFFSET = 4;
+    private static final int SESSION_LEN_OFFSET = 5;
+    private static final int STREAM_OFFSET = 7;
+    private static final int BODY_LEN_OFFSET = 11;
+    private static final int MAX_SESSION_LEN = 0xffff;
+    private static final int REQUEST_SIZE_LEN = 4;
+
+    /**
+     * 是否为帧协议的数据，旧协议首字节为控制位，不会与魔数冲突
+     * @param buf 数据
+     * @return 是否为帧
+     */
+    public static boolean isFrame(ByteBuffer buf) {
+        return buf.remaining() >= HEADER_LEN && MAGIC == buf.get(buf.position());
+    }
+
+    /**
+     * 是否为帧协议的数据
+     * @param raw 数据
+     * @return 是否为帧
+     */
+    public static boolean isFrame(byte[] raw) {
+        return null != raw && raw.length >= HEADER_LEN && MAGIC == raw[0];
+    }
+
+    /**
+     * 将响应编码为一个或多个帧，消息体直接编码到各帧的缓冲中
+     * @param response 响应
+     * @param streamId 流id
+     * @param maxFrameSize 单帧最大字节数
+     * @return 帧，均为读模式
+     */
+    public static List<ByteBuffer> encodeResponse(CommandResponse response, int streamId, int maxFrameSize) {
+        return encodeResponse(response, streamId, maxFrameSize, ByteBuffer::allocate);
+    }
+
+    /**
+     * 将响应编码为一个或多个帧，帧缓冲由调用方提供，如从{@link BufferPool}获取
+     * @param response 响应
+     * @param streamId 流id
+     * @param maxFrameSize 单帧最大字节数
+     * @param allocator 按容量获取写模式的缓冲，limit为请求的容量
+     * @return 帧，均为读模式
+     */
+    public static List<ByteBuffer> encodeResponse(CommandResponse response, int streamId, int maxFrameSize,
+                                                  IntFunction<ByteBuffer> allocator) {
+        byte flags = Boolean.TRUE.equals(response.getSuccess()) ? FLAG_SUCCESS : 0;
+        return encode(TYPE_RESPONSE, response.getResponseType().value(), flags, response.getSessionId(),
+                null, new BodySource(response), streamId, maxFrameSize, allocator);
+    }
+
+    /**
+     * 将请求编码为一个或多个帧
+     * @param request 请求
+     * @param streamId 流id
+     * @param maxFrameSize 单帧最大字节数
+     * @return 帧，均为读模式
+     */
+    public static List<ByteBuffer> encodeRequest(CommandRequest request, int streamId, int maxFrameSize) {
+        byte[] size = new byte[REQUEST_SIZE_LEN];
+        putShort(size, 0, request.getRow());
+        putShort(size, 2, request.getCol());
+        return encode(TYPE_REQUEST, request.getCommandType().value(), (byte) 0, request.getSessionId(),
+                size, new BodySource(request.getCommandLine()), streamId, maxFrameSize, ByteBuffer::allocate);
+    }
+
+    /**
+     * 编码为单个帧
+     * @param request 请求
+     * @return 帧数据
+     */
+    public static byte[] encodeRequest(CommandRequest request) {
+        ByteBuffer frame = encodeRequest(request, 0, Integer.MAX_VALUE).get(0);
+        return frame.array();
+    }
+
+    /**
+     * 解码单帧的请求
+     * @param frame 帧
+     * @return 请求
+     */
+    public static CommandRequest decodeRequest(ByteBuffer frame) {
+        Header header = readHeader(frame);
+        if (TYPE_REQUEST != header.type || !header.isFin()) {
+            throw new JarbootException("协议错误，不是完整的请求帧");
+        }
+        CommandRequest request = new CommandRequest();
+        request.setCommandType(CommandType.fromChar(header.code));
+        request.setSessionId(header.sessionId);
+        ByteBuffer body = header.body;
+        if (body.remaining() < REQUEST_SIZE_LEN) {
+            throw new JarbootException("协议错误，缺少终端尺寸");
+        }
+        request.setRow(body.getShort() & MAX_SESSION_LEN);
+        request.setCol(body.getShort() & MAX_SESSION_LEN);
+        request.setCommandLine(decode(body));
+        return request;
+    }
+
+    /**
+     * 解码单帧的响应
+     * @param frame 帧
+     * @return 响应
+     */
+    public static CommandResponse decodeResponse(ByteBuffer frame) {
+        Header header = readHeader(frame);
+        if (TYPE_RESPONSE != header.type || !header.isFin()) {
+            throw new JarbootException("协议错误，不是完整的响应帧");
+        }
+        return header.toResponse(header.body);
+    }
+
+    /**
+     * 读取帧头，body为本帧消息体的视图
+     * @param frame 帧
+     * @return 帧头
+     */
+    public static Header readHeader(ByteBuffer frame) {
+        if (!isFrame(frame)) {
+            throw new JarbootException("协议错误，不是有效的帧");
+        }
+        final int base = frame.position();
+        final byte version = frame.get(base + VERSION_OFFSET);
+        if (version > VERSION) {
+            throw new JarbootException("不支持的协议版本：" + version);
+        }
+        Header header = new Header();
+        header.type = frame.get(base + TYPE_OFFSET);
+        header.flags = frame.get(base + FLAGS_OFFSET);
+        header.code = frame.get(base + CODE_OFFSET);
+        final int sessionLen = frame.getShort(base + SESSION_LEN_OFFSET) & MAX_SESSION_LEN;
+        header.streamId = frame.getInt(base + STREAM_OFFSET);
+        final int bodyLen = frame.getInt(base + BODY_LEN_OFFSET);
+        final int sessionOffset = base + HEADER_LEN;
+        if (bodyLen < 0 || sessionOffset + sessionLen + bodyLen > frame.limit()) {
+            throw new JarbootException("协议错误，帧长度越界");
+        }
+        if (sessionLen > 0) {
+            header.sessionId = decode(frame, sessionOffset, sessionLen);
+        }
+        ByteBuffer body = frame.duplicate();
+        body.position(sessionOffset + sessionLen);
+        body.limit(sessionOffset + sessionLen + bodyLen);
+        header.body = body.slice();
+        return header;
+    }
+
+    private static List<ByteBuffer> encode(byte type, byte code, byte flags, String sessionId, byte[] prefix,
+                                           BodySource body, int streamId, int maxFrameSize,
+                                           IntFunction<ByteBuffer> allocator) {
+        final byte[] session = Utf8Utils.encode(sessionId);
+        if (session.length > MAX_SESSION_LEN) {
+            throw new JarbootException("会话id过长");
+        }
+        final int prefixLen = null == prefix ? 0 : prefix.length;
+        int remaining = prefixLen + body.length();
+        final List<ByteBuffer> frames = new ArrayList<>(1 + remaining / Math.max(1, maxFrameSize - HEADER_LEN));
+        boolean first = true;
+        do {
+            final int headerLen = HEADER_LEN + (first ? session.length : 0);
+            final long wanted = (long) headerLen + remaining;
+            final int capacity = (int) Math.min(wanted, maxFrameSize);
+            if (wanted > maxFrameSize && capacity <= headerLen + (first ? prefixLen : 0)) {
+                throw new JarbootException("单帧最大长度过小");
+            }
+            final ByteBuffer buf = allocator.apply(capacity);
+            buf.position(headerLen);
+            if (first && null != prefix) {
+                buf.put(prefix);
+            }
+            body.writeTo(buf);
+            final int bodyLen = buf.position() - headerLen;
+            final boolean fin = body.isDone();
+            if (!fin && buf.position() == headerLen + (first ? prefixLen : 0)) {
+                throw new JarbootException("单帧最大长度过小");
+            }
+            remaining -= bodyLen;
+            buf.put(0, MAGIC);
+            buf.put(VERSION_OFFSET, VERSION);
+            buf.put(TYPE_OFFSET, first ? type : TYPE_CONTINUATION);
+            buf.put(FLAGS_OFFSET, (byte) (flags | (fin ? FLAG_FIN : 0)));
+            buf.put(CODE_OFFSET, code);
+            buf.putShort(SESSION_LEN_OFFSET, (short) (first ? session.length : 0));
+            buf.putInt(STREAM_OFFSET, streamId);
+            buf.putInt(BODY_LEN_OFFSET, bodyLen);
+            if (first) {
+                for (int i = 0; i < session.length; ++i) {
+                    buf.put(HEADER_LEN + i, session[i]);
+                }
+            }
+            buf.flip();
+            frames.add(buf);
+            first = false;
+        } while (!body.isDone());
+        return frames;
+    }
+
+    private static void putShort(byte[] buf, int offset, int value) {
+        buf[offset] = (byte) (value >>> 8);
+        buf[offset + 1] = (byte) value;
+    }
+
+    private static String decode(ByteBuffer buf) {
+        String s = decode(buf, buf.position(), buf.remaining());
+        buf.position(buf.limit());
+        return s;
+    }
+
+    private static String decode(ByteBuffer buf, int offset, int len) {
+        if (buf.hasArray()) {
+            return new String(buf.array(), buf.arrayOffset() + offset, len, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; ++i) {
+            bytes[i] = buf.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 帧头
+     */
+    public static class Header {
+        private byte type;
+        private byte flags;
+        private byte code;
+        private int streamId;
+        private String sessionId;
+        private ByteBuffer body;
+
+        public byte getType() {
+            return type;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        public int getStreamId() {
+            return streamId;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public ByteBuffer getBody() {
+            return body;
+        }
+
+        public boolean isFin() {
+            return FLAG_FIN == (flags & FLAG_FIN);
+        }
+
+        public boolean isSuccess() {
+            return FLAG_SUCCESS == (flags & FLAG_SUCCESS);
+        }
+
+        /**
+         * 使用首帧的帧头创建响应，消息体引用原数组，使用时才解码
+         * @param raw 完整的消息体所在数组
+         * @param offset 偏移
+         * @param length 长度
+         * @return 响应
+         */
+        public CommandResponse toResponse(byte[] raw, int offset, int length) {
+            CommandResponse response = new CommandResponse();
+            response.setResponseType(ResponseType.fromChar(code));
+            response.setSuccess(isSuccess());
+            response.setSessionId(sessionId);
+            response.setBody(raw, offset, length);
+            return response;
+        }
+
+        /**
+         * 使用单帧的消息体创建响应
+         * @param body 消息体
+         * @return 响应
+         */
+        public CommandResponse toResponse(ByteBuffer body) {
+            if (body.hasArray()) {
+                return toResponse(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            }
+            byte[] bytes = new byte[body.remaining()];
+            body.duplicate().get(bytes);
+            return toResponse(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * 消息体来源，已是字节的消息体直接拷贝，否则边编码边写入
+     */
+    private static class BodySource {
+        private final String text;
+        private final ByteBuffer bytes;
+        private int index;
+
+        BodySource(String text) {
+            this.text = null == text ? StringUtils.EMPTY : text;
+            this.bytes = null;
+        }
+
+        BodySource(CommandResponse response) {
+            if (response.hasRawBody()) {
+                this.text = null;
+                this.bytes = response.bodyBuffer();
+            } else {
+                this.text = null == response.getBody() ? StringUtils.EMPTY : response.getBody();
+                this.bytes = null;
+            }
+        }
+
+        int length() {
+            return null == bytes ? Utf8Utils.length(text) : bytes.remaining();
+        }
+
+        void writeTo(ByteBuffer dst) {
+            if (null == bytes) {
+                index = Utf8Utils.encode(text, index, dst);
+                return;
+            }
+            //续帧在接收端重组后才解码，可在任意字节处拆分
+            final int n = Math.min(bytes.remaining(), dst.remaining());
+            final ByteBuffer slice = bytes.duplicate();
+            slice.limit(slice.position() + n);
+            dst.put(slice);
+            bytes.position(bytes.position() + n);
+        }
+
+        boolean isDone() {
+            return null == bytes ? index >= text.length() : !bytes.hasRemaining();
+        }
+    }
+
+    private FrameCodec() {}
+}
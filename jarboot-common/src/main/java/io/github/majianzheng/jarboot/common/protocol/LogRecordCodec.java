@@ -0,0 +1,101 @@
+package io.github.majianzheng.jarboot.common.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * 批量日志的记录编码，Agent端将多条日志编码为一批发送，服务端按记录写入日志存储。
+ * <pre>
+ * 记录格式：时间戳(8) + 级别(1) + 长度(4) + UTF-8文本
+ * </pre>
+ * @author majianzheng
+ */
+public class LogRecordCodec {
+    /** 记录头长度 */
+    public static final int HEADER_LEN = 13;
+    public static final byte TRACE = 0;
+    public static final byte DEBUG = 1;
+    public static final byte INFO = 2;
+    public static final byte WARN = 3;
+    public static final byte ERROR = 4;
+    /** 全部级别的掩码 */
+    public static final int ALL_LEVELS = (1 << (ERROR + 1)) - 1;
+    private static final String[] LEVEL_NAMES = {"TRACE", "DEBUG", "INFO", "WARN", "ERROR"};
+
+    /**
+     * 编码一条记录
+     * @param dst 目标缓冲
+     * @param timestamp 时间戳
+     * @param level 级别
+     * @param text 文本
+     * @param off 偏移
+     * @param len 长度
+     * @return 空间不足时返回false，缓冲不变
+     */
+    public static boolean encode(ByteBuffer dst, long timestamp, byte level, byte[] text, int off, int len) {
+        if (dst.remaining() < HEADER_LEN + len) {
+            return false;
+        }
+        dst.putLong(timestamp);
+        dst.put(level);
+        dst.putInt(len);
+        dst.put(text, off, len);
+        return true;
+    }
+
+    /**
+     * 完整记录的总长度，不完整或非法的记录及其之后的内容不计入
+     * @param src 批量记录，不改变其位置
+     * @return 长度
+     */
+    public static int validLength(ByteBuffer src) {
+        final int start = src.position();
+        final int limit = src.limit();
+        int pos = start;
+        while (limit - pos >= HEADER_LEN) {
+            final int len = src.getInt(pos + Long.BYTES + 1);
+            if (len < 0 || len > limit - pos - HEADER_LEN) {
+                break;
+            }
+            pos += HEADER_LEN + len;
+        }
+        return pos - start;
+    }
+
+    /**
+     * 级别名称
+     * @param level 级别
+     * @return 名称
+     */
+    public static String levelName(int level) {
+        return level >= 0 && level < LEVEL_NAMES.length ? LEVEL_NAMES[level] : LEVEL_NAMES[INFO];
+    }
+
+    /**
+     * 解析级别名称
+     * @param name 名称
+     * @return 级别，无法识别时为INFO
+     */
+    public static byte parseLevel(String name) {
+        if (null != name) {
+            final String upper = name.trim().toUpperCase(Locale.ROOT);
+            for (int i = 0; i < LEVEL_NAMES.length; ++i) {
+                if (LEVEL_NAMES[i].equals(upper)) {
+                    return (byte) i;
+                }
+            }
+        }
+        return INFO;
+    }
+
+    /**
+     * 不低于指定级别的掩码
+     * @param minLevel 最低级别
+     * @return 掩码
+     */
+    public static int levelMask(int minLevel) {
+        return ALL_LEVELS & ~((1 << Math.max(0, minLevel)) - 1);
+    }
+
+    private LogRecordCodec() {}
+}
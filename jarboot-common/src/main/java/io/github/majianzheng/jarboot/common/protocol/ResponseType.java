@@ -26,9 +26,24 @@ public enum ResponseType {
     NOTIFY,
 
     /**
-     * 非法的未知类型
+     * 非法的未知类型，类型按序号传输，新增的类型追加在其后以保持已有类型的序号不变
      */
-    UNKNOWN;
+    UNKNOWN,
+
+    /**
+     * 批量的标准输出流，消息体为原始字节，会话列表位于头部
+     */
+    STD_BATCH,
+
+    /**
+     * 批量日志，消息体为{@link LogRecordCodec}编码的多条记录
+     */
+    LOG_BATCH,
+
+    /**
+     * 批量遥测数据，消息体为{@link TelemetryCodec}编码的多次采样
+     */
+    TELEMETRY_BATCH;
 
     public byte value() {
         return (byte)this.ordinal();
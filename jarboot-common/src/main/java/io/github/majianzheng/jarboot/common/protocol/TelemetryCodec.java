@@ -0,0 +1,145 @@
+package io.github.majianzheng.jarboot.common.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 批量遥测数据的编码，Agent端将一段时间内的多次采样编码为一批发送，服务端解码后写入时序存储。
+ * <pre>
+ * 格式：指标个数(2) + [名称长度(2) + UTF-8名称] * 指标个数 + 采样个数(2) + [时间戳(8) + 指标值(8) * 指标个数] * 采样个数
+ * </pre>
+ * @author majianzheng
+ */
+public class TelemetryCodec {
+    private static final int MAX_COUNT = 0xFFFF;
+
+    /**
+     * 编码指标名称后的头部长度
+     * @param names 指标名称
+     * @return 长度
+     */
+    public static int headerLength(String[] names) {
+        int len = Short.BYTES + Short.BYTES;
+        for (String name : names) {
+            len += Short.BYTES + name.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return len;
+    }
+
+    /**
+     * 单次采样的长度
+     * @param metricCount 指标个数
+     * @return 长度
+     */
+    public static int sampleLength(int metricCount) {
+        return Long.BYTES + metricCount * Double.BYTES;
+    }
+
+    /**
+     * 编码一批采样
+     * @param names 指标名称
+     * @param timestamps 时间戳
+     * @param values 指标值，按采样顺序排列，每次采样依次为各指标的值
+     * @param off 起始的采样下标
+     * @param count 采样个数
+     * @return 编码后的数据
+     */
+    public static byte[] encode(String[] names, long[] timestamps, double[] values, int off, int count) {
+        if (names.length > MAX_COUNT || count > MAX_COUNT) {
+            throw new IllegalArgumentException("Too many metrics or samples in one batch.");
+        }
+        final int metricCount = names.length;
+        ByteBuffer buf = ByteBuffer.allocate(headerLength(names) + count * sampleLength(metricCount));
+        buf.putShort((short) metricCount);
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            buf.putShort((short) bytes.length);
+            buf.put(bytes);
+        }
+        buf.putShort((short) count);
+        for (int i = off; i < off + count; ++i) {
+            buf.putLong(timestamps[i]);
+            final int base = i * metricCount;
+            for (int j = 0; j < metricCount; ++j) {
+                buf.putDouble(values[base + j]);
+            }
+        }
+        return buf.array();
+    }
+
+    /**
+     * 解码一批采样
+     * @param src 数据，不改变其位置
+     * @return 采样，数据不完整时为null
+     */
+    public static Batch decode(ByteBuffer src) {
+        ByteBuffer buf = src.duplicate();
+        if (buf.remaining() < Short.BYTES) {
+            return null;
+        }
+        final int metricCount = buf.getShort() & MAX_COUNT;
+        String[] names = new String[metricCount];
+        for (int i = 0; i < metricCount; ++i) {
+            if (buf.remaining() < Short.BYTES) {
+                return null;
+            }
+            final int len = buf.getShort() & MAX_COUNT;
+            if (buf.remaining() < len) {
+                return null;
+            }
+            byte[] bytes = new byte[len];
+            buf.get(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (buf.remaining() < Short.BYTES) {
+            return null;
+        }
+        final int count = buf.getShort() & MAX_COUNT;
+        if (buf.remaining() < count * sampleLength(metricCount)) {
+            return null;
+        }
+        long[] timestamps = new long[count];
+        double[] values = new double[count * metricCount];
+        for (int i = 0; i < count; ++i) {
+            timestamps[i] = buf.getLong();
+            final int base = i * metricCount;
+            for (int j = 0; j < metricCount; ++j) {
+                values[base + j] = buf.getDouble();
+            }
+        }
+        return new Batch(names, timestamps, values);
+    }
+
+    /**
+     * 解码后的一批采样
+     */
+    public static class Batch {
+        private final String[] names;
+        private final long[] timestamps;
+        private final double[] values;
+
+        public Batch(String[] names, long[] timestamps, double[] values) {
+            this.names = names;
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+
+        public String[] getNames() {
+            return names;
+        }
+
+        public long[] getTimestamps() {
+            return timestamps;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+
+        public int size() {
+            return timestamps.length;
+        }
+    }
+
+    private TelemetryCodec() {}
+}
@@ -12,6 +12,8 @@ public class MathUtil {
      * 默认除法运算精度
      */
     private static final int DEF_DIV_SCALE = 10;
+    private static final int MIN_POWER_OF_TWO = 2;
+    private static final int MAX_POWER_OF_TWO = 1 << 30;
 
     /**
      * 提供精确的加法运算。
@@ -102,5 +104,21 @@ public class MathUtil {
         return b.divide(one, scale, RoundingMode.HALF_UP).doubleValue();
     }
 
+    /**
+     * 不小于给定值的最小2的幂，范围[2, 2^30]
+     *
+     * @param value 给定值
+     * @return 2的幂
+     */
+    public static int nextPowerOfTwo(int value) {
+        if (value <= MIN_POWER_OF_TWO) {
+            return MIN_POWER_OF_TWO;
+        }
+        if (value >= MAX_POWER_OF_TWO) {
+            return MAX_POWER_OF_TWO;
+        }
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+
     private MathUtil() {}
 }
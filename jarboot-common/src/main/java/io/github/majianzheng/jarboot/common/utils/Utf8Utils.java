@@ -0,0 +1,188 @@
+package io.github.majianzheng.jarboot.common.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * UTF-8编码工具，直接写入目标缓冲，不产生中间数组
+ * @author majianzheng
+ */
+public class Utf8Utils {
+    private static final char REPLACEMENT = '?';
+    private static final int ONE_BYTE_MAX = 0x80;
+    private static final int TWO_BYTES_MAX = 0x800;
+    private static final int TWO_BYTES = 2;
+    private static final int THREE_BYTES = 3;
+    private static final int FOUR_BYTES = 4;
+
+    /**
+     * 计算字符串的UTF-8编码长度
+     * @param s 字符串
+     * @return 编码后的字节数
+     */
+    public static int length(CharSequence s) {
+        if (null == s) {
+            return 0;
+        }
+        final int len = s.length();
+        int count = 0;
+        for (int i = 0; i < len; ++i) {
+            final char c = s.charAt(i);
+            if (c < ONE_BYTE_MAX) {
+                ++count;
+            } else if (c < TWO_BYTES_MAX) {
+                count += TWO_BYTES;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                count += FOUR_BYTES;
+                ++i;
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符编码为替换字符
+                ++count;
+            } else {
+                count += THREE_BYTES;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 从指定位置开始编码，直到字符串结束或目标缓冲无法容纳下一个完整字符
+     * @param s 字符串
+     * @param from 起始字符位置
+     * @param dst 目标缓冲
+     * @return 下一个未编码的字符位置
+     */
+    public static int encode(CharSequence s, int from, ByteBuffer dst) {
+        if (dst.hasArray()) {
+            return encodeArray(s, from, dst);
+        }
+        final int len = s.length();
+        int i = from;
+        while (i < len) {
+            final char c = s.charAt(i);
+            if (c < ONE_BYTE_MAX) {
+                if (!dst.hasRemaining()) {
+                    break;
+                }
+                dst.put((byte) c);
+                ++i;
+            } else if (c < TWO_BYTES_MAX) {
+                if (dst.remaining() < TWO_BYTES) {
+                    break;
+                }
+                dst.put((byte) (0xc0 | (c >> 6)));
+                dst.put((byte) (0x80 | (c & 0x3f)));
+                ++i;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                if (dst.remaining() < FOUR_BYTES) {
+                    break;
+                }
+                final int cp = Character.toCodePoint(c, s.charAt(i + 1));
+                dst.put((byte) (0xf0 | (cp >> 18)));
+                dst.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                dst.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                dst.put((byte) (0x80 | (cp & 0x3f)));
+                i += TWO_BYTES;
+            } else if (Character.isSurrogate(c)) {
+                if (!dst.hasRemaining()) {
+                    break;
+                }
+                dst.put((byte) REPLACEMENT);
+                ++i;
+            } else {
+                if (dst.remaining() < THREE_BYTES) {
+                    break;
+                }
+                dst.put((byte) (0xe0 | (c >> 12)));
+                dst.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                dst.put((byte) (0x80 | (c & 0x3f)));
+                ++i;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 堆内缓冲直接操作数组，避免逐字节的边界检查
+     * @param s 字符串
+     * @param from 起始字符位置
+     * @param dst 目标缓冲
+     * @return 下一个未编码的字符位置
+     */
+    private static int encodeArray(CharSequence s, int from, ByteBuffer dst) {
+        final byte[] a = dst.array();
+        final int base = dst.arrayOffset();
+        final int limit = base + dst.limit();
+        final int len = s.length();
+        int p = base + dst.position();
+        int i = from;
+        //ASCII快速路径
+        final int asciiEnd = Math.min(len, from + limit - p);
+        while (i < asciiEnd) {
+            final char c = s.charAt(i);
+            if (c >= ONE_BYTE_MAX) {
+                break;
+            }
+            a[p++] = (byte) c;
+            ++i;
+        }
+        while (i < len) {
+            final char c = s.charAt(i);
+            if (c < ONE_BYTE_MAX) {
+                if (p >= limit) {
+                    break;
+                }
+                a[p++] = (byte) c;
+                ++i;
+            } else if (c < TWO_BYTES_MAX) {
+                if (limit - p < TWO_BYTES) {
+                    break;
+                }
+                a[p++] = (byte) (0xc0 | (c >> 6));
+                a[p++] = (byte) (0x80 | (c & 0x3f));
+                ++i;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                if (limit - p < FOUR_BYTES) {
+                    break;
+                }
+                final int cp = Character.toCodePoint(c, s.charAt(i + 1));
+                a[p++] = (byte) (0xf0 | (cp >> 18));
+                a[p++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                a[p++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                a[p++] = (byte) (0x80 | (cp & 0x3f));
+                i += TWO_BYTES;
+            } else if (Character.isSurrogate(c)) {
+                if (p >= limit) {
+                    break;
+                }
+                a[p++] = (byte) REPLACEMENT;
+                ++i;
+            } else {
+                if (limit - p < THREE_BYTES) {
+                    break;
+                }
+                a[p++] = (byte) (0xe0 | (c >> 12));
+                a[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                a[p++] = (byte) (0x80 | (c & 0x3f));
+                ++i;
+            }
+        }
+        dst.position(p - base);
+        return i;
+    }
+
+    /**
+     * 编码为字节数组，长度预先计算，不产生扩容拷贝
+     * @param s 字符串
+     * @return 字节数组
+     */
+    public static byte[] encode(CharSequence s) {
+        if (null == s) {
+            return new byte[0];
+        }
+        byte[] buf = new byte[length(s)];
+        encode(s, 0, ByteBuffer.wrap(buf));
+        return buf;
+    }
+
+    private Utf8Utils() {}
+}
@@ -0,0 +1,44 @@
+package io.github.majianzheng.jarboot.common;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class StreamTextDecoderTest {
+    @Test
+    public void testSplitCodePoint() {
+        byte[] bytes = "中文😀abc".getBytes(StandardCharsets.UTF_8);
+        for (int chunk = 1; chunk <= bytes.length; ++chunk) {
+            StreamTextDecoder decoder = new StreamTextDecoder(StandardCharsets.UTF_8, 4);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < bytes.length; i += chunk) {
+                String text = decoder.decode(bytes, i, Math.min(chunk, bytes.length - i));
+                assertFalse(text.contains("�"));
+                sb.append(text);
+            }
+            sb.append(decoder.flush());
+            assertEquals("中文😀abc", sb.toString());
+        }
+    }
+
+    @Test
+    public void testSplitAnsi() {
+        StreamTextDecoder decoder = new StreamTextDecoder(StandardCharsets.UTF_8, 16);
+        byte[] head = "red:\033[3".getBytes(StandardCharsets.UTF_8);
+        assertEquals("red:", decoder.decode(head, 0, head.length));
+        byte[] tail = "1mx\033".getBytes(StandardCharsets.UTF_8);
+        assertEquals("\033[31mx", decoder.decode(tail, 0, tail.length));
+        assertEquals("\033", decoder.flush());
+    }
+
+    @Test
+    public void testCompleteLength() {
+        byte[] bytes = "ab中".getBytes(StandardCharsets.UTF_8);
+        assertEquals(2, StreamTextDecoder.completeLength(bytes, 0, bytes.length - 1));
+        assertEquals(bytes.length, StreamTextDecoder.completeLength(bytes, 0, bytes.length));
+        byte[] ansi = "ok\033[1;3".getBytes(StandardCharsets.UTF_8);
+        assertEquals(2, StreamTextDecoder.completeLength(ansi, 0, ansi.length));
+    }
+}
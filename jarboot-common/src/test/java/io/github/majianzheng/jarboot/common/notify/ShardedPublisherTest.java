@@ -0,0 +1,187 @@
+package io.github.majianzheng.jarboot.common.notify;
+
+import io.github.majianzheng.jarboot.api.event.JarbootEvent;
+import io.github.majianzheng.jarboot.api.event.Subscriber;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author majianzheng
+ */
+public class ShardedPublisherTest {
+
+    @Test
+    public void testRingBuffer() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+        assertTrue(ring.isEmpty());
+        for (int i = 0; i < 4; ++i) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+        assertEquals(Integer.valueOf(0), ring.poll());
+        assertTrue(ring.offer(4));
+        for (int i = 1; i <= 4; ++i) {
+            assertEquals(Integer.valueOf(i), ring.poll());
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testOrderPerShardKey() throws InterruptedException {
+        ShardedPublisher publisher = new ShardedPublisher(4, 64, WaitStrategy.BLOCKING, OverflowPolicy.BLOCK, "test.publisher");
+        final int count = 1000;
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(count);
+        publisher.addSubscriber(new Subscriber<KeyedEvent>() {
+            @Override
+            public void onEvent(KeyedEvent event) {
+                if ("sid-1".equals(event.key)) {
+                    received.add(event.value);
+                }
+                latch.countDown();
+            }
+
+            @Override
+            public Class<? extends JarbootEvent> subscribeType() {
+                return KeyedEvent.class;
+            }
+        });
+        for (int i = 0; i < count; ++i) {
+            assertTrue(publisher.publishEvent(new KeyedEvent(0 == i % 2 ? "sid-1" : "sid-2", i, false)));
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(count / 2, received.size());
+        for (int i = 1; i < received.size(); ++i) {
+            assertTrue(received.get(i) > received.get(i - 1));
+        }
+        TopicStats stats = publisher.getTopicStats(KeyedEvent.class.getName());
+        assertNotNull(stats);
+        assertEquals(count, stats.getPublishedCount());
+        assertEquals(0, stats.getDropCount());
+        publisher.shutdown();
+        assertFalse(publisher.publishEvent(new KeyedEvent("sid-1", 0, false)));
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        ShardedPublisher publisher = new ShardedPublisher(1, 4, WaitStrategy.BLOCKING, OverflowPolicy.DROP_OLDEST, "test.drop");
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        publisher.addSubscriber(new Subscriber<KeyedEvent>() {
+            @Override
+            public void onEvent(KeyedEvent event) {
+                if (event.value < 0) {
+                    blocked.countDown();
+                    awaitQuietly(release);
+                    return;
+                }
+                received.add(event.value);
+            }
+
+            @Override
+            public Class<? extends JarbootEvent> subscribeType() {
+                return KeyedEvent.class;
+            }
+        });
+        publisher.publishEvent(new KeyedEvent("a", -1, false));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(publisher.publishEvent(new KeyedEvent("a", i, false)));
+        }
+        TopicStats stats = publisher.getTopicStats(KeyedEvent.class.getName());
+        assertEquals(6, stats.getDropCount());
+        assertEquals(4, stats.getQueueDepth());
+        release.countDown();
+        waitDepthZero(stats);
+        assertEquals(4, received.size());
+        assertEquals(Integer.valueOf(6), received.get(0));
+        publisher.shutdown();
+    }
+
+    @Test
+    public void testCoalesce() throws InterruptedException {
+        ShardedPublisher publisher = new ShardedPublisher(1, 2, WaitStrategy.SLEEPING, OverflowPolicy.COALESCE, "test.coalesce");
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        publisher.addSubscriber(new Subscriber<KeyedEvent>() {
+            @Override
+            public void onEvent(KeyedEvent event) {
+                if (event.value < 0) {
+                    blocked.countDown();
+                    awaitQuietly(release);
+                    return;
+                }
+                received.add(event.value);
+            }
+
+            @Override
+            public Class<? extends JarbootEvent> subscribeType() {
+                return KeyedEvent.class;
+            }
+        });
+        publisher.publishEvent(new KeyedEvent("a", -1, true));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(publisher.publishEvent(new KeyedEvent("a", i, true)));
+        }
+        TopicStats stats = publisher.getTopicStats(KeyedEvent.class.getName());
+        assertEquals(7, stats.getCoalescedCount());
+        release.countDown();
+        waitDepthZero(stats);
+        assertEquals(3, received.size());
+        assertEquals(Integer.valueOf(0), received.get(0));
+        assertEquals(Integer.valueOf(1), received.get(1));
+        assertEquals(Integer.valueOf(9), received.get(2));
+        publisher.shutdown();
+    }
+
+    private static void waitDepthZero(TopicStats stats) throws InterruptedException {
+        for (int i = 0; i < 500 && stats.getQueueDepth() > 0; ++i) {
+            Thread.sleep(10);
+        }
+        // 出队计数先于投递，再等待最后一个事件处理完成
+        Thread.sleep(50);
+        assertEquals(0, stats.getQueueDepth());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class KeyedEvent implements ShardedEvent {
+        private final String key;
+        private final int value;
+        private final boolean coalescable;
+
+        KeyedEvent(String key, int value, boolean coalescable) {
+            this.key = key;
+            this.value = value;
+            this.coalescable = coalescable;
+        }
+
+        @Override
+        public String shardKey() {
+            return key;
+        }
+
+        @Override
+        public boolean isCoalescable() {
+            return coalescable;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.majianzheng.jarboot.common.protocal;
+
+import io.github.majianzheng.jarboot.common.protocol.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 新旧编解码对比，运行：在jarboot-common下执行 mvn test-compile 后以main方法启动
+ * @author majianzheng
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+    @Param({"64", "1024", "3800"})
+    private int bodySize;
+
+    private CommandResponse response;
+    private byte[] responseRaw;
+    private byte[] requestRaw;
+    private final BufferPool pool = new BufferPool(4096, 4, false);
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder(bodySize);
+        while (sb.length() < bodySize) {
+            sb.append("2024-01-01 12:00:00.000 INFO [main] 启动完成 ").append(sb.length()).append('\n');
+        }
+        response = new CommandResponse();
+        response.setResponseType(ResponseType.STD_PRINT);
+        response.setSuccess(true);
+        response.setSessionId("ab12cd34,ef56gh78");
+        response.setBody(sb.substring(0, bodySize));
+        responseRaw = response.toRaw();
+
+        CommandRequest request = new CommandRequest();
+        request.setCommandType(CommandType.USER_PUBLIC);
+        request.setSessionId("ab12cd34");
+        request.setRow(48);
+        request.setCol(160);
+        request.setCommandLine("trace com.example.DemoService handle '#cost > 10'");
+        requestRaw = request.toRaw();
+    }
+
+    @Benchmark
+    public byte[] encodeLegacy() {
+        return legacyToRaw(response);
+    }
+
+    @Benchmark
+    public byte[] encodeExact() {
+        return response.toRaw();
+    }
+
+    @Benchmark
+    public int encodePooled() {
+        ByteBuffer buf = pool.acquire(response.rawLength());
+        try {
+            response.encodeTo(buf);
+            return buf.position();
+        } finally {
+            pool.release(buf);
+        }
+    }
+
+    @Benchmark
+    public void decodeLegacy(Blackhole bh) {
+        bh.consume(legacyFromRaw(responseRaw));
+    }
+
+    @Benchmark
+    public void decodeLazy(Blackhole bh) {
+        CommandResponse resp = CommandResponse.createFromRaw(responseRaw);
+        bh.consume(resp.getSessionId());
+        bh.consume(resp.bodyBuffer());
+    }
+
+    @Benchmark
+    public void requestDecodeLegacy(Blackhole bh) {
+        bh.consume(legacyRequestSize(requestRaw));
+    }
+
+    @Benchmark
+    public void requestDecode(Blackhole bh) {
+        CommandRequest request = new CommandRequest();
+        request.fromRaw(requestRaw);
+        bh.consume(request);
+    }
+
+    private static byte[] legacyToRaw(CommandResponse resp) {
+        byte cb = resp.getResponseType().value();
+        if (Boolean.TRUE.equals(resp.getSuccess())) {
+            cb = (byte)(cb | CommandConst.SUCCESS_FLAG);
+        }
+        try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream(1024)) {
+            byteStream.write(cb);
+            byteStream.write(resp.getBody().getBytes(StandardCharsets.UTF_8));
+            byteStream.write(CommandConst.PROTOCOL_SPLIT);
+            byteStream.write(resp.getSessionId().getBytes(StandardCharsets.UTF_8));
+            return byteStream.toByteArray();
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    private static String[] legacyFromRaw(byte[] raw) {
+        int index = -1;
+        for (int i = raw.length - 1; i > 0; --i) {
+            if (CommandConst.PROTOCOL_SPLIT == raw[i]) {
+                index = i;
+                break;
+            }
+        }
+        String body = new String(raw, 1, index - 1, StandardCharsets.UTF_8);
+        String session = new String(raw, index + 1, raw.length - index - 1, StandardCharsets.UTF_8);
+        return new String[] {body, session};
+    }
+
+    private static int[] legacyRequestSize(byte[] raw) {
+        int first = -1;
+        int second = -1;
+        for (int i = 1; i < raw.length; ++i) {
+            if (CommandConst.PROTOCOL_SPLIT == raw[i]) {
+                if (first < 0) {
+                    first = i;
+                } else {
+                    second = i;
+                    break;
+                }
+            }
+        }
+        String session = new String(raw, 1, first - 1, StandardCharsets.UTF_8);
+        String size = new String(raw, first + 1, second - first - 1, StandardCharsets.UTF_8);
+        String[] sizes = size.split(",");
+        String commandLine = new String(raw, second + 1, raw.length - second - 1, StandardCharsets.UTF_8);
+        return new int[] {Integer.parseInt(sizes[0]), Integer.parseInt(sizes[1]),
+                session.length(), commandLine.length()};
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(CodecBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -21,6 +21,8 @@ public class CommandRequestTest {
         request.fromRaw(raw);
         assertEquals(CommandType.USER_PUBLIC, request.getCommandType());
         assertEquals("123", request.getSessionId());
+        assertEquals(80, request.getRow());
+        assertEquals(90, request.getCol());
         assertEquals("trace com.demo.Test add", request.getCommandLine());
 
         //内部命令协议测试
@@ -47,6 +49,15 @@ public class CommandRequestTest {
         } catch (Throwable e) {
             assertTrue(e instanceof JarbootException);
         }
+
+        try {
+            request = new CommandRequest();
+            raw = toByte(CommandType.USER_PUBLIC.value(), "123\r80x90\rjvm");
+            request.fromRaw(raw);
+            org.junit.Assert.fail("终端尺寸格式错误应抛出异常");
+        } catch (JarbootException e) {
+            assertTrue(e.getMessage().contains("终端尺寸"));
+        }
     }
 
     @Test
@@ -7,6 +7,8 @@ import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.Assert.*;
@@ -88,6 +90,51 @@ public class CommandResponseTest {
         assertArrayEquals(toByte(header, "body xxx data\r125663"), response.toRaw());
     }
 
+    @Test
+    public void testStdBatch() throws IOException {
+        byte[] header = CommandResponse.stdBatchHeader("s1,s2");
+        assertEquals(CommandResponse.STD_BATCH_HEADER_LEN + 5, header.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header);
+        out.write("line1\r\nline2 中文\n".getBytes(StandardCharsets.UTF_8));
+        CommandResponse response = CommandResponse.createFromRaw(out.toByteArray());
+        assertEquals(ResponseType.STD_BATCH, response.getResponseType());
+        assertTrue(response.getSuccess());
+        assertEquals("s1,s2", response.getSessionId());
+        assertEquals("line1\r\nline2 中文\n", response.getBody());
+
+        //会话列表越界
+        header[2] = 100;
+        response = CommandResponse.createFromRaw(header);
+        assertFalse(response.getSuccess());
+    }
+
+    @Test
+    public void testLazyBody() throws IOException {
+        byte header = (byte) (ResponseType.STD_PRINT.value() | CommandConst.SUCCESS_FLAG);
+        byte[] raw = toByte(header, "中文 body\r\ndata\r123");
+        CommandResponse response = CommandResponse.createFromRaw(raw);
+        assertEquals("123", response.getSessionId());
+        ByteBuffer body = response.bodyBuffer();
+        assertEquals("中文 body\r\ndata".getBytes(StandardCharsets.UTF_8).length, body.remaining());
+        assertEquals("中文 body\r\ndata", StandardCharsets.UTF_8.decode(body).toString());
+        //未解码时重新编码直接拷贝原始字节
+        assertArrayEquals(raw, response.toRaw());
+        assertEquals("中文 body\r\ndata", response.getBody());
+
+        response.setBody("新的消息体");
+        ByteBuffer buf = ByteBuffer.allocate(response.rawLength());
+        response.encodeTo(buf);
+        assertFalse(buf.hasRemaining());
+        assertArrayEquals(response.toRaw(), buf.array());
+        try {
+            response.encodeTo(ByteBuffer.allocate(3));
+            fail("缓冲不足应抛出异常");
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+    }
+
     private byte[] toByte(Byte type, String cmd) throws IOException {
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         if (null != type) {
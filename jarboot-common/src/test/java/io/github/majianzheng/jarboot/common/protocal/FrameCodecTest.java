@@ -0,0 +1,116 @@
+package io.github.majianzheng.jarboot.common.protocal;
+
+import io.github.majianzheng.jarboot.common.protocol.*;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameCodecTest {
+    @Test
+    public void testRequest() {
+        CommandRequest request = new CommandRequest();
+        request.setCommandType(CommandType.USER_PUBLIC);
+        request.setSessionId("session-1");
+        request.setRow(40);
+        request.setCol(120);
+        request.setCommandLine("trace demo.Main run '#cost > 10'");
+        byte[] frame = FrameCodec.encodeRequest(request);
+        assertTrue(FrameCodec.isFrame(frame));
+        assertFalse(FrameCodec.isFrame(request.toRaw()));
+
+        CommandRequest decoded = FrameCodec.decodeRequest(ByteBuffer.wrap(frame));
+        assertEquals(CommandType.USER_PUBLIC, decoded.getCommandType());
+        assertEquals("session-1", decoded.getSessionId());
+        assertEquals(40, decoded.getRow());
+        assertEquals(120, decoded.getCol());
+        assertEquals(request.getCommandLine(), decoded.getCommandLine());
+    }
+
+    @Test
+    public void testSingleFrameResponse() {
+        CommandResponse response = new CommandResponse();
+        response.setResponseType(ResponseType.NOTIFY);
+        response.setSuccess(true);
+        response.setSessionId("abc");
+        response.setBody("hello 世界");
+        List<ByteBuffer> frames = FrameCodec.encodeResponse(response, 1, 4000);
+        assertEquals(1, frames.size());
+
+        CommandResponse decoded = new FrameAssembler().onFrame(frames.get(0));
+        assertNotNull(decoded);
+        assertEquals(ResponseType.NOTIFY, decoded.getResponseType());
+        assertTrue(decoded.getSuccess());
+        assertEquals("abc", decoded.getSessionId());
+        assertEquals("hello 世界", decoded.getBody());
+    }
+
+    @Test
+    public void testChunkedResponse() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; ++i) {
+            sb.append(i).append("中文😀").append('\n');
+        }
+        CommandResponse response = new CommandResponse();
+        response.setResponseType(ResponseType.NOTIFY);
+        response.setSuccess(false);
+        response.setSessionId("s1,s2");
+        response.setBody(sb.toString());
+        List<ByteBuffer> frames = FrameCodec.encodeResponse(response, 7, 4000);
+        assertTrue(frames.size() > 1);
+
+        FrameAssembler assembler = new FrameAssembler();
+        CommandResponse decoded = null;
+        for (ByteBuffer frame : frames) {
+            assertTrue(frame.remaining() <= 4000);
+            assertNull(decoded);
+            decoded = assembler.onFrame(frame);
+        }
+        assertNotNull(decoded);
+        assertEquals(0, assembler.pendingCount());
+        assertEquals(ResponseType.NOTIFY, decoded.getResponseType());
+        assertFalse(decoded.getSuccess());
+        assertEquals("s1,s2", decoded.getSessionId());
+        assertEquals(sb.toString(), decoded.getBody());
+    }
+
+    @Test
+    public void testInterleavedStreams() {
+        CommandResponse first = new CommandResponse();
+        first.setResponseType(ResponseType.NOTIFY);
+        first.setSessionId("a");
+        first.setBody(repeat('a', 10000));
+        CommandResponse second = new CommandResponse();
+        second.setResponseType(ResponseType.NOTIFY);
+        second.setSessionId("b");
+        second.setBody(repeat('b', 9000));
+        List<ByteBuffer> frames1 = FrameCodec.encodeResponse(first, 1, 1024);
+        List<ByteBuffer> frames2 = FrameCodec.encodeResponse(second, 2, 1024);
+
+        FrameAssembler assembler = new FrameAssembler();
+        CommandResponse r1 = null;
+        CommandResponse r2 = null;
+        for (int i = 0; i < Math.max(frames1.size(), frames2.size()); ++i) {
+            if (i < frames1.size()) {
+                r1 = assembler.onFrame(frames1.get(i));
+            }
+            if (i < frames2.size()) {
+                r2 = assembler.onFrame(frames2.get(i));
+            }
+        }
+        assertNotNull(r1);
+        assertNotNull(r2);
+        assertEquals(first.getBody(), r1.getBody());
+        assertEquals(second.getBody(), r2.getBody());
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; ++i) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
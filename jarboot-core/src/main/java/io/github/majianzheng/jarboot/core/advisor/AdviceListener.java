@@ -30,23 +30,21 @@ public interface AdviceListener {
      * 前置通知
      *
      * @param clazz     类
-     * @param methodName 方法名
-     * @param methodDesc 方法描述
+     * @param method     方法，同一个方法的通知共用
      * @param target     目标类实例
      *                   若目标为静态方法,则为null
      * @param args       参数列表
      * @throws Throwable 通知过程出错
      */
     void before(
-            Class<?> clazz, String methodName, String methodDesc,
+            Class<?> clazz, JarbootMethod method,
             Object target, Object[] args) throws Throwable;
 
     /**
      * 返回通知
      *
      * @param clazz       类
-     * @param methodName   方法名
-     * @param methodDesc   方法描述
+     * @param method       方法，同一个方法的通知共用
      * @param target       目标类实例
      *                     若目标为静态方法,则为null
      * @param args         参数列表
@@ -55,7 +53,7 @@ public interface AdviceListener {
      * @throws Throwable 通知过程出错
      */
     void afterReturning(
-            Class<?> clazz, String methodName, String methodDesc,
+            Class<?> clazz, JarbootMethod method,
             Object target, Object[] args,
             Object returnObject) throws Throwable;
 
@@ -63,8 +61,7 @@ public interface AdviceListener {
      * 异常通知
      *
      * @param clazz     类
-     * @param methodName 方法名
-     * @param methodDesc 方法描述
+     * @param method     方法，同一个方法的通知共用
      * @param target     目标类实例
      *                   若目标为静态方法,则为null
      * @param args       参数列表
@@ -72,7 +69,7 @@ public interface AdviceListener {
      * @throws Throwable 通知过程出错
      */
     void afterThrowing(
-            Class<?> clazz, String methodName, String methodDesc,
+            Class<?> clazz, JarbootMethod method,
             Object target, Object[] args,
             Throwable throwable) throws Throwable;
 
@@ -1,10 +1,11 @@
 package io.github.majianzheng.jarboot.core.advisor;
 
+import io.github.majianzheng.jarboot.core.cmd.express.Express;
 import io.github.majianzheng.jarboot.core.cmd.express.ExpressException;
 import io.github.majianzheng.jarboot.core.cmd.express.ExpressFactory;
+import io.github.majianzheng.jarboot.core.cmd.express.ParsedExpress;
 import io.github.majianzheng.jarboot.core.constant.CoreConstant;
 import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
-import io.github.majianzheng.jarboot.common.utils.StringUtils;
 
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -20,6 +21,7 @@ public abstract class AdviceListenerAdapter implements AdviceListener, JobAware
     private long id = ID_GENERATOR.addAndGet(1);
 
     private boolean verbose;
+    private AdviceSampler sampler;
 
     @Override
     public long id() {
@@ -57,23 +59,20 @@ public abstract class AdviceListenerAdapter implements AdviceListener, JobAware
     }
 
     @Override
-    public final void before(Class<?> clazz, String methodName, String methodDesc, Object target, Object[] args)
-            throws Throwable {
-        before(clazz.getClassLoader(), clazz, new JarbootMethod(clazz, methodName, methodDesc), target, args);
+    public final void before(Class<?> clazz, JarbootMethod method, Object target, Object[] args) throws Throwable {
+        before(clazz.getClassLoader(), clazz, method, target, args);
     }
 
     @Override
-    public final void afterReturning(Class<?> clazz, String methodName, String methodDesc, Object target, Object[] args,
+    public final void afterReturning(Class<?> clazz, JarbootMethod method, Object target, Object[] args,
             Object returnObject) throws Throwable {
-        afterReturning(clazz.getClassLoader(), clazz, new JarbootMethod(clazz, methodName, methodDesc), target, args,
-                returnObject);
+        afterReturning(clazz.getClassLoader(), clazz, method, target, args, returnObject);
     }
 
     @Override
-    public final void afterThrowing(Class<?> clazz, String methodName, String methodDesc, Object target, Object[] args,
+    public final void afterThrowing(Class<?> clazz, JarbootMethod method, Object target, Object[] args,
             Throwable throwable) throws Throwable {
-        afterThrowing(clazz.getClassLoader(), clazz, new JarbootMethod(clazz, methodName, methodDesc), target, args,
-                throwable);
+        afterThrowing(clazz.getClassLoader(), clazz, method, target, args, throwable);
     }
 
     /**
@@ -117,21 +116,49 @@ public abstract class AdviceListenerAdapter implements AdviceListener, JobAware
     public abstract void afterThrowing(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target,
                                        Object[] args, Throwable throwable) throws Throwable;
 
+    /**
+     * 解析表达式，在监听器创建时调用，语法错误时命令直接失败
+     *
+     * @param express 表达式
+     * @return 解析后的表达式，表达式为空时返回null
+     */
+    protected static ParsedExpress prepare(String express) {
+        try {
+            return ExpressFactory.parse(express);
+        } catch (ExpressException e) {
+            throw new IllegalArgumentException("Illegal express: " + express + ", " + e.getCause().getMessage(), e);
+        }
+    }
+
+    /**
+     * 绑定当前调用到线程复用的表达式上下文，同一次调用的多个表达式共用一次绑定
+     *
+     * @param advice 当前的advice对象
+     * @param cost   本次执行的耗时
+     * @return 表达式
+     */
+    protected Express bindExpress(Advice advice, double cost) {
+        return ExpressFactory.threadLocalExpress(advice).bind(CoreConstant.COST_VARIABLE, cost);
+    }
+
     /**
      * 判断条件是否满足，满足的情况下需要输出结果
      * 
-     * @param conditionExpress 条件表达式
-     * @param advice           当前的advice对象
-     * @param cost             本次执行的耗时
+     * @param condition 解析后的条件表达式，为null时总是满足
+     * @param advice    当前的advice对象
+     * @param cost      本次执行的耗时
      * @return true 如果条件表达式满足
      */
-    protected boolean isConditionMet(String conditionExpress, Advice advice, double cost) throws ExpressException {
-        return StringUtils.isEmpty(conditionExpress)
-                || ExpressFactory.threadLocalExpress(advice).bind(CoreConstant.COST_VARIABLE, cost).is(conditionExpress);
+    protected boolean isConditionMet(ParsedExpress condition, Advice advice, double cost) throws ExpressException {
+        return null == condition || bindExpress(advice, cost).is(condition);
     }
 
-    protected Object getExpressionResult(String express, Advice advice, double cost) throws ExpressException {
-        return ExpressFactory.threadLocalExpress(advice).bind(CoreConstant.COST_VARIABLE, cost).get(express);
+    /**
+     * 本次调用是否采集，需在构建Advice和执行表达式之前调用
+     * @return 是否采集
+     */
+    protected boolean isSampled() {
+        return null == sampler || sampler.tryAcquire();
     }
 
     /**
@@ -165,4 +192,12 @@ public abstract class AdviceListenerAdapter implements AdviceListener, JobAware
         this.verbose = verbose;
     }
 
+    public AdviceSampler getSampler() {
+        return sampler;
+    }
+
+    public void setSampler(AdviceSampler sampler) {
+        this.sampler = sampler;
+    }
+
 }
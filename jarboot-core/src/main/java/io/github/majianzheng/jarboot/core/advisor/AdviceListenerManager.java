@@ -1,187 +1,276 @@
 package io.github.majianzheng.jarboot.core.advisor;
 
 import io.github.majianzheng.jarboot.common.ConcurrentWeakKeyHashMap;
-import io.github.majianzheng.jarboot.core.basic.EnvironmentContext;
-import io.github.majianzheng.jarboot.core.utils.LogUtils;
-import org.slf4j.Logger;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 /**
+ * 监听器注册表，织入时为每个方法和调用点分配id，运行时按id直接索引监听器快照。
+ * 类加载器被回收后其类不会再执行，释放为它分配的方法和调用点
  * @author majianzheng
  * 以下代码来自开源项目Arthas，进行了较大的修改
  */
 public class AdviceListenerManager { //NOSONAR
-    /** 日志 */
-    private static final Logger logger = LogUtils.getLogger();
+    /** 启动类加载器的占位，用作Map的key */
     private static final FakeBootstrapClassLoader FAKEBOOTSTRAPCLASSLOADER = new FakeBootstrapClassLoader();
+    private static final AdviceListener[] EMPTY = new AdviceListener[0];
+    private static final int INITIAL_CAPACITY = 256;
+    /** 保留的已注销监听器id个数 */
+    private static final int MAX_DEAD_LISTENERS = 1024;
 
-    static {
-        init();
-    }
-
-    private static void init() {
-        // 清理失效的 AdviceListener
-        EnvironmentContext.getScheduledExecutor()
-                .scheduleWithFixedDelay(AdviceListenerManager::cleanOutDateListener,
-                        5, 5, TimeUnit.SECONDS);
-    }
-
-    private static void cleanOutDateListener() { //NOSONAR
-        try {
-            if (ADVICE_LISTENER_MAP != null) {
-                for (Map.Entry<ClassLoader, ClassLoaderAdviceListenerManager> entry : ADVICE_LISTENER_MAP.entrySet()) {
-                    ClassLoaderAdviceListenerManager adviceListenerManager = entry.getValue();
-                    synchronized (adviceListenerManager) {
-                        for (Map.Entry<String, List<AdviceListener>> eee : adviceListenerManager.map.entrySet()) {
-                            List<AdviceListener> listeners = eee.getValue();
-                            List<AdviceListener> newResult = new ArrayList<>();
-                            for (AdviceListener listener : listeners) {
-                                if (listener instanceof JobAware) {
-                                    JobAware job = (JobAware) listener;
-                                    if (EnvironmentContext.checkJobEnd(job.getSessionId(), job.getJobId())) {
-                                        continue;
-                                    }
-                                    newResult.add(listener);
-                                }
-                            }
-
-                            if (newResult.size() != listeners.size()) {
-                                adviceListenerManager.map.put(eee.getKey(), newResult);
-                            }
-
-                        }
-                    }
+    private static final ConcurrentWeakKeyHashMap<ClassLoader, ClassLoaderAdviceListenerManager> ADVICE_LISTENER_MAP =
+            new ConcurrentWeakKeyHashMap<>();
+    /** 监听器id -> 注册了该监听器的槽位，任务结束时据此立即移除 */
+    private static final ConcurrentHashMap<Long, List<ListenerSlot>> LISTENER_SLOTS = new ConcurrentHashMap<>(16);
+    /** 已注销的监听器id，拒绝仍在执行的transform迟到的注册 */
+    private static final Set<Long> DEAD_LISTENERS = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<Long, Boolean>(64) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    return size() > MAX_DEAD_LISTENERS;
                 }
-            }
-        } catch (Throwable e) { //NOSONAR
-            logger.error("clean AdviceListener error", e);
-        }
+            }));
+    /** 已被回收的类加载器 */
+    private static final ReferenceQueue<ClassLoader> COLLECTED = new ReferenceQueue<>();
+    /** 保持引用可达，直到类加载器被回收 */
+    private static final Set<LoaderRef> LOADER_REFS = ConcurrentHashMap.newKeySet();
+    /** id -> 方法或调用点 */
+    private static volatile AdviceMethod[] methods = new AdviceMethod[INITIAL_CAPACITY];
+    private static int nextId = 0;
+
+    /**
+     * 获取id对应的方法或调用点
+     * @param id 织入时分配的id
+     * @return 方法，不存在时为null
+     */
+    public static AdviceMethod getMethod(int id) {
+        final AdviceMethod[] array = methods;
+        return id >= 0 && id < array.length ? array[id] : null;
     }
 
-    private static final ConcurrentWeakKeyHashMap<ClassLoader, ClassLoaderAdviceListenerManager> ADVICE_LISTENER_MAP =
-            new ConcurrentWeakKeyHashMap<>();
+    /**
+     * 获取方法的id，不存在时分配
+     * @param classLoader 类加载器
+     * @param className 类名
+     * @param methodName 方法名
+     * @param methodDesc 方法描述
+     * @return id
+     */
+    public static int methodId(ClassLoader classLoader, String className, String methodName, String methodDesc) {
+        ClassLoaderAdviceListenerManager manager = getOrCreate(classLoader);
+        final String name = className.replace('/', '.');
+        return manager.methodIds.computeIfAbsent(manager.key(name, methodName, methodDesc),
+                k -> register(new AdviceMethod(name, null, methodName, methodDesc, -1, new ListenerSlot())));
+    }
 
-    static class ClassLoaderAdviceListenerManager {
-        private ConcurrentHashMap<String, List<AdviceListener>> map = new ConcurrentHashMap<>();
+    /**
+     * 获取调用点的id，不存在时分配，同一方法中调用同一方法的调用点共享监听器
+     * @param classLoader 类加载器
+     * @param className 类名
+     * @param owner 被调用方法所属的类
+     * @param methodName 被调用的方法名
+     * @param methodDesc 被调用的方法描述
+     * @param line 行号
+     * @return id
+     */
+    public static int invokeId(ClassLoader classLoader, String className, String owner, String methodName,
+                               String methodDesc, int line) {
+        ClassLoaderAdviceListenerManager manager = getOrCreate(classLoader);
+        final String name = className.replace('/', '.');
+        final String traceKey = manager.keyForTrace(name, owner, methodName, methodDesc);
+        return manager.invokeIds.computeIfAbsent(traceKey + '|' + line,
+                k -> register(new AdviceMethod(name, owner, methodName, methodDesc, line,
+                        manager.traceSlot(traceKey))));
+    }
 
-        private String key(String className, String methodName, String methodDesc) {
-            return className + methodName + methodDesc;
-        }
+    public static void registerAdviceListener(ClassLoader classLoader, String className, String methodName,
+            String methodDesc, AdviceListener listener) {
+        final int id = methodId(classLoader, className, methodName, methodDesc);
+        addListener(getMethod(id).getSlot(), listener);
+    }
 
-        private String keyForTrace(String className, String owner, String methodName, String methodDesc) {
-            return className + owner + methodName + methodDesc;
-        }
+    public static void registerTraceAdviceListener(ClassLoader classLoader, String className, String owner,
+            String methodName, String methodDesc, AdviceListener listener) {
+        ClassLoaderAdviceListenerManager manager = getOrCreate(classLoader);
+        final String name = className.replace('/', '.');
+        addListener(manager.traceSlot(manager.keyForTrace(name, owner, methodName, methodDesc)), listener);
+    }
 
-        public void registerAdviceListener(String className, String methodName, String methodDesc,
-                AdviceListener listener) {
-            synchronized (this) {
-                className = className.replace('/', '.');
-                String key = key(className, methodName, methodDesc);
+    /**
+     * 从所有的方法和调用点移除监听器，任务结束时调用
+     * @param listener 监听器
+     */
+    public static void unregisterAdviceListener(AdviceListener listener) {
+        releaseCollected();
+        DEAD_LISTENERS.add(listener.id());
+        removeFromSlots(listener);
+    }
 
-                List<AdviceListener> listeners = map.getOrDefault(key, null);
-                if (listeners == null) {
-                    listeners = new ArrayList<>();
-                    map.put(key, listeners);
-                }
-                if (!listeners.contains(listener)) {
-                    listeners.add(listener);
-                }
+    private static void removeFromSlots(AdviceListener listener) {
+        List<ListenerSlot> slots = LISTENER_SLOTS.remove(listener.id());
+        if (null == slots) {
+            return;
+        }
+        synchronized (slots) {
+            for (ListenerSlot slot : slots) {
+                slot.remove(listener);
             }
         }
+    }
 
-        public List<AdviceListener> queryAdviceListeners(String className, String methodName, String methodDesc) {
-            className = className.replace('/', '.');
-            String key = key(className, methodName, methodDesc);
-            return map.get(key);
+    private static void addListener(ListenerSlot slot, AdviceListener listener) {
+        if (DEAD_LISTENERS.contains(listener.id())) {
+            return;
         }
-
-        public void registerTraceAdviceListener(String className, String owner, String methodName, String methodDesc,
-                AdviceListener listener) {
-
-            className = className.replace('/', '.');
-            String key = keyForTrace(className, owner, methodName, methodDesc);
-            List<AdviceListener> listeners = map.getOrDefault(key, null);
-            if (listeners == null) {
-                listeners = new ArrayList<>();
-                map.put(key, listeners);
+        if (slot.add(listener)) {
+            List<ListenerSlot> slots = LISTENER_SLOTS.computeIfAbsent(listener.id(), k -> new ArrayList<>());
+            synchronized (slots) {
+                slots.add(slot);
             }
-            if (!listeners.contains(listener)) {
-                listeners.add(listener);
+            //与注销并发时，注销可能已经遍历完槽位列表，再次移除
+            if (DEAD_LISTENERS.contains(listener.id())) {
+                slot.remove(listener);
+                removeFromSlots(listener);
             }
         }
+    }
 
-        public List<AdviceListener> queryTraceAdviceListeners(String className, String owner, String methodName,
-                String methodDesc) {
-            className = className.replace('/', '.');
-            String key = keyForTrace(className, owner, methodName, methodDesc);
-            return map.get(key);
+    private static synchronized int register(AdviceMethod method) {
+        final int id = nextId++;
+        AdviceMethod[] array = methods;
+        if (id >= array.length) {
+            array = Arrays.copyOf(array, array.length << 1);
         }
+        array[id] = method;
+        //volatile写保证读取到数组的线程能看到新的元素
+        methods = array;
+        return id;
     }
 
-    public static void registerAdviceListener(ClassLoader classLoader, String className, String methodName,
-            String methodDesc, AdviceListener listener) {
-        classLoader = wrap(classLoader);
-        className = className.replace('/', '.');
-
-        ClassLoaderAdviceListenerManager manager = ADVICE_LISTENER_MAP.getOrDefault(classLoader, null);
+    /**
+     * 释放已回收的类加载器分配的方法和调用点，id不再复用，避免仍在展示的结果解析到其他方法
+     */
+    static void releaseCollected() {
+        for (Reference<? extends ClassLoader> ref = COLLECTED.poll(); null != ref; ref = COLLECTED.poll()) {
+            LoaderRef loaderRef = (LoaderRef) ref;
+            LOADER_REFS.remove(loaderRef);
+            release(loaderRef.manager);
+        }
+    }
 
-        if (manager == null) {
-            manager = new ClassLoaderAdviceListenerManager();
-            ADVICE_LISTENER_MAP.put(classLoader, manager);
+    private static synchronized void release(ClassLoaderAdviceListenerManager manager) {
+        final AdviceMethod[] array = methods;
+        for (Integer id : manager.methodIds.values()) {
+            array[id] = null;
+        }
+        for (Integer id : manager.invokeIds.values()) {
+            array[id] = null;
         }
-        manager.registerAdviceListener(className, methodName, methodDesc, listener);
+        methods = array;
     }
 
-    public static List<AdviceListener> queryAdviceListeners(ClassLoader classLoader, String className,
-            String methodName, String methodDesc) {
+    private static ClassLoaderAdviceListenerManager getOrCreate(ClassLoader classLoader) {
         classLoader = wrap(classLoader);
-        className = className.replace('/', '.');
         ClassLoaderAdviceListenerManager manager = ADVICE_LISTENER_MAP.get(classLoader);
-
-        if (manager != null) {
-            return manager.queryAdviceListeners(className, methodName, methodDesc);
+        if (null == manager) {
+            synchronized (ADVICE_LISTENER_MAP) {
+                manager = ADVICE_LISTENER_MAP.get(classLoader);
+                if (null == manager) {
+                    releaseCollected();
+                    manager = new ClassLoaderAdviceListenerManager();
+                    ADVICE_LISTENER_MAP.put(classLoader, manager);
+                    LOADER_REFS.add(new LoaderRef(classLoader, manager));
+                }
+            }
         }
+        return manager;
+    }
 
-        return Collections.emptyList();
+    private static ClassLoader wrap(ClassLoader classLoader) {
+        if (classLoader != null) {
+            return classLoader;
+        }
+        return FAKEBOOTSTRAPCLASSLOADER;
     }
 
-    public static void registerTraceAdviceListener(ClassLoader classLoader, String className, String owner,
-            String methodName, String methodDesc, AdviceListener listener) {
-        classLoader = wrap(classLoader);
-        className = className.replace('/', '.');
+    static class ClassLoaderAdviceListenerManager {
+        private final ConcurrentHashMap<String, Integer> methodIds = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Integer> invokeIds = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, ListenerSlot> traceSlots = new ConcurrentHashMap<>();
 
-        ClassLoaderAdviceListenerManager manager = ADVICE_LISTENER_MAP.getOrDefault(classLoader, null);
+        private String key(String className, String methodName, String methodDesc) {
+            return className + methodName + methodDesc;
+        }
+
+        private String keyForTrace(String className, String owner, String methodName, String methodDesc) {
+            return className + owner + methodName + methodDesc;
+        }
 
-        if (manager == null) {
-            manager = new ClassLoaderAdviceListenerManager();
-            ADVICE_LISTENER_MAP.put(classLoader, manager);
+        private ListenerSlot traceSlot(String key) {
+            return traceSlots.computeIfAbsent(key, k -> new ListenerSlot());
         }
-        manager.registerTraceAdviceListener(className, owner, methodName, methodDesc, listener);
     }
 
-    public static List<AdviceListener> queryTraceAdviceListeners(ClassLoader classLoader, String className,
-            String owner, String methodName, String methodDesc) {
-        classLoader = wrap(classLoader);
-        className = className.replace('/', '.');
-        ClassLoaderAdviceListenerManager manager = ADVICE_LISTENER_MAP.get(classLoader);
+    /**
+     * 监听器槽位，发布不可变的监听器数组
+     */
+    static final class ListenerSlot {
+        private volatile AdviceListener[] listeners = EMPTY;
+
+        AdviceListener[] getListeners() {
+            return listeners;
+        }
+
+        synchronized boolean add(AdviceListener listener) {
+            for (AdviceListener l : listeners) {
+                if (l.equals(listener)) {
+                    return false;
+                }
+            }
+            AdviceListener[] array = Arrays.copyOf(listeners, listeners.length + 1);
+            array[listeners.length] = listener;
+            listeners = array;
+            return true;
+        }
 
-        if (manager != null) {
-            return manager.queryTraceAdviceListeners(className, owner, methodName, methodDesc);
+        synchronized void remove(AdviceListener listener) {
+            final AdviceListener[] current = listeners;
+            for (int i = 0; i < current.length; ++i) {
+                if (current[i].equals(listener)) {
+                    if (1 == current.length) {
+                        listeners = EMPTY;
+                        return;
+                    }
+                    AdviceListener[] array = new AdviceListener[current.length - 1];
+                    System.arraycopy(current, 0, array, 0, i);
+                    System.arraycopy(current, i + 1, array, i, array.length - i);
+                    listeners = array;
+                    return;
+                }
+            }
         }
-        return Collections.emptyList();
     }
 
-    private static ClassLoader wrap(ClassLoader classLoader) {
-        if (classLoader != null) {
-            return classLoader;
+    /**
+     * 类加载器的弱引用，回收后据此找到分配的id
+     */
+    private static final class LoaderRef extends WeakReference<ClassLoader> {
+        private final ClassLoaderAdviceListenerManager manager;
+
+        LoaderRef(ClassLoader loader, ClassLoaderAdviceListenerManager manager) {
+            super(loader, COLLECTED);
+            this.manager = manager;
         }
-        return FAKEBOOTSTRAPCLASSLOADER;
     }
 
     private static class FakeBootstrapClassLoader extends ClassLoader {
@@ -0,0 +1,76 @@
+package io.github.majianzheng.jarboot.core.advisor;
+
+/**
+ * 织入的方法或调用点，织入时分配id，运行时按id获取
+ * @author majianzheng
+ */
+public final class AdviceMethod {
+    private final String className;
+    private final String owner;
+    private final String methodName;
+    private final String methodDesc;
+    private final int line;
+    private final AdviceListenerManager.ListenerSlot slot;
+    /** 织入时还没有类，首次通知时创建，之后的通知复用 */
+    private volatile JarbootMethod jarbootMethod;
+
+    AdviceMethod(String className, String owner, String methodName, String methodDesc, int line,
+                 AdviceListenerManager.ListenerSlot slot) {
+        this.className = className;
+        this.owner = owner;
+        this.methodName = methodName;
+        this.methodDesc = methodDesc;
+        this.line = line;
+        this.slot = slot;
+    }
+
+    /**
+     * 当前的监听器，不可修改
+     * @return 监听器
+     */
+    public AdviceListener[] getListeners() {
+        return slot.getListeners();
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * 调用点被调用方法所属的类，方法时为null
+     * @return 类名
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getMethodDesc() {
+        return methodDesc;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * 通知监听器的方法，同一个方法的通知共用一个实例
+     * @param clazz 方法所属的类
+     * @return 方法
+     */
+    public JarbootMethod getJarbootMethod(Class<?> clazz) {
+        JarbootMethod method = jarbootMethod;
+        if (null == method || method.getDeclaringClass() != clazz) {
+            method = new JarbootMethod(clazz, methodName, methodDesc);
+            jarbootMethod = method;
+        }
+        return method;
+    }
+
+    AdviceListenerManager.ListenerSlot getSlot() {
+        return slot;
+    }
+}
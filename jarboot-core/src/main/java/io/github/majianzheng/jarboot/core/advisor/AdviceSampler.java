@@ -0,0 +1,123 @@
+package io.github.majianzheng.jarboot.core.advisor;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 通知采样器，在构建Advice和执行OGNL表达式之前决定本次调用是否采集。
+ * <ul>
+ *     <li>按概率采样，使用线程本地的随机数，无竞争</li>
+ *     <li>按每秒上限限流，令牌桶以GCRA方式实现，一次CAS完成取令牌</li>
+ *     <li>结果流拥塞时自动退避，每级采样率减半，恢复后逐级回升</li>
+ * </ul>
+ * @author majianzheng
+ */
+public class AdviceSampler {
+    /** 全部采集的采样率 */
+    public static final double FULL_RATE = 1D;
+    /** 最大退避级别，采样率最低降至1/1024 */
+    private static final int MAX_BACKOFF = 10;
+    /** 退避级别的调整间隔 */
+    private static final long ADJUST_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    /** 令牌桶容量为1秒的令牌数 */
+    private static final long BURST_WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final double sampleRate;
+    private final int maxPerSecond;
+    /** 取得一个令牌的间隔 */
+    private final long interval;
+    private final BooleanSupplier congestion;
+    /** 令牌桶的理论到达时间，领先当前时间的部分即为已用掉的令牌 */
+    private final AtomicLong tat = new AtomicLong(System.nanoTime());
+    /** 退避后实际的采样率 */
+    private volatile double threshold;
+    private volatile int backoff;
+    private volatile long nextAdjust;
+
+    /**
+     * 构造采样器
+     * @param sampleRate 采样率，0~1，1为全部采集
+     * @param maxPerSecond 每秒最多采集的次数，小于等于0时不限制
+     * @param congestion 结果流是否拥塞
+     */
+    public AdviceSampler(double sampleRate, int maxPerSecond, BooleanSupplier congestion) {
+        this.sampleRate = Math.max(0D, Math.min(FULL_RATE, sampleRate));
+        this.maxPerSecond = Math.max(0, maxPerSecond);
+        this.interval = this.maxPerSecond > 0 ? BURST_WINDOW / this.maxPerSecond : 0;
+        this.congestion = congestion;
+        this.threshold = this.sampleRate;
+        this.nextAdjust = System.nanoTime();
+    }
+
+    /**
+     * 本次调用是否采集
+     * @return 是否采集
+     */
+    public boolean tryAcquire() {
+        final double t = threshold;
+        if (t < FULL_RATE && ThreadLocalRandom.current().nextDouble() >= t) {
+            return false;
+        }
+        final long now = System.nanoTime();
+        if (now - nextAdjust >= 0) {
+            adjust(now);
+        }
+        return interval <= 0 || acquireToken(now);
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
+    /**
+     * 当前的退避级别
+     * @return 0为未退避
+     */
+    public int getBackoff() {
+        return backoff;
+    }
+
+    /**
+     * 是否设置了采样或限流
+     * @return 是否限制
+     */
+    public boolean isLimited() {
+        return sampleRate < FULL_RATE || maxPerSecond > 0;
+    }
+
+    private boolean acquireToken(long now) {
+        for (;;) {
+            final long current = tat.get();
+            final long next = Math.max(current, now) + interval;
+            if (next - now > BURST_WINDOW) {
+                return false;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void adjust(long now) {
+        if (now - nextAdjust < 0) {
+            return;
+        }
+        nextAdjust = now + ADJUST_INTERVAL;
+        int level = backoff;
+        if (congestion.getAsBoolean()) {
+            level = Math.min(MAX_BACKOFF, level + 1);
+        } else if (level > 0) {
+            --level;
+        } else {
+            return;
+        }
+        backoff = level;
+        threshold = sampleRate / (1 << level);
+    }
+}
@@ -39,8 +39,9 @@ public class AdviceWeaver {
      */
     public static void unReg(AdviceListener listener) {
         if (null != listener) {
-            // 注销监听器
+            // 注销监听器，并立即从所有增强的方法上移除
             ADVICES.remove(listener.id());
+            AdviceListenerManager.unregisterAdviceListener(listener);
 
             // 触发监听器销毁
             listener.destroy();
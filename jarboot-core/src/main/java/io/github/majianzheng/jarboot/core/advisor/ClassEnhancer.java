@@ -13,6 +13,8 @@ import com.alibaba.bytekit.asm.location.filter.LocationFilter;
 import com.alibaba.bytekit.utils.AsmOpUtils;
 import com.alibaba.bytekit.utils.AsmUtils;
 import com.alibaba.deps.org.objectweb.asm.ClassReader;
+import com.alibaba.deps.org.objectweb.asm.ClassVisitor;
+import com.alibaba.deps.org.objectweb.asm.MethodVisitor;
 import com.alibaba.deps.org.objectweb.asm.Opcodes;
 import com.alibaba.deps.org.objectweb.asm.Type;
 import com.alibaba.deps.org.objectweb.asm.tree.AbstractInsnNode;
@@ -41,7 +43,6 @@ import java.lang.instrument.UnmodifiableClassException;
 import java.lang.reflect.Method;
 import java.security.ProtectionDomain;
 import java.util.*;
-import static java.lang.System.arraycopy;
 
 /**
  * 对类进行通知增强
@@ -51,6 +52,9 @@ import static java.lang.System.arraycopy;
 @SuppressWarnings("java:S3740")
 public class ClassEnhancer implements ClassFileTransformer {
     private static final Logger logger = LogUtils.getLogger();
+    /** 单次retransformClasses的类数量上限，避免一次重定义过多的类导致长时间停顿 */
+    private static final int RETRANSFORM_BATCH_SIZE = 64;
+    private static final int MIN_CLASS_VERSION = 49;
 
     private final AdviceListener listener;
     private final boolean isTracing;
@@ -60,6 +64,8 @@ public class ClassEnhancer implements ClassFileTransformer {
     private final Matcher methodNameMatcher;
     private final EnhancerAffect affect;
     private Set<Class<?>> matchingClasses = null;
+    /** 织入使用的拦截器，解析结果在所有增强间共享 */
+    private final List<InterceptorProcessor> interceptorProcessors;
 
     // 被增强的类的缓存
     private static final Map<Class<?>, Object> classBytesCache = new WeakHashMap<>();
@@ -81,12 +87,40 @@ public class ClassEnhancer implements ClassFileTransformer {
         this.methodNameMatcher = methodNameMatcher;
         this.affect = new EnhancerAffect();
         affect.setListenerId(listener.id());
+        List<InterceptorProcessor> processors = new ArrayList<>(InterceptorHolder.ADVICE);
+        if (isTracing) {
+            processors.addAll(skipJDKTrace ? InterceptorHolder.TRACE_EXCLUDE_JDK : InterceptorHolder.TRACE);
+        }
+        this.interceptorProcessors = Collections.unmodifiableList(processors);
+    }
+
+    /** 拦截器只读，只需解析一次 */
+    private static class InterceptorHolder {
+        static final List<InterceptorProcessor> ADVICE = parse(SpyInterceptors.SpyInterceptor1.class,
+                SpyInterceptors.SpyInterceptor2.class, SpyInterceptors.SpyInterceptor3.class);
+        static final List<InterceptorProcessor> TRACE = parse(SpyInterceptors.SpyTraceInterceptor1.class,
+                SpyInterceptors.SpyTraceInterceptor2.class, SpyInterceptors.SpyTraceInterceptor3.class);
+        static final List<InterceptorProcessor> TRACE_EXCLUDE_JDK = parse(
+                SpyInterceptors.SpyTraceExcludeJDKInterceptor1.class,
+                SpyInterceptors.SpyTraceExcludeJDKInterceptor2.class,
+                SpyInterceptors.SpyTraceExcludeJDKInterceptor3.class);
+
+        private static List<InterceptorProcessor> parse(Class<?>... interceptors) {
+            DefaultInterceptorClassParser parser = new DefaultInterceptorClassParser();
+            List<InterceptorProcessor> processors = new ArrayList<>();
+            for (Class<?> interceptor : interceptors) {
+                processors.addAll(parser.parse(interceptor));
+            }
+            return Collections.unmodifiableList(processors);
+        }
     }
 
     @SuppressWarnings({"squid:S1181", "java:S3776", "java:S6541", "squid:S1141", "squid:S1168", "squid:S135", "java:S1066", "PointlessBooleanExpression"})
     @Override
     public byte[] transform(final ClassLoader inClassLoader, String className, Class<?> classBeingRedefined,
             ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+        boolean weaving = false;
+        ClassLoader outerLoader = null;
         try {
             // 检查classloader能否加载到 SpyAPI，如果不能，则放弃增强
             try {
@@ -104,31 +138,32 @@ public class ClassEnhancer implements ClassFileTransformer {
                 return null;
             }
 
-            ClassNode classNode = new ClassNode(Opcodes.ASM9);
-            ClassReader classReader = AsmUtils.toClassNode(classfileBuffer, classNode);
-            classNode = AsmUtils.removeJSRInstructions(classNode);
-
-            // 生成增强字节码
-            DefaultInterceptorClassParser defaultInterceptorClassParser = new DefaultInterceptorClassParser();
-
-            final List<InterceptorProcessor> interceptorProcessors = new ArrayList<>();
-
-            interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyInterceptor1.class));
-            interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyInterceptor2.class));
-            interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyInterceptor3.class));
+            // 只读取方法声明做预检查，没有可增强的方法时不解析整个类
+            final String methods = scanMatchedMethods(classfileBuffer);
+            if (methods.isEmpty()) {
+                return null;
+            }
 
-            if (this.isTracing) {
-                if (this.skipJDKTrace) {
-                    interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyTraceExcludeJDKInterceptor1.class));
-                    interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyTraceExcludeJDKInterceptor2.class));
-                    interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyTraceExcludeJDKInterceptor3.class));
-                } else {
-                    interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyTraceInterceptor1.class));
-                    interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyTraceInterceptor2.class));
-                    interceptorProcessors.addAll(defaultInterceptorClassParser.parse(SpyInterceptors.SpyTraceInterceptor3.class));
+            // 再次增强同一个类时复用织入结果
+            String digest = null;
+            if (null != classBeingRedefined) {
+                digest = WovenClassCache.digest(classfileBuffer, isTracing + "|" + skipJDKTrace + "|" + methods);
+                WovenClassCache.WovenClass woven = WovenClassCache.getInstance().get(classBeingRedefined, digest);
+                if (null != woven) {
+                    return reuse(inClassLoader, className, classBeingRedefined, woven);
                 }
             }
 
+            //织入时按类加载器分配方法和调用点的id
+            outerLoader = SpyBindings.beginWeave(inClassLoader);
+            weaving = true;
+
+            ClassNode classNode = new ClassNode(Opcodes.ASM9);
+            ClassReader classReader = AsmUtils.toClassNode(classfileBuffer, classNode);
+            classNode = AsmUtils.removeJSRInstructions(classNode);
+
+            final List<String[]> wovenMethods = new ArrayList<>();
+            final List<String[]> wovenInvokes = new ArrayList<>();
             List<MethodNode> matchedMethods = new ArrayList<>();
             for (MethodNode methodNode : classNode.methods) {
                 if (!isIgnore(methodNode, methodNameMatcher)) {
@@ -189,8 +224,7 @@ public class ClassEnhancer implements ClassFileTransformer {
                             if(AsmOpUtils.isBoxType(Type.getObjectType(methodInsnNode.owner))) {
                                 continue;
                             }
-                            AdviceListenerManager.registerTraceAdviceListener(inClassLoader, className,
-                                    methodInsnNode.owner, methodInsnNode.name, methodInsnNode.desc, listener);
+                            registerInvoke(inClassLoader, className, methodInsnNode, wovenInvokes);
                         }
                     }
                 } else {
@@ -203,8 +237,7 @@ public class ClassEnhancer implements ClassFileTransformer {
                                     MethodInsnNodeWare methodInsnNodeWare = (MethodInsnNodeWare) location;
                                     MethodInsnNode methodInsnNode = methodInsnNodeWare.methodInsnNode();
 
-                                    AdviceListenerManager.registerTraceAdviceListener(inClassLoader, className,
-                                            methodInsnNode.owner, methodInsnNode.name, methodInsnNode.desc, listener);
+                                    registerInvoke(inClassLoader, className, methodInsnNode, wovenInvokes);
                                 }
                             }
 
@@ -219,13 +252,18 @@ public class ClassEnhancer implements ClassFileTransformer {
                 AdviceListenerManager.registerAdviceListener(inClassLoader, className, methodNode.name, methodNode.desc,
                         listener);
                 affect.addMethodAndCount(inClassLoader, className, methodNode.name, methodNode.desc);
+                wovenMethods.add(new String[] {methodNode.name, methodNode.desc});
             }
 
-            if (AsmUtils.getMajorVersion(classNode.version) < 49) {
-                classNode.version = AsmUtils.setMajorVersion(classNode.version, 49);
+            if (AsmUtils.getMajorVersion(classNode.version) < MIN_CLASS_VERSION) {
+                classNode.version = AsmUtils.setMajorVersion(classNode.version, MIN_CLASS_VERSION);
             }
 
             byte[] enhanceClassByteArray = AsmUtils.toBytes(classNode, inClassLoader, classReader);
+            if (null != digest) {
+                WovenClassCache.getInstance().put(classBeingRedefined, digest,
+                        new WovenClassCache.WovenClass(enhanceClassByteArray, wovenMethods, wovenInvokes));
+            }
 
             // 增强成功，记录类
             classBytesCache.put(classBeingRedefined, new Object());
@@ -240,11 +278,63 @@ public class ClassEnhancer implements ClassFileTransformer {
         } catch (Exception t) {
             logger.warn("transform loader[{}]:class[{}] failed.", inClassLoader, className, t);
             affect.setThrowable(t);
+        } finally {
+            //只在设置了织入类加载器的路径上恢复，提前返回时不能清除外层transform的类加载器
+            if (weaving) {
+                SpyBindings.endWeave(outerLoader);
+            }
         }
 
         return null;
     }
 
+    /**
+     * 复用缓存的织入结果，重新注册本次的监听器
+     */
+    private byte[] reuse(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                         WovenClassCache.WovenClass woven) {
+        for (String[] invoke : woven.invokes) {
+            AdviceListenerManager.registerTraceAdviceListener(loader, className, invoke[0], invoke[1], invoke[2],
+                    listener);
+        }
+        for (String[] method : woven.methods) {
+            AdviceListenerManager.registerAdviceListener(loader, className, method[0], method[1], listener);
+            affect.addMethodAndCount(loader, className, method[0], method[1]);
+        }
+        classBytesCache.put(classBeingRedefined, new Object());
+        dumpClassIfNecessary(className, woven.bytecode, affect);
+        affect.cCnt(1);
+        return woven.bytecode;
+    }
+
+    private void registerInvoke(ClassLoader loader, String className, MethodInsnNode methodInsnNode,
+                                List<String[]> wovenInvokes) {
+        AdviceListenerManager.registerTraceAdviceListener(loader, className, methodInsnNode.owner,
+                methodInsnNode.name, methodInsnNode.desc, listener);
+        wovenInvokes.add(new String[] {methodInsnNode.owner, methodInsnNode.name, methodInsnNode.desc});
+    }
+
+    /**
+     * 跳过方法体只读取方法声明，得到需要增强的方法
+     * @param classfileBuffer 字节码
+     * @return 需要增强的方法名和描述，没有时为空字符串
+     */
+    private String scanMatchedMethods(byte[] classfileBuffer) {
+        final StringBuilder sb = new StringBuilder();
+        new ClassReader(classfileBuffer).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                final boolean isNative = (Opcodes.ACC_NATIVE & access) == Opcodes.ACC_NATIVE;
+                if (!isNative && !isIgnore(access, name, methodNameMatcher)) {
+                    sb.append(name).append(descriptor).append(';');
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return sb.toString();
+    }
+
     /**
      * 是否抽象属性
      */
@@ -256,10 +346,13 @@ public class ClassEnhancer implements ClassFileTransformer {
      * 是否需要忽略
      */
     private boolean isIgnore(MethodNode methodNode, Matcher methodNameMatcher) {
-        return null == methodNode ||
-                isAbstract(methodNode.access) ||
-                !methodNameMatcher.matching(methodNode.name) ||
-                JarbootCheckUtils.isEquals(methodNode.name, "<clinit>");
+        return null == methodNode || isIgnore(methodNode.access, methodNode.name, methodNameMatcher);
+    }
+
+    private boolean isIgnore(int access, String name, Matcher methodNameMatcher) {
+        return isAbstract(access) ||
+                !methodNameMatcher.matching(name) ||
+                JarbootCheckUtils.isEquals(name, "<clinit>");
     }
 
     /**
@@ -351,16 +444,9 @@ public class ClassEnhancer implements ClassFileTransformer {
         try {
             EnvironmentContext.getTransformerManager().addTransformer(this, isTracing);
 
-            // 批量增强
+            // 分批增强
             if (GlobalOptions.isBatchReTransform) {
-                final int size = matchingClasses.size();
-                final Class<?>[] classArray = new Class<?>[size];
-                arraycopy(matchingClasses.toArray(), 0, classArray, 0, size);
-                if (classArray.length > 0) {
-                    inst.retransformClasses(classArray);
-                    final String classes = Arrays.toString(classArray);
-                    logger.info("Success to batch transform classes: {}", classes);
-                }
+                retransform(inst, matchingClasses, affect);
             } else {
                 // for each 增强
                 for (Class<?> clazz : matchingClasses) {
@@ -408,7 +494,7 @@ public class ClassEnhancer implements ClassFileTransformer {
         }
 
         try {
-            enhance(inst, enhanceClassSet);
+            retransform(inst, enhanceClassSet, affect);
             logger.info("Success to reset classes: {}", enhanceClassSet);
         } finally {
             for (Class<?> resetClass : enhanceClassSet) {
@@ -420,14 +506,34 @@ public class ClassEnhancer implements ClassFileTransformer {
         return affect;
     }
 
-    // 批量增强
-    private static void enhance(Instrumentation inst, Set<Class<?>> classes)
-            throws UnmodifiableClassException {
-        int size = classes.size();
-        Class<?>[] classArray = new Class<?>[size];
-        arraycopy(classes.toArray(), 0, classArray, 0, size);
-        if (classArray.length > 0) {
-            inst.retransformClasses(classArray);
+    /**
+     * 按{@link #RETRANSFORM_BATCH_SIZE}分批重定义类，某一批失败时仅对该批逐个重试，不影响其它批次
+     * @param inst inst
+     * @param classes 类集合
+     * @param affect 记录失败的异常
+     */
+    @SuppressWarnings("squid:S1181")
+    private static void retransform(Instrumentation inst, Collection<Class<?>> classes, EnhancerAffect affect) {
+        final Class<?>[] classArray = classes.toArray(new Class<?>[0]);
+        for (int from = 0; from < classArray.length; from += RETRANSFORM_BATCH_SIZE) {
+            final Class<?>[] batch = Arrays.copyOfRange(classArray, from,
+                    Math.min(classArray.length, from + RETRANSFORM_BATCH_SIZE));
+            try {
+                inst.retransformClasses(batch);
+                if (logger.isInfoEnabled()) {
+                    logger.info("Success to batch transform classes: {}", Arrays.toString(batch));
+                }
+            } catch (Throwable e) {
+                logger.warn("batch retransform failed, retry one by one. {}", e.getMessage());
+                for (Class<?> clazz : batch) {
+                    try {
+                        inst.retransformClasses(clazz);
+                    } catch (Throwable t) {
+                        logger.warn("retransform {} failed.", clazz, t);
+                        affect.setThrowable(t);
+                    }
+                }
+            }
         }
     }
 }
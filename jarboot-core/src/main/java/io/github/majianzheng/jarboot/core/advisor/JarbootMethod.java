@@ -96,6 +96,10 @@ public class JarbootMethod {
         return null != loader ? loader : JarbootMethod.class.getClassLoader();
     }
 
+    Class<?> getDeclaringClass() {
+        return this.clazz;
+    }
+
     /**
      * 获取方法名称
      *
@@ -105,6 +109,15 @@ public class JarbootMethod {
         return this.methodName;
     }
 
+    /**
+     * 获取方法描述
+     *
+     * @return 返回方法描述
+     */
+    public String getMethodDesc() {
+        return this.methodDesc;
+    }
+
     @Override
     public String toString() {
         initMethod();
@@ -0,0 +1,43 @@
+package io.github.majianzheng.jarboot.core.advisor;
+
+/**
+ * 按方法id回调的监听器，实现此接口的监听器由Spy直接传入织入时分配的方法id，
+ * 代替{@link AdviceListener}中按方法名回调的通知，调用时不解析方法信息
+ * @author majianzheng
+ */
+@SuppressWarnings("java:S112")
+public interface MethodTraceable {
+
+    /**
+     * 前置通知
+     * @param clazz    类
+     * @param methodId 方法id
+     * @param target   目标类实例，若目标为静态方法,则为null
+     * @param args     参数列表
+     * @throws Throwable 通知过程出错
+     */
+    void atEnter(Class<?> clazz, int methodId, Object target, Object[] args) throws Throwable;
+
+    /**
+     * 返回通知
+     * @param clazz        类
+     * @param methodId     方法id
+     * @param target       目标类实例，若目标为静态方法,则为null
+     * @param args         参数列表
+     * @param returnObject 返回结果
+     * @throws Throwable 通知过程出错
+     */
+    void atExit(Class<?> clazz, int methodId, Object target, Object[] args, Object returnObject) throws Throwable;
+
+    /**
+     * 异常通知
+     * @param clazz     类
+     * @param methodId  方法id
+     * @param target    目标类实例，若目标为静态方法,则为null
+     * @param args      参数列表
+     * @param throwable 目标异常
+     * @throws Throwable 通知过程出错
+     */
+    void atExceptionExit(Class<?> clazz, int methodId, Object target, Object[] args, Throwable throwable)
+            throws Throwable;
+}
@@ -0,0 +1,135 @@
+package io.github.majianzheng.jarboot.core.advisor;
+
+import com.alibaba.bytekit.asm.binding.Binding;
+import com.alibaba.bytekit.asm.binding.BindingContext;
+import com.alibaba.bytekit.asm.binding.annotation.BindingParser;
+import com.alibaba.bytekit.asm.binding.annotation.BindingParserHandler;
+import com.alibaba.bytekit.asm.location.Location;
+import com.alibaba.bytekit.asm.location.MethodInsnNodeWare;
+import com.alibaba.bytekit.utils.AsmOpUtils;
+import com.alibaba.deps.org.objectweb.asm.Type;
+import com.alibaba.deps.org.objectweb.asm.tree.AbstractInsnNode;
+import com.alibaba.deps.org.objectweb.asm.tree.InsnList;
+import com.alibaba.deps.org.objectweb.asm.tree.LineNumberNode;
+import com.alibaba.deps.org.objectweb.asm.tree.MethodInsnNode;
+import com.alibaba.deps.org.objectweb.asm.tree.MethodNode;
+
+import java.lang.annotation.*;
+
+/**
+ * 织入时分配id的绑定，以int常量传递给SpyAPI，运行时按id直接索引监听器，避免解析字符串和查找Map
+ * @author majianzheng
+ */
+@SuppressWarnings("squid:S1118")
+public class SpyBindings {
+    /** 当前织入的类加载器，仅在transform期间有效 */
+    private static final ThreadLocal<ClassLoader> WEAVING_LOADER = new ThreadLocal<>();
+
+    /**
+     * 开始织入，绑定分配的id属于该类加载器，织入中加载其他类时可能嵌套触发transform
+     * @param loader 类加载器
+     * @return 外层正在织入的类加载器，结束时需要恢复
+     */
+    static ClassLoader beginWeave(ClassLoader loader) {
+        final ClassLoader previous = WEAVING_LOADER.get();
+        WEAVING_LOADER.set(loader);
+        return previous;
+    }
+
+    /**
+     * 结束织入，恢复外层的类加载器
+     * @param previous {@link #beginWeave(ClassLoader)}的返回值
+     */
+    static void endWeave(ClassLoader previous) {
+        if (null == previous) {
+            WEAVING_LOADER.remove();
+        } else {
+            WEAVING_LOADER.set(previous);
+        }
+    }
+
+    /**
+     * 方法id
+     */
+    @Documented
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    @BindingParserHandler(parser = MethodIdBindingParser.class)
+    public @interface MethodId {
+    }
+
+    /**
+     * 调用点id，包含被调用的方法和行号
+     */
+    @Documented
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    @BindingParserHandler(parser = InvokeIdBindingParser.class)
+    public @interface InvokeId {
+    }
+
+    public static class MethodIdBindingParser implements BindingParser {
+        @Override
+        public Binding parse(Annotation annotation) {
+            return new MethodIdBinding();
+        }
+    }
+
+    public static class InvokeIdBindingParser implements BindingParser {
+        @Override
+        public Binding parse(Annotation annotation) {
+            return new InvokeIdBinding();
+        }
+    }
+
+    static class MethodIdBinding extends Binding {
+        @Override
+        public void pushOntoStack(InsnList instructions, BindingContext bindingContext) {
+            MethodNode methodNode = bindingContext.getMethodProcessor().getMethodNode();
+            final String className = bindingContext.getMethodProcessor().getClassNode().name;
+            final int id = AdviceListenerManager.methodId(WEAVING_LOADER.get(), className, methodNode.name,
+                    methodNode.desc);
+            AsmOpUtils.push(instructions, id);
+        }
+
+        @Override
+        public Type getType(BindingContext bindingContext) {
+            return Type.INT_TYPE;
+        }
+    }
+
+    static class InvokeIdBinding extends Binding {
+        @Override
+        public void pushOntoStack(InsnList instructions, BindingContext bindingContext) {
+            Location location = bindingContext.getLocation();
+            if (!(location instanceof MethodInsnNodeWare)) {
+                throw new IllegalArgumentException("InvokeId binding location is not Invocation location, location: "
+                        + location);
+            }
+            MethodInsnNode methodInsnNode = ((MethodInsnNodeWare) location).methodInsnNode();
+            final String className = bindingContext.getMethodProcessor().getClassNode().name;
+            final int id = AdviceListenerManager.invokeId(WEAVING_LOADER.get(), className, methodInsnNode.owner,
+                    methodInsnNode.name, methodInsnNode.desc, lineNumber(location, methodInsnNode));
+            AsmOpUtils.push(instructions, id);
+        }
+
+        @Override
+        public Type getType(BindingContext bindingContext) {
+            return Type.INT_TYPE;
+        }
+
+        /**
+         * 与InvokeInfo绑定一致，调用前取之前的行号，调用后取之后的行号
+         */
+        private static int lineNumber(Location location, MethodInsnNode methodInsnNode) {
+            AbstractInsnNode node = location.isWhenComplete() ? methodInsnNode.getNext() : methodInsnNode.getPrevious();
+            while (null != node) {
+                if (node instanceof LineNumberNode) {
+                    return ((LineNumberNode) node).line;
+                }
+                node = location.isWhenComplete() ? node.getNext() : node.getPrevious();
+            }
+            return -1;
+        }
+    }
+}
@@ -5,11 +5,9 @@ import io.github.majianzheng.jarboot.core.utils.LogUtils;
 import org.slf4j.Logger;
 
 import java.jarboot.SpyAPI;
-import java.util.List;
-import java.util.regex.Pattern;
 
 /**
- * Spy实现，切入点
+ * Spy实现，切入点，按织入时分配的id获取监听器，没有监听器时不产生任何分配
  * @author majianzheng
  * 以下代码基于开源项目Arthas适配修改
  */
@@ -17,158 +15,131 @@ public class SpyImpl extends SpyAPI.AbstractSpy {
     private static final Logger logger = LogUtils.getLogger();
 
     @Override
-    public void atEnter(Class<?> clazz, String methodInfo, Object target, Object[] args) {
-        ClassLoader classLoader = clazz.getClassLoader();
-
-        String[] info = splitMethodInfo(methodInfo);
-        String methodName = info[0];
-        String methodDesc = info[1];
-        List<AdviceListener> listeners = AdviceListenerManager.queryAdviceListeners(classLoader, clazz.getName(),
-                methodName, methodDesc);
-        if (listeners != null) {
-            for (AdviceListener adviceListener : listeners) {
-                try {
-                    if (skipAdviceListener(adviceListener)) {
-                        continue;
-                    }
-                    adviceListener.before(clazz, methodName, methodDesc, target, args);
-                } catch (Throwable e) {
-                    logger.error("class: {}, methodInfo: {}, {}", clazz.getName(), methodInfo, e);
+    public void atEnter(Class<?> clazz, int methodId, Object target, Object[] args) {
+        AdviceMethod method = AdviceListenerManager.getMethod(methodId);
+        if (null == method) {
+            return;
+        }
+        for (AdviceListener adviceListener : method.getListeners()) {
+            try {
+                if (skipAdviceListener(adviceListener)) {
+                    continue;
+                }
+                if (adviceListener instanceof MethodTraceable) {
+                    ((MethodTraceable) adviceListener).atEnter(clazz, methodId, target, args);
+                } else {
+                    adviceListener.before(clazz, method.getJarbootMethod(clazz), target, args);
                 }
+            } catch (Throwable e) {
+                logger.error("class: {}, method: {}{}, {}", clazz.getName(), method.getMethodName(),
+                        method.getMethodDesc(), e);
             }
         }
-
     }
 
     @Override
-    public void atExit(Class<?> clazz, String methodInfo, Object target, Object[] args, Object returnObject) {
-        ClassLoader classLoader = clazz.getClassLoader();
-        String[] info = splitMethodInfo(methodInfo);
-        String methodName = info[0];
-        String methodDesc = info[1];
-
-        List<AdviceListener> listeners = AdviceListenerManager.queryAdviceListeners(classLoader, clazz.getName(),
-                methodName, methodDesc);
-        if (listeners != null) {
-            for (AdviceListener adviceListener : listeners) {
-                try {
-                    if (skipAdviceListener(adviceListener)) {
-                        continue;
-                    }
-                    adviceListener.afterReturning(clazz, methodName, methodDesc, target, args, returnObject);
-                } catch (Throwable e) {
-                    logger.error("class: {}, methodInfo: {}", clazz.getName(), methodInfo, e);
+    public void atExit(Class<?> clazz, int methodId, Object target, Object[] args, Object returnObject) {
+        AdviceMethod method = AdviceListenerManager.getMethod(methodId);
+        if (null == method) {
+            return;
+        }
+        for (AdviceListener adviceListener : method.getListeners()) {
+            try {
+                if (skipAdviceListener(adviceListener)) {
+                    continue;
+                }
+                if (adviceListener instanceof MethodTraceable) {
+                    ((MethodTraceable) adviceListener).atExit(clazz, methodId, target, args, returnObject);
+                } else {
+                    adviceListener.afterReturning(clazz, method.getJarbootMethod(clazz), target, args, returnObject);
                 }
+            } catch (Throwable e) {
+                logger.error("class: {}, method: {}{}", clazz.getName(), method.getMethodName(),
+                        method.getMethodDesc(), e);
             }
         }
     }
 
     @Override
-    public void atExceptionExit(Class<?> clazz, String methodInfo, Object target, Object[] args, Throwable throwable) {
-        ClassLoader classLoader = clazz.getClassLoader();
-        String[] info = splitMethodInfo(methodInfo);
-        String methodName = info[0];
-        String methodDesc = info[1];
-
-        List<AdviceListener> listeners = AdviceListenerManager.queryAdviceListeners(classLoader, clazz.getName(),
-                methodName, methodDesc);
-        if (listeners != null) {
-            for (AdviceListener adviceListener : listeners) {
-                try {
-                    if (skipAdviceListener(adviceListener)) {
-                        continue;
-                    }
-                    adviceListener.afterThrowing(clazz, methodName, methodDesc, target, args, throwable);
-                } catch (Throwable e) {
-                    logger.error("class: {}, methodInfo: {}", clazz.getName(), methodInfo, e);
+    public void atExceptionExit(Class<?> clazz, int methodId, Object target, Object[] args, Throwable throwable) {
+        AdviceMethod method = AdviceListenerManager.getMethod(methodId);
+        if (null == method) {
+            return;
+        }
+        for (AdviceListener adviceListener : method.getListeners()) {
+            try {
+                if (skipAdviceListener(adviceListener)) {
+                    continue;
+                }
+                if (adviceListener instanceof MethodTraceable) {
+                    ((MethodTraceable) adviceListener).atExceptionExit(clazz, methodId, target, args, throwable);
+                } else {
+                    adviceListener.afterThrowing(clazz, method.getJarbootMethod(clazz), target, args, throwable);
                 }
+            } catch (Throwable e) {
+                logger.error("class: {}, method: {}{}", clazz.getName(), method.getMethodName(),
+                        method.getMethodDesc(), e);
             }
         }
     }
 
     @Override
-    public void atBeforeInvoke(Class<?> clazz, String invokeInfo, Object target) {
-        ClassLoader classLoader = clazz.getClassLoader();
-        String[] info = splitInvokeInfo(invokeInfo);
-        String owner = info[0];
-        String methodName = info[1];
-        String methodDesc = info[2];
-
-        List<AdviceListener> listeners = AdviceListenerManager.queryTraceAdviceListeners(classLoader, clazz.getName(),
-                owner, methodName, methodDesc);
-        if (listeners != null) {
-            for (AdviceListener adviceListener : listeners) {
-                try {
-                    if (skipAdviceListener(adviceListener)) {
-                        continue;
-                    }
-                    final InvokeTraceable listener = (InvokeTraceable) adviceListener;
-                    listener.invokeBeforeTracing(classLoader, owner, methodName, methodDesc, Integer.parseInt(info[3]));
-                } catch (Throwable e) {
-                    logger.error("class: {}, invokeInfo: {}, {}", clazz.getName(), invokeInfo, e);
+    public void atBeforeInvoke(Class<?> clazz, int invokeId, Object target) {
+        AdviceMethod invoke = AdviceListenerManager.getMethod(invokeId);
+        if (null == invoke) {
+            return;
+        }
+        for (AdviceListener adviceListener : invoke.getListeners()) {
+            try {
+                if (skipAdviceListener(adviceListener)) {
+                    continue;
                 }
+                ((InvokeTraceable) adviceListener).invokeBeforeTracing(clazz, invokeId);
+            } catch (Throwable e) {
+                logger.error("class: {}, invoke: {}.{}, {}", clazz.getName(), invoke.getOwner(),
+                        invoke.getMethodName(), e);
             }
         }
     }
 
     @Override
-    public void atAfterInvoke(Class<?> clazz, String invokeInfo, Object target) {
-        ClassLoader classLoader = clazz.getClassLoader();
-        String[] info = splitInvokeInfo(invokeInfo);
-        String owner = info[0];
-        String methodName = info[1];
-        String methodDesc = info[2];
-        List<AdviceListener> listeners = AdviceListenerManager.queryTraceAdviceListeners(classLoader, clazz.getName(),
-                owner, methodName, methodDesc);
-        if (listeners != null) {
-            for (AdviceListener adviceListener : listeners) {
-                try {
-                    if (skipAdviceListener(adviceListener)) {
-                        continue;
-                    }
-                    final InvokeTraceable listener = (InvokeTraceable) adviceListener;
-                    listener.invokeAfterTracing(classLoader, owner, methodName, methodDesc, Integer.parseInt(info[3]));
-                } catch (Throwable e) {
-                    logger.error("class: {}, invokeInfo: {}", clazz.getName(), invokeInfo, e);
+    public void atAfterInvoke(Class<?> clazz, int invokeId, Object target) {
+        AdviceMethod invoke = AdviceListenerManager.getMethod(invokeId);
+        if (null == invoke) {
+            return;
+        }
+        for (AdviceListener adviceListener : invoke.getListeners()) {
+            try {
+                if (skipAdviceListener(adviceListener)) {
+                    continue;
                 }
+                ((InvokeTraceable) adviceListener).invokeAfterTracing(clazz, invokeId);
+            } catch (Throwable e) {
+                logger.error("class: {}, invoke: {}.{}", clazz.getName(), invoke.getOwner(),
+                        invoke.getMethodName(), e);
             }
         }
-
     }
 
     @Override
-    public void atInvokeException(Class<?> clazz, String invokeInfo, Object target, Throwable throwable) {
-        ClassLoader classLoader = clazz.getClassLoader();
-        String[] info = splitInvokeInfo(invokeInfo);
-        String owner = info[0];
-        String methodName = info[1];
-        String methodDesc = info[2];
-        List<AdviceListener> listeners = AdviceListenerManager.queryTraceAdviceListeners(classLoader, clazz.getName(),
-                owner, methodName, methodDesc);
-
-        if (listeners != null) {
-            for (AdviceListener adviceListener : listeners) {
-                try {
-                    if (skipAdviceListener(adviceListener)) {
-                        continue;
-                    }
-                    final InvokeTraceable listener = (InvokeTraceable) adviceListener;
-                    listener.invokeThrowTracing(classLoader, owner, methodName, methodDesc, Integer.parseInt(info[3]));
-                } catch (Throwable e) {
-                    logger.error("class: {}, invokeInfo: {}", clazz.getName(), invokeInfo, e);
+    public void atInvokeException(Class<?> clazz, int invokeId, Object target, Throwable throwable) {
+        AdviceMethod invoke = AdviceListenerManager.getMethod(invokeId);
+        if (null == invoke) {
+            return;
+        }
+        for (AdviceListener adviceListener : invoke.getListeners()) {
+            try {
+                if (skipAdviceListener(adviceListener)) {
+                    continue;
                 }
+                ((InvokeTraceable) adviceListener).invokeThrowTracing(clazz, invokeId);
+            } catch (Throwable e) {
+                logger.error("class: {}, invoke: {}.{}", clazz.getName(), invoke.getOwner(),
+                        invoke.getMethodName(), e);
             }
         }
     }
 
-    private String[] splitMethodInfo(String methodInfo) {
-        return methodInfo.split(Pattern.quote("|"));
-    }
-
-    private String[] splitInvokeInfo(String invokeInfo) {
-        return invokeInfo.split(Pattern.quote("|"));
-    }
-
     private boolean skipAdviceListener(AdviceListener adviceListener) {
         if (adviceListener instanceof JobAware) {
             JobAware aware = (JobAware) adviceListener;
@@ -177,4 +148,4 @@ public class SpyImpl extends SpyAPI.AbstractSpy {
         return false;
     }
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package io.github.majianzheng.jarboot.core.advisor;
 
+import io.github.majianzheng.jarboot.core.utils.DecompileCache;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
 import org.slf4j.Logger;
 import java.lang.instrument.ClassFileTransformer;
@@ -35,6 +36,10 @@ public class TransformerManager {
                                     Class<?> classBeingRedefined,
                                     ProtectionDomain protectionDomain,
                                     byte[] classfileBuffer) throws IllegalClassFormatException {
+                if (null != classBeingRedefined) {
+                    //增强、重置以及重定义都会经过这里，字节码可能变化
+                    DecompileCache.getInstance().invalidate(classBeingRedefined);
+                }
                 for (ClassFileTransformer transformer : reTransformers) {
                     byte[] transformResult = transformer.transform(loader, className, classBeingRedefined,
                             protectionDomain, classfileBuffer);
@@ -89,6 +94,8 @@ public class TransformerManager {
         watchTransformers.clear();
         traceTransformers.clear();
         instrumentation.removeTransformer(classFileTransformer);
+        //卸载后无法感知字节码变化
+        DecompileCache.getInstance().clear();
     }
 
     public void retransformClasses(Class<?> cls) {
@@ -0,0 +1,122 @@
+package io.github.majianzheng.jarboot.core.advisor;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 织入结果缓存，以类、原始字节码摘要和织入配置为key，再次增强同一个类时直接复用织入后的字节码。
+ * 方法和调用点的id在类加载器存活期间保持不变，所以缓存的字节码可以安全复用，命中时只需重新注册监听器。
+ * @author majianzheng
+ */
+class WovenClassCache {
+    /** 缓存的织入字节码总大小上限 */
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final LinkedHashMap<Key, WovenClass> cache = new LinkedHashMap<>(16, LOAD_FACTOR, true);
+    private long bytes;
+
+    static WovenClassCache getInstance() {
+        return WovenClassCacheHolder.INST;
+    }
+
+    /** instance holder */
+    private static class WovenClassCacheHolder {
+        static final WovenClassCache INST = new WovenClassCache();
+    }
+
+    /**
+     * 计算原始字节码与织入配置的摘要
+     * @param classfileBuffer 原始字节码
+     * @param config 织入配置，包括是否trace以及匹配的方法
+     * @return 摘要
+     */
+    static String digest(byte[] classfileBuffer, String config) {
+        try {
+            MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            md.update(classfileBuffer);
+            md.update(config.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    synchronized WovenClass get(Class<?> clazz, String digest) {
+        return cache.get(new Key(clazz, digest));
+    }
+
+    synchronized void put(Class<?> clazz, String digest, WovenClass woven) {
+        WovenClass old = cache.put(new Key(clazz, digest), woven);
+        if (null != old) {
+            bytes -= old.bytecode.length;
+        }
+        bytes += woven.bytecode.length;
+        Iterator<WovenClass> iterator = cache.values().iterator();
+        while (bytes > MAX_BYTES && iterator.hasNext()) {
+            bytes -= iterator.next().bytecode.length;
+            iterator.remove();
+        }
+    }
+
+    synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * 织入后的字节码以及织入时注册的方法和调用点
+     */
+    static class WovenClass {
+        final byte[] bytecode;
+        /** 方法名和描述 */
+        final List<String[]> methods;
+        /** 调用点的所属类、方法名和描述 */
+        final List<String[]> invokes;
+
+        WovenClass(byte[] bytecode, List<String[]> methods, List<String[]> invokes) {
+            this.bytecode = bytecode;
+            this.methods = methods;
+            this.invokes = invokes;
+        }
+    }
+
+    /**
+     * 弱引用类，类卸载后的key不再匹配，随LRU淘汰
+     */
+    private static class Key {
+        private final WeakReference<Class<?>> clazz;
+        private final String digest;
+        private final int hash;
+
+        Key(Class<?> clazz, String digest) {
+            this.clazz = new WeakReference<>(clazz);
+            this.digest = digest;
+            this.hash = System.identityHashCode(clazz) * 31 + digest.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            Class<?> c = clazz.get();
+            return null != c && c == other.clazz.get() && digest.equals(other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
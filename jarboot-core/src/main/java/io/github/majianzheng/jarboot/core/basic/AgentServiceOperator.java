@@ -5,13 +5,12 @@ import io.github.majianzheng.jarboot.api.cmd.annotation.Name;
 import io.github.majianzheng.jarboot.api.cmd.spi.CommandProcessor;
 import io.github.majianzheng.jarboot.api.constant.CommonConst;
 import io.github.majianzheng.jarboot.common.AnsiLog;
-import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.common.pojo.AgentClient;
 import io.github.majianzheng.jarboot.common.protocol.NotifyType;
 import io.github.majianzheng.jarboot.common.protocol.ResponseType;
 import io.github.majianzheng.jarboot.common.utils.ApiStringBuilder;
 import io.github.majianzheng.jarboot.core.cmd.CommandBuilder;
-import io.github.majianzheng.jarboot.core.event.ResponseEventBuilder;
+import io.github.majianzheng.jarboot.core.stream.ResultStreamDistributor;
 import io.github.majianzheng.jarboot.common.utils.HttpUtils;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
@@ -109,15 +108,7 @@ public class AgentServiceOperator {
     }
 
     private static void publish(NotifyType name, String param, String sessionId) {
-        String bodyData = name.body(param);
-        NotifyReactor
-                .getInstance()
-                .publishEvent(new ResponseEventBuilder()
-                        .type(ResponseType.NOTIFY)
-                        .success(true)
-                        .body(bodyData)
-                        .session(sessionId)
-                        .build());
+        ResultStreamDistributor.getInstance().response(true, ResponseType.NOTIFY, name.body(param), sessionId);
     }
 
     private AgentServiceOperator() {}
@@ -8,6 +8,9 @@ import io.github.majianzheng.jarboot.core.cmd.AbstractCommand;
 import io.github.majianzheng.jarboot.core.cmd.internal.AbstractInternalCommand;
 import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
 import io.github.majianzheng.jarboot.core.session.CoreCommandSession;
+import io.github.majianzheng.jarboot.core.stream.TelemetryRecorder;
+import io.github.majianzheng.jarboot.core.utils.ClassIndex;
+import io.github.majianzheng.jarboot.core.utils.GcMonitor;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
 import org.slf4j.Logger;
 
@@ -64,11 +67,17 @@ public class EnvironmentContext {
         int coreSize = Math.max(Runtime.getRuntime().availableProcessors() / 2, 4);
         scheduledExecutorService = Executors.newScheduledThreadPool(coreSize,
                 JarbootThreadFactory.createThreadFactory("jarboot-sh-pool", true));
+        ClassIndex.init(EnvironmentContext.instrumentation, scheduledExecutorService);
+        GcMonitor.init();
+        TelemetryRecorder.init(scheduledExecutorService);
         initialized = true;
     }
 
     public static synchronized void destroy() {
         cleanSession();
+        ClassIndex.destroy();
+        TelemetryRecorder.destroy();
+        GcMonitor.destroy();
         scheduledExecutorService.shutdown();
         EnvironmentContext.agentClient = null;
         EnvironmentContext.transformerManager.destroy();
@@ -7,6 +7,7 @@ import io.github.majianzheng.jarboot.common.JarbootThreadFactory;
 import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.common.protocol.CommandRequest;
 import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
+import io.github.majianzheng.jarboot.common.protocol.FrameCodec;
 import io.github.majianzheng.jarboot.common.protocol.ResponseType;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 import io.github.majianzheng.jarboot.core.cmd.CommandRequestSubscriber;
@@ -42,9 +43,13 @@ public class WsClientFactory implements Subscriber<HeartbeatEvent> {
     private static final int HEARTBEAT_INTERVAL = 15;
     /** 重连的间隔时间，加上连接等待时间10秒，一共每隔15秒执行一次尝试连接 */
     private static final int RECONNECT_INTERVAL = 8;
+    /** 声明支持帧协议的连接参数 */
+    private static final String PROTOCOL_QUERY = "?" + FrameCodec.PROTOCOL_PARAM + "=" + FrameCodec.VERSION;
     /** WebSocket 客户端 */
     private final WsWebSocketContainer container = new WsWebSocketContainer();
     private Session session;
+    /** 同一会话的多个发送线程互斥，分段发送时不能被其他消息打断 */
+    private final Object sendLock = new Object();
     /** 是否在线标志 */
     private volatile boolean online = false;
     /** 连接等待latch */
@@ -90,8 +95,13 @@ public class WsClientFactory implements Subscriber<HeartbeatEvent> {
 
     @OnMessage
     public void onMessage(byte[] message) {
-        CommandRequest request = new CommandRequest();
-        request.fromRaw(message);
+        CommandRequest request;
+        if (FrameCodec.isFrame(message)) {
+            request = FrameCodec.decodeRequest(ByteBuffer.wrap(message));
+        } else {
+            request = new CommandRequest();
+            request.fromRaw(message);
+        }
         NotifyReactor.getInstance().publishEvent(request);
     }
 
@@ -127,10 +137,60 @@ public class WsClientFactory implements Subscriber<HeartbeatEvent> {
         if (null == temp) {
             return;
         }
-        try {
-            temp.getBasicRemote().sendBinary(ByteBuffer.wrap(data));
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
+        synchronized (sendLock) {
+            try {
+                temp.getBasicRemote().sendBinary(ByteBuffer.wrap(data));
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 发送一帧，多帧的消息逐帧获取锁，其间允许心跳等其他消息穿插发送
+     * @param frame 帧
+     */
+    public void send(ByteBuffer frame) {
+        Session temp = this.session;
+        if (null == temp) {
+            return;
+        }
+        synchronized (sendLock) {
+            try {
+                temp.getBasicRemote().sendBinary(frame);
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 是否使用帧协议，由Jarboot服务声明支持的版本决定
+     * @return 是否使用帧协议
+     */
+    public boolean isFramed() {
+        Integer version = EnvironmentContext.getAgentClient().getProtocolVersion();
+        return null != version && version >= FrameCodec.VERSION;
+    }
+
+    /**
+     * 分段发送一条消息，避免将协议头和消息体拼接到新的数组中
+     * @param header 协议头
+     * @param payload 消息体，发送完成后可复用
+     */
+    public void send(ByteBuffer header, ByteBuffer payload) {
+        Session temp = this.session;
+        if (null == temp) {
+            return;
+        }
+        synchronized (sendLock) {
+            try {
+                RemoteEndpoint.Basic remote = temp.getBasicRemote();
+                remote.sendBinary(header, false);
+                remote.sendBinary(payload, true);
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
         }
     }
 
@@ -171,6 +231,7 @@ public class WsClientFactory implements Subscriber<HeartbeatEvent> {
                 .append(sid)
                 .append(StringUtils.SLASH)
                 .append(userDir)
+                .append(isFramed() ? PROTOCOL_QUERY : StringUtils.EMPTY)
                 .toString();
         LogUtils.offlineDevLog("connecting to jarboot {}", url);
         latch = new CountDownLatch(1);
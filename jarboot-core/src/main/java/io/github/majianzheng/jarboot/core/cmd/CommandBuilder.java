@@ -47,10 +47,13 @@ public class CommandBuilder {
         //资源监控类
         CMDS.put("dashboard", DashboardCommand.class);
         CMDS.put("thread", ThreadCommand.class);
+        CMDS.put("profiler", ProfilerCommand.class);
+        CMDS.put("gc", GcCommand.class);
         CMDS.put("watch", WatchCommand.class);
         CMDS.put("trace", TraceCommand.class);
         CMDS.put("tt", TimeTunnelCommand.class);
         CMDS.put("stack", StackCommand.class);
+        CMDS.put("monitor", MonitorCommand.class);
         //初始化内部命令实现
         CMDS.put(CommandConst.EXIT_CMD, ExitCommand.class);
         CMDS.put(CommandConst.CANCEL_CMD, CancelCommand.class);
@@ -25,6 +25,24 @@ public interface Express {
      */
     boolean is(String express) throws ExpressException;
 
+    /**
+     * 对预先解析的表达式求值
+     *
+     * @param express 解析后的表达式
+     * @return 表达式运算后的值
+     * @throws ExpressException 表达式运算出错
+     */
+    Object get(ParsedExpress express) throws ExpressException;
+
+    /**
+     * 对预先解析的表达式判断是与否
+     *
+     * @param express 解析后的表达式
+     * @return 表达式运算后的布尔值
+     * @throws ExpressException 表达式运算出错
+     */
+    boolean is(ParsedExpress express) throws ExpressException;
+
     /**
      * 绑定对象
      *
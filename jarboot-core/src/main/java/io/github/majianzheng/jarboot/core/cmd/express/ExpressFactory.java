@@ -1,5 +1,7 @@
 package io.github.majianzheng.jarboot.core.cmd.express;
 
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+
 /**
  * ExpressFactory
  * @author majianzheng
@@ -24,6 +26,19 @@ public class ExpressFactory {
         return expressRef.get().reset().bind(object);
     }
 
+    /**
+     * 解析表达式，命令开始时解析一次，之后每次调用直接求值
+     * @param express 表达式
+     * @return 解析后的表达式，表达式为空时返回null
+     * @throws ExpressException 语法错误
+     */
+    public static ParsedExpress parse(String express) throws ExpressException {
+        if (StringUtils.isEmpty(express)) {
+            return null;
+        }
+        return new ParsedExpress(express, OgnlExpress.parse(express));
+    }
+
     public static Express unpooledExpress(ClassLoader classloader) {
         if (classloader == null) {
             classloader = ClassLoader.getSystemClassLoader();
@@ -14,12 +14,14 @@ public class OgnlExpress implements Express {
 
     private Object bindObject;
     private final OgnlContext context;
+    private final ClassResolver classResolver;
 
     public OgnlExpress() {
         this(CustomClassResolver.CUSTOM_CLASS_RESOLVER);
     }
 
     public OgnlExpress(ClassResolver classResolver) {
+        this.classResolver = classResolver;
         context = new OgnlContext();
         context.setClassResolver(classResolver);
         // allow private field access
@@ -43,6 +45,37 @@ public class OgnlExpress implements Express {
         return ret instanceof Boolean && (Boolean) ret;
     }
 
+    @SuppressWarnings("squid:S2139")
+    @Override
+    public Object get(ParsedExpress express) throws ExpressException {
+        try {
+            return Ognl.getValue(express.getTree(), context, bindObject);
+        } catch (Exception e) {
+            logger.error("Error during evaluating the expression:", e);
+            throw new ExpressException(express.getExpress(), e);
+        }
+    }
+
+    @Override
+    public boolean is(ParsedExpress express) throws ExpressException {
+        final Object ret = get(express);
+        return ret instanceof Boolean && (Boolean) ret;
+    }
+
+    /**
+     * 解析表达式
+     * @param express 表达式
+     * @return 语法树
+     * @throws ExpressException 语法错误
+     */
+    static Object parse(String express) throws ExpressException {
+        try {
+            return Ognl.parseExpression(express);
+        } catch (OgnlException e) {
+            throw new ExpressException(express, e);
+        }
+    }
+
     @Override
     public Express bind(Object object) {
         this.bindObject = object;
@@ -57,8 +90,9 @@ public class OgnlExpress implements Express {
 
     @Override
     public Express reset() {
+        //清理上次求值遗留的变量和类型栈，恢复创建时的类解析器
         context.clear();
-        context.setClassResolver(CustomClassResolver.CUSTOM_CLASS_RESOLVER);
+        context.setClassResolver(classResolver);
         // allow private field access
         context.setMemberAccess(MEMBER_ACCESS);
         return this;
@@ -0,0 +1,33 @@
+package io.github.majianzheng.jarboot.core.cmd.express;
+
+/**
+ * 预先解析的表达式，命令执行期间由监听器持有，求值时不再重复解析。
+ * 语法树在求值时不被修改，可在多个线程间共享。
+ * @author majianzheng
+ */
+public final class ParsedExpress {
+    private final String express;
+    private final Object tree;
+
+    ParsedExpress(String express, Object tree) {
+        this.express = express;
+        this.tree = tree;
+    }
+
+    /**
+     * 原始表达式
+     * @return 表达式
+     */
+    public String getExpress() {
+        return express;
+    }
+
+    Object getTree() {
+        return tree;
+    }
+
+    @Override
+    public String toString() {
+        return express;
+    }
+}
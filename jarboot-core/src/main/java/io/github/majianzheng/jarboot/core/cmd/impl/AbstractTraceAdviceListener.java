@@ -2,24 +2,33 @@ package io.github.majianzheng.jarboot.core.cmd.impl;
 
 import io.github.majianzheng.jarboot.core.advisor.Advice;
 import io.github.majianzheng.jarboot.core.advisor.AdviceListenerAdapter;
+import io.github.majianzheng.jarboot.core.advisor.AdviceListenerManager;
+import io.github.majianzheng.jarboot.core.advisor.AdviceMethod;
 import io.github.majianzheng.jarboot.core.advisor.JarbootMethod;
+import io.github.majianzheng.jarboot.core.advisor.MethodTraceable;
+import io.github.majianzheng.jarboot.core.cmd.express.ParsedExpress;
 import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
-import io.github.majianzheng.jarboot.core.utils.ThreadLocalWatch;
 import org.slf4j.Logger;
 
+import java.util.concurrent.TimeUnit;
+
 /**
+ * 调用过程中只向线程的{@link TraceRecorder}写入事件，根方法结束且满足耗时和条件时才构建调用树
  * @author majianzheng
  * 以下代码基于开源项目Arthas适配修改
  */
 @SuppressWarnings("squid:S1181")
-public class AbstractTraceAdviceListener extends AdviceListenerAdapter {
+public class AbstractTraceAdviceListener extends AdviceListenerAdapter implements MethodTraceable {
     private static final Logger logger = LogUtils.getLogger();
-    protected final ThreadLocalWatch threadLocalWatch = new ThreadLocalWatch();
+    private static final double NANOS_PER_MILLIS = 1000000.0;
     protected TraceCommand command;
     protected AbstractCommandSession process;
+    private final ParsedExpress condition;
+    /** 最小耗时，纳秒 */
+    private final long minCost;
 
-    protected final ThreadLocal<TraceEntity> threadBoundEntity = new ThreadLocal<>();
+    protected final ThreadLocal<TraceRecorder> threadBoundRecorder = ThreadLocal.withInitial(TraceRecorder::new);
 
     /**
      * Constructor
@@ -27,84 +36,111 @@ public class AbstractTraceAdviceListener extends AdviceListenerAdapter {
     public AbstractTraceAdviceListener(TraceCommand command, AbstractCommandSession process) {
         this.command = command;
         this.process = process;
+        this.condition = prepare(command.getConditionExpress());
+        this.minCost = TimeUnit.MILLISECONDS.toNanos(Math.max(0, command.getMinCost()));
+    }
+
+    @Override
+    public void destroy() {
+        threadBoundRecorder.remove();
     }
 
-    protected TraceEntity threadLocalTraceEntity(ClassLoader loader) {
-        TraceEntity traceEntity = threadBoundEntity.get();
-        if (traceEntity == null) {
-            traceEntity = new TraceEntity(loader);
-            threadBoundEntity.set(traceEntity);
+    @Override
+    public void atEnter(Class<?> clazz, int methodId, Object target, Object[] args) {
+        TraceRecorder recorder = threadBoundRecorder.get();
+        if (recorder.isIdle()) {
+            // 新的调用链，在采集任何数据之前决定是否采样
+            recorder.start(isSampled());
         }
-        return traceEntity;
+        recorder.enter(TraceRecorder.ENTER_METHOD, methodId, recorder.isRecording() ? System.nanoTime() : 0);
     }
 
     @Override
-    public void destroy() {
-        threadBoundEntity.remove();
+    public void atExit(Class<?> clazz, int methodId, Object target, Object[] args, Object returnObject) {
+        TraceRecorder recorder = threadBoundRecorder.get();
+        if (recorder.isIdle()) {
+            return;
+        }
+        if (recorder.exit(TraceRecorder.EXIT, methodId, System.nanoTime())) {
+            finishing(recorder, clazz, methodId, target, args, returnObject, null);
+        }
+    }
+
+    @Override
+    public void atExceptionExit(Class<?> clazz, int methodId, Object target, Object[] args, Throwable throwable) {
+        TraceRecorder recorder = threadBoundRecorder.get();
+        if (recorder.isIdle()) {
+            return;
+        }
+        if (recorder.exit(throwable, System.nanoTime())) {
+            finishing(recorder, clazz, methodId, target, args, null, throwable);
+        }
     }
 
     @Override
     public void before(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args) {
-        TraceEntity traceEntity = threadLocalTraceEntity(loader);
-        traceEntity.tree.begin(clazz.getName(), method.getName(), -1, false);
-        traceEntity.deep++;
-        // 开始计算本次方法调用耗时
-        threadLocalWatch.start();
+        // 由atEnter按方法id回调代替
     }
 
     @Override
     public void afterReturning(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args,
                                Object returnObject) {
-        threadLocalTraceEntity(loader).tree.end();
-        final Advice advice = Advice.newForAfterRetuning(loader, clazz, method, target, args, returnObject);
-        finishing(loader, advice);
+        // 由atExit按方法id回调代替
     }
 
     @Override
     public void afterThrowing(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args,
-                              Throwable throwable) throws Throwable {
-        int lineNumber = -1;
-        StackTraceElement[] stackTrace = throwable.getStackTrace();
-        if (stackTrace.length != 0) {
-            lineNumber = stackTrace[0].getLineNumber();
-        }
-
-        threadLocalTraceEntity(loader).tree.end(throwable, lineNumber);
-        final Advice advice = Advice.newForAfterThrowing(loader, clazz, method, target, args, throwable);
-        finishing(loader, advice);
+                              Throwable throwable) {
+        // 由atExceptionExit按方法id回调代替
     }
 
     public TraceCommand getCommand() {
         return command;
     }
 
-    private void finishing(ClassLoader loader, Advice advice) {
-        // 本次调用的耗时
-        TraceEntity traceEntity = threadLocalTraceEntity(loader);
-        double cost = threadLocalWatch.costInMillis();
-        if (--traceEntity.deep == 0) {
-            try {
-                boolean conditionResult = isConditionMet(command.getConditionExpress(), advice, cost);
+    private void finishing(TraceRecorder recorder, Class<?> clazz, int methodId, Object target, Object[] args,
+                           Object returnObject, Throwable throwable) {
+        try {
+            // 耗时过滤在构建Advice和调用树之前
+            if (!recorder.isRecording() || recorder.rootCost() < minCost) {
+                return;
+            }
+            if (null != condition) {
+                final double cost = recorder.rootCost() / NANOS_PER_MILLIS;
+                final boolean conditionResult = isConditionMet(condition,
+                        createAdvice(clazz, methodId, target, args, returnObject, throwable), cost);
                 if (this.isVerbose()) {
                     process.console("Condition express: " + command.getConditionExpress() + " , result: " + conditionResult + "\n");
                 }
-                if (conditionResult) {
-                    // 满足输出条件
-                    process.times().incrementAndGet();
-                    process.appendResult(traceEntity.getModel());
-
-                    // 是否到达数量限制
-                    if (isLimitExceeded(command.getNumberOfLimit(), process.times().get())) {
-                        abortProcess(process, command.getNumberOfLimit());
-                    }
+                if (!conditionResult) {
+                    return;
                 }
-            } catch (Throwable e) {
-                logger.warn("trace failed.", e);
-                process.end(false, "trace failed, " + e.getMessage()
-                              + ", visit log file for more details.");
-            } finally {
-                threadBoundEntity.remove();
             }
+            // 满足输出条件
+            process.times().incrementAndGet();
+            process.appendResult(recorder.build(clazz.getClassLoader()));
+
+            // 是否到达数量限制
+            if (isLimitExceeded(command.getNumberOfLimit(), process.times().get())) {
+                abortProcess(process, command.getNumberOfLimit());
+            }
+        } catch (Throwable e) {
+            logger.warn("trace failed.", e);
+            process.end(false, "trace failed, " + e.getMessage()
+                          + ", visit log file for more details.");
+        } finally {
+            recorder.reset();
+        }
+    }
+
+    private static Advice createAdvice(Class<?> clazz, int methodId, Object target, Object[] args,
+                                       Object returnObject, Throwable throwable) {
+        final AdviceMethod m = AdviceListenerManager.getMethod(methodId);
+        final JarbootMethod method = m.getJarbootMethod(clazz);
+        final ClassLoader loader = clazz.getClassLoader();
+        if (null == throwable) {
+            return Advice.newForAfterRetuning(loader, clazz, method, target, args, returnObject);
         }
+        return Advice.newForAfterThrowing(loader, clazz, method, target, args, throwable);
     }
 }
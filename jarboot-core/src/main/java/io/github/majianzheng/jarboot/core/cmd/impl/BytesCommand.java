@@ -9,6 +9,7 @@ import io.github.majianzheng.jarboot.core.cmd.AbstractCommand;
 import io.github.majianzheng.jarboot.api.cmd.annotation.Argument;
 import io.github.majianzheng.jarboot.api.cmd.annotation.Description;
 import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import io.github.majianzheng.jarboot.core.utils.ClassIndex;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 import org.apache.commons.io.FileUtils;
@@ -54,18 +55,12 @@ public class BytesCommand extends AbstractCommand {
         if (StringUtils.isEmpty(javaHome)) {
             session.console("JAVA_HOME is not set!");
         }
-        Class<?> cls = null;
-        Class[] classes = EnvironmentContext.getInstrumentation().getAllLoadedClasses();
-        for (Class<?> c : classes) {
-            if (c.getName().equals(this.classPattern)) {
-                cls = c;
-                break;
-            }
-        }
-        if (null == cls) {
+        List<Class<?>> classes = ClassIndex.get(EnvironmentContext.getInstrumentation()).findByName(this.classPattern);
+        if (classes.isEmpty()) {
             session.end(true, "Not find," + this.classPattern);
             return;
         }
+        Class<?> cls = classes.get(0);
         //打印classloader
         session.console("ClassLoader: " + cls.getClassLoader().toString());
         session.console("\n");
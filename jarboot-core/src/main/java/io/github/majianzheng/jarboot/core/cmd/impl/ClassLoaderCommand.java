@@ -7,6 +7,7 @@ import io.github.majianzheng.jarboot.api.cmd.annotation.Name;
 import io.github.majianzheng.jarboot.api.cmd.annotation.Option;
 import io.github.majianzheng.jarboot.api.cmd.annotation.Summary;
 import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import io.github.majianzheng.jarboot.core.utils.ClassIndex;
 import io.github.majianzheng.jarboot.core.utils.ClassLoaderUtils;
 import io.github.majianzheng.jarboot.core.utils.ClassUtils;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
@@ -285,34 +286,19 @@ public class ClassLoaderCommand extends AbstractCommand {
      * 当hashCode是null，则把所有的classloader的都打印
      *
      */
-    @SuppressWarnings({"rawtypes", "java:S135"})
+    @SuppressWarnings("java:S135")
     private void getAllClasses(String hashCode, Instrumentation inst, RowAffect affect) {
         int hashCodeInt = -1;
         if (hashCode != null) {
             hashCodeInt = Integer.valueOf(hashCode, 16);
         }
 
-        SortedSet<Class<?>> bootstrapClassSet = new TreeSet<>((Comparator<Class>) (o1, o2) -> o1.getName().compareTo(o2.getName()));
-
-        Class[] allLoadedClasses = inst.getAllLoadedClasses();
-        Map<ClassLoader, SortedSet<Class<?>>> classLoaderClassMap = new HashMap<>(16);
-        for (Class clazz : allLoadedClasses) {
-            ClassLoader classLoader = clazz.getClassLoader();
-            // Class loaded by BootstrapClassLoader
-            if (classLoader == null) {
-                if (hashCode == null) {
-                    bootstrapClassSet.add(clazz);
-                }
-                continue;
-            }
-
-            if (hashCode != null && classLoader.hashCode() != hashCodeInt) {
-                continue;
-            }
-
-            SortedSet<Class<?>> classSet = classLoaderClassMap
-                    .computeIfAbsent(classLoader, k -> new TreeSet<>((o1, o2) -> o1.getName().compareTo(o2.getName())));
-            classSet.add(clazz);
+        // 索引已按类加载器分组，只需对输出的分组排序
+        ClassIndex index = ClassIndex.get(inst);
+        Comparator<Class<?>> byName = Comparator.comparing(Class::getName);
+        SortedSet<Class<?>> bootstrapClassSet = new TreeSet<>(byName);
+        if (hashCode == null) {
+            bootstrapClassSet.addAll(index.getClasses(null));
         }
 
         // output bootstrapClassSet
@@ -320,12 +306,15 @@ public class ClassLoaderCommand extends AbstractCommand {
         processClassSet(ClassUtils.createClassLoaderVO(null), bootstrapClassSet, pageSize, affect);
 
         // output other classSet
-        for (Entry<ClassLoader, SortedSet<Class<?>>> entry : classLoaderClassMap.entrySet()) {
+        for (ClassLoader classLoader : index.getClassLoaders()) {
+            if (hashCode != null && classLoader.hashCode() != hashCodeInt) {
+                continue;
+            }
             if (checkInterrupted()) {
                 return;
             }
-            ClassLoader classLoader = entry.getKey();
-            SortedSet<Class<?>> classSet = entry.getValue();
+            SortedSet<Class<?>> classSet = new TreeSet<>(byName);
+            classSet.addAll(index.getClasses(classLoader));
             processClassSet(ClassUtils.createClassLoaderVO(classLoader), classSet, pageSize, affect);
         }
     }
@@ -395,9 +384,8 @@ public class ClassLoaderCommand extends AbstractCommand {
     private static Set<ClassLoader> getAllClassLoaders(Instrumentation inst, Filter... filters) {
         Set<ClassLoader> classLoaderSet = new HashSet<>();
 
-        for (Class<?> clazz : inst.getAllLoadedClasses()) {
-            ClassLoader classLoader = clazz.getClassLoader();
-            if (classLoader != null && shouldInclude(classLoader, filters)) {
+        for (ClassLoader classLoader : ClassIndex.get(inst).getClassLoaders()) {
+            if (shouldInclude(classLoader, filters)) {
                 classLoaderSet.add(classLoader);
             }
         }
@@ -407,33 +395,31 @@ public class ClassLoaderCommand extends AbstractCommand {
     @SuppressWarnings("java:S3776")
     private static List<ClassLoaderInfo> getAllClassLoaderInfo(Instrumentation inst, Filter... filters) {
         // 这里认为class.getClassLoader()返回是null的是由BootstrapClassLoader加载的，特殊处理
+        ClassIndex index = ClassIndex.get(inst);
         ClassLoaderInfo bootstrapInfo = new ClassLoaderInfo(null);
+        bootstrapInfo.increase(index.getClassCount(null));
 
         Map<ClassLoader, ClassLoaderInfo> loaderInfos = new HashMap<>(16);
 
-        for (Class<?> clazz : inst.getAllLoadedClasses()) {
-            ClassLoader classLoader = clazz.getClassLoader();
-            if (classLoader == null) {
-                bootstrapInfo.increase();
-            } else {
-                if (shouldInclude(classLoader, filters)) {
-                    ClassLoaderInfo loaderInfo = loaderInfos.get(classLoader);
-                    if (loaderInfo == null) {
-                        loaderInfo = new ClassLoaderInfo(classLoader);
-                        loaderInfos.put(classLoader, loaderInfo);
-                        ClassLoader parent = classLoader.getParent();
-                        while (parent != null) {
-                            ClassLoaderInfo parentLoaderInfo = loaderInfos.get(parent);
-                            if (parentLoaderInfo == null) {
-                                parentLoaderInfo = new ClassLoaderInfo(parent);
-                                loaderInfos.put(parent, parentLoaderInfo);
-                            }
-                            parent = parent.getParent();
-                        }
+        for (ClassLoader classLoader : index.getClassLoaders()) {
+            if (!shouldInclude(classLoader, filters)) {
+                continue;
+            }
+            ClassLoaderInfo loaderInfo = loaderInfos.get(classLoader);
+            if (loaderInfo == null) {
+                loaderInfo = new ClassLoaderInfo(classLoader);
+                loaderInfos.put(classLoader, loaderInfo);
+                ClassLoader parent = classLoader.getParent();
+                while (parent != null) {
+                    ClassLoaderInfo parentLoaderInfo = loaderInfos.get(parent);
+                    if (parentLoaderInfo == null) {
+                        parentLoaderInfo = new ClassLoaderInfo(parent);
+                        loaderInfos.put(parent, parentLoaderInfo);
                     }
-                    loaderInfo.increase();
+                    parent = parent.getParent();
                 }
             }
+            loaderInfo.increase(index.getClassCount(classLoader));
         }
 
         // 排序时，把用户自己定的ClassLoader排在最前面，以sun.
@@ -496,8 +482,8 @@ public class ClassLoaderCommand extends AbstractCommand {
             return "null";
         }
 
-        void increase() {
-            loadedClassCount++;
+        void increase(int count) {
+            loadedClassCount += count;
         }
 
         int loadedClassCount() {
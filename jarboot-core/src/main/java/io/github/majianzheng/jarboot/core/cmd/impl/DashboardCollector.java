@@ -0,0 +1,387 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.majianzheng.jarboot.common.utils.JsonUtils;
+import io.github.majianzheng.jarboot.common.utils.NetworkUtils;
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.core.basic.EnvironmentContext;
+import io.github.majianzheng.jarboot.core.cmd.model.DashboardModel;
+import io.github.majianzheng.jarboot.core.cmd.model.GcInfoVO;
+import io.github.majianzheng.jarboot.core.cmd.model.MemoryEntryVO;
+import io.github.majianzheng.jarboot.core.cmd.model.RuntimeInfoVO;
+import io.github.majianzheng.jarboot.core.cmd.model.TomcatInfoVO;
+import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
+import io.github.majianzheng.jarboot.core.utils.LogUtils;
+import io.github.majianzheng.jarboot.core.utils.ThreadUtil;
+import io.github.majianzheng.jarboot.core.utils.metrics.SumRateCounter;
+import org.slf4j.Logger;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * dashboard指标采集，所有会话共享同一个采集任务，按订阅者中最小的间隔采样一次，再把同一份快照分发给各订阅者
+ * @author majianzheng
+ */
+class DashboardCollector {
+    private static final Logger logger = LogUtils.getLogger();
+    /** 保留的历史采样数 */
+    private static final int HISTORY_SIZE = 360;
+    private static final String TOMCAT_HOST = "127.0.0.1";
+    private static final int TOMCAT_PORT = 8006;
+    private static final String THREAD_POOL_PATH = "http://localhost:8006/connector/threadpool";
+    private static final String CONNECTOR_STAT_PATH = "http://localhost:8006/connector/stats";
+
+    /** 内存池、GC和缓冲池在JVM生命周期内不变，只获取一次 */
+    private final List<MemoryPoolMXBean> memoryPools = ManagementFactory.getMemoryPoolMXBeans();
+    private final List<GarbageCollectorMXBean> garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final List<BufferPoolMXBean> bufferPools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+    private final SumRateCounter tomcatRequestCounter = new SumRateCounter();
+    private final SumRateCounter tomcatErrorCounter = new SumRateCounter();
+    private final SumRateCounter tomcatReceivedBytesCounter = new SumRateCounter();
+    private final SumRateCounter tomcatSentBytesCounter = new SumRateCounter();
+    /** 串行化采样和分发，重新调度后旧的任务可能仍在执行；与this同时持有时先获取该锁 */
+    private final Object sampleLock = new Object();
+    private ThreadSampler threadSampler = new ThreadSampler();
+    /** 停止后重新开始采样时重置CPU基准，避免把空闲期间的平均值当作当前值 */
+    private volatile boolean resetSampler = false;
+
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final DashboardHistory history = new DashboardHistory(HISTORY_SIZE);
+    private ScheduledFuture<?> future;
+    /** 当前采样间隔，毫秒 */
+    private volatile long period;
+    private DashboardModel latest;
+
+    private DashboardCollector() {}
+
+    static DashboardCollector getInstance() {
+        return DashboardCollectorHolder.INST;
+    }
+
+    /**
+     * 订阅，已有采样结果时立即推送最近的快照和历史记录
+     * @param subscriber 订阅者
+     */
+    void subscribe(Subscriber subscriber) {
+        //与采样使用相同的加锁顺序，订阅者的状态只在采样锁内读写
+        synchronized (sampleLock) {
+            synchronized (this) {
+                if (null != latest) {
+                    DashboardModel first = copy(latest);
+                    first.setHistory(history.snapshot());
+                    if (!deliver(subscriber, first)) {
+                        return;
+                    }
+                }
+                subscribers.add(subscriber);
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * 取消订阅，没有订阅者时停止采样
+     * @param subscriber 订阅者
+     */
+    synchronized void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (subscribers.isEmpty()) {
+            if (null != future) {
+                future.cancel(false);
+                future = null;
+                resetSampler = true;
+            }
+            period = 0;
+            return;
+        }
+        long interval = Long.MAX_VALUE;
+        for (Subscriber subscriber : subscribers) {
+            interval = Math.min(interval, subscriber.interval);
+        }
+        if (null != future && interval == period) {
+            return;
+        }
+        if (null != future) {
+            future.cancel(false);
+        }
+        long delay = 0;
+        if (null != latest) {
+            delay = Math.max(0, latest.getRuntimeInfo().getTimestamp() + interval - System.currentTimeMillis());
+        }
+        period = interval;
+        future = EnvironmentContext
+                .getScheduledExecutor()
+                .scheduleAtFixedRate(this::collect, delay, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("java:S1181")
+    private void collect() {
+        synchronized (sampleLock) {
+            try {
+                collectOnce();
+            } catch (Throwable e) {
+                logger.error("collect dashboard failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void collectOnce() {
+        if (resetSampler) {
+            resetSampler = false;
+            threadSampler = new ThreadSampler();
+        }
+        DashboardModel model = sample();
+        List<Subscriber> targets;
+        synchronized (this) {
+            history.add(model);
+            latest = model;
+            targets = new ArrayList<>(subscribers);
+        }
+        final long now = System.currentTimeMillis();
+        for (Subscriber subscriber : targets) {
+            //容忍半个采样周期的调度偏差
+            final boolean due = now - subscriber.lastDelivered + period / 2 >= subscriber.interval;
+            if (due) {
+                deliver(subscriber, model);
+            }
+        }
+    }
+
+    /**
+     * 推送给订阅者，会话已结束或达到执行次数时取消订阅
+     * @param subscriber 订阅者
+     * @param model 快照
+     * @return 是否继续订阅
+     */
+    @SuppressWarnings("java:S1181")
+    private boolean deliver(Subscriber subscriber, DashboardModel model) {
+        if (!subscriber.isAlive()) {
+            unsubscribe(subscriber);
+            return false;
+        }
+        try {
+            subscriber.session.appendResult(model);
+            subscriber.session.times().incrementAndGet();
+        } catch (Throwable e) {
+            String msg = "process dashboard failed: " + e.getMessage();
+            logger.error(msg, e);
+            unsubscribe(subscriber);
+            subscriber.session.end(false, msg);
+            return false;
+        }
+        subscriber.lastDelivered = System.currentTimeMillis();
+        if (++subscriber.count >= subscriber.numOfExecutions) {
+            unsubscribe(subscriber);
+            subscriber.session.end(true, "Process ends after " + subscriber.numOfExecutions + " time(s).");
+            return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("java:S1181")
+    private DashboardModel sample() {
+        DashboardModel dashboardModel = new DashboardModel();
+        //thread sample
+        dashboardModel.setThreads(Collections.unmodifiableList(threadSampler.sample(ThreadUtil.getThreads())));
+        //memory
+        addMemoryInfo(dashboardModel);
+        //gc
+        addGcInfo(dashboardModel);
+        //runtime
+        addRuntimeInfo(dashboardModel);
+        //tomcat
+        try {
+            addTomcatInfo(dashboardModel);
+        } catch (Throwable e) {
+            logger.error("try to read tomcat info error", e);
+        }
+        return dashboardModel;
+    }
+
+    private static DashboardModel copy(DashboardModel model) {
+        DashboardModel result = new DashboardModel();
+        result.setThreads(model.getThreads());
+        result.setMemoryInfo(model.getMemoryInfo());
+        result.setGcInfos(model.getGcInfos());
+        result.setRuntimeInfo(model.getRuntimeInfo());
+        result.setTomcatInfo(model.getTomcatInfo());
+        return result;
+    }
+
+    private static String beautifyName(String name) {
+        return name.replace(' ', '_').toLowerCase();
+    }
+
+    private void addMemoryInfo(DashboardModel dashboardModel) {
+        Map<String, List<MemoryEntryVO>> memoryInfoMap = new LinkedHashMap<>();
+
+        //heap
+        MemoryUsage heapMemoryUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        List<MemoryEntryVO> heapMemEntries = new ArrayList<>();
+        heapMemEntries.add(createMemoryEntryVO(MemoryEntryVO.TYPE_HEAP, MemoryEntryVO.TYPE_HEAP, heapMemoryUsage));
+        for (MemoryPoolMXBean poolMXBean : memoryPools) {
+            if (MemoryType.HEAP.equals(poolMXBean.getType())) {
+                MemoryUsage usage = poolMXBean.getUsage();
+                String poolName = beautifyName(poolMXBean.getName());
+                heapMemEntries.add(createMemoryEntryVO(MemoryEntryVO.TYPE_HEAP, poolName, usage));
+            }
+        }
+        memoryInfoMap.put(MemoryEntryVO.TYPE_HEAP, Collections.unmodifiableList(heapMemEntries));
+
+        //non-heap
+        MemoryUsage nonHeapMemoryUsage = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        List<MemoryEntryVO> nonheapMemEntries = new ArrayList<>();
+        nonheapMemEntries.add(createMemoryEntryVO(MemoryEntryVO.TYPE_NON_HEAP, MemoryEntryVO.TYPE_NON_HEAP, nonHeapMemoryUsage));
+        for (MemoryPoolMXBean poolMXBean : memoryPools) {
+            if (MemoryType.NON_HEAP.equals(poolMXBean.getType())) {
+                MemoryUsage usage = poolMXBean.getUsage();
+                String poolName = beautifyName(poolMXBean.getName());
+                nonheapMemEntries.add(createMemoryEntryVO(MemoryEntryVO.TYPE_NON_HEAP, poolName, usage));
+            }
+        }
+        memoryInfoMap.put(MemoryEntryVO.TYPE_NON_HEAP, Collections.unmodifiableList(nonheapMemEntries));
+
+        //buffer pool
+        List<MemoryEntryVO> bufferPoolMemEntries = new ArrayList<>();
+        for (BufferPoolMXBean mbean : bufferPools) {
+            long used = mbean.getMemoryUsed();
+            long total = mbean.getTotalCapacity();
+            bufferPoolMemEntries.add(new MemoryEntryVO(MemoryEntryVO.TYPE_BUFFER_POOL, mbean.getName(), used, total, Long.MIN_VALUE));
+        }
+        memoryInfoMap.put(MemoryEntryVO.TYPE_BUFFER_POOL, Collections.unmodifiableList(bufferPoolMemEntries));
+        dashboardModel.setMemoryInfo(Collections.unmodifiableMap(memoryInfoMap));
+    }
+
+    private static void addRuntimeInfo(DashboardModel dashboardModel) {
+        RuntimeInfoVO runtimeInfo = new RuntimeInfoVO();
+        runtimeInfo.setOsName(System.getProperty("os.name"));
+        runtimeInfo.setOsVersion(System.getProperty("os.version"));
+        runtimeInfo.setJavaVersion(System.getProperty("java.version"));
+        runtimeInfo.setJavaHome(System.getProperty("java.home"));
+        runtimeInfo.setSystemLoadAverage(ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage());
+        runtimeInfo.setProcessors(Runtime.getRuntime().availableProcessors());
+        runtimeInfo.setUptime(ManagementFactory.getRuntimeMXBean().getUptime() / 1000);
+        runtimeInfo.setTimestamp(System.currentTimeMillis());
+        dashboardModel.setRuntimeInfo(runtimeInfo);
+    }
+
+    private static MemoryEntryVO createMemoryEntryVO(String type, String name, MemoryUsage memoryUsage) {
+        return new MemoryEntryVO(type, name, memoryUsage.getUsed(), memoryUsage.getCommitted(), memoryUsage.getMax());
+    }
+
+    private void addGcInfo(DashboardModel dashboardModel) {
+        List<GcInfoVO> gcInfos = new ArrayList<>();
+        for (GarbageCollectorMXBean gcMXBean : garbageCollectors) {
+            String name = gcMXBean.getName();
+            gcInfos.add(new GcInfoVO(beautifyName(name), gcMXBean.getCollectionCount(), gcMXBean.getCollectionTime()));
+        }
+        dashboardModel.setGcInfos(Collections.unmodifiableList(gcInfos));
+    }
+
+    private void addTomcatInfo(DashboardModel dashboardModel) {
+        // 如果请求tomcat信息失败，则不显示tomcat信息
+        if (!NetworkUtils.isHostConnectable(TOMCAT_HOST, TOMCAT_PORT)) {
+            return;
+        }
+
+        TomcatInfoVO tomcatInfoVO = new TomcatInfoVO();
+        dashboardModel.setTomcatInfo(tomcatInfoVO);
+        NetworkUtils.Response connectorStatResponse = NetworkUtils.request(CONNECTOR_STAT_PATH);
+        if (connectorStatResponse.isSuccess()) {
+            List<TomcatInfoVO.ConnectorStats> connectorStats = new ArrayList<>();
+            JsonNode tomcatConnectorStats = JsonUtils.readAsJsonNode(connectorStatResponse.getContent());
+            for (JsonNode stat : tomcatConnectorStats) {
+                String connectorName = stat.get("name").asText(StringUtils.EMPTY).replace("\"", "");
+                long bytesReceived = stat.get("bytesReceived").asLong(0);
+                long bytesSent = stat.get("bytesSent").asLong(0);
+                long processingTime = stat.get("processingTime").asLong(0);
+                long requestCount = stat.get("requestCount").asLong(0);
+                long errorCount = stat.get("errorCount").asLong(0);
+
+                tomcatRequestCounter.update(requestCount);
+                tomcatErrorCounter.update(errorCount);
+                tomcatReceivedBytesCounter.update(bytesReceived);
+                tomcatSentBytesCounter.update(bytesSent);
+
+                double qps = tomcatRequestCounter.rate();
+                double rt = processingTime / (double) requestCount;
+                double errorRate = tomcatErrorCounter.rate();
+                long receivedBytesRate = Double.doubleToLongBits(tomcatReceivedBytesCounter.rate());
+                long sentBytesRate = Double.doubleToLongBits(tomcatSentBytesCounter.rate());
+
+                TomcatInfoVO.ConnectorStats connectorStat = new TomcatInfoVO.ConnectorStats();
+                connectorStat.setName(connectorName);
+                connectorStat.setQps(qps);
+                connectorStat.setRt(rt);
+                connectorStat.setError(errorRate);
+                connectorStat.setReceived(receivedBytesRate);
+                connectorStat.setSent(sentBytesRate);
+                connectorStats.add(connectorStat);
+            }
+            tomcatInfoVO.setConnectorStats(connectorStats);
+        }
+
+        NetworkUtils.Response threadPoolResponse = NetworkUtils.request(THREAD_POOL_PATH);
+        if (threadPoolResponse.isSuccess()) {
+            List<TomcatInfoVO.ThreadPool> threadPools = new ArrayList<>();
+            JsonNode threadPoolInfos = JsonUtils.readAsJsonNode(threadPoolResponse.getContent());
+            for (JsonNode info : threadPoolInfos) {
+                String name = info.get("name").asText(StringUtils.EMPTY).replace("\"", "");
+                long busy = info.get("threadBusy").asLong(0);
+                long total = info.get("threadCount").asLong(0);
+                threadPools.add(new TomcatInfoVO.ThreadPool(name, busy, total));
+            }
+            tomcatInfoVO.setThreadPools(threadPools);
+        }
+    }
+
+    /**
+     * 订阅者，对应一个dashboard命令会话
+     */
+    static class Subscriber {
+        private final AbstractCommandSession session;
+        private final String jobId;
+        private final long interval;
+        private final int numOfExecutions;
+        /** 只在采样锁内访问 */
+        private int count;
+        private long lastDelivered;
+
+        Subscriber(AbstractCommandSession session, long interval, int numOfExecutions) {
+            this.session = session;
+            this.jobId = session.getJobId();
+            this.interval = interval;
+            this.numOfExecutions = numOfExecutions;
+        }
+
+        /**
+         * 会话结束或已开始执行其他命令时失效
+         * @return 是否有效
+         */
+        private boolean isAlive() {
+            return session.isRunning() && Objects.equals(jobId, session.getJobId());
+        }
+    }
+
+    private static class DashboardCollectorHolder {
+        static final DashboardCollector INST = new DashboardCollector();
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.core.cmd.model.DashboardHistoryVO;
+import io.github.majianzheng.jarboot.core.cmd.model.DashboardModel;
+import io.github.majianzheng.jarboot.core.cmd.model.MemoryEntryVO;
+import io.github.majianzheng.jarboot.core.cmd.model.ThreadVO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * dashboard最近N次采样的环形缓冲，只保存图表需要的数值，不持有线程列表等对象
+ * @author majianzheng
+ */
+class DashboardHistory {
+    /** 该次采样中不存在的内存区域 */
+    private static final long ABSENT = -1L;
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final int[] threads;
+    private final int[] runnable;
+    private final double[] cpu;
+    /** 类型/名称 -> 内存区域 */
+    private final Map<String, Series> memory = new LinkedHashMap<>();
+    /** 下一个写入位置 */
+    private int head;
+    private int count;
+
+    DashboardHistory(int capacity) {
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.threads = new int[capacity];
+        this.runnable = new int[capacity];
+        this.cpu = new double[capacity];
+    }
+
+    /**
+     * 记录一次采样
+     * @param model 采样结果
+     */
+    void add(DashboardModel model) {
+        final int slot = head;
+        timestamps[slot] = model.getRuntimeInfo().getTimestamp();
+        int runnableCount = 0;
+        double cpuUsage = 0;
+        for (ThreadVO thread : model.getThreads()) {
+            if (Thread.State.RUNNABLE == thread.getState()) {
+                ++runnableCount;
+            }
+            cpuUsage += thread.getCpu();
+        }
+        threads[slot] = model.getThreads().size();
+        runnable[slot] = runnableCount;
+        cpu[slot] = cpuUsage;
+        for (Series series : memory.values()) {
+            series.used[slot] = ABSENT;
+            series.total[slot] = ABSENT;
+        }
+        for (List<MemoryEntryVO> entries : model.getMemoryInfo().values()) {
+            for (MemoryEntryVO entry : entries) {
+                Series series = memory.computeIfAbsent(entry.getType() + '/' + entry.getName(),
+                        k -> new Series(entry.getType(), entry.getName(), capacity));
+                series.used[slot] = entry.getUsed();
+                series.total[slot] = entry.getTotal();
+            }
+        }
+        head = (head + 1) % capacity;
+        count = Math.min(count + 1, capacity);
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * 按时间顺序复制出最近的记录
+     * @return 历史记录
+     */
+    DashboardHistoryVO snapshot() {
+        DashboardHistoryVO vo = new DashboardHistoryVO();
+        vo.setTimestamps(copy(timestamps));
+        vo.setThreads(copy(threads));
+        vo.setRunnable(copy(runnable));
+        vo.setCpu(copy(cpu));
+        List<DashboardHistoryVO.MemorySeries> list = new ArrayList<>(memory.size());
+        memory.values().forEach(s -> list.add(new DashboardHistoryVO.MemorySeries(s.type, s.name, copy(s.used),
+                copy(s.total))));
+        vo.setMemory(list);
+        return vo;
+    }
+
+    private int first() {
+        return count < capacity ? 0 : head;
+    }
+
+    private long[] copy(long[] ring) {
+        long[] result = new long[count];
+        final int first = first();
+        final int tail = Math.min(count, capacity - first);
+        System.arraycopy(ring, first, result, 0, tail);
+        System.arraycopy(ring, 0, result, tail, count - tail);
+        return result;
+    }
+
+    private int[] copy(int[] ring) {
+        int[] result = new int[count];
+        final int first = first();
+        final int tail = Math.min(count, capacity - first);
+        System.arraycopy(ring, first, result, 0, tail);
+        System.arraycopy(ring, 0, result, tail, count - tail);
+        return result;
+    }
+
+    private double[] copy(double[] ring) {
+        double[] result = new double[count];
+        final int first = first();
+        final int tail = Math.min(count, capacity - first);
+        System.arraycopy(ring, first, result, 0, tail);
+        System.arraycopy(ring, 0, result, tail, count - tail);
+        return result;
+    }
+
+    private static class Series {
+        private final String type;
+        private final String name;
+        private final long[] used;
+        private final long[] total;
+
+        Series(String type, String name, int capacity) {
+            this.type = type;
+            this.name = name;
+            this.used = new long[capacity];
+            this.total = new long[capacity];
+            Arrays.fill(used, ABSENT);
+            Arrays.fill(total, ABSENT);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package io.github.majianzheng.jarboot.core.cmd.impl;
 
 import io.github.majianzheng.jarboot.core.advisor.AdviceListener;
+import io.github.majianzheng.jarboot.core.advisor.AdviceListenerAdapter;
+import io.github.majianzheng.jarboot.core.advisor.AdviceSampler;
 import io.github.majianzheng.jarboot.core.advisor.AdviceWeaver;
 import io.github.majianzheng.jarboot.core.advisor.ClassEnhancer;
 import io.github.majianzheng.jarboot.core.advisor.InvokeTraceable;
@@ -10,6 +12,7 @@ import io.github.majianzheng.jarboot.api.cmd.annotation.Description;
 import io.github.majianzheng.jarboot.api.cmd.annotation.Option;
 import io.github.majianzheng.jarboot.core.cmd.model.EnhancerModel;
 import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
+import io.github.majianzheng.jarboot.core.stream.ResultStreamDistributor;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
 import io.github.majianzheng.jarboot.core.utils.affect.EnhancerAffect;
 import io.github.majianzheng.jarboot.core.utils.matcher.Matcher;
@@ -37,6 +40,12 @@ public abstract class EnhancerCommand extends AbstractCommand {
 
     protected boolean verbose;
 
+    /** 采样率，1为全部采集 */
+    protected double sampleRate = AdviceSampler.FULL_RATE;
+
+    /** 每秒最多采集的次数，0为不限制 */
+    protected int maxPerSecond;
+
     @Option(longName = "exclude-class-pattern")
     @Description("exclude class name pattern, use either '.' or '/' as separator")
     public void setExcludeClassPattern(String excludeClassPattern) {
@@ -55,6 +64,18 @@ public abstract class EnhancerCommand extends AbstractCommand {
         this.verbose = verbose;
     }
 
+    @Option(longName = "sample-rate")
+    @Description("Probability of sampling an invocation, between 0 and 1 (1 by default)")
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Option(longName = "max-per-second")
+    @Description("Upper limit of sampled invocations per second (unlimited by default)")
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
     /**
      * 类名匹配
      *
@@ -81,6 +102,15 @@ public abstract class EnhancerCommand extends AbstractCommand {
      */
     protected abstract AdviceListener getAdviceListener(AbstractCommandSession process);
 
+    /**
+     * 创建采样器，在构建Advice和执行表达式之前过滤调用，结果流拥塞时自动退避
+     *
+     * @return 采样器，返回null时采集全部调用
+     */
+    protected AdviceSampler createSampler() {
+        return new AdviceSampler(sampleRate, maxPerSecond, ResultStreamDistributor.getInstance()::isCongested);
+    }
+
     AdviceListener getAdviceListenerWithId(AbstractCommandSession process) {
         if (listenerId != 0) {
             AdviceListener listener = AdviceWeaver.listener(listenerId);
@@ -109,6 +139,11 @@ public abstract class EnhancerCommand extends AbstractCommand {
                 session.end(false, msg);
                 return;
             }
+            AdviceSampler sampler = null;
+            if (listener instanceof AdviceListenerAdapter) {
+                sampler = createSampler();
+                ((AdviceListenerAdapter) listener).setSampler(sampler);
+            }
             boolean skipJDKTrace = false;
             if(listener instanceof AbstractTraceAdviceListener) {
                 skipJDKTrace = ((AbstractTraceAdviceListener) listener).getCommand().isSkipJDKTrace();
@@ -120,6 +155,10 @@ public abstract class EnhancerCommand extends AbstractCommand {
             process.register(listener, enhancer);
 
             effect = enhancer.enhance(inst);
+            if (null != sampler && sampler.isLimited()) {
+                effect.setSampleRate(sampler.getSampleRate());
+                effect.setMaxPerSecond(sampler.getMaxPerSecond());
+            }
 
             if (effect.getThrowable() != null) {
                 String msg = "error happens when enhancing class: "+effect.getThrowable().getMessage();
@@ -0,0 +1,176 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 将栈字典树输出为折叠栈文本和自包含的HTML火焰图
+ * @author majianzheng
+ */
+class FlameGraphWriter {
+    private static final char FRAME_SEPARATOR = ';';
+    private static final int UNICODE_ESCAPE_RADIX = 16;
+
+    private static final String HTML_HEAD = "<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>";
+    private static final String HTML_STYLE = "</title>\n<style>\n"
+            + "body{margin:0;padding:10px 16px;font:12px Verdana,Arial,sans-serif;}\n"
+            + "h3{margin:4px 0;}\n"
+            + "#info{height:18px;margin:6px 0;overflow:hidden;white-space:nowrap;}\n"
+            + "#chart{position:relative;width:100%;}\n"
+            + ".f{position:absolute;height:15px;line-height:15px;overflow:hidden;white-space:nowrap;cursor:pointer;"
+            + "padding-left:2px;box-sizing:border-box;border:1px solid #fff;border-radius:2px;}\n"
+            + ".f:hover{border-color:#333;}\n"
+            + "</style>\n</head>\n<body>\n<h3>";
+    private static final String HTML_BODY = "</h3>\n<button onclick=\"zoom(root)\">Reset Zoom</button>\n"
+            + "<div id=\"info\">&nbsp;</div>\n<div id=\"chart\"></div>\n<script>\n";
+    private static final String HTML_SCRIPT = "\nvar H=16,chart=document.getElementById('chart'),"
+            + "info=document.getElementById('info'),root={n:-1,t:total,c:[],p:null},stack=[root];\n"
+            + "for(var i=0;i<nodes.length;i+=3){var o={n:nodes[i+1],t:nodes[i+2],c:[]};"
+            + "stack.length=nodes[i];o.p=stack[stack.length-1];o.p.c.push(o);stack.push(o);}\n"
+            + "function name(o){return o.n<0?'all':names[o.n];}\n"
+            + "function depth(o){var m=0;for(var i=0;i<o.c.length;i++){m=Math.max(m,depth(o.c[i]));}return m+1;}\n"
+            + "function color(s){var h=0;for(var i=0;i<s.length;i++){h=(h*31+s.charCodeAt(i))|0;}h=Math.abs(h);"
+            + "return 'hsl('+(h%55)+',80%,'+(55+(h>>8)%15)+'%)';}\n"
+            + "function bar(o,x,w,row,bg){var e=document.createElement('div'),s=name(o);e.className='f';"
+            + "e.style.left=x+'%';e.style.width=w+'%';e.style.top=row*H+'px';e.style.background=bg||color(s);"
+            + "e.textContent=s;e.title=s+' ('+o.t+' samples, '+(o.t*100/root.t).toFixed(2)+'%)';"
+            + "e.onclick=function(){zoom(o);};e.onmouseover=function(){info.textContent=e.title;};chart.appendChild(e);}\n"
+            + "function draw(o,x,w,row){if(w<0.05){return;}bar(o,x,w,row);"
+            + "var cx=x;for(var i=0;i<o.c.length;i++){var cw=w*o.c[i].t/o.t;draw(o.c[i],cx,cw,row-1);cx+=cw;}}\n"
+            + "function zoom(o){chart.innerHTML='';var anc=[];for(var a=o.p;a;a=a.p){anc.push(a);}"
+            + "var levels=depth(o)+anc.length;chart.style.height=levels*H+'px';"
+            + "for(var i=0;i<anc.length;i++){bar(anc[i],0,100,levels-anc.length+i,'#ddd');}"
+            + "draw(o,0,100,levels-anc.length-1);}\n"
+            + "function sort(o){o.c.sort(function(a,b){return name(a)<name(b)?-1:1;});"
+            + "for(var i=0;i<o.c.length;i++){sort(o.c[i]);}}\n"
+            + "sort(root);zoom(root);\n</script>\n</body>\n</html>\n";
+
+    private FlameGraphWriter() {}
+
+    /**
+     * 输出折叠栈，每行为从栈底到栈顶以分号分隔的栈帧及样本数
+     * @param trie 栈字典树
+     * @param dictionary 栈帧字典
+     * @param out 输出
+     * @throws IOException IO异常
+     */
+    static void writeCollapsed(StackTrie trie, FrameDictionary dictionary, Writer out) throws IOException {
+        final int[][] preorder = preorder(trie);
+        final int[] nodes = preorder[0];
+        final int[] depths = preorder[1];
+        final int[] pathLengths = new int[trie.size() + 1];
+        final StringBuilder path = new StringBuilder(1024);
+        for (int i = 0; i < nodes.length; ++i) {
+            final int node = nodes[i];
+            final int depth = depths[i];
+            path.setLength(pathLengths[depth - 1]);
+            if (depth > 1) {
+                path.append(FRAME_SEPARATOR);
+            }
+            path.append(dictionary.getName(trie.getFrame(node)));
+            pathLengths[depth] = path.length();
+            final long self = trie.getSelf(node);
+            if (self > 0) {
+                out.append(path).append(' ').append(String.valueOf(self)).append('\n');
+            }
+        }
+    }
+
+    /**
+     * 输出HTML火焰图，数据和脚本均内嵌在页面中，可离线打开
+     * @param trie 栈字典树
+     * @param dictionary 栈帧字典
+     * @param title 标题
+     * @param out 输出
+     * @throws IOException IO异常
+     */
+    static void writeHtml(StackTrie trie, FrameDictionary dictionary, String title, Writer out) throws IOException {
+        final String escapedTitle = escapeHtml(title);
+        out.append(HTML_HEAD).append(escapedTitle).append(HTML_STYLE).append(escapedTitle).append(HTML_BODY);
+        out.append("var names=[");
+        for (int i = 0; i < dictionary.size(); ++i) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(escapeJs(dictionary.getName(i))).append('"');
+        }
+        final long[] totals = trie.totals();
+        out.append("];\nvar total=").append(String.valueOf(totals[StackTrie.ROOT])).append(";\nvar nodes=[");
+        //先序输出depth,frame,total三元组
+        final int[][] preorder = preorder(trie);
+        for (int i = 0; i < preorder[0].length; ++i) {
+            final int node = preorder[0][i];
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(String.valueOf(preorder[1][i])).append(',').append(String.valueOf(trie.getFrame(node)))
+                    .append(',').append(String.valueOf(totals[node]));
+        }
+        out.append("];").append(HTML_SCRIPT);
+    }
+
+    /**
+     * 先序遍历，不包括根节点
+     * @param trie 栈字典树
+     * @return 节点和对应的深度
+     */
+    private static int[][] preorder(StackTrie trie) {
+        final int size = trie.size();
+        final int[] counts = new int[size];
+        for (int node = StackTrie.ROOT + 1; node < size; ++node) {
+            ++counts[trie.getParent(node)];
+        }
+        final int[][] children = new int[size][];
+        for (int node = 0; node < size; ++node) {
+            children[node] = new int[counts[node]];
+            counts[node] = 0;
+        }
+        for (int node = StackTrie.ROOT + 1; node < size; ++node) {
+            final int parent = trie.getParent(node);
+            children[parent][counts[parent]++] = node;
+        }
+        final int[] nodes = new int[size - 1];
+        final int[] depths = new int[size - 1];
+        final int[] stack = new int[size];
+        final int[] stackDepths = new int[size];
+        int top = 0;
+        stack[top++] = StackTrie.ROOT;
+        int count = 0;
+        while (top > 0) {
+            final int node = stack[--top];
+            final int depth = stackDepths[top];
+            if (StackTrie.ROOT != node) {
+                nodes[count] = node;
+                depths[count++] = depth;
+            }
+            for (int i = children[node].length - 1; i >= 0; --i) {
+                stack[top] = children[node][i];
+                stackDepths[top++] = depth + 1;
+            }
+        }
+        return new int[][] {nodes, depths};
+    }
+
+    private static String escapeJs(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            final boolean unsafe = c < ' ' || '"' == c || '\\' == c || '<' == c || '>' == c || '&' == c;
+            if (unsafe) {
+                String hex = Integer.toString(c, UNICODE_ESCAPE_RADIX);
+                sb.append("\\u");
+                for (int j = hex.length(); j < 4; ++j) {
+                    sb.append('0');
+                }
+                sb.append(hex);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String escapeHtml(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
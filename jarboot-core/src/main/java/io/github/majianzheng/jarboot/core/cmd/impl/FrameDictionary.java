@@ -0,0 +1,61 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 栈帧字典，将类名和方法名相同的栈帧映射为同一个整数id，采样时不拼接字符串
+ * @author majianzheng
+ */
+class FrameDictionary {
+    /** 类名 -> 方法名 -> id */
+    private final Map<String, Map<String, Integer>> ids = new HashMap<>(256);
+    private final List<String> classNames = new ArrayList<>(1024);
+    private final List<String> methodNames = new ArrayList<>(1024);
+
+    /**
+     * 获取栈帧id，首次出现时分配
+     * @param element 栈帧
+     * @return id
+     */
+    int intern(StackTraceElement element) {
+        return intern(element.getClassName(), element.getMethodName());
+    }
+
+    /**
+     * 获取虚拟栈帧的id，例如被截断的栈
+     * @param name 名称
+     * @return id
+     */
+    int intern(String name) {
+        return intern(null, name);
+    }
+
+    /**
+     * 栈帧名称，格式为类名.方法名
+     * @param id 栈帧id
+     * @return 名称
+     */
+    String getName(int id) {
+        String className = classNames.get(id);
+        return null == className ? methodNames.get(id) : className + '.' + methodNames.get(id);
+    }
+
+    int size() {
+        return methodNames.size();
+    }
+
+    private int intern(String className, String methodName) {
+        Map<String, Integer> methods = ids.computeIfAbsent(className, k -> new HashMap<>(8));
+        Integer id = methods.get(methodName);
+        if (null == id) {
+            id = methodNames.size();
+            classNames.add(className);
+            methodNames.add(methodName);
+            methods.put(methodName, id);
+        }
+        return id;
+    }
+}
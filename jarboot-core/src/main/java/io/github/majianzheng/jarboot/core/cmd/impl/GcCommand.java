@@ -0,0 +1,57 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.api.cmd.annotation.Description;
+import io.github.majianzheng.jarboot.api.cmd.annotation.Name;
+import io.github.majianzheng.jarboot.api.cmd.annotation.Option;
+import io.github.majianzheng.jarboot.api.cmd.annotation.Summary;
+import io.github.majianzheng.jarboot.core.cmd.AbstractCommand;
+import io.github.majianzheng.jarboot.core.cmd.model.GcModel;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import io.github.majianzheng.jarboot.core.utils.GcMonitor;
+
+import java.util.Date;
+
+/**
+ * 显示垃圾回收的耗时统计、百分位、分配和晋升速率以及最近的回收
+ * @author majianzheng
+ */
+@Name("gc")
+@Summary("Display gc pauses, percentiles, allocation and promotion rate")
+@Description(CoreConstant.EXAMPLE +
+        "  gc\n" +
+        "  gc -n 20\n" +
+        CoreConstant.WIKI + CoreConstant.WIKI_HOME + "gc")
+public class GcCommand extends AbstractCommand {
+    private int number = 10;
+
+    @Option(shortName = "n", longName = "number")
+    @Description("The number of recent collections to display, default 10.")
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    @Override
+    public void run() {
+        GcMonitor monitor = GcMonitor.get();
+        if (null == monitor) {
+            session.end(false, "GC notification is not supported by the target jvm.");
+            return;
+        }
+        if (number < 0) {
+            session.end(false, "The number must not be negative.");
+            return;
+        }
+        final long elapsed = System.currentTimeMillis() - monitor.getSince();
+        final long millisPerSecond = 1000L;
+        GcModel model = new GcModel();
+        model.setSince(new Date(monitor.getSince()));
+        if (elapsed > 0) {
+            model.setAllocRate(monitor.getAllocatedBytes() * millisPerSecond / elapsed);
+            model.setPromotionRate(monitor.getPromotedBytes() * millisPerSecond / elapsed);
+        }
+        model.setSummaries(monitor.summaries());
+        model.setEvents(monitor.recent(number));
+        session.appendResult(model);
+        session.end();
+    }
+}
@@ -11,9 +11,15 @@ import io.github.majianzheng.jarboot.core.cmd.model.ClassLoaderVO;
 import io.github.majianzheng.jarboot.core.cmd.model.ClassVO;
 import io.github.majianzheng.jarboot.core.cmd.model.JadModel;
 import io.github.majianzheng.jarboot.core.cmd.model.RowAffectModel;
+import io.github.majianzheng.jarboot.core.utils.matcher.WildcardMatcher;
+import com.alibaba.deps.org.objectweb.asm.ClassReader;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.instrument.Instrumentation;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -30,10 +36,17 @@ import java.util.regex.Pattern;
         "  jad --source-only java.lang.String\n" +
         "  jad -c 39eb305e org/apache/log4j/Logger\n" +
         "  jad -c 39eb305e -E org\\\\.apache\\\\.*\\\\.StringUtils\n" +
+        "  jad --prefetch demo.MathGame\n" +
         CoreConstant.WIKI + CoreConstant.WIKI_HOME + "jad")
 public class JadCommand extends AbstractCommand {
     private static final Logger logger = LogUtils.getLogger();
     private static Pattern pattern = Pattern.compile("(?m)^/\\*\\s*\\*/\\s*$" + System.getProperty("line.separator"));
+    /** 常量池中类引用的tag */
+    private static final int CONSTANT_CLASS = 7;
+    /** 每次最多预取的引用类数量 */
+    private static final int MAX_PREFETCH = 32;
+    /** 每次预取最多重转换的类数量，其余只预取字节码已缓存的类 */
+    private static final int MAX_PREFETCH_RETRANSFORM = 8;
 
     private String classPattern;
     private String methodName;
@@ -42,6 +55,7 @@ public class JadCommand extends AbstractCommand {
     private boolean isRegEx = false;
     private boolean hideUnicode = false;
     private boolean lineNumber;
+    private boolean prefetch = false;
 
     /**
      * jad output source code only
@@ -98,6 +112,13 @@ public class JadCommand extends AbstractCommand {
         this.lineNumber = lineNumber;
     }
 
+    @Option(longName = "prefetch", flag = true)
+    @Description("Decompile the classes referenced by the class in background, at most 8 uncached classes are " +
+            "retransformed each time, default value false")
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
     @Override
     public void run() {
         RowAffect affect = new RowAffect();
@@ -154,22 +175,11 @@ public class JadCommand extends AbstractCommand {
         allClasses.add(c);
 
         try {
-            ClassDumpTransformer transformer = new ClassDumpTransformer(allClasses);
-            InstrumentationUtils.retransformClasses(inst, transformer, allClasses);
-
-            Map<Class<?>, File> classFiles = transformer.getDumpResult();
-            File classFile = classFiles.get(c);
-
-            Pair<String,NavigableMap<Integer,Integer>> decompileResult = Decompiler.decompileWithMappings(classFile.getAbsolutePath(), methodName, hideUnicode, lineNumber);
-            String source = decompileResult.getFirst();
-            if (source != null) {
-                source = pattern.matcher(source).replaceAll("");
-            } else {
-                source = "unknown";
-            }
+            Pair<String, NavigableMap<Integer, Integer>> decompileResult = decompile(inst, c, allClasses, methodName,
+                    hideUnicode, lineNumber);
 
             JadModel jadModel = new JadModel();
-            jadModel.setSource(source);
+            jadModel.setSource(decompileResult.getFirst());
             jadModel.setMappings(decompileResult.getSecond());
             if (!this.sourceOnly) {
                 jadModel.setClassInfo(ClassUtils.createSimpleClassInfo(c));
@@ -177,7 +187,10 @@ public class JadCommand extends AbstractCommand {
             }
             session.appendResult(jadModel);
 
-            affect.rCnt(classFiles.keySet().size());
+            affect.rCnt(allClasses.size());
+            if (prefetch) {
+                prefetch(inst, c);
+            }
             return true;
         } catch (Throwable t) {
             logger.error("jad: fail to decompile class: " + c.getName(), t);
@@ -186,6 +199,144 @@ public class JadCommand extends AbstractCommand {
         }
     }
 
+    /**
+     * 反编译，类的字节码未变化时直接使用缓存，不再重转换
+     */
+    private static Pair<String, NavigableMap<Integer, Integer>> decompile(Instrumentation inst, Class<?> c,
+            Set<Class<?>> allClasses, String methodName, boolean hideUnicode, boolean lineNumber) throws IOException {
+        final DecompileCache cache = DecompileCache.getInstance();
+        final String options = methodName + "|" + hideUnicode + "|" + lineNumber;
+        String digest = cache.getDigest(c);
+        Pair<String, NavigableMap<Integer, Integer>> result = null == digest ? null :
+                cache.get(DecompileCache.key(c, digest, options));
+        if (null != result) {
+            return result;
+        }
+
+        ClassDumpTransformer transformer = new ClassDumpTransformer(allClasses);
+        InstrumentationUtils.retransformClasses(inst, transformer, allClasses);
+        //本次重转换也会使缓存失效，重转换返回后再记录序号，不依赖各个Transformer的执行顺序
+        Map<Class<?>, File> classFiles = transformer.getDumpResult();
+        Map<Class<?>, Long> stamps = cache.stamps(classFiles.keySet());
+        File classFile = classFiles.get(c);
+        if (null == classFile) {
+            throw new IllegalStateException("dump class failed: " + c.getName());
+        }
+        SortedMap<String, byte[]> classBytes = new TreeMap<>();
+        for (Map.Entry<Class<?>, File> entry : classFiles.entrySet()) {
+            classBytes.put(entry.getKey().getName(), FileUtils.readFileToByteArray(entry.getValue()));
+        }
+        digest = DecompileCache.digest(classBytes);
+        cache.putDigest(c, digest, stamps);
+        final String key = DecompileCache.key(c, digest, options);
+        result = cache.get(key);
+        if (null != result) {
+            //字节码与之前反编译时相同
+            return result;
+        }
+
+        Pair<String, NavigableMap<Integer, Integer>> decompileResult = Decompiler.decompileWithMappings(
+                classFile.getAbsolutePath(), methodName, hideUnicode, lineNumber);
+        String source = decompileResult.getFirst();
+        if (source != null) {
+            source = pattern.matcher(source).replaceAll("");
+        } else {
+            source = "unknown";
+        }
+        result = Pair.make(source, decompileResult.getSecond());
+        cache.put(key, result);
+        return result;
+    }
+
+    /**
+     * 在后台反编译类引用到的、已被加载的非JDK类<br/>
+     * 字节码未缓存的类需要逐个重转换，会短暂停顿应用线程，因此每次最多重转换{@link #MAX_PREFETCH_RETRANSFORM}个
+     */
+    private static void prefetch(Instrumentation inst, Class<?> c) {
+        if (null == c.getClassLoader()) {
+            return;
+        }
+        EnvironmentContext.getScheduledExecutor().execute(() -> {
+            int retransforms = 0;
+            for (Class<?> referenced : getReferencedClasses(inst, c)) {
+                final boolean cached = null != DecompileCache.getInstance().getDigest(referenced);
+                if (!cached && retransforms >= MAX_PREFETCH_RETRANSFORM) {
+                    continue;
+                }
+                if (!cached) {
+                    ++retransforms;
+                }
+                try {
+                    decompile(inst, referenced, withInnerClasses(inst, referenced), null, false, true);
+                } catch (Throwable e) {
+                    logger.debug("jad: prefetch class {} failed.", referenced.getName(), e);
+                }
+            }
+        });
+    }
+
+    private static List<Class<?>> getReferencedClasses(Instrumentation inst, Class<?> c) {
+        ClassLoader loader = c.getClassLoader();
+        byte[] bytes;
+        try (InputStream in = loader.getResourceAsStream(c.getName().replace('.', '/') + ".class")) {
+            if (null == in) {
+                return Collections.emptyList();
+            }
+            bytes = IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            logger.debug("jad: read class {} failed.", c.getName(), e);
+            return Collections.emptyList();
+        }
+        ClassReader reader = new ClassReader(bytes);
+        char[] buf = new char[reader.getMaxStringLength()];
+        ClassIndex index = ClassIndex.get(inst);
+        List<Class<?>> classes = new ArrayList<>();
+        for (int i = 1; i < reader.getItemCount() && classes.size() < MAX_PREFETCH; ++i) {
+            final int offset = reader.getItem(i);
+            if (offset <= 0 || CONSTANT_CLASS != reader.readByte(offset - 1)) {
+                continue;
+            }
+            String name = reader.readClass(offset, buf).replace('/', '.');
+            final boolean self = name.equals(c.getName()) || name.startsWith(c.getName() + "$");
+            if (self || name.startsWith("[")) {
+                continue;
+            }
+            for (Class<?> candidate : index.findByName(name)) {
+                if (isVisible(candidate.getClassLoader(), loader)) {
+                    classes.add(candidate);
+                    break;
+                }
+            }
+        }
+        return classes;
+    }
+
+    private static Set<Class<?>> withInnerClasses(Instrumentation inst, Class<?> c) {
+        Set<Class<?>> classes = new HashSet<>();
+        classes.add(c);
+        for (Class<?> inner : ClassIndex.get(inst).search(new WildcardMatcher(c.getName() + "$*"), Integer.MAX_VALUE)) {
+            if (inner.getClassLoader() == c.getClassLoader()) {
+                classes.add(inner);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 引用的类由自身或父类加载器加载，JDK的类不预取
+     */
+    private static boolean isVisible(ClassLoader candidate, ClassLoader loader) {
+        if (null == candidate) {
+            return false;
+        }
+        for (ClassLoader l = loader; null != l; l = l.getParent()) {
+            if (l == candidate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean processMatches(StringBuilder sb, Set<Class<?>> matchedClasses) {
 
         String usage = "jad -c <hashcode> " + classPattern;
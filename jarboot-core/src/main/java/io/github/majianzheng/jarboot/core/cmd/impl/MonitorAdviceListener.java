@@ -0,0 +1,195 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.core.advisor.Advice;
+import io.github.majianzheng.jarboot.core.advisor.AdviceListenerAdapter;
+import io.github.majianzheng.jarboot.core.advisor.JarbootMethod;
+import io.github.majianzheng.jarboot.core.cmd.express.ParsedExpress;
+import io.github.majianzheng.jarboot.core.basic.EnvironmentContext;
+import io.github.majianzheng.jarboot.core.cmd.model.MonitorModel;
+import io.github.majianzheng.jarboot.core.cmd.model.MonitorVO;
+import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
+import io.github.majianzheng.jarboot.core.utils.LatencyHistogram;
+import io.github.majianzheng.jarboot.core.utils.LogUtils;
+import io.github.majianzheng.jarboot.core.utils.ThreadLocalWatch;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 方法调用统计，调用时只累加计数和直方图，周期性地汇总输出
+ * @author majianzheng
+ */
+public class MonitorAdviceListener extends AdviceListenerAdapter {
+    private static final Logger logger = LogUtils.getLogger();
+    private static final double NANOS_PER_MILLIS = 1000000.0;
+
+    private final ThreadLocalWatch threadLocalWatch = new ThreadLocalWatch();
+    /** 类 -> 方法名 -> 方法描述 -> 统计，查找时不产生分配 */
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, ConcurrentHashMap<String, MethodStats>>> stats =
+            new ConcurrentHashMap<>(16);
+    private final MonitorCommand command;
+    private final AbstractCommandSession process;
+    /** 解析后的条件表达式，没有条件时为null */
+    private final ParsedExpress condition;
+    @SuppressWarnings("java:S3077")
+    private volatile ScheduledFuture<?> future;
+
+    public MonitorAdviceListener(MonitorCommand command, AbstractCommandSession process, boolean verbose) {
+        this.command = command;
+        this.process = process;
+        this.condition = prepare(command.getConditionExpress());
+        super.setVerbose(verbose);
+    }
+
+    @Override
+    public synchronized void create() {
+        final long cycle = Math.max(1, command.getCycle());
+        future = EnvironmentContext
+                .getScheduledExecutor()
+                .scheduleAtFixedRate(this::report, cycle, cycle, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (null != future) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    @Override
+    public void before(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args)
+            throws Throwable {
+        threadLocalWatch.start();
+    }
+
+    @Override
+    public void afterReturning(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args,
+                               Object returnObject) throws Throwable {
+        final long cost = threadLocalWatch.cost();
+        if (null != condition && !isConditionMet(Advice.newForAfterRetuning(loader, clazz, method, target, args,
+                returnObject), cost)) {
+            return;
+        }
+        getStats(clazz, method).record(cost, true);
+    }
+
+    @Override
+    public void afterThrowing(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args,
+                              Throwable throwable) throws Throwable {
+        final long cost = threadLocalWatch.cost();
+        if (null != condition && !isConditionMet(Advice.newForAfterThrowing(loader, clazz, method, target, args,
+                throwable), cost)) {
+            return;
+        }
+        getStats(clazz, method).record(cost, false);
+    }
+
+    @SuppressWarnings("squid:S1181")
+    private boolean isConditionMet(Advice advice, long cost) {
+        try {
+            boolean result = isConditionMet(condition, advice, cost / NANOS_PER_MILLIS);
+            if (this.isVerbose()) {
+                process.console("Condition express: " + command.getConditionExpress() + " , result: " + result + "\n");
+            }
+            return result;
+        } catch (Throwable e) {
+            logger.warn("monitor failed.", e);
+            process.end(false, "monitor failed, condition is: " + command.getConditionExpress() + ", " +
+                    e.getMessage() + ", visit logs for more details.");
+            return false;
+        }
+    }
+
+    private MethodStats getStats(Class<?> clazz, JarbootMethod method) {
+        ConcurrentHashMap<String, ConcurrentHashMap<String, MethodStats>> methods = stats.get(clazz);
+        if (null == methods) {
+            methods = stats.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>(16));
+        }
+        ConcurrentHashMap<String, MethodStats> descs = methods.get(method.getName());
+        if (null == descs) {
+            descs = methods.computeIfAbsent(method.getName(), k -> new ConcurrentHashMap<>(4));
+        }
+        MethodStats s = descs.get(method.getMethodDesc());
+        if (null == s) {
+            s = descs.computeIfAbsent(method.getMethodDesc(), k -> new MethodStats(clazz.getName(), method.getName()));
+        }
+        return s;
+    }
+
+    @SuppressWarnings("squid:S1181")
+    private void report() {
+        try {
+            List<MonitorVO> items = new ArrayList<>();
+            for (Map<String, ConcurrentHashMap<String, MethodStats>> methods : stats.values()) {
+                for (Map<String, MethodStats> descs : methods.values()) {
+                    for (MethodStats s : descs.values()) {
+                        items.add(s.snapshotAndReset());
+                    }
+                }
+            }
+            process.appendResult(new MonitorModel(new Date(), command.getCycle(), items));
+            process.times().incrementAndGet();
+            if (isLimitExceeded(command.getNumberOfLimit(), process.times().get())) {
+                abortProcess(process, command.getNumberOfLimit());
+            }
+        } catch (Throwable e) {
+            logger.warn("monitor report failed.", e);
+            process.end(false, "monitor failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 单个方法的统计
+     */
+    static class MethodStats {
+        private final String className;
+        private final String methodName;
+        private final LongAdder success = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalCost = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        MethodStats(String className, String methodName) {
+            this.className = className;
+            this.methodName = methodName;
+        }
+
+        void record(long cost, boolean isSuccess) {
+            if (isSuccess) {
+                success.increment();
+            } else {
+                failed.increment();
+            }
+            totalCost.add(cost);
+            histogram.record(cost);
+        }
+
+        MonitorVO snapshotAndReset() {
+            MonitorVO vo = new MonitorVO();
+            vo.setClassName(className);
+            vo.setMethodName(methodName);
+            final long successCount = success.sumThenReset();
+            final long failedCount = failed.sumThenReset();
+            final long total = successCount + failedCount;
+            final long cost = totalCost.sumThenReset();
+            LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+            vo.setTotal(total);
+            vo.setSuccess(successCount);
+            vo.setFailed(failedCount);
+            vo.setAvgRt(0 == total ? 0 : cost / NANOS_PER_MILLIS / total);
+            vo.setP50(snapshot.percentile(0.5) / NANOS_PER_MILLIS);
+            vo.setP90(snapshot.percentile(0.9) / NANOS_PER_MILLIS);
+            vo.setP99(snapshot.percentile(0.99) / NANOS_PER_MILLIS);
+            vo.setMax(snapshot.getMax() / NANOS_PER_MILLIS);
+            return vo;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.api.cmd.annotation.*;
+import io.github.majianzheng.jarboot.core.GlobalOptions;
+import io.github.majianzheng.jarboot.core.advisor.AdviceListener;
+import io.github.majianzheng.jarboot.core.advisor.AdviceSampler;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
+import io.github.majianzheng.jarboot.core.utils.SearchUtils;
+import io.github.majianzheng.jarboot.core.utils.matcher.Matcher;
+
+/**
+ * 方法调用监控，按周期汇总调用次数、成功失败和耗时分布，每个周期输出一张表
+ * @author majianzheng
+ */
+@Name("monitor")
+@Summary("Monitor method invocation statistics, e.g. total/success/failure count, average and percentile rt")
+@Description(CoreConstant.EXPRESS_DESCRIPTION + CoreConstant.EXAMPLE +
+        "  monitor org.apache.commons.lang.StringUtils isBlank\n" +
+        "  monitor org.apache.commons.lang.StringUtils isBlank -c 5\n" +
+        "  monitor org.apache.commons.lang.StringUtils isBlank 'params[0]!=null'\n" +
+        "  monitor -E org\\.apache\\.commons\\.lang\\.StringUtils isBlank\n" +
+        CoreConstant.WIKI + CoreConstant.WIKI_HOME + "monitor")
+public class MonitorCommand extends EnhancerCommand {
+    private String classPattern;
+    private String methodPattern;
+    private String conditionExpress;
+    private int cycle = 60;
+    private boolean isRegEx = false;
+    private int numberOfLimit = 100;
+
+    @Argument(index = 0, argName = "class-pattern")
+    @Description("Path and classname of Pattern Matching")
+    public void setClassPattern(String classPattern) {
+        this.classPattern = classPattern;
+    }
+
+    @Argument(index = 1, argName = "method-pattern")
+    @Description("Method of Pattern Matching")
+    public void setMethodPattern(String methodPattern) {
+        this.methodPattern = methodPattern;
+    }
+
+    @Argument(index = 2, argName = "condition-express", required = false)
+    @Description(CoreConstant.CONDITION_EXPRESS)
+    public void setConditionExpress(String conditionExpress) {
+        this.conditionExpress = conditionExpress;
+    }
+
+    @Option(shortName = "c", longName = "cycle")
+    @Description("The monitor interval (in seconds), 60 seconds by default")
+    public void setCycle(int cycle) {
+        this.cycle = cycle;
+    }
+
+    @Option(shortName = "E", longName = "regex", flag = true)
+    @Description("Enable regular expression to match (wildcard matching by default)")
+    public void setRegEx(boolean regEx) {
+        isRegEx = regEx;
+    }
+
+    @Option(shortName = "n", longName = "limits")
+    @Description("Threshold of output cycles")
+    public void setNumberOfLimit(int numberOfLimit) {
+        this.numberOfLimit = numberOfLimit;
+    }
+
+    public String getClassPattern() {
+        return classPattern;
+    }
+
+    public String getMethodPattern() {
+        return methodPattern;
+    }
+
+    public String getConditionExpress() {
+        return conditionExpress;
+    }
+
+    public int getCycle() {
+        return cycle;
+    }
+
+    public boolean isRegEx() {
+        return isRegEx;
+    }
+
+    public int getNumberOfLimit() {
+        return numberOfLimit;
+    }
+
+    @Override
+    protected Matcher getClassNameMatcher() {
+        if (classNameMatcher == null) {
+            classNameMatcher = SearchUtils.classNameMatcher(getClassPattern(), isRegEx());
+        }
+        return classNameMatcher;
+    }
+
+    @Override
+    protected Matcher getClassNameExcludeMatcher() {
+        if (classNameExcludeMatcher == null && getExcludeClassPattern() != null) {
+            classNameExcludeMatcher = SearchUtils.classNameMatcher(getExcludeClassPattern(), isRegEx());
+        }
+        return classNameExcludeMatcher;
+    }
+
+    @Override
+    protected Matcher getMethodNameMatcher() {
+        if (methodNameMatcher == null) {
+            methodNameMatcher = SearchUtils.classNameMatcher(getMethodPattern(), isRegEx());
+        }
+        return methodNameMatcher;
+    }
+
+    /**
+     * 聚合统计需要全部调用，不采样；每个周期只输出一次结果，无需退避
+     */
+    @Override
+    protected AdviceSampler createSampler() {
+        return null;
+    }
+
+    @Override
+    protected AdviceListener getAdviceListener(AbstractCommandSession process) {
+        return new MonitorAdviceListener(this, process, GlobalOptions.verbose || this.verbose);
+    }
+}
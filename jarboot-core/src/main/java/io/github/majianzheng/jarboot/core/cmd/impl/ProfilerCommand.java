@@ -0,0 +1,183 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.api.cmd.annotation.Argument;
+import io.github.majianzheng.jarboot.api.cmd.annotation.Description;
+import io.github.majianzheng.jarboot.api.cmd.annotation.Name;
+import io.github.majianzheng.jarboot.api.cmd.annotation.Option;
+import io.github.majianzheng.jarboot.api.cmd.annotation.Summary;
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.core.cmd.AbstractCommand;
+import io.github.majianzheng.jarboot.core.cmd.model.ProfilerModel;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import io.github.majianzheng.jarboot.core.utils.LogUtils;
+import io.github.majianzheng.jarboot.core.utils.matcher.WildcardMatcher;
+import org.slf4j.Logger;
+
+/**
+ * 采样线程栈生成火焰图
+ * @author majianzheng
+ */
+@Name("profiler")
+@Summary("Sample thread stacks and generate flame graph")
+@Description(CoreConstant.EXAMPLE +
+        "  profiler start\n" +
+        "  profiler start -e wall -i 20\n" +
+        "  profiler start -t 1,25 -d 128\n" +
+        "  profiler start --thread-name http-nio-* --duration 300\n" +
+        "  profiler status\n" +
+        "  profiler stop\n" +
+        CoreConstant.WIKI + CoreConstant.WIKI_HOME + "profiler")
+public class ProfilerCommand extends AbstractCommand {
+    private static final Logger logger = LogUtils.getLogger();
+    private static final String ACTION_START = "start";
+    private static final String ACTION_STOP = "stop";
+    private static final String ACTION_STATUS = "status";
+    private static final int MAX_DEPTH = 2048;
+
+    private String action;
+    private String event = "cpu";
+    private long interval = 10;
+    private int depth = 64;
+    private String threads;
+    private String threadName;
+    private long duration = 0;
+
+    @Argument(index = 0, argName = "action")
+    @Description("[action] is \"start\", \"stop\" or \"status\"")
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    @Option(shortName = "e", longName = "event")
+    @Description("Profiling event, \"cpu\" samples only the threads consuming cpu, \"wall\" samples all threads, default cpu.")
+    public void setEvent(String event) {
+        this.event = event;
+    }
+
+    @Option(shortName = "i", longName = "interval")
+    @Description("Sampling interval in ms, default 10.")
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    @Option(shortName = "d", longName = "depth")
+    @Description("Max stack depth, default 64.")
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    @Option(shortName = "t", longName = "threads")
+    @Description("Thread ids separated by comma, default all threads.")
+    public void setThreads(String threads) {
+        this.threads = threads;
+    }
+
+    @Option(longName = "thread-name")
+    @Description("Wildcard pattern of thread name.")
+    public void setThreadName(String threadName) {
+        this.threadName = threadName;
+    }
+
+    @Option(longName = "duration")
+    @Description("Stop automatically after the seconds, default run until stop.")
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    @Override
+    public void run() {
+        if (ACTION_START.equalsIgnoreCase(action)) {
+            start();
+        } else if (ACTION_STOP.equalsIgnoreCase(action)) {
+            stop();
+        } else if (ACTION_STATUS.equalsIgnoreCase(action)) {
+            status();
+        } else {
+            session.end(false, "profiler start, profiler stop 或 profiler status");
+        }
+    }
+
+    private void start() {
+        StackProfiler.Mode mode;
+        try {
+            mode = StackProfiler.Mode.valueOf(event.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            session.end(false, "Unknown event: " + event + ", cpu or wall is supported.");
+            return;
+        }
+        if (interval <= 0 || depth <= 0 || depth > MAX_DEPTH) {
+            session.end(false, "Interval must be positive and depth must be in 1.." + MAX_DEPTH);
+            return;
+        }
+        long[] ids;
+        try {
+            ids = parseThreadIds(threads);
+        } catch (NumberFormatException e) {
+            session.end(false, "Invalid thread ids: " + threads);
+            return;
+        }
+        WildcardMatcher matcher = StringUtils.isEmpty(threadName) ? null : new WildcardMatcher(threadName);
+        try {
+            StackProfiler.getInstance().start(mode, interval, depth, ids, matcher, duration);
+        } catch (IllegalStateException e) {
+            session.end(false, e.getMessage());
+            return;
+        }
+        StringBuilder sb = new StringBuilder(128)
+                .append("Profiler started, event: ").append(mode.name().toLowerCase())
+                .append(", interval: ").append(interval).append("ms, depth: ").append(depth);
+        if (duration > 0) {
+            sb.append(", it will stop after ").append(duration).append('s');
+        }
+        session.end(true, sb.toString());
+    }
+
+    private void stop() {
+        StackProfiler.Result result;
+        try {
+            result = StackProfiler.getInstance().stop();
+        } catch (Exception e) {
+            String errorMsg = "profiler stop error: " + e.getMessage();
+            logger.error(errorMsg, e);
+            session.end(false, errorMsg);
+            return;
+        }
+        if (null == result) {
+            session.end(false, "Profiler is not running.");
+            return;
+        }
+        session.console(String.format("Collected %d samples in %d ms", result.getSamples(), result.getDurationMillis()));
+        session.appendResult(new ProfilerModel(result.getMode().name().toLowerCase(), result.getSamples(),
+                result.getDurationMillis(), result.getCollapsedFile(), result.getHtmlFile()));
+        session.end(true, "Flame graph created");
+    }
+
+    private void status() {
+        StackProfiler.Profile profile = StackProfiler.getInstance().getRunning();
+        if (null != profile) {
+            session.end(true, String.format("Profiling %s since %s, elapsed %d ms, %d samples in %d ticks, " +
+                            "%d samples truncated, overhead %.2f%%", profile.getMode().name().toLowerCase(),
+                    profile.getStartTime(), profile.getElapsedMillis(), profile.getSamples(), profile.getTicks(),
+                    profile.getDropped(), profile.getOverhead()));
+            return;
+        }
+        StackProfiler.Result last = StackProfiler.getInstance().getLastResult();
+        if (null == last) {
+            session.end(true, "Profiler is not running.");
+        } else {
+            session.end(true, "Profiler is not running, last result: " + last.getHtmlFile().getAbsolutePath());
+        }
+    }
+
+    private static long[] parseThreadIds(String threads) {
+        if (StringUtils.isEmpty(threads)) {
+            return null;
+        }
+        String[] items = threads.split(",");
+        long[] ids = new long[items.length];
+        for (int i = 0; i < items.length; ++i) {
+            ids[i] = Long.parseLong(items[i].trim());
+        }
+        return ids;
+    }
+}
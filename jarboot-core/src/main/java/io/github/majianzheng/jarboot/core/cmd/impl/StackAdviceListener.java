@@ -3,6 +3,7 @@ package io.github.majianzheng.jarboot.core.cmd.impl;
 import io.github.majianzheng.jarboot.core.advisor.Advice;
 import io.github.majianzheng.jarboot.core.advisor.AdviceListenerAdapter;
 import io.github.majianzheng.jarboot.core.advisor.JarbootMethod;
+import io.github.majianzheng.jarboot.core.cmd.express.ParsedExpress;
 import io.github.majianzheng.jarboot.core.cmd.model.StackModel;
 import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
@@ -20,10 +21,12 @@ public class StackAdviceListener extends AdviceListenerAdapter {
     private final ThreadLocalWatch threadLocalWatch = new ThreadLocalWatch();
     private StackCommand command;
     private AbstractCommandSession process;
+    private final ParsedExpress condition;
 
     public StackAdviceListener(StackCommand command, AbstractCommandSession process, boolean verbose) {
         this.command = command;
         this.process = process;
+        this.condition = prepare(command.getConditionExpress());
         super.setVerbose(verbose);
     }
 
@@ -37,6 +40,11 @@ public class StackAdviceListener extends AdviceListenerAdapter {
     @Override
     public void afterThrowing(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args,
                               Throwable throwable) throws Throwable {
+        if (!isSampled()) {
+            //未采样时也要取出进入方法时记录的时间
+            threadLocalWatch.cost();
+            return;
+        }
         Advice advice = Advice.newForAfterThrowing(loader, clazz, method, target, args, throwable);
         finishing(advice);
     }
@@ -44,6 +52,11 @@ public class StackAdviceListener extends AdviceListenerAdapter {
     @Override
     public void afterReturning(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args,
                                Object returnObject) throws Throwable {
+        if (!isSampled()) {
+            //未采样时也要取出进入方法时记录的时间
+            threadLocalWatch.cost();
+            return;
+        }
         Advice advice = Advice.newForAfterRetuning(loader, clazz, method, target, args, returnObject);
         finishing(advice);
     }
@@ -53,7 +66,7 @@ public class StackAdviceListener extends AdviceListenerAdapter {
         // 本次调用的耗时
         try {
             double cost = threadLocalWatch.costInMillis();
-            boolean conditionResult = isConditionMet(command.getConditionExpress(), advice, cost);
+            boolean conditionResult = isConditionMet(condition, advice, cost);
             if (this.isVerbose()) {
                 process.console("Condition express: " + command.getConditionExpress() +
                         " , result: " + conditionResult + "\n");
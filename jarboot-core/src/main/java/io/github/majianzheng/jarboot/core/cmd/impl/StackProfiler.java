@@ -0,0 +1,497 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.core.utils.LogUtils;
+import io.github.majianzheng.jarboot.core.utils.matcher.Matcher;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 栈采样分析器，在独立的低优先级线程中按固定间隔采样线程栈，同一时间只运行一个采样任务
+ * @author majianzheng
+ */
+class StackProfiler {
+    private static final Logger logger = LogUtils.getLogger();
+    /** 栈被截断时补充的虚拟栈底 */
+    private static final String TRUNCATED_FRAME = "...";
+    /** 字典树节点上限，超出后样本计入已有的最深节点 */
+    private static final int MAX_NODES = 1 << 20;
+    /** 按名称筛选线程时重新匹配的间隔 */
+    private static final long RESOLVE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long JOIN_MILLIS = 5000L;
+    /** 输出目录中最多保留的文件数 */
+    private static final int MAX_OUTPUT_FILES = 10;
+    private static final String COLLAPSED_SUFFIX = ".collapsed";
+    private static final String HTML_SUFFIX = ".html";
+
+    /** 采样模式 */
+    enum Mode {
+        /** 仅采样消耗了CPU的线程 */
+        CPU,
+        /** 采样全部线程，包括等待和阻塞 */
+        WALL
+    }
+
+    /** 正在运行的采样任务 */
+    private Profile running;
+    /** 最近一次采样结果 */
+    private volatile Result lastResult;
+
+    private StackProfiler() {}
+
+    static StackProfiler getInstance() {
+        return StackProfilerHolder.INST;
+    }
+
+    /**
+     * 开始采样
+     * @param mode 采样模式
+     * @param intervalMillis 采样间隔
+     * @param depth 最大栈深度
+     * @param threadIds 指定的线程id，为null时采样全部线程
+     * @param threadName 线程名称匹配，可为null
+     * @param durationSeconds 持续时间，小于等于0时直到手动停止
+     * @return 采样任务
+     */
+    synchronized Profile start(Mode mode, long intervalMillis, int depth, long[] threadIds,
+                               Matcher<String> threadName, long durationSeconds) {
+        if (null != running) {
+            throw new IllegalStateException("Profiler is already running, started at " + running.getStartTime());
+        }
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (Mode.CPU == mode) {
+            if (!threadMXBean.isThreadCpuTimeSupported()) {
+                throw new IllegalStateException("Thread cpu time is not supported, use wall mode instead.");
+            }
+            if (!threadMXBean.isThreadCpuTimeEnabled()) {
+                threadMXBean.setThreadCpuTimeEnabled(true);
+            }
+        }
+        Profile profile = new Profile(threadMXBean, mode, intervalMillis, depth, threadIds, threadName, durationSeconds);
+        running = profile;
+        profile.start();
+        return profile;
+    }
+
+    /**
+     * 停止采样并输出火焰图
+     * @return 采样结果，未运行时返回null
+     * @throws IOException 输出文件失败
+     * @throws IllegalStateException 采样线程未能结束
+     */
+    Result stop() throws IOException {
+        Profile profile;
+        synchronized (this) {
+            profile = running;
+            if (null == profile) {
+                return null;
+            }
+            running = null;
+        }
+        profile.stop();
+        Result result = profile.write();
+        lastResult = result;
+        return result;
+    }
+
+    synchronized Profile getRunning() {
+        return running;
+    }
+
+    Result getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * 达到持续时间后由采样线程自行结束
+     * @param profile 采样任务
+     */
+    private void expire(Profile profile) {
+        synchronized (this) {
+            if (running != profile) {
+                //已被手动停止
+                return;
+            }
+            running = null;
+        }
+        try {
+            lastResult = profile.write();
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private static void cleanOldOutput(File dir) {
+        File[] files = dir.listFiles();
+        if (null == files || files.length <= MAX_OUTPUT_FILES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_OUTPUT_FILES; ++i) {
+            try {
+                FileUtils.forceDelete(files[i]);
+            } catch (IOException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 采样任务，字典和字典树只由采样线程访问，结束后再输出
+     */
+    static class Profile implements Runnable {
+        private final ThreadMXBean threadMXBean;
+        private final Mode mode;
+        private final long intervalNanos;
+        private final int depth;
+        /** 指定的线程id，已排序 */
+        private final long[] threadIds;
+        private final Matcher<String> threadName;
+        private final long durationNanos;
+        private final FrameDictionary dictionary = new FrameDictionary();
+        private final StackTrie trie = new StackTrie(MAX_NODES);
+        private final int truncatedFrame;
+        private final Date startTime = new Date();
+        private final long startNanos = System.nanoTime();
+        private final Thread thread;
+        private volatile boolean stopped = false;
+        private volatile long endNanos;
+        /** 样本数 */
+        private volatile long samples;
+        /** 采样次数 */
+        private volatile long ticks;
+        /** 因节点数达到上限而归入上层节点的样本数 */
+        private volatile long dropped;
+        /** 采样本身耗费的时间，支持时取采样线程的CPU时间，避免把被抢占的时间计入开销 */
+        private volatile long sampleNanos;
+        private final boolean cpuClock;
+        /** 上次采样时各线程的CPU时间，按线程id排序 */
+        private long[] lastIds = new long[0];
+        private long[] lastCpuTimes = new long[0];
+        /** 按名称匹配到的线程 */
+        private long[] resolvedIds;
+        private long resolveNanos;
+
+        Profile(ThreadMXBean threadMXBean, Mode mode, long intervalMillis, int depth, long[] threadIds,
+                Matcher<String> threadName, long durationSeconds) {
+            this.threadMXBean = threadMXBean;
+            this.mode = mode;
+            this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            this.depth = depth;
+            this.threadIds = null == threadIds ? null : threadIds.clone();
+            if (null != this.threadIds) {
+                Arrays.sort(this.threadIds);
+            }
+            this.threadName = threadName;
+            this.cpuClock = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+            this.durationNanos = durationSeconds > 0 ? TimeUnit.SECONDS.toNanos(durationSeconds) : 0;
+            this.truncatedFrame = dictionary.intern(TRUNCATED_FRAME);
+            this.thread = new Thread(this, "jarboot-profiler");
+            this.thread.setDaemon(true);
+            this.thread.setPriority(Thread.MIN_PRIORITY);
+        }
+
+        @Override
+        public void run() {
+            long next = System.nanoTime();
+            while (!stopped) {
+                final long begin = System.nanoTime();
+                if (durationNanos > 0 && begin - startNanos >= durationNanos) {
+                    break;
+                }
+                final long sampleStart = clock();
+                try {
+                    sample();
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+                ++ticks;
+                sampleNanos += clock() - sampleStart;
+                final long now = System.nanoTime();
+                next += intervalNanos;
+                if (next - now > 0) {
+                    LockSupport.parkNanos(this, next - now);
+                } else {
+                    //采样跟不上时跳过错过的周期，不做补偿
+                    next = now;
+                }
+            }
+            endNanos = System.nanoTime();
+            if (!stopped) {
+                StackProfiler.getInstance().expire(this);
+            }
+        }
+
+        Mode getMode() {
+            return mode;
+        }
+
+        Date getStartTime() {
+            return startTime;
+        }
+
+        long getSamples() {
+            return samples;
+        }
+
+        long getTicks() {
+            return ticks;
+        }
+
+        long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * 已运行的时间
+         * @return 毫秒
+         */
+        long getElapsedMillis() {
+            final long end = 0 == endNanos ? System.nanoTime() : endNanos;
+            return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        }
+
+        /**
+         * 采样耗时占运行时间的比例
+         * @return 百分比
+         */
+        double getOverhead() {
+            final long end = 0 == endNanos ? System.nanoTime() : endNanos;
+            final long elapsed = end - startNanos;
+            return elapsed <= 0 ? 0 : sampleNanos * 100.0 / elapsed;
+        }
+
+        private long clock() {
+            return cpuClock ? threadMXBean.getCurrentThreadCpuTime() : System.nanoTime();
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        /**
+         * 停止采样线程，超时后中断并继续等待，仍未结束时不再输出结果，避免读取正在修改的调用树
+         */
+        private void stop() {
+            stopped = true;
+            LockSupport.unpark(thread);
+            join();
+            if (thread.isAlive()) {
+                thread.interrupt();
+                join();
+            }
+            if (thread.isAlive()) {
+                throw new IllegalStateException("Profiler thread is still sampling after "
+                        + JOIN_MILLIS * 2 + " ms, the dump is abandoned.");
+            }
+            if (0 == endNanos) {
+                endNanos = System.nanoTime();
+            }
+        }
+
+        private void join() {
+            try {
+                thread.join(JOIN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void sample() {
+            long[] ids = selectThreads();
+            if (Mode.CPU == mode) {
+                ids = filterRunning(ids);
+            }
+            if (ids.length == 0) {
+                return;
+            }
+            ThreadInfo[] infos = threadMXBean.getThreadInfo(ids, depth);
+            for (ThreadInfo info : infos) {
+                if (null != info) {
+                    record(info.getStackTrace());
+                }
+            }
+        }
+
+        private void record(StackTraceElement[] stack) {
+            if (stack.length == 0) {
+                return;
+            }
+            int node = StackTrie.ROOT;
+            if (stack.length >= depth) {
+                //栈深度达到上限时栈底已丢失，统一挂在虚拟栈底下避免与完整的栈混在一起
+                node = trie.child(node, truncatedFrame);
+            }
+            for (int i = stack.length - 1; i >= 0 && StackTrie.FULL != node; --i) {
+                final int child = trie.child(node, dictionary.intern(stack[i]));
+                if (StackTrie.FULL == child) {
+                    ++dropped;
+                    break;
+                }
+                node = child;
+            }
+            if (StackTrie.FULL == node) {
+                ++dropped;
+                node = StackTrie.ROOT;
+            }
+            trie.increment(node, 1);
+            ++samples;
+        }
+
+        /**
+         * 选择需要采样的线程，返回的数组已排序且不包含采样线程自身
+         * @return 线程id
+         */
+        private long[] selectThreads() {
+            if (null != threadIds) {
+                return threadIds;
+            }
+            if (null == threadName) {
+                return exclude(threadMXBean.getAllThreadIds());
+            }
+            final long now = System.nanoTime();
+            if (null == resolvedIds || now - resolveNanos >= RESOLVE_INTERVAL_NANOS) {
+                long[] all = threadMXBean.getAllThreadIds();
+                ThreadInfo[] infos = threadMXBean.getThreadInfo(all, 0);
+                int count = 0;
+                for (ThreadInfo info : infos) {
+                    if (null != info && threadName.matching(info.getThreadName())) {
+                        all[count++] = info.getThreadId();
+                    }
+                }
+                resolvedIds = exclude(Arrays.copyOf(all, count));
+                resolveNanos = now;
+            }
+            return resolvedIds;
+        }
+
+        private long[] exclude(long[] ids) {
+            final long self = thread.getId();
+            int count = 0;
+            for (long id : ids) {
+                if (id != self) {
+                    ids[count++] = id;
+                }
+            }
+            long[] result = count == ids.length ? ids : Arrays.copyOf(ids, count);
+            Arrays.sort(result);
+            return result;
+        }
+
+        /**
+         * 只保留距上次采样CPU时间有增长的线程，新出现的线程本次只记录基准
+         * @param ids 已排序的线程id
+         * @return 线程id
+         */
+        private long[] filterRunning(long[] ids) {
+            final long[] cpuTimes = ThreadSampler.getThreadCpuTime(ids);
+            final long[] result = new long[ids.length];
+            int count = 0;
+            int last = 0;
+            for (int i = 0; i < ids.length; ++i) {
+                while (last < lastIds.length && lastIds[last] < ids[i]) {
+                    ++last;
+                }
+                final boolean advanced = last < lastIds.length && lastIds[last] == ids[i]
+                        && cpuTimes[i] > lastCpuTimes[last];
+                if (advanced) {
+                    result[count++] = ids[i];
+                }
+            }
+            lastIds = ids;
+            lastCpuTimes = cpuTimes;
+            return Arrays.copyOf(result, count);
+        }
+
+        /**
+         * 输出折叠栈和HTML火焰图，须在采样线程结束后调用
+         * @return 采样结果
+         * @throws IOException 输出文件失败
+         */
+        private Result write() throws IOException {
+            File dir = new File(LogUtils.getLogDir(), "profiler");
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Create profiler output directory failed: " + dir.getPath());
+            }
+            final String event = mode.name().toLowerCase();
+            final String prefix = "profiler-" + new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss").format(startTime)
+                    + '-' + event;
+            File collapsed = new File(dir, prefix + COLLAPSED_SUFFIX);
+            File html = new File(dir, prefix + HTML_SUFFIX);
+            try (Writer out = newWriter(collapsed)) {
+                FlameGraphWriter.writeCollapsed(trie, dictionary, out);
+            }
+            final long elapsed = getElapsedMillis();
+            final String title = String.format("%s profile, %d samples, %d ms, started at %s", event, samples,
+                    elapsed, startTime);
+            try (Writer out = newWriter(html)) {
+                FlameGraphWriter.writeHtml(trie, dictionary, title, out);
+            }
+            cleanOldOutput(dir);
+            return new Result(mode, samples, elapsed, collapsed, html);
+        }
+
+        private static Writer newWriter(File file) throws IOException {
+            return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 采样结果
+     */
+    static class Result {
+        private final Mode mode;
+        private final long samples;
+        private final long durationMillis;
+        private final File collapsedFile;
+        private final File htmlFile;
+
+        Result(Mode mode, long samples, long durationMillis, File collapsedFile, File htmlFile) {
+            this.mode = mode;
+            this.samples = samples;
+            this.durationMillis = durationMillis;
+            this.collapsedFile = collapsedFile;
+            this.htmlFile = htmlFile;
+        }
+
+        Mode getMode() {
+            return mode;
+        }
+
+        long getSamples() {
+            return samples;
+        }
+
+        long getDurationMillis() {
+            return durationMillis;
+        }
+
+        File getCollapsedFile() {
+            return collapsedFile;
+        }
+
+        File getHtmlFile() {
+            return htmlFile;
+        }
+    }
+
+    private static class StackProfilerHolder {
+        static final StackProfiler INST = new StackProfiler();
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import java.util.Arrays;
+
+/**
+ * 折叠栈的字典树，节点存放在基本类型数组中，(父节点, 栈帧id)到子节点的映射使用开放寻址哈希表，采样时不产生对象
+ * @author majianzheng
+ */
+class StackTrie {
+    /** 根节点 */
+    static final int ROOT = 0;
+    /** 节点数达到上限 */
+    static final int FULL = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final long FRAME_MASK = 0xFFFFFFFFL;
+
+    private final int maxNodes;
+    /** 节点的栈帧id */
+    private int[] frames = new int[INITIAL_CAPACITY];
+    /** 节点的父节点 */
+    private int[] parents = new int[INITIAL_CAPACITY];
+    /** 以该节点为栈顶的样本数 */
+    private long[] selfCounts = new long[INITIAL_CAPACITY];
+    private int size = 1;
+    /** 哈希表，key为父节点和栈帧id，value为子节点，根节点不会是子节点，因此0表示空槽 */
+    private long[] tableKeys = new long[INITIAL_CAPACITY * 2];
+    private int[] tableNodes = new int[INITIAL_CAPACITY * 2];
+    private int tableBits = Integer.numberOfTrailingZeros(INITIAL_CAPACITY * 2);
+
+    StackTrie(int maxNodes) {
+        this.maxNodes = maxNodes;
+        frames[ROOT] = FULL;
+        parents[ROOT] = FULL;
+    }
+
+    /**
+     * 查找或创建子节点
+     * @param parent 父节点
+     * @param frame 栈帧id
+     * @return 子节点，节点数达到上限时返回{@link #FULL}
+     */
+    int child(int parent, int frame) {
+        final long key = ((long) parent << Integer.SIZE) | (frame & FRAME_MASK);
+        final int mask = tableNodes.length - 1;
+        int slot = slot(key);
+        while (0 != tableNodes[slot]) {
+            if (tableKeys[slot] == key) {
+                return tableNodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= maxNodes) {
+            return FULL;
+        }
+        final int node = size++;
+        ensureCapacity(node);
+        frames[node] = frame;
+        parents[node] = parent;
+        tableKeys[slot] = key;
+        tableNodes[slot] = node;
+        if (size * 2 > tableNodes.length) {
+            rehash();
+        }
+        return node;
+    }
+
+    /**
+     * 以节点为栈顶记录样本
+     * @param node 节点
+     * @param count 样本数
+     */
+    void increment(int node, long count) {
+        selfCounts[node] += count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getFrame(int node) {
+        return frames[node];
+    }
+
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    long getSelf(int node) {
+        return selfCounts[node];
+    }
+
+    /**
+     * 计算每个节点包含子节点在内的样本数，子节点的编号总是大于父节点
+     * @return 样本数
+     */
+    long[] totals() {
+        long[] totals = Arrays.copyOf(selfCounts, size);
+        for (int node = size - 1; node > ROOT; --node) {
+            totals[parents[node]] += totals[node];
+        }
+        return totals;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> (Long.SIZE - tableBits));
+    }
+
+    private void ensureCapacity(int node) {
+        if (node < frames.length) {
+            return;
+        }
+        final int capacity = (int) Math.min((long) frames.length * 2, maxNodes);
+        frames = Arrays.copyOf(frames, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        selfCounts = Arrays.copyOf(selfCounts, capacity);
+    }
+
+    private void rehash() {
+        long[] oldKeys = tableKeys;
+        int[] oldNodes = tableNodes;
+        tableKeys = new long[oldKeys.length * 2];
+        tableNodes = new int[oldNodes.length * 2];
+        ++tableBits;
+        final int mask = tableNodes.length - 1;
+        for (int i = 0; i < oldNodes.length; ++i) {
+            if (0 == oldNodes[i]) {
+                continue;
+            }
+            int slot = slot(oldKeys[i]);
+            while (0 != tableNodes[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            tableKeys[slot] = oldKeys[i];
+            tableNodes[slot] = oldNodes[i];
+        }
+    }
+}
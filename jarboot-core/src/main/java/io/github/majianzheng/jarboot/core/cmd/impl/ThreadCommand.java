@@ -28,6 +28,7 @@ import java.util.*;
         "  thread 51\n" +
         "  thread -n -1\n" +
         "  thread -n 5\n" +
+        "  thread -n 5 --sort alloc\n" +
         "  thread -b\n" +
         "  thread -i 2000\n" +
         "  thread --state BLOCKED\n" +
@@ -40,6 +41,7 @@ public class ThreadCommand extends AbstractCommand {
     private boolean findMostBlockingThread = false;
     private int sampleInterval = 200;
     private String state;
+    private String sort;
 
     private boolean lockedMonitors = false;
     private boolean lockedSynchronizers = false;
@@ -87,6 +89,12 @@ public class ThreadCommand extends AbstractCommand {
         this.state = state;
     }
 
+    @Option(longName = "sort")
+    @Description("Sort threads by \"cpu\" or \"alloc\" (allocation rate), default is cpu.")
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
     @Option(longName = "lockedMonitors", flag = true)
     @Description("Find the thread info with lockedMonitors flag, default value is false.")
     public void setLockedMonitors(boolean lockedMonitors) {
@@ -101,6 +109,10 @@ public class ThreadCommand extends AbstractCommand {
 
     @Override
     public void run() {
+        if (null != sort && null == getSortBy()) {
+            session.end(false, "Illegal argument, sort should be cpu or alloc");
+            return;
+        }
         if (id > 0) {
             processThread();
         } else if (topNBusy != null) {
@@ -151,7 +163,7 @@ public class ThreadCommand extends AbstractCommand {
         threadSampler.setIncludeInternalThreads(includeInternalThreads);
         threadSampler.sample(resultThreads);
         threadSampler.pause(sampleInterval);
-        List<ThreadVO> threadStats = threadSampler.sample(resultThreads);
+        List<ThreadVO> threadStats = threadSampler.sample(resultThreads, -1, getSortBy());
 
         session.appendResult(new ThreadModel(threadStats, stateCountMap, all));
         session.end();
@@ -171,16 +183,8 @@ public class ThreadCommand extends AbstractCommand {
         ThreadSampler threadSampler = new ThreadSampler();
         threadSampler.sample(ThreadUtil.getThreads());
         threadSampler.pause(sampleInterval);
-        List<ThreadVO> threadStats = threadSampler.sample(ThreadUtil.getThreads());
-
-        int limit = Math.min(threadStats.size(), topNBusy);
-
-        List<ThreadVO> topNThreads = null;
-        if (limit > 0) {
-            topNThreads = threadStats.subList(0, limit);
-        } else { // -1 for all threads
-            topNThreads = threadStats;
-        }
+        // -1 for all threads
+        List<ThreadVO> topNThreads = threadSampler.sample(ThreadUtil.getThreads(), topNBusy, getSortBy());
 
         List<Long> tids = new ArrayList<>(topNThreads.size());
         for (ThreadVO thread : topNThreads) {
@@ -206,6 +210,18 @@ public class ThreadCommand extends AbstractCommand {
         session.end();
     }
 
+    private ThreadSampler.SortBy getSortBy() {
+        if (StringUtils.isEmpty(sort)) {
+            return ThreadSampler.SortBy.CPU;
+        }
+        for (ThreadSampler.SortBy sortBy : ThreadSampler.SortBy.values()) {
+            if (sortBy.name().equalsIgnoreCase(sort)) {
+                return sortBy;
+            }
+        }
+        return null;
+    }
+
     private ThreadInfo findThreadInfoById(ThreadInfo[] threadInfos, long id) {
         for (int i = 0; i < threadInfos.length; i++) {
             ThreadInfo threadInfo = threadInfos[i];
@@ -4,107 +4,117 @@ import io.github.majianzheng.jarboot.core.cmd.model.ThreadVO;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Thread cpu sampler
+ * 上次采样结果按线程id保存在有序的基本类型数组中，支持时使用批量接口获取CPU时间和内存分配量，取前N个时使用堆选择
  *
  * @author majianzheng
  * 以下代码基于开源项目Arthas适配修改
  */
 public class ThreadSampler {
+    /** 排序方式 */
+    public enum SortBy {
+        /** 按采样间隔内消耗的CPU时间 */
+        CPU,
+        /** 按采样间隔内的内存分配速率 */
+        ALLOC
+    }
 
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final long UNAVAILABLE = -1L;
     private static ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    /** 支持批量接口时不为null */
+    @SuppressWarnings("java:S1191")
+    private static final com.sun.management.ThreadMXBean BATCH_THREAD_MX_BEAN = //NOSONAR
+            threadMXBean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) threadMXBean : null; //NOSONAR
 
-    private Map<ThreadVO, Long> lastCpuTimes = new HashMap<>();
+    /** 上次采样的线程id，已排序，与下面的数组一一对应 */
+    private long[] lastIds = new long[0];
+    private long[] lastCpuTimes = new long[0];
+    private long[] lastAllocatedBytes = new long[0];
+    private boolean sampled = false;
 
     private long lastSampleTimeNanos;
     private boolean includeInternalThreads = true;
 
-
-    @SuppressWarnings("java:S3776")
+    /**
+     * 采样全部线程，按CPU排序
+     * @param originThreads 线程
+     * @return 排序后的线程
+     */
     public List<ThreadVO> sample(Collection<ThreadVO> originThreads) {
+        return sample(originThreads, -1, SortBy.CPU);
+    }
 
+    /**
+     * 采样并取前N个线程，首次采样时按累计值排序
+     * @param originThreads 线程
+     * @param limit 数量，小于等于0时返回全部
+     * @param sortBy 排序方式
+     * @return 排序后的线程
+     */
+    public List<ThreadVO> sample(Collection<ThreadVO> originThreads, int limit, SortBy sortBy) {
         List<ThreadVO> threads = new ArrayList<>(originThreads);
-
-        // Sample CPU
-        if (lastCpuTimes.isEmpty()) {
-            lastSampleTimeNanos = System.nanoTime();
-            for (ThreadVO thread : threads) {
-                if (thread.getId() > 0) {
-                    long cpu = threadMXBean.getThreadCpuTime(thread.getId());
-                    lastCpuTimes.put(thread, cpu);
-                    thread.setTime(cpu / 1000000);
+        threads.sort(Comparator.comparingLong(ThreadVO::getId));
+        final int size = threads.size();
+        final long[] ids = new long[size];
+        for (int i = 0; i < size; ++i) {
+            ids[i] = threads.get(i).getId();
+        }
+        final long[] cpuTimes = getThreadCpuTime(ids);
+        final long[] allocatedBytes = getThreadAllocatedBytes(ids);
+        final long newSampleTimeNanos = System.nanoTime();
+        final long sampleIntervalNanos = newSampleTimeNanos - lastSampleTimeNanos;
+
+        final long[] cpuDeltas = new long[size];
+        final long[] allocRates = new long[size];
+        if (sampled) {
+            int last = 0;
+            for (int i = 0; i < size; ++i) {
+                while (last < lastIds.length && lastIds[last] < ids[i]) {
+                    ++last;
                 }
+                final boolean found = last < lastIds.length && lastIds[last] == ids[i];
+                cpuDeltas[i] = delta(cpuTimes[i], found ? lastCpuTimes[last] : 0);
+                final long allocated = delta(allocatedBytes[i], found ? lastAllocatedBytes[last] : 0);
+                allocRates[i] = sampleIntervalNanos <= 0 ? 0 : (long) (allocated * NANOS_PER_SECOND / sampleIntervalNanos);
             }
-
-            //sort by time
-            threads.sort((o1, o2) -> {
-                long l1 = o1.getTime();
-                long l2 = o2.getTime();
-                return Long.compare(l2, l1);
-            });
-            return threads;
         }
 
-        // Resample
-        long newSampleTimeNanos = System.nanoTime();
-        Map<ThreadVO, Long> newCpuTimes = new HashMap<>(threads.size());
-        for (ThreadVO thread : threads) {
-            if (thread.getId() > 0) {
-                long cpu = threadMXBean.getThreadCpuTime(thread.getId());
-                newCpuTimes.put(thread, cpu);
-            }
+        final long[] keys;
+        if (SortBy.ALLOC == sortBy) {
+            keys = sampled ? allocRates : allocatedBytes;
+        } else {
+            keys = sampled ? cpuDeltas : cpuTimes;
         }
-
-        // Compute delta time
-        final Map<ThreadVO, Long> deltas = new HashMap<>(threads.size());
-        newCpuTimes.forEach((thread, v) -> {
-            Long t = lastCpuTimes.get(thread);
-            if (t == null) {
-                t = 0L;
-            }
-            long time1 = t;
-            long time2 = newCpuTimes.get(thread);
-            if (time1 == -1) {
-                time1 = time2;
-            } else if (time2 == -1) {
-                time2 = time1;
+        final int[] top = top(keys, limit <= 0 ? size : Math.min(limit, size));
+        List<ThreadVO> result = new ArrayList<>(top.length);
+        for (int index : top) {
+            ThreadVO thread = threads.get(index);
+            //nanos to mills
+            thread.setTime(cpuTimes[index] / NANOS_PER_MILLI);
+            if (sampled) {
+                final long delta = cpuDeltas[index];
+                thread.setCpu(sampleIntervalNanos == 0 ? 0.0 : (delta * 10000 / sampleIntervalNanos / 100.0));
+                thread.setDeltaTime(delta / NANOS_PER_MILLI);
+                thread.setAllocRate(allocRates[index]);
             }
-            long delta = time2 - time1;
-            deltas.put(thread, delta);
-        });
-
-        long sampleIntervalNanos = newSampleTimeNanos - lastSampleTimeNanos;
-
-        // Compute cpu usage
-        final HashMap<ThreadVO, Double> cpuUsages = new HashMap<>(threads.size());
-        for (ThreadVO thread : threads) {
-            double cpu = sampleIntervalNanos == 0 ? 0.0 : (deltas.get(thread) * 10000 / sampleIntervalNanos / 100.0);
-            cpuUsages.put(thread, cpu);
+            result.add(thread);
         }
 
-        // Sort by CPU time : should be a rendering hint...
-        threads.sort((o1, o2) -> {
-            long l1 = deltas.get(o1);
-            long l2 = deltas.get(o2);
-            return Long.compare(l2, l1);
-        });
-
-        for (ThreadVO thread : threads) {
-            //nanos to mills
-            long timeMills = newCpuTimes.get(thread) / 1000000;
-            long deltaTime = deltas.get(thread) / 1000000;
-            double cpu = cpuUsages.get(thread);
-
-            thread.setCpu(cpu);
-            thread.setTime(timeMills);
-            thread.setDeltaTime(deltaTime);
-        }
-        lastCpuTimes = newCpuTimes;
+        lastIds = ids;
+        lastCpuTimes = cpuTimes;
+        lastAllocatedBytes = allocatedBytes;
         lastSampleTimeNanos = newSampleTimeNanos;
-
-        return threads;
+        sampled = true;
+        return result;
     }
 
     public void pause(long mills) {
@@ -123,4 +133,118 @@ public class ThreadSampler {
         this.includeInternalThreads = includeInternalThreads;
     }
 
+    /**
+     * 批量获取线程CPU时间，不支持或线程不存在时为-1
+     * @param ids 线程id
+     * @return CPU时间，纳秒
+     */
+    static long[] getThreadCpuTime(long[] ids) {
+        if (null != BATCH_THREAD_MX_BEAN && isAllPositive(ids)) {
+            return BATCH_THREAD_MX_BEAN.getThreadCpuTime(ids);
+        }
+        long[] cpuTimes = new long[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            cpuTimes[i] = ids[i] > 0 ? threadMXBean.getThreadCpuTime(ids[i]) : UNAVAILABLE;
+        }
+        return cpuTimes;
+    }
+
+    /**
+     * 批量获取线程累计分配的堆内存，不支持或线程不存在时为-1
+     * @param ids 线程id
+     * @return 字节数
+     */
+    static long[] getThreadAllocatedBytes(long[] ids) {
+        final boolean supported = null != BATCH_THREAD_MX_BEAN && BATCH_THREAD_MX_BEAN.isThreadAllocatedMemorySupported()
+                && BATCH_THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled() && isAllPositive(ids);
+        if (supported) {
+            return BATCH_THREAD_MX_BEAN.getThreadAllocatedBytes(ids);
+        }
+        long[] allocated = new long[ids.length];
+        Arrays.fill(allocated, UNAVAILABLE);
+        return allocated;
+    }
+
+    /**
+     * 选出最大的k个下标，按值从大到小排列，值相同时下标小的在前
+     * @param keys 值
+     * @param k 数量
+     * @return 下标
+     */
+    static int[] top(long[] keys, int k) {
+        final int[] heap = new int[k];
+        if (0 == k) {
+            return heap;
+        }
+        //小顶堆，堆顶是已选出的最小值
+        int size = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, size++, keys);
+            } else if (rankHigher(keys, i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, 0, size, keys);
+            }
+        }
+        //依次把堆顶换到末尾，得到从大到小的顺序
+        for (int end = size - 1; end > 0; --end) {
+            final int tmp = heap[0];
+            heap[0] = heap[end];
+            heap[end] = tmp;
+            siftDown(heap, 0, end, keys);
+        }
+        return heap;
+    }
+
+    private static void siftUp(int[] heap, int pos, long[] keys) {
+        final int node = heap[pos];
+        while (pos > 0) {
+            final int parent = (pos - 1) >>> 1;
+            if (!rankHigher(keys, heap[parent], node)) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            pos = parent;
+        }
+        heap[pos] = node;
+    }
+
+    private static void siftDown(int[] heap, int pos, int size, long[] keys) {
+        final int node = heap[pos];
+        final int half = size >>> 1;
+        while (pos < half) {
+            int child = (pos << 1) + 1;
+            final int right = child + 1;
+            if (right < size && rankHigher(keys, heap[child], heap[right])) {
+                child = right;
+            }
+            if (!rankHigher(keys, node, heap[child])) {
+                break;
+            }
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = node;
+    }
+
+    private static boolean rankHigher(long[] keys, int a, int b) {
+        return keys[a] > keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    private static long delta(long current, long last) {
+        if (UNAVAILABLE == current || UNAVAILABLE == last) {
+            return 0;
+        }
+        return current - last;
+    }
+
+    private static boolean isAllPositive(long[] ids) {
+        for (long id : ids) {
+            if (id <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
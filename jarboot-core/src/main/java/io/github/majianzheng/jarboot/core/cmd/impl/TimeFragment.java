@@ -1,23 +1,109 @@
 package io.github.majianzheng.jarboot.core.cmd.impl;
 
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
 import io.github.majianzheng.jarboot.core.advisor.Advice;
+import io.github.majianzheng.jarboot.core.cmd.model.TimeFragmentVO;
+import io.github.majianzheng.jarboot.core.cmd.view.ObjectView;
+import io.github.majianzheng.jarboot.core.utils.ObjectSizeEstimator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
+import static java.lang.Integer.toHexString;
+
 /**
- * 时间碎片
+ * 时间碎片<br/>
+ * 默认持有调用现场的对象引用，快照模式下在记录时将参数、返回值和异常渲染为文本并序列化，不再引用现场对象
  */
 class TimeFragment {
+    /** 碎片自身及元数据的估算大小 */
+    private static final long FRAGMENT_OVERHEAD = 128;
+    private static final int NULL_LENGTH = -1;
+
+    private final Advice advice;
+    private final byte[] snapshot;
+    private final Date gmtCreate;
+    private final double cost;
+    private final String className;
+    private final String methodName;
+    private final String object;
+    private final boolean isReturn;
+    private final boolean isThrow;
+    private final long estimatedBytes;
 
     public TimeFragment(Advice advice, Date gmtCreate, double cost) {
-        this.advice = advice;
+        this(advice, null, gmtCreate, cost);
+    }
+
+    private TimeFragment(Advice advice, byte[] snapshot, Date gmtCreate, double cost) {
+        this.snapshot = snapshot;
         this.gmtCreate = gmtCreate;
         this.cost = cost;
+        this.className = advice.getClazz().getName();
+        this.methodName = advice.getMethod().getName();
+        this.object = null == advice.getTarget() ? "NULL" : "0x" + toHexString(advice.getTarget().hashCode());
+        this.isReturn = advice.isAfterReturning();
+        this.isThrow = advice.isAfterThrowing();
+        if (null == snapshot) {
+            this.advice = advice;
+            //目标对象通常长期存活且被多个碎片共享，不计入
+            this.estimatedBytes = FRAGMENT_OVERHEAD + ObjectSizeEstimator.estimate(advice.getParams())
+                    + ObjectSizeEstimator.estimate(advice.getReturnObj())
+                    + ObjectSizeEstimator.estimate(advice.getThrowExp());
+        } else {
+            this.advice = null;
+            this.estimatedBytes = FRAGMENT_OVERHEAD + snapshot.length;
+        }
     }
 
-    private final Advice advice;
-    private final Date gmtCreate;
-    private final double cost;
+    /**
+     * 创建快照碎片
+     * @param advice 通知
+     * @param gmtCreate 创建时间
+     * @param cost 耗时
+     * @param expand 对象展开层级
+     * @param sizeLimit 单个对象渲染的大小上限
+     * @return 时间碎片
+     */
+    public static TimeFragment snapshot(Advice advice, Date gmtCreate, double cost, int expand, int sizeLimit) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Object[] params = advice.getParams();
+            if (null == params) {
+                out.writeInt(NULL_LENGTH);
+            } else {
+                out.writeInt(params.length);
+                for (Object param : params) {
+                    writeText(out, render(param, expand, sizeLimit));
+                }
+            }
+            writeText(out, advice.isAfterReturning() ? render(advice.getReturnObj(), expand, sizeLimit) : null);
+            writeText(out, advice.isAfterThrowing() ? renderThrowable(advice.getThrowExp(), expand) : null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new TimeFragment(advice, bytes.toByteArray(), gmtCreate, cost);
+    }
+
+    /**
+     * 快照碎片不持有现场对象
+     * @return 是否快照
+     */
+    public boolean isSnapshot() {
+        return null != snapshot;
+    }
 
+    /**
+     * 调用现场，快照碎片返回null
+     * @return 通知
+     */
     public Advice getAdvice() {
         return advice;
     }
@@ -29,4 +115,80 @@ class TimeFragment {
     public double getCost() {
         return cost;
     }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * 转换为VO，快照碎片在此时才反序列化
+     * @param index 编号
+     * @return VO
+     */
+    public TimeFragmentVO toVO(Integer index) {
+        TimeFragmentVO vo = new TimeFragmentVO()
+                .setIndex(index)
+                .setTimestamp(gmtCreate)
+                .setCost(cost)
+                .setReturn(isReturn)
+                .setThrow(isThrow)
+                .setObject(object)
+                .setClassName(className)
+                .setMethodName(methodName);
+        if (null == snapshot) {
+            return vo.setParams(advice.getParams())
+                    .setReturnObj(advice.getReturnObj())
+                    .setThrowExp(advice.getThrowExp());
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            final int length = in.readInt();
+            if (length >= 0) {
+                Object[] params = new Object[length];
+                for (int i = 0; i < length; ++i) {
+                    params[i] = readText(in);
+                }
+                vo.setParams(params);
+            }
+            vo.setReturnObj(readText(in));
+            vo.setThrowText(readText(in));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return vo.setSnapshot(true);
+    }
+
+    private static String render(Object obj, int expand, int sizeLimit) {
+        return expand > 0 ? new ObjectView(obj, expand, sizeLimit).draw() : StringUtils.objectToString(obj);
+    }
+
+    private static String renderThrowable(Throwable throwable, int expand) {
+        if (expand > 0) {
+            return new ObjectView(throwable, expand).draw();
+        }
+        StringWriter stringWriter = new StringWriter();
+        try (PrintWriter printWriter = new PrintWriter(stringWriter)) {
+            throwable.printStackTrace(printWriter);
+        }
+        return stringWriter.toString();
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (null == text) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
 }
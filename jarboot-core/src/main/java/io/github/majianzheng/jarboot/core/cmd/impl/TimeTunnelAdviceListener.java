@@ -3,6 +3,7 @@ package io.github.majianzheng.jarboot.core.cmd.impl;
 import io.github.majianzheng.jarboot.core.advisor.Advice;
 import io.github.majianzheng.jarboot.core.advisor.AdviceListenerAdapter;
 import io.github.majianzheng.jarboot.core.advisor.JarbootMethod;
+import io.github.majianzheng.jarboot.core.cmd.express.ParsedExpress;
 import io.github.majianzheng.jarboot.core.cmd.express.ExpressException;
 import io.github.majianzheng.jarboot.core.cmd.model.TimeFragmentVO;
 import io.github.majianzheng.jarboot.core.cmd.model.TimeTunnelModel;
@@ -28,6 +29,7 @@ public class TimeTunnelAdviceListener extends AdviceListenerAdapter {
 
     private TimeTunnelCommand command;
     private AbstractCommandSession process;
+    private final ParsedExpress condition;
 
     /** 第一次启动标记 */
     private volatile boolean isFirst = true;
@@ -38,6 +40,7 @@ public class TimeTunnelAdviceListener extends AdviceListenerAdapter {
     public TimeTunnelAdviceListener(TimeTunnelCommand command, AbstractCommandSession process, boolean verbose) {
         this.command = command;
         this.process = process;
+        this.condition = prepare(command.getConditionExpress());
         super.setVerbose(verbose);
     }
 
@@ -53,6 +56,11 @@ public class TimeTunnelAdviceListener extends AdviceListenerAdapter {
                                Object returnObject) throws Throwable {
         //取出入参时的 args，因为在函数执行过程中 args可能被修改
         args = (Object[]) argsRef.get().pop();
+        if (!isSampled()) {
+            //未采样时也要取出进入方法时记录的时间
+            threadLocalWatch.cost();
+            return;
+        }
         afterFinishing(Advice.newForAfterRetuning(loader, clazz, method, target, args, returnObject));
     }
 
@@ -61,16 +69,20 @@ public class TimeTunnelAdviceListener extends AdviceListenerAdapter {
                               Throwable throwable) {
         //取出入参时的 args，因为在函数执行过程中 args可能被修改
         args = (Object[]) argsRef.get().pop();
+        if (!isSampled()) {
+            //未采样时也要取出进入方法时记录的时间
+            threadLocalWatch.cost();
+            return;
+        }
         afterFinishing(Advice.newForAfterThrowing(loader, clazz, method, target, args, throwable));
     }
 
     private void afterFinishing(Advice advice) {
         double cost = threadLocalWatch.costInMillis();
-        TimeFragment timeTunnel = new TimeFragment(advice, new Date(), cost);
 
         boolean match = false;
         try {
-            match = isConditionMet(command.getConditionExpress(), advice, cost);
+            match = isConditionMet(condition, advice, cost);
             if (this.isVerbose()) {
                 process.console("Condition express: " + command.getConditionExpress() + " , result: " + match + "\n");
             }
@@ -84,6 +96,10 @@ public class TimeTunnelAdviceListener extends AdviceListenerAdapter {
             return;
         }
 
+        // 满足条件后才估算大小或生成快照
+        TimeFragment timeTunnel = command.isSnapshot()
+                ? TimeFragment.snapshot(advice, new Date(), cost, command.getExpand(), command.getSizeLimit())
+                : new TimeFragment(advice, new Date(), cost);
         int index = command.putTimeTunnel(timeTunnel);
 
         TimeFragmentVO timeFragmentVO = TimeTunnelCommand.createTimeFragmentVO(index, timeTunnel);
@@ -7,6 +7,7 @@ import io.github.majianzheng.jarboot.core.advisor.AdviceListener;
 import io.github.majianzheng.jarboot.core.advisor.JarbootMethod;
 import io.github.majianzheng.jarboot.core.cmd.express.ExpressException;
 import io.github.majianzheng.jarboot.core.cmd.express.ExpressFactory;
+import io.github.majianzheng.jarboot.core.cmd.express.ParsedExpress;
 import io.github.majianzheng.jarboot.core.cmd.model.RowAffectModel;
 import io.github.majianzheng.jarboot.core.cmd.model.TimeFragmentVO;
 import io.github.majianzheng.jarboot.core.cmd.model.TimeTunnelModel;
@@ -19,8 +20,6 @@ import io.github.majianzheng.jarboot.core.utils.affect.RowAffect;
 import io.github.majianzheng.jarboot.core.utils.matcher.Matcher;
 import org.slf4j.Logger;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import static java.lang.Integer.toHexString;
 import static java.lang.String.format;
 
 /**
@@ -34,20 +33,22 @@ import static java.lang.String.format;
 @Description(CoreConstant.EXPRESS_DESCRIPTION + CoreConstant.EXAMPLE +
         "  tt -t *StringUtils isEmpty\n" +
         "  tt -t *StringUtils isEmpty params[0].length==1\n" +
+        "  tt -t *StringUtils isEmpty --snapshot\n" +
         "  tt -l\n" +
+        "  tt -l --page 2 --page-size 50\n" +
         "  tt -i 1000\n" +
         "  tt -i 1000 -w params[0]\n" +
         "  tt -i 1000 -p \n" +
         "  tt -i 1000 -p --replay-times 3 --replay-interval 3000\n" +
         "  tt -s '{params[0] > 1}' -w '{params}' \n" +
         "  tt --delete-all\n" +
+        "  tt --max-entries 500 --max-bytes 33554432 --eviction lru\n" +
         CoreConstant.WIKI + CoreConstant.WIKI_HOME + "tt")
 @SuppressWarnings({"squid:S1181", "squid:S1192", "squid:S1141"})
 public class TimeTunnelCommand extends EnhancerCommand {
     /** 时间隧道(时间碎片的集合) */
-    private static final Map<Integer, TimeFragment> timeFragmentMap = new LinkedHashMap<>();
-    /** 时间碎片序列生成器 */
-    private static final AtomicInteger sequence = new AtomicInteger(1000);
+    private static final TimeTunnelStore store = TimeTunnelStore.getInstance();
+    private static final int DEFAULT_PAGE_SIZE = 100;
     /** TimeTunnel the method call */
     private boolean isTimeTunnel = false;
     private String classPattern;
@@ -73,6 +74,13 @@ public class TimeTunnelCommand extends EnhancerCommand {
     private int numberOfLimit = 100;
     private int replayTimes = 1;
     private long replayInterval = 1000L;
+    /** 以序列化的文本快照记录，不持有现场对象 */
+    private boolean isSnapshot = false;
+    private Integer maxEntries;
+    private Long maxBytes;
+    private String eviction;
+    private int page = 1;
+    private int pageSize = DEFAULT_PAGE_SIZE;
     private static final Logger logger = LogUtils.getLogger();
 
     @Argument(index = 0, argName = "class-pattern", required = false)
@@ -180,6 +188,43 @@ public class TimeTunnelCommand extends EnhancerCommand {
     }
 
 
+    @Option(longName = "snapshot", flag = true)
+    @Description("Record rendered and serialized params/return/exception instead of the live objects, " +
+            "the fragment can not be watched or replayed")
+    public void setSnapshot(boolean snapshot) {
+        isSnapshot = snapshot;
+    }
+
+    @Option(longName = "max-entries")
+    @Description("Max number of time fragments kept, " + TimeTunnelStore.DEFAULT_MAX_ENTRIES + " by default")
+    public void setMaxEntries(Integer maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    @Option(longName = "max-bytes")
+    @Description("Max estimated bytes of time fragments kept, 64MB by default")
+    public void setMaxBytes(Long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Option(longName = "eviction")
+    @Description("Eviction policy when the time tunnel is full, fifo or lru, fifo by default")
+    public void setEviction(String eviction) {
+        this.eviction = eviction;
+    }
+
+    @Option(longName = "page")
+    @Description("Page number of the time fragment list, start from 1")
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    @Option(longName = "page-size")
+    @Description("Page size of the time fragment list, " + DEFAULT_PAGE_SIZE + " by default")
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
     public boolean isRegEx() {
         return isRegEx;
     }
@@ -209,6 +254,22 @@ public class TimeTunnelCommand extends EnhancerCommand {
         return replayInterval;
     }
 
+    public boolean isSnapshot() {
+        return isSnapshot;
+    }
+
+    public Integer getExpand() {
+        return expand;
+    }
+
+    public Integer getSizeLimit() {
+        return sizeLimit;
+    }
+
+    private boolean isConfigure() {
+        return null != maxEntries || null != maxBytes || null != eviction;
+    }
+
     private boolean hasWatchExpress() {
         return !StringUtils.isEmpty(watchExpress);
     }
@@ -236,9 +297,13 @@ public class TimeTunnelCommand extends EnhancerCommand {
             }
         }
 
+        if (isList && (page < 1 || pageSize < 1)) {
+            throw new IllegalArgumentException("page and page-size must be positive");
+        }
+
         // 一个参数都没有是不行滴
         if (null == index && !isTimeTunnel && !isDeleteAll && StringUtils.isEmpty(watchExpress)
-                && !isList && StringUtils.isEmpty(searchExpress)) {
+                && !isList && StringUtils.isEmpty(searchExpress) && !isConfigure()) {
             throw new IllegalArgumentException("Argument(s) is/are expected, type 'help tt' to read usage");
         }
     }
@@ -249,15 +314,16 @@ public class TimeTunnelCommand extends EnhancerCommand {
      * @return indexOfSeq
      */
     int putTimeTunnel(TimeFragment tt) {
-        int indexOfSeq = sequence.getAndIncrement();
-        timeFragmentMap.put(indexOfSeq, tt);
-        return indexOfSeq;
+        return store.put(tt);
     }
 
     @Override
     public void run() {
         // 检查参数
         checkArguments();
+        if (isConfigure()) {
+            store.configure(maxEntries, maxBytes, parseEviction());
+        }
 
         if (isTimeTunnel) {
             enhance(session);
@@ -277,9 +343,28 @@ public class TimeTunnelCommand extends EnhancerCommand {
             } else {
                 processShow();
             }
+        } else if (isConfigure()) {
+            session.console(storeStatus());
+            session.end();
+        }
+    }
+
+    private TimeTunnelStore.Eviction parseEviction() {
+        if (StringUtils.isEmpty(eviction)) {
+            return null;
+        }
+        try {
+            return TimeTunnelStore.Eviction.valueOf(eviction.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown eviction: " + eviction + ", use fifo or lru");
         }
     }
 
+    private static String storeStatus() {
+        return format("Time tunnel: %d fragments, about %d bytes, eviction %s, %d evicted.", store.size(),
+                store.getBytes(), store.getEviction(), store.getEvicted());
+    }
+
     @Override
     protected Matcher getClassNameMatcher() {
         if (classNameMatcher == null) {
@@ -314,7 +399,7 @@ public class TimeTunnelCommand extends EnhancerCommand {
         // 展示指定记录
         RowAffect affect = new RowAffect();
         try {
-            TimeFragment tf = timeFragmentMap.get(index);
+            TimeFragment tf = store.get(index);
             if (null == tf) {
                 session.end(false, format("Time fragment[%d] does not exist.", index));
                 return;
@@ -339,11 +424,15 @@ public class TimeTunnelCommand extends EnhancerCommand {
     private void processWatch() {
         RowAffect affect = new RowAffect();
         try {
-            final TimeFragment tf = timeFragmentMap.get(index);
+            final TimeFragment tf = store.get(index);
             if (null == tf) {
                 session.end(false, format("Time fragment[%d] does not exist.", index));
                 return;
             }
+            if (tf.isSnapshot()) {
+                session.end(false, format("Time fragment[%d] is a snapshot, only live fragments can be watched.", index));
+                return;
+            }
 
             Advice advice = tf.getAdvice();
 
@@ -367,14 +456,21 @@ public class TimeTunnelCommand extends EnhancerCommand {
         // do search timeFragmentMap
         RowAffect affect = new RowAffect();
         try {
+            // 表达式只解析一次
+            final ParsedExpress search = ExpressFactory.parse(searchExpress);
             // 匹配的时间片段
             Map<Integer, TimeFragment> matchingTimeSegmentMap = new LinkedHashMap<>();
-            for (Map.Entry<Integer, TimeFragment> entry : timeFragmentMap.entrySet()) {
+            int snapshots = 0;
+            for (Map.Entry<Integer, TimeFragment> entry : store.entries()) {
                 TimeFragment tf = entry.getValue();
+                if (tf.isSnapshot()) {
+                    ++snapshots;
+                    continue;
+                }
                 Advice advice = tf.getAdvice();
 
                 // 搜索出匹配的时间片段
-                if ((ExpressFactory.threadLocalExpress(advice)).is(searchExpress)) {
+                if (ExpressFactory.threadLocalExpress(advice).is(search)) {
                     matchingTimeSegmentMap.put(entry.getKey(), tf);
                 }
             }
@@ -382,8 +478,9 @@ public class TimeTunnelCommand extends EnhancerCommand {
             if (hasWatchExpress()) {
                 // 执行watchExpress
                 Map<Integer, Object> searchResults = new LinkedHashMap<>();
+                final ParsedExpress watch = ExpressFactory.parse(watchExpress);
                 for (Map.Entry<Integer, TimeFragment> entry : matchingTimeSegmentMap.entrySet()) {
-                    Object value = ExpressFactory.threadLocalExpress(entry.getValue().getAdvice()).get(watchExpress);
+                    Object value = ExpressFactory.threadLocalExpress(entry.getValue().getAdvice()).get(watch);
                     searchResults.put(entry.getKey(), value);
                 }
 
@@ -394,10 +491,13 @@ public class TimeTunnelCommand extends EnhancerCommand {
                 session.appendResult(timeTunnelModel);
             } else {
                 // 单纯的列表格
-                List<TimeFragmentVO> timeFragmentList = createTimeTunnelVOList(matchingTimeSegmentMap);
+                List<TimeFragmentVO> timeFragmentList = createTimeTunnelVOList(matchingTimeSegmentMap.entrySet());
                 session.appendResult(new TimeTunnelModel().setTimeFragmentList(timeFragmentList).setFirst(true));
             }
 
+            if (snapshots > 0) {
+                session.console(format("%d snapshot time fragments are skipped.", snapshots));
+            }
             affect.rCnt(matchingTimeSegmentMap.size());
             session.appendResult(new RowAffectModel(affect));
             session.end();
@@ -410,7 +510,7 @@ public class TimeTunnelCommand extends EnhancerCommand {
     private void processDelete() {
         // 删除指定记录
         RowAffect affect = new RowAffect();
-        if (timeFragmentMap.remove(index) != null) {
+        if (store.remove(index)) {
             affect.rCnt(1);
         }
         session.console(format("Time fragment[%d] successfully deleted.", index));
@@ -419,9 +519,7 @@ public class TimeTunnelCommand extends EnhancerCommand {
     }
 
     private void processDeleteAll() {
-        int count = timeFragmentMap.size();
-        RowAffect affect = new RowAffect(count);
-        timeFragmentMap.clear();
+        RowAffect affect = new RowAffect(store.clear());
         session.console("Time fragments are cleaned.");
         session.appendResult(new RowAffectModel(affect));
         session.end();
@@ -429,39 +527,32 @@ public class TimeTunnelCommand extends EnhancerCommand {
 
     private void processList() {
         RowAffect affect = new RowAffect();
-        List<TimeFragmentVO> timeFragmentList = createTimeTunnelVOList(timeFragmentMap);
+        // 只取当前页，避免一次构造全部碎片的VO
+        final long offset = (long) (page - 1) * pageSize;
+        List<Map.Entry<Integer, TimeFragment>> entries = offset > Integer.MAX_VALUE
+                ? Collections.emptyList() : store.page((int) offset, pageSize);
+        List<TimeFragmentVO> timeFragmentList = createTimeTunnelVOList(entries);
         session.appendResult(new TimeTunnelModel().setTimeFragmentList(timeFragmentList).setFirst(true));
-        affect.rCnt(timeFragmentMap.size());
+        final int total = store.size();
+        if (total > pageSize) {
+            session.console(format("Page %d/%d, total %d time fragments.", page,
+                    (total + pageSize - 1) / pageSize, total));
+        }
+        affect.rCnt(timeFragmentList.size());
         session.appendResult(new RowAffectModel(affect));
         session.end();
     }
 
-    private List<TimeFragmentVO> createTimeTunnelVOList(Map<Integer, TimeFragment> timeFragmentMap) {
-        List<TimeFragmentVO> timeFragmentList = new ArrayList<>(timeFragmentMap.size());
-        for (Map.Entry<Integer, TimeFragment> entry : timeFragmentMap.entrySet()) {
+    private List<TimeFragmentVO> createTimeTunnelVOList(Collection<Map.Entry<Integer, TimeFragment>> entries) {
+        List<TimeFragmentVO> timeFragmentList = new ArrayList<>(entries.size());
+        for (Map.Entry<Integer, TimeFragment> entry : entries) {
             timeFragmentList.add(createTimeFragmentVO(entry.getKey(), entry.getValue()));
         }
         return timeFragmentList;
     }
 
     public static TimeFragmentVO createTimeFragmentVO(Integer index, TimeFragment tf) {
-        Advice advice = tf.getAdvice();
-        String object = advice.getTarget() == null
-                ? "NULL"
-                : "0x" + toHexString(advice.getTarget().hashCode());
-
-        return new TimeFragmentVO()
-                .setIndex(index)
-                .setTimestamp(tf.getGmtCreate())
-                .setCost(tf.getCost())
-                .setParams(advice.getParams())
-                .setReturn(advice.isAfterReturning())
-                .setReturnObj(advice.getReturnObj())
-                .setThrow(advice.isAfterThrowing())
-                .setThrowExp(advice.getThrowExp())
-                .setObject(object)
-                .setClassName(advice.getClazz().getName())
-                .setMethodName(advice.getMethod().getName());
+        return tf.toVO(index);
     }
 
     /**
@@ -469,11 +560,15 @@ public class TimeTunnelCommand extends EnhancerCommand {
      */
     @SuppressWarnings("java:S2142")
     private void processPlay() {
-        TimeFragment tf = timeFragmentMap.get(index);
+        TimeFragment tf = store.get(index);
         if (null == tf) {
             session.end(false, format("Time fragment[%d] does not exist.", index));
             return;
         }
+        if (tf.isSnapshot()) {
+            session.end(false, format("Time fragment[%d] is a snapshot, only live fragments can be replayed.", index));
+            return;
+        }
         Advice advice = tf.getAdvice();
         JarbootMethod method = advice.getMethod();
         boolean accessible = advice.getMethod().isAccessible();
@@ -0,0 +1,167 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 时间隧道存储，按条数和估算字节数限制容量，超出时按FIFO或LRU淘汰，可被应用线程并发写入
+ * @author majianzheng
+ */
+class TimeTunnelStore {
+    /** 默认最多保存的碎片数 */
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+    /** 默认最多占用的估算内存 */
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final int INITIAL_INDEX = 1000;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** 淘汰策略 */
+    enum Eviction {
+        /** 先进先出 */
+        FIFO,
+        /** 最近最少查看 */
+        LRU
+    }
+
+    /** 时间碎片序列生成器 */
+    private final AtomicInteger sequence = new AtomicInteger(INITIAL_INDEX);
+    private LinkedHashMap<Integer, TimeFragment> fragments = new LinkedHashMap<>(16);
+    private Eviction eviction = Eviction.FIFO;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long bytes;
+    private long evicted;
+
+    static TimeTunnelStore getInstance() {
+        return TimeTunnelStoreHolder.INST;
+    }
+
+    /** instance holder */
+    private static class TimeTunnelStoreHolder {
+        static final TimeTunnelStore INST = new TimeTunnelStore();
+    }
+
+    /**
+     * 修改容量和淘汰策略，参数为null时保持不变
+     * @param maxEntries 最大条数
+     * @param maxBytes 最大估算字节数
+     * @param eviction 淘汰策略
+     */
+    synchronized void configure(Integer maxEntries, Long maxBytes, Eviction eviction) {
+        if (null != maxEntries) {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("max-entries must be positive");
+            }
+            this.maxEntries = maxEntries;
+        }
+        if (null != maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("max-bytes must be positive");
+            }
+            this.maxBytes = maxBytes;
+        }
+        if (null != eviction && eviction != this.eviction) {
+            LinkedHashMap<Integer, TimeFragment> map = new LinkedHashMap<>(
+                    Math.max(16, fragments.size() * 2), LOAD_FACTOR, Eviction.LRU == eviction);
+            map.putAll(fragments);
+            this.fragments = map;
+            this.eviction = eviction;
+        }
+        evict(0);
+    }
+
+    /**
+     * 记录时间碎片，超出容量时淘汰旧的碎片，但总是保留本次记录
+     * @param fragment 时间碎片
+     * @return 编号
+     */
+    int put(TimeFragment fragment) {
+        final int index = sequence.getAndIncrement();
+        synchronized (this) {
+            fragments.put(index, fragment);
+            bytes += fragment.getEstimatedBytes();
+            evict(1);
+        }
+        return index;
+    }
+
+    /**
+     * 获取时间碎片，LRU策略下会更新访问顺序
+     * @param index 编号
+     * @return 时间碎片
+     */
+    synchronized TimeFragment get(int index) {
+        return fragments.get(index);
+    }
+
+    synchronized boolean remove(int index) {
+        TimeFragment fragment = fragments.remove(index);
+        if (null == fragment) {
+            return false;
+        }
+        bytes -= fragment.getEstimatedBytes();
+        return true;
+    }
+
+    synchronized int clear() {
+        final int count = fragments.size();
+        fragments.clear();
+        bytes = 0;
+        return count;
+    }
+
+    synchronized int size() {
+        return fragments.size();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized long getEvicted() {
+        return evicted;
+    }
+
+    synchronized Eviction getEviction() {
+        return eviction;
+    }
+
+    /**
+     * 按存储顺序分页，只复制当前页的引用
+     * @param offset 起始位置
+     * @param limit 最多条数
+     * @return 当前页
+     */
+    synchronized List<Map.Entry<Integer, TimeFragment>> page(int offset, int limit) {
+        if (offset >= fragments.size() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Map.Entry<Integer, TimeFragment>> page = new ArrayList<>(Math.min(limit, fragments.size() - offset));
+        Iterator<Map.Entry<Integer, TimeFragment>> iterator = fragments.entrySet().iterator();
+        for (int i = 0; i < offset; ++i) {
+            iterator.next();
+        }
+        while (iterator.hasNext() && page.size() < limit) {
+            Map.Entry<Integer, TimeFragment> entry = iterator.next();
+            page.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+        }
+        return page;
+    }
+
+    /**
+     * 复制全部碎片的引用，便于在锁外执行表达式
+     * @return 全部碎片
+     */
+    List<Map.Entry<Integer, TimeFragment>> entries() {
+        return page(0, Integer.MAX_VALUE);
+    }
+
+    private void evict(int retain) {
+        Iterator<TimeFragment> iterator = fragments.values().iterator();
+        while (fragments.size() > retain && (fragments.size() > maxEntries || bytes > maxBytes)) {
+            bytes -= iterator.next().getEstimatedBytes();
+            iterator.remove();
+            ++evicted;
+        }
+    }
+}
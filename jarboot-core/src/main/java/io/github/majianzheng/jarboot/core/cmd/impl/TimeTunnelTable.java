@@ -126,6 +126,26 @@ public class TimeTunnelTable {
         }
     }
 
+    /**
+     * 快照碎片的参数、返回值和异常在记录时已渲染为文本
+     * @param table 表格
+     * @param tf 时间碎片
+     */
+    public static void drawSnapshot(TableElement table, TimeFragmentVO tf) {
+        if (tf.getParams() != null) {
+            int paramIndex = 0;
+            for (Object param : tf.getParams()) {
+                table.row("PARAMETERS[" + paramIndex++ + "]", "" + param);
+            }
+        }
+        if (tf.isReturn()) {
+            table.row("RETURN-OBJ", "" + tf.getReturnObj());
+        }
+        if (tf.isThrow()) {
+            table.row("THROW-EXCEPTION", "" + tf.getThrowText());
+        }
+    }
+
     public static void drawWatchTableHeader(TableElement table) {
         table.row(true, "INDEX", "SEARCH-RESULT");
     }
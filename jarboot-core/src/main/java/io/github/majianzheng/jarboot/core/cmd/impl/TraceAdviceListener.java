@@ -21,22 +21,27 @@ public class TraceAdviceListener extends AbstractTraceAdviceListener implements
      * trace 会在被观测的方法体中，在每个方法调用前后插入字节码，所以方法调用开始，结束，抛异常的时候，都会回调下面的接口
      */
     @Override
-    public void invokeBeforeTracing(ClassLoader classLoader, String tracingClassName, String tracingMethodName, String tracingMethodDesc, int tracingLineNumber)
-            throws Throwable {
-        // normalize className later
-        threadLocalTraceEntity(classLoader).tree.begin(tracingClassName, tracingMethodName, tracingLineNumber, true);
+    public void invokeBeforeTracing(Class<?> clazz, int invokeId) {
+        TraceRecorder recorder = threadBoundRecorder.get();
+        if (recorder.isRecording()) {
+            recorder.enter(TraceRecorder.ENTER_INVOKE, invokeId, System.nanoTime());
+        }
     }
 
     @Override
-    public void invokeAfterTracing(ClassLoader classLoader, String tracingClassName, String tracingMethodName, String tracingMethodDesc, int tracingLineNumber)
-            throws Throwable {
-        threadLocalTraceEntity(classLoader).tree.end();
+    public void invokeAfterTracing(Class<?> clazz, int invokeId) {
+        TraceRecorder recorder = threadBoundRecorder.get();
+        if (recorder.isRecording()) {
+            recorder.exit(TraceRecorder.EXIT, invokeId, System.nanoTime());
+        }
     }
 
     @Override
-    public void invokeThrowTracing(ClassLoader classLoader, String tracingClassName, String tracingMethodName, String tracingMethodDesc, int tracingLineNumber)
-            throws Throwable {
-        threadLocalTraceEntity(classLoader).tree.end(true);
+    public void invokeThrowTracing(Class<?> clazz, int invokeId) {
+        TraceRecorder recorder = threadBoundRecorder.get();
+        if (recorder.isRecording()) {
+            recorder.exit(TraceRecorder.EXIT_INVOKE_THROW, invokeId, System.nanoTime());
+        }
     }
 
 }
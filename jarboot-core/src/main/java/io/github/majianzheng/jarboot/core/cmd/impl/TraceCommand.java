@@ -25,6 +25,7 @@ import java.util.List;
         "  trace -E org\\\\.apache\\\\.commons\\\\.lang\\\\.StringUtils isBlank\n" +
         "  trace -E com.test.ClassA|org.test.ClassB method1|method2|method3\n" +
         "  trace demo.MathGame run -n 5\n" +
+        "  trace demo.MathGame run --min-cost 100\n" +
         "  trace demo.MathGame run --skipJDKMethod false\n" +
         "  trace javax.servlet.Filter * --exclude-class-pattern com.demo.TestFilter\n" +
         CoreConstant.WIKI + CoreConstant.WIKI_HOME + "trace")
@@ -36,6 +37,7 @@ public class TraceCommand extends EnhancerCommand {
     private int numberOfLimit = 100;
     private List<String> pathPatterns;
     private boolean skipJDKTrace;
+    private long minCost;
 
     @Argument(argName = "class-pattern", index = 0)
     @Description("Class name pattern, use either '.' or '/' as separator")
@@ -80,6 +82,12 @@ public class TraceCommand extends EnhancerCommand {
         this.skipJDKTrace = skipJDKTrace;
     }
 
+    @Option(longName = "min-cost")
+    @Description("Only output invocations whose root cost is at least the given milliseconds, default 0")
+    public void setMinCost(long minCost) {
+        this.minCost = minCost;
+    }
+
     public String getClassPattern() {
         return classPattern;
     }
@@ -104,6 +112,10 @@ public class TraceCommand extends EnhancerCommand {
         return numberOfLimit;
     }
 
+    public long getMinCost() {
+        return minCost;
+    }
+
     public List<String> getPathPatterns() {
         return pathPatterns;
     }
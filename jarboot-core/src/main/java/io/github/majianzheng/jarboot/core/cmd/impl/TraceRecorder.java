@@ -0,0 +1,236 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.core.advisor.AdviceListenerManager;
+import io.github.majianzheng.jarboot.core.advisor.AdviceMethod;
+import io.github.majianzheng.jarboot.core.cmd.model.ThreadNode;
+import io.github.majianzheng.jarboot.core.cmd.model.TraceModel;
+import io.github.majianzheng.jarboot.core.cmd.model.TraceTree;
+import io.github.majianzheng.jarboot.core.utils.ThreadUtil;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程独占的追踪记录器，调用过程中只向复用的long[]写入事件，不创建任何对象，
+ * 根方法结束并通过耗时和条件过滤后才回放事件构建调用树。
+ * <pre>
+ * 事件：类型(高32位) + 方法或调用点id(低32位)，纳秒时间戳
+ * </pre>
+ * 缓冲满时不再记录更深的调用，但始终为已打开的调用保留结束事件的位置，保证回放时树的完整。
+ * @author majianzheng
+ */
+public class TraceRecorder {
+    static final int ENTER_METHOD = 1;
+    static final int ENTER_INVOKE = 2;
+    static final int EXIT = 3;
+    static final int EXIT_INVOKE_THROW = 4;
+    /** 方法抛出异常，id为异常在throwables中的下标 */
+    static final int EXIT_THROW = 5;
+
+    private static final int TYPE_SHIFT = 32;
+    private static final long ID_MASK = 0xFFFFFFFFL;
+    private static final int EVENT_SIZE = 2;
+    private static final int INITIAL_CAPACITY = 512;
+    /** 最多记录的事件数为该值的一半 */
+    private static final int MAX_CAPACITY = 1 << 18;
+    /** 回收时超过该大小的缓冲会被释放 */
+    private static final int RETAIN_CAPACITY = 1 << 14;
+    private static final int INITIAL_THROWABLES = 4;
+
+    private long[] events = new long[INITIAL_CAPACITY];
+    private int size;
+    private Throwable[] throwables = new Throwable[INITIAL_THROWABLES];
+    private int throwableCount;
+    /** 已记录且未结束的调用数 */
+    private int depth;
+    /** 缓冲已满后未记录的调用嵌套数 */
+    private int skipped;
+    /** 未记录的调用次数 */
+    private long dropped;
+    /** 本次根方法调用是否采集 */
+    private boolean recording;
+    /** 未采集时的调用嵌套数 */
+    private int idleDepth;
+
+    /**
+     * 是否处于根方法之外
+     * @return 是否空闲
+     */
+    boolean isIdle() {
+        return 0 == depth && 0 == idleDepth;
+    }
+
+    /**
+     * 根方法开始
+     * @param sampled 是否采集本次调用
+     */
+    void start(boolean sampled) {
+        this.recording = sampled;
+    }
+
+    /**
+     * 是否正在记录
+     * @return 是否记录
+     */
+    boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * 进入方法或调用点
+     * @param type {@link #ENTER_METHOD}或{@link #ENTER_INVOKE}
+     * @param id 方法或调用点id
+     * @param timestamp 纳秒时间戳
+     */
+    void enter(int type, int id, long timestamp) {
+        if (!recording) {
+            ++idleDepth;
+            return;
+        }
+        //本次进入和所有未结束调用的结束事件
+        final int required = size + EVENT_SIZE + EVENT_SIZE * (depth + 1);
+        if (skipped > 0 || !ensureCapacity(required)) {
+            ++skipped;
+            ++dropped;
+            return;
+        }
+        append(type, id, timestamp);
+        ++depth;
+    }
+
+    /**
+     * 结束方法或调用点
+     * @param type 结束类型
+     * @param id id
+     * @param timestamp 纳秒时间戳
+     * @return 是否回到了根方法之外
+     */
+    boolean exit(int type, int id, long timestamp) {
+        if (!recording) {
+            if (idleDepth > 0) {
+                --idleDepth;
+            }
+            return 0 == idleDepth;
+        }
+        if (skipped > 0) {
+            --skipped;
+            return false;
+        }
+        if (0 == depth) {
+            return true;
+        }
+        append(type, id, timestamp);
+        --depth;
+        return 0 == depth;
+    }
+
+    /**
+     * 方法抛出异常结束
+     * @param throwable 异常
+     * @param timestamp 纳秒时间戳
+     * @return 是否回到了根方法之外
+     */
+    boolean exit(Throwable throwable, long timestamp) {
+        if (!recording || skipped > 0 || 0 == depth) {
+            return exit(EXIT, 0, timestamp);
+        }
+        if (throwableCount == throwables.length) {
+            throwables = Arrays.copyOf(throwables, throwableCount << 1);
+        }
+        throwables[throwableCount] = throwable;
+        return exit(EXIT_THROW, throwableCount++, timestamp);
+    }
+
+    /**
+     * 根方法的耗时
+     * @return 纳秒
+     */
+    long rootCost() {
+        return size < EVENT_SIZE * 2 ? 0 : events[size - 1] - events[1];
+    }
+
+    /**
+     * 回放事件构建调用树
+     * @param loader 类加载器
+     * @return 追踪结果
+     */
+    TraceModel build(ClassLoader loader) {
+        ThreadNode threadNode = ThreadUtil.getThreadNode(loader, Thread.currentThread());
+        final long elapsed = System.nanoTime() - events[1];
+        threadNode.setTimestamp(new Date(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(elapsed)));
+        TraceTree tree = new TraceTree(threadNode);
+        for (int i = 0; i < size; i += EVENT_SIZE) {
+            final int type = (int) (events[i] >>> TYPE_SHIFT);
+            final int id = (int) (events[i] & ID_MASK);
+            final long timestamp = events[i + 1];
+            switch (type) {
+                case ENTER_METHOD: {
+                    AdviceMethod method = AdviceListenerManager.getMethod(id);
+                    tree.begin(method.getClassName(), method.getMethodName(), -1, false, timestamp);
+                    break;
+                }
+                case ENTER_INVOKE: {
+                    AdviceMethod invoke = AdviceListenerManager.getMethod(id);
+                    tree.begin(invoke.getOwner(), invoke.getMethodName(), invoke.getLine(), true, timestamp);
+                    break;
+                }
+                case EXIT_INVOKE_THROW:
+                    tree.end(true, timestamp);
+                    break;
+                case EXIT_THROW:
+                    tree.end(throwables[id], lineNumber(throwables[id]), timestamp);
+                    break;
+                default:
+                    tree.end(timestamp);
+                    break;
+            }
+        }
+        if (dropped > 0 && null != threadNode.getChildren()) {
+            threadNode.getChildren().get(0).setMark(dropped + " nested calls not traced");
+        }
+        tree.trim();
+        return new TraceModel(tree.getRoot(), tree.getNodeCount());
+    }
+
+    /**
+     * 根方法结束后清理，缓冲留给下一次调用
+     */
+    void reset() {
+        size = 0;
+        depth = 0;
+        skipped = 0;
+        dropped = 0;
+        idleDepth = 0;
+        recording = false;
+        if (throwableCount > 0) {
+            Arrays.fill(throwables, 0, throwableCount, null);
+            throwableCount = 0;
+        }
+        if (events.length > RETAIN_CAPACITY) {
+            events = new long[INITIAL_CAPACITY];
+        }
+    }
+
+    private void append(int type, int id, long timestamp) {
+        events[size] = ((long) type << TYPE_SHIFT) | (id & ID_MASK);
+        events[size + 1] = timestamp;
+        size += EVENT_SIZE;
+    }
+
+    private boolean ensureCapacity(int required) {
+        if (required <= events.length) {
+            return true;
+        }
+        if (required > MAX_CAPACITY) {
+            return false;
+        }
+        events = Arrays.copyOf(events, Math.min(MAX_CAPACITY, Math.max(required, events.length << 1)));
+        return true;
+    }
+
+    private static int lineNumber(Throwable throwable) {
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        return stackTrace.length == 0 ? -1 : stackTrace[0].getLineNumber();
+    }
+}
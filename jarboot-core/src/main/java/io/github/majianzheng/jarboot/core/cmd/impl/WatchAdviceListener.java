@@ -4,6 +4,8 @@ import io.github.majianzheng.jarboot.core.advisor.AccessPoint;
 import io.github.majianzheng.jarboot.core.advisor.Advice;
 import io.github.majianzheng.jarboot.core.advisor.AdviceListenerAdapter;
 import io.github.majianzheng.jarboot.core.advisor.JarbootMethod;
+import io.github.majianzheng.jarboot.core.cmd.express.Express;
+import io.github.majianzheng.jarboot.core.cmd.express.ParsedExpress;
 import io.github.majianzheng.jarboot.core.session.AbstractCommandSession;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
 import io.github.majianzheng.jarboot.core.utils.ThreadLocalWatch;
@@ -21,10 +23,14 @@ class WatchAdviceListener extends AdviceListenerAdapter {
     private final ThreadLocalWatch threadLocalWatch = new ThreadLocalWatch();
     private WatchCommand command;
     private AbstractCommandSession process;
+    private final ParsedExpress condition;
+    private final ParsedExpress express;
 
     public WatchAdviceListener(WatchCommand command, AbstractCommandSession process, boolean verbose) {
         this.command = command;
         this.process = process;
+        this.condition = prepare(command.getConditionExpress());
+        this.express = prepare(command.getExpress());
         super.setVerbose(verbose);
     }
 
@@ -35,52 +41,79 @@ class WatchAdviceListener extends AdviceListenerAdapter {
     @Override
     public void before(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args)
             throws Throwable {
+        //每次调用只做一次采样决定，方法结束时沿用
+        if (!isSampled()) {
+            threadLocalWatch.skip();
+            return;
+        }
         // 开始计算本次方法调用耗时
         threadLocalWatch.start();
         if (command.isBefore()) {
-            watching(Advice.newForBefore(loader, clazz, method, target, args));
+            watching(Advice.newForBefore(loader, clazz, method, target, args), 0);
         }
     }
 
     @Override
     public void afterReturning(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args,
                                Object returnObject) throws Throwable {
+        final double cost = finishCost(command.isSuccess());
+        if (cost < 0) {
+            return;
+        }
         Advice advice = Advice.newForAfterRetuning(loader, clazz, method, target, args, returnObject);
         if (command.isSuccess()) {
-            watching(advice);
+            watching(advice, cost);
         }
 
-        finishing(advice);
+        finishing(advice, cost);
     }
 
     @Override
     public void afterThrowing(ClassLoader loader, Class<?> clazz, JarbootMethod method, Object target, Object[] args,
                               Throwable throwable) {
+        final double cost = finishCost(command.isException());
+        if (cost < 0) {
+            return;
+        }
         Advice advice = Advice.newForAfterThrowing(loader, clazz, method, target, args, throwable);
         if (command.isException()) {
-            watching(advice);
+            watching(advice, cost);
         }
 
-        finishing(advice);
+        finishing(advice, cost);
+    }
+
+    /**
+     * 方法结束时取出本次调用的耗时，未被采样或没有需要观察的点时不构建Advice
+     * @return 耗时毫秒数，无需观察时为-1
+     */
+    private double finishCost(boolean watchPoint) {
+        if (!threadLocalWatch.isSampled()) {
+            threadLocalWatch.cost();
+            return -1;
+        }
+        final double cost = threadLocalWatch.costInMillis();
+        final boolean watchAfter = watchPoint || isFinish();
+        return watchAfter ? cost : -1;
     }
 
-    private void finishing(Advice advice) {
+    private void finishing(Advice advice, double cost) {
         if (isFinish()) {
-            watching(advice);
+            watching(advice, cost);
         }
     }
 
 
-    private void watching(Advice advice) {
+    private void watching(Advice advice, double cost) {
         try {
-            // 本次调用的耗时
-            double cost = threadLocalWatch.costInMillis();
-            boolean conditionResult = isConditionMet(command.getConditionExpress(), advice, cost);
+            // 条件和观察表达式共用一次绑定
+            Express bound = bindExpress(advice, cost);
+            boolean conditionResult = null == condition || bound.is(condition);
             if (this.isVerbose()) {
                 process.console("Condition express: " + command.getConditionExpress() + " , result: " + conditionResult + "\n");
             }
             if (conditionResult) {
-                Object value = getExpressionResult(command.getExpress(), advice, cost);
+                Object value = null == express ? null : bound.get(express);
 
                 WatchModel model = new WatchModel();
                 model.setTs(new Date());
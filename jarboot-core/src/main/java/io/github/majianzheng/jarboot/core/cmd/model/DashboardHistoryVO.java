@@ -0,0 +1,106 @@
+package io.github.majianzheng.jarboot.core.cmd.model;
+
+import java.util.List;
+
+/**
+ * Recent history of 'dashboard' command, sent to new subscribers. All arrays are in chronological order
+ * and have the same length.
+ *
+ * @author majianzheng
+ */
+public class DashboardHistoryVO {
+    private long[] timestamps;
+    private int[] threads;
+    private int[] runnable;
+    private double[] cpu;
+    private List<MemorySeries> memory;
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public void setTimestamps(long[] timestamps) {
+        this.timestamps = timestamps;
+    }
+
+    public int[] getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int[] threads) {
+        this.threads = threads;
+    }
+
+    public int[] getRunnable() {
+        return runnable;
+    }
+
+    public void setRunnable(int[] runnable) {
+        this.runnable = runnable;
+    }
+
+    public double[] getCpu() {
+        return cpu;
+    }
+
+    public void setCpu(double[] cpu) {
+        this.cpu = cpu;
+    }
+
+    public List<MemorySeries> getMemory() {
+        return memory;
+    }
+
+    public void setMemory(List<MemorySeries> memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * Used and committed bytes of one memory area, -1 when the area was absent in that sample.
+     */
+    public static class MemorySeries {
+        private String type;
+        private String name;
+        private long[] used;
+        private long[] total;
+
+        public MemorySeries(String type, String name, long[] used, long[] total) {
+            this.type = type;
+            this.name = name;
+            this.used = used;
+            this.total = total;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long[] getUsed() {
+            return used;
+        }
+
+        public void setUsed(long[] used) {
+            this.used = used;
+        }
+
+        public long[] getTotal() {
+            return total;
+        }
+
+        public void setTotal(long[] total) {
+            this.total = total;
+        }
+    }
+}
@@ -4,7 +4,8 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * Model of 'dashboard' command
+ * Model of 'dashboard' command, the instance published by the collector is shared by all subscribers
+ * and must not be modified.
  * @author majianzheng
  * 以下代码基于开源项目Arthas适配修改
  */
@@ -14,6 +15,7 @@ public class DashboardModel extends ResultModel {
     private List<GcInfoVO> gcInfos;
     private RuntimeInfoVO runtimeInfo;
     private TomcatInfoVO tomcatInfo;
+    private DashboardHistoryVO history;
 
     @Override
     public String getName() {
@@ -59,4 +61,12 @@ public class DashboardModel extends ResultModel {
     public void setTomcatInfo(TomcatInfoVO tomcatInfo) {
         this.tomcatInfo = tomcatInfo;
     }
+
+    public DashboardHistoryVO getHistory() {
+        return history;
+    }
+
+    public void setHistory(DashboardHistoryVO history) {
+        this.history = history;
+    }
 }
@@ -1,5 +1,6 @@
 package io.github.majianzheng.jarboot.core.cmd.model;
 
+import io.github.majianzheng.jarboot.core.advisor.AdviceSampler;
 import io.github.majianzheng.jarboot.core.GlobalOptions;
 import io.github.majianzheng.jarboot.core.utils.affect.EnhancerAffect;
 import java.io.File;
@@ -16,6 +17,8 @@ public class EnhancerAffectVO {
     private final int methodCount;
     private final int classCount;
     private final long listenerId;
+    private double sampleRate = AdviceSampler.FULL_RATE;
+    private int maxPerSecond;
     private Throwable throwable;
     private List<String> classDumpFiles;
     private List<String> methods;
@@ -26,6 +29,8 @@ public class EnhancerAffectVO {
         this.methodCount = affect.mCnt();
         this.listenerId = affect.getListenerId();
         this.throwable = affect.getThrowable();
+        this.sampleRate = affect.getSampleRate();
+        this.maxPerSecond = affect.getMaxPerSecond();
 
         if (GlobalOptions.isDump) {
             classDumpFiles = new ArrayList<>();
@@ -63,6 +68,14 @@ public class EnhancerAffectVO {
         return listenerId;
     }
 
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
     public Throwable getThrowable() {
         return throwable;
     }
@@ -0,0 +1,161 @@
+package io.github.majianzheng.jarboot.core.cmd.model;
+
+import java.util.List;
+
+/**
+ * 一次垃圾回收的记录
+ * @author majianzheng
+ */
+public class GcEventVO {
+    private long id;
+    private String name;
+    private String action;
+    private String cause;
+    /** 开始时间，毫秒时间戳 */
+    private long startTime;
+    /** 耗时，毫秒 */
+    private long duration;
+    /** 回收前后堆的用量，字节 */
+    private long heapBefore;
+    private long heapAfter;
+    /** 上次回收结束到本次回收开始之间分配的堆内存，字节 */
+    private long allocated;
+    /** 分配速率，字节/秒 */
+    private long allocRate;
+    /** 本次回收晋升到老年代的内存，字节 */
+    private long promoted;
+    /** 晋升速率，字节/秒 */
+    private long promotionRate;
+    private List<PoolUsage> pools;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getCause() {
+        return cause;
+    }
+
+    public void setCause(String cause) {
+        this.cause = cause;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public long getHeapBefore() {
+        return heapBefore;
+    }
+
+    public void setHeapBefore(long heapBefore) {
+        this.heapBefore = heapBefore;
+    }
+
+    public long getHeapAfter() {
+        return heapAfter;
+    }
+
+    public void setHeapAfter(long heapAfter) {
+        this.heapAfter = heapAfter;
+    }
+
+    public long getAllocated() {
+        return allocated;
+    }
+
+    public void setAllocated(long allocated) {
+        this.allocated = allocated;
+    }
+
+    public long getAllocRate() {
+        return allocRate;
+    }
+
+    public void setAllocRate(long allocRate) {
+        this.allocRate = allocRate;
+    }
+
+    public long getPromoted() {
+        return promoted;
+    }
+
+    public void setPromoted(long promoted) {
+        this.promoted = promoted;
+    }
+
+    public long getPromotionRate() {
+        return promotionRate;
+    }
+
+    public void setPromotionRate(long promotionRate) {
+        this.promotionRate = promotionRate;
+    }
+
+    public List<PoolUsage> getPools() {
+        return pools;
+    }
+
+    public void setPools(List<PoolUsage> pools) {
+        this.pools = pools;
+    }
+
+    /**
+     * 内存池回收前后的用量
+     */
+    public static class PoolUsage {
+        private final String name;
+        private final long before;
+        private final long after;
+
+        public PoolUsage(String name, long before, long after) {
+            this.name = name;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getBefore() {
+            return before;
+        }
+
+        public long getAfter() {
+            return after;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.majianzheng.jarboot.core.cmd.model;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Model of `gc` command
+ * @author majianzheng
+ */
+public class GcModel extends ResultModel {
+    /** 监控开始的时间 */
+    private Date since;
+    /** 监控开始后的平均分配和晋升速率，字节/秒 */
+    private long allocRate;
+    private long promotionRate;
+    private List<GcSummaryVO> summaries;
+    /** 最近的回收，最新的在前 */
+    private List<GcEventVO> events;
+
+    @Override
+    public String getName() {
+        return "gc";
+    }
+
+    public Date getSince() {
+        return since;
+    }
+
+    public void setSince(Date since) {
+        this.since = since;
+    }
+
+    public long getAllocRate() {
+        return allocRate;
+    }
+
+    public void setAllocRate(long allocRate) {
+        this.allocRate = allocRate;
+    }
+
+    public long getPromotionRate() {
+        return promotionRate;
+    }
+
+    public void setPromotionRate(long promotionRate) {
+        this.promotionRate = promotionRate;
+    }
+
+    public List<GcSummaryVO> getSummaries() {
+        return summaries;
+    }
+
+    public void setSummaries(List<GcSummaryVO> summaries) {
+        this.summaries = summaries;
+    }
+
+    public List<GcEventVO> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<GcEventVO> events) {
+        this.events = events;
+    }
+}
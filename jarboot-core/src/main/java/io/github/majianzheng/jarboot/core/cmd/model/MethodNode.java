@@ -46,13 +46,13 @@ public class MethodNode extends TraceNode {
     }
 
     @Override
-    public void begin() {
-        beginTimestamp = System.nanoTime();
+    public void begin(long timestamp) {
+        beginTimestamp = timestamp;
     }
 
     @Override
-    public void end() {
-        endTimestamp = System.nanoTime();
+    public void end(long timestamp) {
+        endTimestamp = timestamp;
 
         long cost = getCost();
         if (cost < minCost) {
@@ -0,0 +1,53 @@
+package io.github.majianzheng.jarboot.core.cmd.model;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Monitor command result model
+ * @author majianzheng
+ */
+public class MonitorModel extends ResultModel {
+    private Date ts;
+    private long interval;
+    private List<MonitorVO> items;
+
+    public MonitorModel() {
+        //do nothing
+    }
+
+    public MonitorModel(Date ts, long interval, List<MonitorVO> items) {
+        this.ts = ts;
+        this.interval = interval;
+        this.items = items;
+    }
+
+    @Override
+    public String getName() {
+        return "monitor";
+    }
+
+    public Date getTs() {
+        return ts;
+    }
+
+    public void setTs(Date ts) {
+        this.ts = ts;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    public List<MonitorVO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<MonitorVO> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.majianzheng.jarboot.core.cmd.model;
+
+/**
+ * 单个方法在一个周期内的统计
+ * @author majianzheng
+ */
+public class MonitorVO {
+    private String className;
+    private String methodName;
+    private long total;
+    private long success;
+    private long failed;
+    /** 以下耗时单位为毫秒 */
+    private double avgRt;
+    private double p50;
+    private double p90;
+    private double p99;
+    private double max;
+
+    public String getClassName() {
+        return className;
+    }
+
+    public void setClassName(String className) {
+        this.className = className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public void setMethodName(String methodName) {
+        this.methodName = methodName;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getSuccess() {
+        return success;
+    }
+
+    public void setSuccess(long success) {
+        this.success = success;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public double getAvgRt() {
+        return avgRt;
+    }
+
+    public void setAvgRt(double avgRt) {
+        this.avgRt = avgRt;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public void setP50(double p50) {
+        this.p50 = p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public void setP90(double p90) {
+        this.p90 = p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public void setP99(double p99) {
+        this.p99 = p99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.majianzheng.jarboot.core.cmd.model;
+
+import io.github.majianzheng.jarboot.common.utils.AesUtils;
+
+import java.io.File;
+
+/**
+ * Model of `profiler` command
+ * @author majianzheng
+ */
+public class ProfilerModel extends ResultModel {
+
+    private String event;
+    private long samples;
+    private long duration;
+    private String collapsedFile;
+    private String collapsedEncrypted;
+    private String htmlFile;
+    private String htmlEncrypted;
+
+    public ProfilerModel() {
+
+    }
+
+    public ProfilerModel(String event, long samples, long duration, File collapsed, File html) {
+        this.event = event;
+        this.samples = samples;
+        this.duration = duration;
+        this.collapsedFile = collapsed.getName();
+        this.collapsedEncrypted = AesUtils.encrypt(collapsed.getAbsolutePath());
+        this.htmlFile = html.getName();
+        this.htmlEncrypted = AesUtils.encrypt(html.getAbsolutePath());
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public void setEvent(String event) {
+        this.event = event;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public void setSamples(long samples) {
+        this.samples = samples;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public String getCollapsedFile() {
+        return collapsedFile;
+    }
+
+    public void setCollapsedFile(String collapsedFile) {
+        this.collapsedFile = collapsedFile;
+    }
+
+    public String getCollapsedEncrypted() {
+        return collapsedEncrypted;
+    }
+
+    public void setCollapsedEncrypted(String collapsedEncrypted) {
+        this.collapsedEncrypted = collapsedEncrypted;
+    }
+
+    public String getHtmlFile() {
+        return htmlFile;
+    }
+
+    public void setHtmlFile(String htmlFile) {
+        this.htmlFile = htmlFile;
+    }
+
+    public String getHtmlEncrypted() {
+        return htmlEncrypted;
+    }
+
+    public void setHtmlEncrypted(String htmlEncrypted) {
+        this.htmlEncrypted = htmlEncrypted;
+    }
+
+    @Override
+    public String getName() {
+        return "profiler";
+    }
+
+}
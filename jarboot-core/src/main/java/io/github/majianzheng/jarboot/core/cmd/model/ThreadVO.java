@@ -17,6 +17,8 @@ public class ThreadVO {
     private double cpu;
     private long deltaTime;
     private long time;
+    /** 采样间隔内每秒分配的堆内存字节数 */
+    private long allocRate;
     private boolean interrupted;
     private boolean daemon;
 
@@ -88,6 +90,14 @@ public class ThreadVO {
         this.time = time;
     }
 
+    public long getAllocRate() {
+        return allocRate;
+    }
+
+    public void setAllocRate(long allocRate) {
+        this.allocRate = allocRate;
+    }
+
     public boolean isInterrupted() {
         return interrupted;
     }
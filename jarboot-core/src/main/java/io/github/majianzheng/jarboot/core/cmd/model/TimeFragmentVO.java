@@ -19,6 +19,10 @@ public class TimeFragmentVO {
     private Object[] params;
     private Object returnObj;
     private Throwable throwExp;
+    /** 快照碎片的参数和返回值为已渲染的文本 */
+    private boolean snapshot;
+    /** 快照碎片的异常文本 */
+    private String throwText;
 
     public Integer getIndex() {
         return index;
@@ -119,6 +123,24 @@ public class TimeFragmentVO {
         return this;
     }
 
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public TimeFragmentVO setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    public String getThrowText() {
+        return throwText;
+    }
+
+    public TimeFragmentVO setThrowText(String throwText) {
+        this.throwText = throwText;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "TimeFragmentVO{" +
@@ -133,6 +155,7 @@ public class TimeFragmentVO {
                 ", params=" + Arrays.toString(params) +
                 ", returnObj=" + returnObj +
                 ", throwExp=" + throwExp +
+                ", snapshot=" + snapshot +
                 '}';
     }
 }
@@ -49,10 +49,18 @@ public abstract class TraceNode {
         return marks;
     }
 
-    public void begin() {
+    /**
+     * 开始
+     * @param timestamp 开始时间，纳秒
+     */
+    public void begin(long timestamp) {
     }
 
-    public void end() {
+    /**
+     * 结束
+     * @param timestamp 结束时间，纳秒
+     */
+    public void end(long timestamp) {
     }
 
     public String getType() {
@@ -27,14 +27,15 @@ public class TraceTree {
      * @param methodName method name of the call
      * @param lineNumber line number of invoke point
      * @param isInvoking Whether to invoke this method in other classes
+     * @param timestamp nano time of the call
      */
-    public void begin(String className, String methodName, int lineNumber, boolean isInvoking) {
+    public void begin(String className, String methodName, int lineNumber, boolean isInvoking, long timestamp) {
         TraceNode child = findChild(current, className, methodName, lineNumber);
         if (child == null) {
             child = new MethodNode(className, methodName, lineNumber, isInvoking);
             current.addChild(child);
         }
-        child.begin();
+        child.begin(timestamp);
         current = child;
         nodeCount += 1;
     }
@@ -62,23 +63,23 @@ public class TraceTree {
         return false;
     }
 
-    public void end() {
-        current.end();
+    public void end(long timestamp) {
+        current.end(timestamp);
         if (current.parent() != null) {
             current = current.parent();
         }
     }
 
-    public void end(Throwable throwable, int lineNumber) {
+    public void end(Throwable throwable, int lineNumber, long timestamp) {
         ThrowNode throwNode = new ThrowNode();
         throwNode.setException(throwable.getClass().getName());
         throwNode.setMessage(throwable.getMessage());
         throwNode.setLineNumber(lineNumber);
         current.addChild(throwNode);
-        this.end(true);
+        this.end(true, timestamp);
     }
 
-    public void end(boolean isThrow) {
+    public void end(boolean isThrow, long timestamp) {
         if (isThrow) {
             current.setMark("throws Exception");
             if (current instanceof MethodNode) {
@@ -86,7 +87,7 @@ public class TraceTree {
                 methodNode.setThrow(true);
             }
         }
-        this.end();
+        this.end(timestamp);
     }
 
     /**
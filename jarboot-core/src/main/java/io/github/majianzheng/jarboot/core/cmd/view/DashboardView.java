@@ -11,14 +11,32 @@ import io.github.majianzheng.jarboot.core.cmd.model.DashboardModel;
  * @author majianzheng
  */
 public class DashboardView implements ResultView<DashboardModel> {
+    /** 同一份快照会推送给所有订阅者，只序列化一次 */
+    private volatile Rendered last;
 
     @Override
     public String render(CommandSession session, DashboardModel result) {
-        return JsonUtils.toJsonString(result);
+        Rendered rendered = last;
+        if (null != rendered && rendered.model == result) {
+            return rendered.text;
+        }
+        String text = JsonUtils.toJsonString(result);
+        last = new Rendered(result, text);
+        return text;
     }
 
     @Override
     public boolean isJson() {
         return true;
     }
+
+    private static class Rendered {
+        private final DashboardModel model;
+        private final String text;
+
+        Rendered(DashboardModel model, String text) {
+            this.model = model;
+            this.text = text;
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package io.github.majianzheng.jarboot.core.cmd.view;
+
+import io.github.majianzheng.jarboot.api.cmd.session.CommandSession;
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.core.cmd.model.GcEventVO;
+import io.github.majianzheng.jarboot.core.cmd.model.GcModel;
+import io.github.majianzheng.jarboot.core.cmd.model.GcSummaryVO;
+import io.github.majianzheng.jarboot.core.utils.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Term view for GcModel
+ * @author majianzheng
+ */
+public class GcView implements ResultView<GcModel> {
+    private static final List<String> SUMMARY_HEADERS = Arrays.asList("collector", "count", "total(ms)",
+            "avg(ms)", "p50", "p90", "p99", "p99.9", "max", "jvm-count", "jvm-time(ms)");
+    private static final List<String> EVENT_HEADERS = Arrays.asList("id", "start", "collector", "action", "cause",
+            "time(ms)", "heap-before", "heap-after", "allocated", "alloc/s", "promoted", "promoted/s");
+
+    @Override
+    public String render(CommandSession session, GcModel model) {
+        List<List<String>> summaries = new ArrayList<>();
+        for (GcSummaryVO vo : model.getSummaries()) {
+            summaries.add(Arrays.asList(vo.getName(),
+                    String.valueOf(vo.getCount()),
+                    String.valueOf(vo.getTotalTime()),
+                    String.format("%.2f", vo.getAvg()),
+                    String.valueOf(vo.getP50()),
+                    String.valueOf(vo.getP90()),
+                    String.valueOf(vo.getP99()),
+                    String.valueOf(vo.getP999()),
+                    String.valueOf(vo.getMax()),
+                    String.valueOf(vo.getCollectionCount()),
+                    String.valueOf(vo.getCollectionTime())));
+        }
+        List<List<String>> events = new ArrayList<>();
+        for (GcEventVO vo : model.getEvents()) {
+            events.add(Arrays.asList(String.valueOf(vo.getId()),
+                    DateUtils.formatDate(new Date(vo.getStartTime())),
+                    vo.getName(),
+                    vo.getAction(),
+                    vo.getCause(),
+                    String.valueOf(vo.getDuration()),
+                    StringUtils.humanReadableByteCount(vo.getHeapBefore()),
+                    StringUtils.humanReadableByteCount(vo.getHeapAfter()),
+                    StringUtils.humanReadableByteCount(vo.getAllocated()),
+                    StringUtils.humanReadableByteCount(vo.getAllocRate()),
+                    StringUtils.humanReadableByteCount(vo.getPromoted()),
+                    StringUtils.humanReadableByteCount(vo.getPromotionRate())));
+        }
+        StringBuilder sb = new StringBuilder(1024)
+                .append("since=").append(DateUtils.formatDate(model.getSince()))
+                .append("; alloc/s=").append(StringUtils.humanReadableByteCount(model.getAllocRate()))
+                .append("; promoted/s=").append(StringUtils.humanReadableByteCount(model.getPromotionRate()))
+                .append(StringUtils.LF)
+                .append(ViewRenderUtil.renderTable(SUMMARY_HEADERS, summaries, session.getCol()));
+        if (!events.isEmpty()) {
+            sb.append(StringUtils.LF).append(ViewRenderUtil.renderTable(EVENT_HEADERS, events, session.getCol()));
+        }
+        return sb.toString();
+    }
+}
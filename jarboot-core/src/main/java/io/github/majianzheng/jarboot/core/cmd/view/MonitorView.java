@@ -0,0 +1,42 @@
+package io.github.majianzheng.jarboot.core.cmd.view;
+
+import io.github.majianzheng.jarboot.api.cmd.session.CommandSession;
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.core.cmd.model.MonitorModel;
+import io.github.majianzheng.jarboot.core.cmd.model.MonitorVO;
+import io.github.majianzheng.jarboot.core.utils.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Term view for MonitorModel
+ * @author majianzheng
+ */
+public class MonitorView implements ResultView<MonitorModel> {
+    private static final List<String> HEADERS = Arrays.asList("class", "method", "total", "success", "fail",
+            "fail-rate", "avg-rt(ms)", "p50", "p90", "p99", "max");
+
+    @Override
+    public String render(CommandSession session, MonitorModel model) {
+        List<List<String>> rows = new ArrayList<>();
+        for (MonitorVO vo : model.getItems()) {
+            List<String> row = new ArrayList<>(HEADERS.size());
+            row.add(vo.getClassName());
+            row.add(vo.getMethodName());
+            row.add(String.valueOf(vo.getTotal()));
+            row.add(String.valueOf(vo.getSuccess()));
+            row.add(String.valueOf(vo.getFailed()));
+            row.add(vo.getTotal() == 0 ? "0.00%" : String.format("%.2f%%", 100.0 * vo.getFailed() / vo.getTotal()));
+            row.add(String.format("%.2f", vo.getAvgRt()));
+            row.add(String.format("%.2f", vo.getP50()));
+            row.add(String.format("%.2f", vo.getP90()));
+            row.add(String.format("%.2f", vo.getP99()));
+            row.add(String.format("%.2f", vo.getMax()));
+            rows.add(row);
+        }
+        return "ts=" + DateUtils.formatDate(model.getTs()) + "; interval=" + model.getInterval() + "s" +
+                StringUtils.LF + ViewRenderUtil.renderTable(HEADERS, rows, session.getCol());
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.majianzheng.jarboot.core.cmd.view;
+
+import io.github.majianzheng.jarboot.api.cmd.session.CommandSession;
+import io.github.majianzheng.jarboot.common.utils.JsonUtils;
+import io.github.majianzheng.jarboot.core.cmd.model.ProfilerModel;
+
+/**
+ * @author majianzheng
+ */
+public class ProfilerView implements ResultView<ProfilerModel> {
+    @Override
+    public String render(CommandSession session, ProfilerModel model) {
+        return JsonUtils.toJsonString(model);
+    }
+
+    @Override
+    public boolean isJson() {
+        return true;
+    }
+}
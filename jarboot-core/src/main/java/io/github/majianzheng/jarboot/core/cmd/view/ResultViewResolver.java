@@ -42,11 +42,14 @@ public class ResultViewResolver {
         registerView(DashboardView.class);
         registerView(JvmView.class);
         registerView(ThreadView.class);
+        registerView(ProfilerView.class);
+        registerView(GcView.class);
         registerView(EnhancerView.class);
         registerView(StackView.class);
         registerView(TimeTunnelView.class);
         registerView(TraceView.class);
         registerView(WatchView.class);
+        registerView(MonitorView.class);
     }
 
     public ResultView getResultView(ResultModel model) {
@@ -33,9 +33,13 @@ public class TimeTunnelView implements ResultView<TimeTunnelModel> {
             TimeFragmentVO tf = timeTunnelModel.getTimeFragment();
             TableElement table = TimeTunnelTable.createDefaultTable();
             TimeTunnelTable.drawTimeTunnel(table, tf);
-            TimeTunnelTable.drawParameters(table, tf.getParams(), isNeedExpand, expand);
-            TimeTunnelTable.drawReturnObj(table, tf, isNeedExpand, expand, sizeLimit);
-            TimeTunnelTable.drawThrowException(table, tf, isNeedExpand, expand);
+            if (tf.isSnapshot()) {
+                TimeTunnelTable.drawSnapshot(table, tf);
+            } else {
+                TimeTunnelTable.drawParameters(table, tf.getParams(), isNeedExpand, expand);
+                TimeTunnelTable.drawReturnObj(table, tf, isNeedExpand, expand, sizeLimit);
+                TimeTunnelTable.drawThrowException(table, tf, isNeedExpand, expand);
+            }
             sb.append(RenderUtil.render(table, session.getCol()));
 
         } else if (timeTunnelModel.getWatchValue() != null) {
@@ -1,5 +1,6 @@
 package io.github.majianzheng.jarboot.core.cmd.view;
 
+import io.github.majianzheng.jarboot.core.advisor.AdviceSampler;
 import io.github.majianzheng.jarboot.core.cmd.model.ChangeResultVO;
 import io.github.majianzheng.jarboot.core.cmd.model.EnhancerAffectVO;
 import io.github.majianzheng.jarboot.core.cmd.model.ThreadVO;
@@ -80,6 +81,10 @@ public class ViewRenderUtil {
                 affectVO.getMethodCount(),
                 affectVO.getCost(),
                 affectVO.getListenerId()));
+        if (affectVO.getSampleRate() < AdviceSampler.FULL_RATE || affectVO.getMaxPerSecond() > 0) {
+            infoSB.append(format(", sample-rate: %s, max-per-second: %s", affectVO.getSampleRate(),
+                    affectVO.getMaxPerSecond() > 0 ? String.valueOf(affectVO.getMaxPerSecond()) : "unlimited"));
+        }
 
         if (affectVO.getThrowable() != null) {
             infoSB
@@ -101,6 +106,7 @@ public class ViewRenderUtil {
         headers.add("STATE");
         headers.add("%CPU");
         headers.add("DELTA_TIME");
+        headers.add("ALLOC/S");
         headers.add("TIME");
         headers.add("INTERRUPTED");
         headers.add("DAEMON");
@@ -156,6 +162,7 @@ public class ViewRenderUtil {
             }
             row.add(cpuLabel);
             row.add(label(deltaTime));
+            row.add(label(StringUtils.humanReadableByteCount(thread.getAllocRate())));
             row.add(label(time));
             row.add(label(String.valueOf(thread.isInterrupted())));
             row.add(daemonLabel);
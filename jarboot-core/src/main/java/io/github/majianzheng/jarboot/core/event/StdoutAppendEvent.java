@@ -6,19 +6,19 @@ import io.github.majianzheng.jarboot.api.event.JarbootEvent;
  * @author majianzheng
  */
 public class StdoutAppendEvent implements JarbootEvent {
-    private final String text;
-    public StdoutAppendEvent(String text) {
-        this.text = text;
+    private final byte[] bytes;
+    public StdoutAppendEvent(byte[] bytes) {
+        this.bytes = bytes;
     }
 
-    public String getText() {
-        return this.text;
+    public byte[] getBytes() {
+        return this.bytes;
     }
 
     @Override
     public String toString() {
         return "AppendStdoutFileEvent{" +
-                "text='" + text + '\'' +
+                "length=" + bytes.length +
                 '}';
     }
 }
@@ -10,6 +10,7 @@ import io.github.majianzheng.jarboot.api.constant.CommonConst;
 import io.github.majianzheng.jarboot.common.JarbootException;
 import io.github.majianzheng.jarboot.common.PidFileHelper;
 import io.github.majianzheng.jarboot.common.pojo.AgentClient;
+import io.github.majianzheng.jarboot.common.protocol.FrameCodec;
 import io.github.majianzheng.jarboot.common.utils.HttpUtils;
 import io.github.majianzheng.jarboot.core.basic.EnvironmentContext;
 import io.github.majianzheng.jarboot.core.basic.WsClientFactory;
@@ -257,6 +258,8 @@ public class JarbootBootstrap {
         String sid = agentArgs[2];
         clientData.setSid(sid);
         clientData.setUserDir(agentArgs[3]);
+        //由同一个Jarboot服务启动，协议版本一致
+        clientData.setProtocolVersion((int) FrameCodec.VERSION);
         PidFileHelper.writePidFile(sid);
         return true;
     }
@@ -0,0 +1,41 @@
+package io.github.majianzheng.jarboot.core.stream;
+
+import io.github.majianzheng.jarboot.common.protocol.BufferPool;
+import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
+import io.github.majianzheng.jarboot.common.protocol.FrameCodec;
+import io.github.majianzheng.jarboot.core.basic.WsClientFactory;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 帧协议发送，超出WebSocket接收缓存的响应拆分为多帧发送，不再走http
+ * @author majianzheng
+ */
+public class FrameResponseStream {
+    private final AtomicInteger streamId = new AtomicInteger(0);
+    private final BufferPool pool;
+
+    public FrameResponseStream(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 发送响应
+     * @param response 响应
+     */
+    public void write(CommandResponse response) {
+        List<ByteBuffer> frames = FrameCodec
+                .encodeResponse(response, streamId.incrementAndGet(), CoreConstant.SOCKET_MAX_SEND, pool::acquire);
+        WsClientFactory client = WsClientFactory.getInstance();
+        try {
+            for (ByteBuffer frame : frames) {
+                client.send(frame);
+            }
+        } finally {
+            frames.forEach(pool::release);
+        }
+    }
+}
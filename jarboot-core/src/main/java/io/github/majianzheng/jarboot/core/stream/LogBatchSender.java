@@ -0,0 +1,63 @@
+package io.github.majianzheng.jarboot.core.stream;
+
+import io.github.majianzheng.jarboot.common.protocol.LogRecordCodec;
+import io.github.majianzheng.jarboot.core.basic.EnvironmentContext;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志批量发送，多条日志编码为一批，达到大小或延迟预算时发送一次，不再每条日志一个消息
+ * @author majianzheng
+ */
+public class LogBatchSender {
+    /** 延迟预算，第一条日志写入后最多等待该时间发送 */
+    private static final int LINGER_MILLIS = 100;
+    /** 预留给协议头的空间 */
+    private static final int RESERVED = 64;
+
+    private final ByteBuffer batch = ByteBuffer.allocate(CoreConstant.SOCKET_MAX_SEND - RESERVED);
+    /** 是否已计划延迟发送 */
+    private boolean scheduled = false;
+
+    /**
+     * 追加一条日志
+     * @param timestamp 时间戳
+     * @param level 级别
+     * @param text 日志文本
+     */
+    public synchronized void append(long timestamp, byte level, byte[] text) {
+        if (!LogRecordCodec.encode(batch, timestamp, level, text, 0, text.length)) {
+            flushLocked();
+            if (!LogRecordCodec.encode(batch, timestamp, level, text, 0, text.length)) {
+                // 超过单批大小的日志单独发送
+                ByteBuffer single = ByteBuffer.allocate(LogRecordCodec.HEADER_LEN + text.length);
+                LogRecordCodec.encode(single, timestamp, level, text, 0, text.length);
+                ResultStreamDistributor.getInstance().logBatch(single.array());
+                return;
+            }
+        }
+        if (!scheduled) {
+            scheduled = true;
+            EnvironmentContext
+                    .getScheduledExecutor()
+                    .schedule(this::onLinger, LINGER_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void onLinger() {
+        scheduled = false;
+        flushLocked();
+    }
+
+    private void flushLocked() {
+        if (0 == batch.position()) {
+            return;
+        }
+        final byte[] body = Arrays.copyOf(batch.array(), batch.position());
+        batch.clear();
+        ResultStreamDistributor.getInstance().logBatch(body);
+    }
+}
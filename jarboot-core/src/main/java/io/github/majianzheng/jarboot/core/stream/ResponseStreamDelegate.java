@@ -1,7 +1,12 @@
 package io.github.majianzheng.jarboot.core.stream;
 
+import io.github.majianzheng.jarboot.common.protocol.BufferPool;
+import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
+import io.github.majianzheng.jarboot.core.basic.WsClientFactory;
 import io.github.majianzheng.jarboot.core.constant.CoreConstant;
 
+import java.nio.ByteBuffer;
+
 /**
  * ResponseStream delegate
  * @author majianzheng
@@ -9,6 +14,12 @@ import io.github.majianzheng.jarboot.core.constant.CoreConstant;
 public class ResponseStreamDelegate implements ResponseStream {
     private final ResponseStream http = new HttpResponseStreamImpl();
     private final ResponseStream socket = new SocketResponseStreamImpl();
+    private final BufferPool pool;
+
+    public ResponseStreamDelegate(BufferPool pool) {
+        this.pool = pool;
+    }
+
     /**
      * 写响应数据
      *
@@ -19,4 +30,24 @@ public class ResponseStreamDelegate implements ResponseStream {
         ResponseStream stream = (data.length < CoreConstant.SOCKET_MAX_SEND) ? socket : http;
         stream.write(data);
     }
+
+    /**
+     * 写响应，小的数据包直接编码到池中的缓冲发送
+     * @param response 响应
+     */
+    public void write(CommandResponse response) {
+        final int len = response.rawLength();
+        if (len >= CoreConstant.SOCKET_MAX_SEND) {
+            http.write(response.toRaw());
+            return;
+        }
+        ByteBuffer buf = pool.acquire(len);
+        try {
+            response.encodeTo(buf);
+            buf.flip();
+            WsClientFactory.getInstance().send(buf);
+        } finally {
+            pool.release(buf);
+        }
+    }
 }
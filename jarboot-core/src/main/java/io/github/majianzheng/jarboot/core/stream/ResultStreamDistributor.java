@@ -4,6 +4,7 @@ import io.github.majianzheng.jarboot.api.cmd.session.CommandSession;
 import io.github.majianzheng.jarboot.api.event.JarbootEvent;
 import io.github.majianzheng.jarboot.api.event.Subscriber;
 import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
+import io.github.majianzheng.jarboot.common.protocol.BufferPool;
 import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
 import io.github.majianzheng.jarboot.common.protocol.NotifyType;
 import io.github.majianzheng.jarboot.common.protocol.ResponseType;
@@ -11,13 +12,14 @@ import io.github.majianzheng.jarboot.core.basic.WsClientFactory;
 import io.github.majianzheng.jarboot.core.cmd.model.ResultModel;
 import io.github.majianzheng.jarboot.core.cmd.view.ResultView;
 import io.github.majianzheng.jarboot.core.cmd.view.ResultViewResolver;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
 import io.github.majianzheng.jarboot.core.event.ResponseEventBuilder;
-import io.github.majianzheng.jarboot.core.event.StdoutAppendEvent;
 import io.github.majianzheng.jarboot.core.utils.LogUtils;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Use websocket or http to send response data, we need a strategy so that the needed component did not
@@ -26,10 +28,21 @@ import java.util.*;
  */
 public class ResultStreamDistributor {
     private static final Logger logger = LogUtils.getLogger();
+    /** 待发送的响应超过该数量时认为结果流拥塞 */
+    private static final int CONGESTION_THRESHOLD = 256;
 
-    private final ResponseStream stream = new ResponseStreamDelegate();
+    /** 发送缓冲池，大小与WebSocket单次发送上限一致 */
+    private final BufferPool bufferPool = new BufferPool(CoreConstant.SOCKET_MAX_SEND, 16, false);
+    private final ResponseStreamDelegate stream = new ResponseStreamDelegate(bufferPool);
     private final ResultViewResolver resultViewResolver = new ResultViewResolver();
+    private final FrameResponseStream frameStream = new FrameResponseStream(bufferPool);
+    private final StdoutBatchSender stdoutSender = new StdoutBatchSender();
+    private final LogBatchSender logSender = new LogBatchSender();
     private Set<String> stdoutSessionActiveSet = new HashSet<>(16);
+    /** 已发布但尚未发送完成的响应数 */
+    private final AtomicInteger pending = new AtomicInteger();
+    /** 最近一次发布是否因队列已满而失败 */
+    private volatile boolean rejected = false;
 
     public static ResultStreamDistributor getInstance() {
         return ResultStreamDistributorHolder.INST;
@@ -58,22 +71,75 @@ public class ResultStreamDistributor {
     }
 
     /**
-     * 分布式日志记录
+     * 分布式日志记录，批量发送
+     * @param timestamp 时间戳
+     * @param level 级别
      * @param text 日志
      */
-    public void log(String text) {
-        response(true, ResponseType.LOG_APPENDER, text, StringUtils.EMPTY);
+    public void log(long timestamp, byte level, byte[] text) {
+        logSender.append(timestamp, level, text);
+    }
+
+    /**
+     * 发送一批日志
+     * @param body {@link io.github.majianzheng.jarboot.common.protocol.LogRecordCodec}编码的记录
+     */
+    public void logBatch(byte[] body) {
+        CommandResponse resp = new CommandResponse();
+        resp.setResponseType(ResponseType.LOG_BATCH);
+        resp.setSuccess(true);
+        resp.setSessionId(StringUtils.EMPTY);
+        resp.setBody(body, 0, body.length);
+        publish(resp);
+    }
+
+    /**
+     * 发送一批遥测数据
+     * @param body {@link io.github.majianzheng.jarboot.common.protocol.TelemetryCodec}编码的采样
+     */
+    public void telemetryBatch(byte[] body) {
+        CommandResponse resp = new CommandResponse();
+        resp.setResponseType(ResponseType.TELEMETRY_BATCH);
+        resp.setSuccess(true);
+        resp.setSessionId(StringUtils.EMPTY);
+        resp.setBody(body, 0, body.length);
+        publish(resp);
+    }
+
+    /**
+     * 标准输出，原始字节批量发送到活动的窗口
+     * @param buf 缓冲
+     * @param off 偏移
+     * @param len 长度
+     */
+    public void stdPrint(byte[] buf, int off, int len) {
+        stdoutSender.append(buf, off, len);
     }
 
     public void response(boolean success, ResponseType type, String body, String id) {
-        NotifyReactor
-                .getInstance()
-                .publishEvent(new ResponseEventBuilder()
-                        .success(success)
-                        .type(type)
-                        .body(body)
-                        .session(id)
-                        .build());
+        publish(new ResponseEventBuilder()
+                .success(success)
+                .type(type)
+                .body(body)
+                .session(id)
+                .build());
+    }
+
+    /**
+     * 结果流是否拥塞，增强命令据此退避采样
+     * @return 是否拥塞
+     */
+    public boolean isCongested() {
+        return rejected || pending.get() >= CONGESTION_THRESHOLD;
+    }
+
+    private void publish(CommandResponse resp) {
+        pending.incrementAndGet();
+        final boolean success = NotifyReactor.getInstance().publishEvent(resp);
+        if (!success) {
+            pending.decrementAndGet();
+        }
+        rejected = !success;
     }
 
     public void removeActiveSessionByHost(String host) {
@@ -84,6 +150,7 @@ public class ResultStreamDistributor {
             }
         });
         waitDelete.forEach(stdoutSessionActiveSet::remove);
+        stdoutSender.onSessionChanged(stdoutSessionActiveSet);
     }
 
     public void addActiveSession(String sessionId) {
@@ -94,6 +161,7 @@ public class ResultStreamDistributor {
         String[] session = sessionId.split(",");
         copy.addAll(Arrays.asList(session));
         stdoutSessionActiveSet = copy;
+        stdoutSender.onSessionChanged(copy);
     }
 
     public void removeActiveSession(String sessionId) {
@@ -106,22 +174,34 @@ public class ResultStreamDistributor {
             copy.remove(s);
         }
         stdoutSessionActiveSet = copy;
+        stdoutSender.onSessionChanged(copy);
     }
 
     public void resetActiveSession(String sessionIds) {
         if (StringUtils.isEmpty(sessionIds)) {
             stdoutSessionActiveSet = new HashSet<>(16);
+            stdoutSender.onSessionChanged(stdoutSessionActiveSet);
             return;
         }
         String[] session = sessionIds.split(",");
-        stdoutSessionActiveSet = new HashSet<>(Arrays.asList(session));
+        Set<String> sessions = new HashSet<>(Arrays.asList(session));
+        if (!sessions.equals(stdoutSessionActiveSet)) {
+            stdoutSessionActiveSet = sessions;
+            stdoutSender.onSessionChanged(sessions);
+        }
     }
 
     private void sendToServer(CommandResponse resp) {
-        if (WsClientFactory.getInstance().isOnline()) {
+        WsClientFactory client = WsClientFactory.getInstance();
+        if (!client.isOnline()) {
+            return;
+        }
+        if (client.isFramed()) {
+            //大的数据包拆分为多帧，在同一连接上发送
+            frameStream.write(resp);
+        } else {
             //根据数据包的大小选择合适的通讯方式
-            byte[] raw = resp.toRaw();
-            stream.write(raw);
+            stream.write(resp);
         }
     }
 
@@ -130,33 +210,16 @@ public class ResultStreamDistributor {
         NotifyReactor.getInstance().registerSubscriber(new Subscriber<CommandResponse>() {
             @Override
             public void onEvent(CommandResponse event) {
-                sendToServer(event);
-            }
-
-            @Override
-            public Class<? extends JarbootEvent> subscribeType() {
-                return CommandResponse.class;
-            }
-        });
-        //std文本输出事件
-        NotifyReactor.getInstance().registerSubscriber(new Subscriber<StdoutAppendEvent>() {
-            @Override
-            public void onEvent(StdoutAppendEvent event) {
-                if (stdoutSessionActiveSet.isEmpty()) {
-                    return;
+                try {
+                    sendToServer(event);
+                } finally {
+                    pending.decrementAndGet();
                 }
-                String session = String.join(",", stdoutSessionActiveSet);
-                sendToServer(new ResponseEventBuilder()
-                        .success(true)
-                        .type(ResponseType.STD_PRINT)
-                        .body(event.getText())
-                        .session(session)
-                        .build());
             }
 
             @Override
             public Class<? extends JarbootEvent> subscribeType() {
-                return StdoutAppendEvent.class;
+                return CommandResponse.class;
             }
         });
     }
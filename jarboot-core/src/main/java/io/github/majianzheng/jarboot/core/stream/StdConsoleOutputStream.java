@@ -1,5 +1,7 @@
 package io.github.majianzheng.jarboot.core.stream;
 
+import io.github.majianzheng.jarboot.common.StreamTextDecoder;
+
 import java.io.OutputStream;
 
 /**
@@ -11,12 +13,8 @@ public class StdConsoleOutputStream extends OutputStream {
     private static final int MIN_PRINT_UNIT = 12;
     /** IO刷新阈值 */
     private static final int  FLUSH_THRESHOLD = (MIN_PRINT_UNIT * 256);
-    /** ANSI控制符结束位校验阈值 */
-    private static final int  ANSI_CHECK_THRESHOLD = (FLUSH_THRESHOLD  + MIN_PRINT_UNIT * 62);
     /** buffer起始的无效索引 */
     private static final int NO_BUFFER_OFFSET = -1;
-    /** ANSI控制符 */
-    private static final String ANSI_BEGIN = "\003[";
     /** IO 字符缓存 */
     private final byte[] buffer = new byte[FLUSH_THRESHOLD + MIN_PRINT_UNIT * 64];
     /** buffer当前索引位置 */
@@ -48,9 +46,8 @@ public class StdConsoleOutputStream extends OutputStream {
      */
     @Override
     public void write(int b) {
-        byte c = (byte) b;
         //int的高24位是无效的，实际只用到8位
-        buffer[++offset] = c;
+        buffer[++offset] = (byte) b;
         if (offset > FLUSH_THRESHOLD) {
             this.flush();
         } else {
@@ -67,10 +64,12 @@ public class StdConsoleOutputStream extends OutputStream {
                 ((off + len) > b.length) || ((off + len) < 0)) {
             throw new IndexOutOfBoundsException();
         }
-        for (int i = 0; i < len; i++) {
-            byte c = b[off + i];
-            //int的高24位是无效的，实际只用到8位
-            buffer[++offset] = c;
+        while (len > 0) {
+            final int n = Math.min(len, buffer.length - offset - 1);
+            System.arraycopy(b, off, buffer, offset + 1, n);
+            offset += n;
+            off += n;
+            len -= n;
             if (offset > FLUSH_THRESHOLD) {
                 this.flush();
             }
@@ -88,25 +87,22 @@ public class StdConsoleOutputStream extends OutputStream {
     }
 
     /**
-     * 打印文本
+     * 打印文本，末尾不完整的字符和控制符留在缓存中等待后续的输出
      */
     private void print() {
-        //一行，清空buffer，打印一行
-        if (offset > 0) {
-            String text = new String(buffer, 0, offset + 1);
-            int index = text.indexOf(ANSI_BEGIN);
-            if (offset < (ANSI_CHECK_THRESHOLD)) {
-                while (-1 != index) {
-                    //控制符未完成
-                    index = text.indexOf('m', index);
-                    if (-1 == index) {
-                        return;
-                    }
-                    index = text.indexOf(ANSI_BEGIN, index + ANSI_BEGIN.length());
-                }
-            }
-            offset = NO_BUFFER_OFFSET;
-            printHandler.handle(text);
+        if (offset < 0) {
+            return;
+        }
+        final int len = offset + 1;
+        final int end = StreamTextDecoder.completeLength(buffer, 0, len);
+        if (end <= 0) {
+            return;
+        }
+        printHandler.handle(buffer, 0, end);
+        final int remain = len - end;
+        if (remain > 0) {
+            System.arraycopy(buffer, end, buffer, 0, remain);
         }
+        offset = remain - 1;
     }
 }
@@ -2,6 +2,7 @@ package io.github.majianzheng.jarboot.core.stream;
 
 import io.github.majianzheng.jarboot.api.event.JarbootEvent;
 import io.github.majianzheng.jarboot.api.event.Subscriber;
+import io.github.majianzheng.jarboot.common.StreamTextDecoder;
 import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 import io.github.majianzheng.jarboot.core.basic.AgentServiceOperator;
@@ -14,6 +15,8 @@ import org.slf4j.Logger;
 
 import java.io.*;
 import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -26,8 +29,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class StdOutStreamReactor {
     private static final Logger logger = LogUtils.getLogger();
 
-    /** flush wait time */
-    private static final int WAIT_TIME = 800;
+    /** 稀疏输出时的刷新等待时间，近似立即刷新 */
+    private static final int MIN_WAIT_TIME = 5;
+    /** 密集输出时的最大刷新等待时间 */
+    private static final int MAX_WAIT_TIME = 200;
+    /** 两次刷新之间的输出超过该字节数时视为密集输出 */
+    private static final int DENSE_BYTES = 4096;
+    /** spring应用启动完成的日志特征 */
+    private static final byte[] STARTED_FLAG = "Started ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STARTED_IN_FLAG = " in ".getBytes(StandardCharsets.UTF_8);
+    /** 转码缓冲大小 */
+    private static final int TRANSCODE_BUFFER_SIZE = 4096;
     /** 标准输出流实现 */
     private final StdConsoleOutputStream consoleOutputStream;
     /** 默认的标准输出流备份 */
@@ -44,6 +56,16 @@ public class StdOutStreamReactor {
     private final long startDetermineTime;
     /** 是否正在唤醒 */
     private final AtomicBoolean wakeup = new AtomicBoolean(false);
+    /** 当前的刷新等待时间，根据输出的密集程度自适应调整 */
+    private volatile int waitTime = MIN_WAIT_TIME;
+    /** 平台字符集不是UTF-8时转码后发送，服务端统一按UTF-8解码，由输出流的锁保护 */
+    private final StreamTextDecoder transcoder;
+    /** 上次刷新后输出的字节数，由输出流的锁保护 */
+    private long printedBytes = 0;
+    /** 上次刷新的时间 */
+    private long lastFlushTime = 0;
+    /** 本轮第一次输出的时间 */
+    private volatile long wakeupTime = 0;
     /** 监控终端输出的定时任务，负责判定是否启动完成 */
     private ScheduledFuture<?> watchFuture;
     /** std文件输出 */
@@ -123,19 +145,32 @@ public class StdOutStreamReactor {
      * 开始中标准输出
      * @param text 文本
      */
-    private void stdStartingPrint(String text) {
-        this.stdPrint(text);
+    private void stdStartingPrint(byte[] buf, int off, int len) {
+        this.stdPrint(buf, off, len);
         //更新计时
         lastStdTime = System.currentTimeMillis();
         // 判断是否是spring应用启动完成
-        final String flag1 = "Started ";
-        final String flag2 = " in ";
-        int index = text.indexOf(flag1);
-        if (index > 0 && text.indexOf(flag2, index) > 0) {
+        final int end = off + len;
+        int index = indexOf(buf, STARTED_FLAG, off, end);
+        if (index > off && indexOf(buf, STARTED_IN_FLAG, index, end) > 0) {
             started = true;
         }
     }
 
+    private static int indexOf(byte[] buf, byte[] target, int from, int end) {
+        final int max = end - target.length;
+        for (int i = from; i <= max; ++i) {
+            int j = 0;
+            while (j < target.length && buf[i + j] == target[j]) {
+                ++j;
+            }
+            if (j == target.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * 构造方法
      */
@@ -145,13 +180,18 @@ public class StdOutStreamReactor {
         //备份默认的输出流
         defaultOut = System.out;
         defaultErr = System.err;
-        stdOutPrintStream = new PrintStream(consoleOutputStream, true);
+        // 与直接写入字节的代码一致使用平台字符集，平台字符集为UTF-8时原始字节直接发送
+        // 不自动刷新，由自适应的刷新任务决定时机，密集输出时批量处理
+        stdOutPrintStream = new PrintStream(consoleOutputStream, false);
+        final Charset charset = Charset.defaultCharset();
+        transcoder = StandardCharsets.UTF_8.equals(charset) ? null
+                : new StreamTextDecoder(charset, TRANSCODE_BUFFER_SIZE);
         subscriber = new Subscriber<StdoutAppendEvent>() {
             @Override
             public void onEvent(StdoutAppendEvent event) {
                 if (null != stdoutFileStream) {
                     try {
-                        stdoutFileStream.write(event.getText().getBytes());
+                        stdoutFileStream.write(event.getBytes());
                     } catch (Exception e) {
                         logger.debug("write stdout file failed, will close stdout file.", e);
                         closeStdFileStreamQuietly();
@@ -214,8 +254,22 @@ public class StdOutStreamReactor {
         this.enabled(true);
     }
 
-    private void stdPrint(String text) {
-        NotifyReactor.getInstance().publishEvent(new StdoutAppendEvent(text));
+    private void stdPrint(byte[] buf, int off, int len) {
+        printedBytes += len;
+        if (null == transcoder) {
+            ResultStreamDistributor.getInstance().stdPrint(buf, off, len);
+        } else {
+            //跨块的多字节字符留在解码器中等待后续的输出
+            byte[] utf8 = transcoder.decode(buf, off, len).getBytes(StandardCharsets.UTF_8);
+            if (utf8.length > 0) {
+                ResultStreamDistributor.getInstance().stdPrint(utf8, 0, utf8.length);
+            }
+        }
+        if (null != stdoutFileStream) {
+            byte[] bytes = new byte[len];
+            System.arraycopy(buf, off, bytes, 0, len);
+            NotifyReactor.getInstance().publishEvent(new StdoutAppendEvent(bytes));
+        }
     }
 
     private void closeStdFileStreamQuietly() {
@@ -240,14 +294,15 @@ public class StdOutStreamReactor {
      */
     private void onWakeup() {
         //io唤醒机制，当IO第一次变动时，等待一段时间后触发刷新，忽视等待期间的事件，然后开始新的一轮
-        //检查是否正在等待wakeup
-        if (wakeup.compareAndSet(false, true)) {
+        //先读后CAS，密集输出时应用线程只有一次volatile读，不会争抢
+        if (wakeup.get() || !wakeup.compareAndSet(false, true)) {
             return;
         }
+        wakeupTime = System.currentTimeMillis();
         //启动延时任务，防抖动设计，忽视中间变化
         EnvironmentContext
                 .getScheduledExecutor()
-                .schedule(this::flush, WAIT_TIME, TimeUnit.MILLISECONDS);
+                .schedule(this::flush, waitTime, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -255,9 +310,30 @@ public class StdOutStreamReactor {
      */
     private void flush() {
         //CAS判定，只有启动了wakeup延迟后才可刷新
-        if (wakeup.compareAndSet(true, false)) {
+        if (!wakeup.compareAndSet(true, false)) {
+            return;
+        }
+        synchronized (stdOutPrintStream) {
             stdOutPrintStream.flush();
+            adjustWaitTime();
+        }
+    }
+
+    /**
+     * 根据两次刷新之间的输出量调整等待时间，稀疏时立即刷新，密集时逐步加长等待以批量发送
+     */
+    private void adjustWaitTime() {
+        final long bytes = printedBytes;
+        printedBytes = 0;
+        if (wakeupTime - lastFlushTime > MAX_WAIT_TIME) {
+            //本轮输出前已空闲较久，视为稀疏输出
+            waitTime = MIN_WAIT_TIME;
+        } else if (bytes > DENSE_BYTES) {
+            waitTime = Math.min(waitTime << 1, MAX_WAIT_TIME);
+        } else {
+            waitTime = Math.max(waitTime >> 1, MIN_WAIT_TIME);
         }
+        lastFlushTime = System.currentTimeMillis();
     }
 
     /**
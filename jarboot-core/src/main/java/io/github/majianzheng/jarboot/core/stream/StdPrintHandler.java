@@ -6,8 +6,10 @@ package io.github.majianzheng.jarboot.core.stream;
  */
 public interface StdPrintHandler {
     /**
-     * 处理控制消息
-     * @param text 消息
+     * 处理输出的原始字节，调用返回后缓冲将被复用
+     * @param buf 缓冲
+     * @param off 偏移
+     * @param len 长度
      */
-    void handle(String text);
+    void handle(byte[] buf, int off, int len);
 }
@@ -0,0 +1,296 @@
+package io.github.majianzheng.jarboot.core.stream;
+
+import io.github.majianzheng.jarboot.api.constant.CommonConst;
+import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.core.basic.EnvironmentContext;
+import io.github.majianzheng.jarboot.core.basic.WsClientFactory;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import io.github.majianzheng.jarboot.core.utils.LogUtils;
+import org.slf4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标准输出批量发送，原始字节累积到可复用的直接内存中，达到大小或延迟预算时整批发送一次。
+ * 会话列表只在变化时编码一次，不在Agent端解码为字符串。
+ * 上一批发送中时写满的缓冲排队等待，换用空闲的缓冲继续累积，按顺序逐批发送。
+ * 所有缓冲都在等待发送时不阻塞输出的应用线程，丢弃超出的内容，恢复后以一行摘要提示被省略的行数。
+ * @author majianzheng
+ */
+@SuppressWarnings("java:S1181")
+public class StdoutBatchSender {
+    private static final Logger logger = LogUtils.getLogger();
+    /** 延迟预算，第一个字节写入后最多等待该时间发送 */
+    private static final int LINGER_MILLIS = 50;
+    /** 会话列表过长时保证的最小批量大小 */
+    private static final int MIN_BATCH_SIZE = 512;
+    /** UTF-8多字节字符的最大长度 */
+    private static final int MAX_UTF8_LEN = 4;
+    private static final byte LF = '\n';
+    /** 缓冲个数上限，全部在等待发送时才丢弃 */
+    private static final int MAX_BUFFERS = 8;
+
+    private final ResponseStream http = new HttpResponseStreamImpl();
+    /** 正在填充的缓冲 */
+    private ByteBuffer filling = ByteBuffer.allocateDirect(CoreConstant.SOCKET_MAX_SEND);
+    /** 已发送完可复用的缓冲 */
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>(MAX_BUFFERS);
+    /** 写满等待发送的缓冲，读模式 */
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>(MAX_BUFFERS);
+    /** 已分配的缓冲个数 */
+    private int allocated = 1;
+    /** 是否有发送任务在执行 */
+    private boolean sending = false;
+    /** 协议头，无活动会话时会话列表为空，服务端仍会记录输出供窗口打开时回放 */
+    private volatile byte[] header = CommandResponse.stdBatchHeader(StringUtils.EMPTY);
+    /** 是否已计划延迟发送 */
+    private boolean scheduled = false;
+    /** 发送跟不上时丢弃的字节数 */
+    private long droppedBytes = 0;
+    /** 尚未提示的被丢弃的字节数和行数 */
+    private long suppressedBytes = 0;
+    private long suppressedLines = 0;
+    /** 最后一个写入的字节，用于判断摘要是否需要换行 */
+    private byte lastByte = LF;
+
+    /**
+     * 活动会话变化，重新编码协议头
+     * @param sessions 活动会话
+     */
+    public void onSessionChanged(Collection<String> sessions) {
+        if (null == sessions || sessions.isEmpty()) {
+            this.header = CommandResponse.stdBatchHeader(StringUtils.EMPTY);
+            return;
+        }
+        this.header = CommandResponse.stdBatchHeader(String.join(CommonConst.COMMA_SPLIT, sessions));
+    }
+
+    /**
+     * 追加输出
+     * @param b 字节
+     * @param off 偏移
+     * @param len 长度
+     */
+    public synchronized void append(byte[] b, int off, int len) {
+        final byte[] h = this.header;
+        if (null == h) {
+            return;
+        }
+        final int limit = batchLimit(h);
+        if (suppressedBytes > 0 && canFlush()) {
+            reportSuppressed();
+        }
+        while (len > 0) {
+            int room = limit - filling.position();
+            if (room <= 0) {
+                if (!canFlush()) {
+                    // 所有缓冲都在等待发送，丢弃超出的部分
+                    suppress(b, off, len);
+                    return;
+                }
+                flushLocked();
+                room = limit - filling.position();
+            }
+            final int n = Math.min(room, len);
+            filling.put(b, off, n);
+            lastByte = b[off + n - 1];
+            off += n;
+            len -= n;
+        }
+        if (filling.position() >= limit && canFlush()) {
+            flushLocked();
+        } else if (filling.position() > 0) {
+            scheduleLinger();
+        }
+    }
+
+    /**
+     * 发送跟不上时丢弃的字节数
+     * @return 字节数
+     */
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    private void suppress(byte[] b, int off, int len) {
+        droppedBytes += len;
+        suppressedBytes += len;
+        for (int i = off, end = off + len; i < end; ++i) {
+            if (LF == b[i]) {
+                ++suppressedLines;
+            }
+        }
+    }
+
+    /**
+     * 发送恢复后追加被省略内容的摘要，需持有锁
+     */
+    private void reportSuppressed() {
+        if (filling.position() > 0) {
+            flushLocked();
+        }
+        final String summary = suppressedLines > 0
+                ? String.format("\u2026 %,d lines suppressed \u2026\n", suppressedLines)
+                : String.format("\u2026 %,d bytes suppressed \u2026\n", suppressedBytes);
+        if (LF != lastByte) {
+            filling.put(LF);
+        }
+        filling.put(summary.getBytes(StandardCharsets.UTF_8));
+        lastByte = LF;
+        suppressedBytes = 0;
+        suppressedLines = 0;
+    }
+
+    private void onLinger() {
+        synchronized (this) {
+            scheduled = false;
+            if (!canFlush()) {
+                // 等待发送完成后回收缓冲时再次计划
+                return;
+            }
+            if (suppressedBytes > 0) {
+                reportSuppressed();
+            }
+            if (filling.position() > 0 && canFlush()) {
+                flushLocked();
+            }
+        }
+    }
+
+    /**
+     * 计划延迟发送，需持有锁
+     */
+    private void scheduleLinger() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        EnvironmentContext
+                .getScheduledExecutor()
+                .schedule(this::onLinger, LINGER_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 是否还有可以换用的缓冲，需持有锁
+     * @return 是否可以提交当前的缓冲
+     */
+    private boolean canFlush() {
+        return !free.isEmpty() || allocated < MAX_BUFFERS;
+    }
+
+    /**
+     * 提交当前的缓冲等待发送并换用空闲的缓冲，需持有锁且{@link #canFlush()}成立
+     */
+    private void flushLocked() {
+        final ByteBuffer out = filling;
+        ByteBuffer next = free.poll();
+        if (null == next) {
+            next = ByteBuffer.allocateDirect(CoreConstant.SOCKET_MAX_SEND);
+            ++allocated;
+        }
+        filling = next;
+        out.flip();
+        final int end = completeUtf8Length(out);
+        if (end < out.limit()) {
+            // 不完整的多字节字符留到下一批
+            for (int i = end; i < out.limit(); ++i) {
+                filling.put(out.get(i));
+            }
+            out.limit(end);
+        }
+        pending.add(out);
+        if (!sending) {
+            sending = true;
+            EnvironmentContext.getScheduledExecutor().execute(this::sendPending);
+        }
+    }
+
+    /**
+     * 按顺序发送排队的缓冲，同一时刻只有一个发送任务
+     */
+    private void sendPending() {
+        ByteBuffer out = nextPending(null);
+        while (null != out) {
+            send(out);
+            out = nextPending(out);
+        }
+    }
+
+    /**
+     * 回收已发送的缓冲并取下一个，没有时结束发送任务
+     * @param sent 已发送的缓冲
+     * @return 下一个待发送的缓冲
+     */
+    private synchronized ByteBuffer nextPending(ByteBuffer sent) {
+        if (null != sent) {
+            sent.clear();
+            free.add(sent);
+        }
+        final ByteBuffer out = pending.poll();
+        if (null == out) {
+            sending = false;
+            if (filling.position() > 0 || suppressedBytes > 0) {
+                scheduleLinger();
+            }
+        }
+        return out;
+    }
+
+    private void send(ByteBuffer out) {
+        final byte[] h = this.header;
+        try {
+            if (null == h || !out.hasRemaining() || !WsClientFactory.getInstance().isOnline()) {
+                return;
+            }
+            if (h.length + out.remaining() < CoreConstant.SOCKET_MAX_SEND) {
+                WsClientFactory.getInstance().send(ByteBuffer.wrap(h), out);
+            } else {
+                // 会话列表过长时超出WebSocket接收缓存，兼容使用http发送
+                byte[] raw = new byte[h.length + out.remaining()];
+                System.arraycopy(h, 0, raw, 0, h.length);
+                out.get(raw, h.length, raw.length - h.length);
+                http.write(raw);
+            }
+        } catch (Throwable e) {
+            logger.debug("send stdout batch failed.", e);
+        }
+    }
+
+    private static int batchLimit(byte[] h) {
+        return Math.max(MIN_BATCH_SIZE, CoreConstant.SOCKET_MAX_SEND - h.length);
+    }
+
+    /**
+     * 末尾完整UTF-8字符的结束位置
+     * @param buf 缓冲，读模式
+     * @return 结束位置
+     */
+    private static int completeUtf8Length(ByteBuffer buf) {
+        final int limit = buf.limit();
+        final int min = Math.max(0, limit - MAX_UTF8_LEN);
+        for (int i = limit - 1; i >= min; --i) {
+            final int b = buf.get(i) & 0xff;
+            if ((b & 0xc0) == 0x80) {
+                // 后续字节，继续向前寻找首字节
+                continue;
+            }
+            final int expected;
+            if (b < 0x80) {
+                expected = 1;
+            } else if ((b & 0xe0) == 0xc0) {
+                expected = 2;
+            } else if ((b & 0xf0) == 0xe0) {
+                expected = 3;
+            } else {
+                expected = MAX_UTF8_LEN;
+            }
+            return (i + expected > limit) ? i : limit;
+        }
+        return limit;
+    }
+}
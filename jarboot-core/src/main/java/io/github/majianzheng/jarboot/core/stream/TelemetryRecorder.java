@@ -0,0 +1,277 @@
+package io.github.majianzheng.jarboot.core.stream;
+
+import io.github.majianzheng.jarboot.common.protocol.TelemetryCodec;
+import io.github.majianzheng.jarboot.core.basic.WsClientFactory;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import io.github.majianzheng.jarboot.core.utils.GcMonitor;
+import io.github.majianzheng.jarboot.core.utils.LogUtils;
+import org.slf4j.Logger;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * JVM遥测记录，后台按固定间隔采样一组固定的指标写入基本类型的环形缓冲，攒够一批后经WebSocket发送到服务端。
+ * 离线期间的采样保留在环形缓冲中，上线后补发，超出容量时丢弃最旧的采样。
+ * @author majianzheng
+ */
+public class TelemetryRecorder {
+    private static final Logger logger = LogUtils.getLogger();
+    /** 采样间隔，小于等于0时不启用 */
+    private static final long INTERVAL_MILLIS = Long.getLong("jarboot.telemetry.interval", 5000L);
+    /** 环形缓冲保留的采样个数 */
+    private static final int CAPACITY = Integer.getInteger("jarboot.telemetry.capacity", 720);
+    /** 攒够该数量的采样后发送 */
+    private static final int FLUSH_SAMPLES = 12;
+    /** 预留给协议头的空间 */
+    private static final int RESERVED = 64;
+    private static final double PERCENT = 100.0;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static TelemetryRecorder active;
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final List<MemoryPoolMXBean> memoryPools = ManagementFactory.getMemoryPoolMXBeans();
+    private final List<GarbageCollectorMXBean> garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final ClassLoadingMXBean classLoadingMXBean = ManagementFactory.getClassLoadingMXBean();
+    private final OperatingSystemMXBean osMXBean = ManagementFactory.getOperatingSystemMXBean();
+    private final int processors = Runtime.getRuntime().availableProcessors();
+    /** 指标名称，与每次采样的值一一对应 */
+    private final String[] names;
+    /** 单批最多的采样个数，保证不超过WebSocket单次发送上限 */
+    private final int batchSamples;
+    private final long[] timestamps = new long[CAPACITY];
+    /** 按采样顺序排列，每次采样依次为各指标的值 */
+    private final double[] values;
+    private final long[] lastGcCounts;
+    private final long[] lastGcTimes;
+    private long lastCpuTime = -1;
+    private long lastNanos;
+    /** 上次采样时{@link GcMonitor}累计的分配量和晋升量 */
+    private long lastAllocated = -1;
+    private long lastPromoted;
+    private long lastGcNanos;
+    /** 已写入的采样总数 */
+    private long written;
+    /** 已发送的采样总数 */
+    private long sent;
+    private ScheduledFuture<?> future;
+
+    TelemetryRecorder() {
+        List<String> list = new ArrayList<>();
+        list.add("heap.used");
+        list.add("heap.committed");
+        list.add("nonheap.used");
+        list.add("nonheap.committed");
+        for (MemoryPoolMXBean pool : memoryPools) {
+            list.add(metricName("pool.", pool.getName(), ".used"));
+        }
+        for (GarbageCollectorMXBean gc : garbageCollectors) {
+            list.add(metricName("gc.", gc.getName(), ".count"));
+            list.add(metricName("gc.", gc.getName(), ".time"));
+        }
+        list.add("gc.pause.max");
+        list.add("gc.alloc.rate");
+        list.add("gc.promotion.rate");
+        list.add("threads.live");
+        list.add("threads.daemon");
+        list.add("threads.peak");
+        list.add("classes.loaded");
+        list.add("classes.total");
+        list.add("classes.unloaded");
+        list.add("cpu.process");
+        list.add("cpu.load");
+        names = list.toArray(new String[0]);
+        values = new double[CAPACITY * names.length];
+        batchSamples = Math.max(1, (CoreConstant.SOCKET_MAX_SEND - RESERVED - TelemetryCodec.headerLength(names))
+                / TelemetryCodec.sampleLength(names.length));
+        lastGcCounts = new long[garbageCollectors.size()];
+        lastGcTimes = new long[garbageCollectors.size()];
+        //以启动时的累计值为基准，第一次采样即为增量
+        for (int i = 0; i < lastGcCounts.length; ++i) {
+            lastGcCounts[i] = garbageCollectors.get(i).getCollectionCount();
+            lastGcTimes[i] = garbageCollectors.get(i).getCollectionTime();
+        }
+        processCpu();
+    }
+
+    /**
+     * 启动后台采样，重复初始化时保留已有的采样并在新的线程池中继续
+     * @param executor 线程池
+     */
+    public static synchronized void init(ScheduledExecutorService executor) {
+        if (INTERVAL_MILLIS <= 0) {
+            return;
+        }
+        TelemetryRecorder recorder = active;
+        if (null == recorder) {
+            recorder = new TelemetryRecorder();
+            active = recorder;
+        } else if (null != recorder.future) {
+            recorder.future.cancel(false);
+        }
+        recorder.future = executor.scheduleAtFixedRate(recorder::run,
+                INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止后台采样
+     */
+    public static synchronized void destroy() {
+        TelemetryRecorder recorder = active;
+        if (null != recorder) {
+            active = null;
+            if (null != recorder.future) {
+                recorder.future.cancel(false);
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            sample();
+            flush();
+        } catch (Exception e) {
+            //异常不能抛出，否则后续的采样不再执行
+            logger.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 采样一次，覆盖环形缓冲中最旧的采样
+     */
+    void sample() {
+        final int row = (int) (written % CAPACITY);
+        int i = row * names.length;
+        MemoryUsage heap = memoryMXBean.getHeapMemoryUsage();
+        values[i++] = heap.getUsed();
+        values[i++] = heap.getCommitted();
+        MemoryUsage nonHeap = memoryMXBean.getNonHeapMemoryUsage();
+        values[i++] = nonHeap.getUsed();
+        values[i++] = nonHeap.getCommitted();
+        for (MemoryPoolMXBean pool : memoryPools) {
+            //内存池失效时为null
+            MemoryUsage usage = pool.getUsage();
+            values[i++] = null == usage ? Double.NaN : usage.getUsed();
+        }
+        for (int j = 0; j < lastGcCounts.length; ++j) {
+            GarbageCollectorMXBean gc = garbageCollectors.get(j);
+            final long count = gc.getCollectionCount();
+            final long time = gc.getCollectionTime();
+            values[i++] = delta(count, lastGcCounts[j]);
+            values[i++] = delta(time, lastGcTimes[j]);
+            lastGcCounts[j] = count;
+            lastGcTimes[j] = time;
+        }
+        i = sampleGcMonitor(i);
+        values[i++] = threadMXBean.getThreadCount();
+        values[i++] = threadMXBean.getDaemonThreadCount();
+        values[i++] = threadMXBean.getPeakThreadCount();
+        values[i++] = classLoadingMXBean.getLoadedClassCount();
+        values[i++] = classLoadingMXBean.getTotalLoadedClassCount();
+        values[i++] = classLoadingMXBean.getUnloadedClassCount();
+        values[i++] = processCpu();
+        final double load = osMXBean.getSystemLoadAverage();
+        values[i] = load < 0 ? Double.NaN : load;
+        timestamps[row] = System.currentTimeMillis();
+        ++written;
+    }
+
+    /**
+     * 攒够一批且在线时发送尚未发送的采样，离线或拥塞时保留到下次
+     */
+    private void flush() {
+        final boolean ready = written - sent >= FLUSH_SAMPLES && WsClientFactory.getInstance().isOnline()
+                && !ResultStreamDistributor.getInstance().isCongested();
+        if (!ready) {
+            return;
+        }
+        drain(ResultStreamDistributor.getInstance()::telemetryBatch);
+    }
+
+    /**
+     * 编码尚未发送的采样，环形缓冲回绕处拆分为两批
+     * @param sender 发送
+     */
+    void drain(Consumer<byte[]> sender) {
+        //已被覆盖的采样无法补发
+        sent = Math.max(sent, written - CAPACITY);
+        while (sent < written) {
+            final int row = (int) (sent % CAPACITY);
+            final int count = (int) Math.min(Math.min(written - sent, batchSamples), CAPACITY - row);
+            sender.accept(TelemetryCodec.encode(names, timestamps, values, row, count));
+            sent += count;
+        }
+    }
+
+    /**
+     * 采样GC通知推算的最长停顿、分配和晋升速率，分配量在回收时才能得到，因此速率随回收跳变
+     * @param offset 写入的位置
+     * @return 下一个位置
+     */
+    private int sampleGcMonitor(int offset) {
+        int i = offset;
+        GcMonitor monitor = GcMonitor.get();
+        if (null == monitor) {
+            values[i++] = Double.NaN;
+            values[i++] = Double.NaN;
+            values[i++] = Double.NaN;
+            return i;
+        }
+        final long allocated = monitor.getAllocatedBytes();
+        final long promoted = monitor.getPromotedBytes();
+        final long now = System.nanoTime();
+        final boolean first = lastAllocated < 0 || now <= lastGcNanos;
+        values[i++] = monitor.getMaxPauseThenReset();
+        values[i++] = first ? Double.NaN : (allocated - lastAllocated) * NANOS_PER_SECOND / (now - lastGcNanos);
+        values[i++] = first ? Double.NaN : (promoted - lastPromoted) * NANOS_PER_SECOND / (now - lastGcNanos);
+        lastAllocated = allocated;
+        lastPromoted = promoted;
+        lastGcNanos = now;
+        return i;
+    }
+
+    String[] getNames() {
+        return names;
+    }
+
+    @SuppressWarnings("java:S1191")
+    private double processCpu() {
+        if (!(osMXBean instanceof com.sun.management.OperatingSystemMXBean)) {
+            return Double.NaN;
+        }
+        final long cpuTime = ((com.sun.management.OperatingSystemMXBean) osMXBean).getProcessCpuTime();
+        final long now = System.nanoTime();
+        double cpu = Double.NaN;
+        if (cpuTime >= 0 && lastCpuTime >= 0 && now > lastNanos) {
+            cpu = (cpuTime - lastCpuTime) * PERCENT / (now - lastNanos) / processors;
+        }
+        lastCpuTime = cpuTime;
+        lastNanos = now;
+        return cpu;
+    }
+
+    private static double delta(long current, long last) {
+        if (current < 0 || last < 0) {
+            return Double.NaN;
+        }
+        return (double) current - last;
+    }
+
+    private static String metricName(String prefix, String name, String suffix) {
+        return prefix + name.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_") + suffix;
+    }
+}
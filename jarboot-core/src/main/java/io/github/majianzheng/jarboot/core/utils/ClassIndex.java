@@ -0,0 +1,464 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import io.github.majianzheng.jarboot.core.utils.matcher.EqualsMatcher;
+import io.github.majianzheng.jarboot.core.utils.matcher.Matcher;
+import io.github.majianzheng.jarboot.core.utils.matcher.RegexMatcher;
+import io.github.majianzheng.jarboot.core.utils.matcher.WildcardMatcher;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * 已加载类索引，供sc、sm、classloader以及增强时的类查找使用<br/>
+ * 类名有序存放，通配符和正则的字面前缀可直接定位到区间，相当于类名字典树和包索引；同时维护直接子类/实现类关系和类加载器分组。
+ * 初始化时在后台全量构建一次，之后由不参与重转换的{@link ClassFileTransformer}按类加载器记录新定义的类名，
+ * 下次查询时只遍历这些类加载器的{@link Instrumentation#getInitiatedClasses(ClassLoader)}增量补齐，不再扫描所有已加载的类。
+ * 只弱引用类，类卸载后自动移除。数组、基本类型以及不经过{@link ClassFileTransformer}的Lambda类不进入索引。
+ * @author majianzheng
+ */
+public class ClassIndex {
+    /** 待补齐的类名上限，超出后改为全量重建 */
+    private static final int MAX_PENDING = 65536;
+    private static final String LAMBDA = "$$Lambda";
+    private static final String REGEX_META = ".[]{}()*+?^$|\\";
+    private static final String REGEX_OPTIONAL = "?*{";
+    private static final char REGEX_OR = '|';
+
+    /** 当前生效的增量索引 */
+    private static volatile ClassIndex active;
+
+    /** 绑定的Instrumentation */
+    private final Instrumentation inst;
+    /** 监听类定义，为null时是一次性的快照索引 */
+    private final ClassFileTransformer transformer;
+    /** 按类加载器记录新定义待补齐的类名，值表示是否已经补齐失败过一次，null键表示BootstrapClassLoader */
+    private final Map<ClassLoader, Map<String, Boolean>> pending = new WeakHashMap<>(16);
+    private final Object pendingLock = new Object();
+    /** 待补齐的类名个数 */
+    private int pendingCount;
+    /** 待补齐的类名溢出，下次查询时全量重建 */
+    private volatile boolean overflow;
+    /** 已卸载的类 */
+    private final ReferenceQueue<Class<?>> queue = new ReferenceQueue<>();
+    /** 按类名排序，同名类可能来自不同的类加载器 */
+    private final TreeMap<String, List<ClassRef>> names = new TreeMap<>();
+    /** 直接子类和实现类 */
+    private final Map<Class<?>, List<ClassRef>> subTypes = new WeakHashMap<>(16);
+    /** 按类加载器分组 */
+    private final Map<ClassLoader, List<ClassRef>> loaders = new WeakHashMap<>(16);
+    /** BootstrapClassLoader加载的类 */
+    private final List<ClassRef> bootstrapClasses = new ArrayList<>();
+    /** 是否已经全量构建 */
+    private boolean built;
+
+    ClassIndex(Instrumentation inst, boolean incremental) {
+        this.inst = inst;
+        this.transformer = incremental ? new DefineListener() : null;
+    }
+
+    /**
+     * 启用增量索引，注册类定义监听并在后台全量构建
+     * @param inst {@link Instrumentation}
+     * @param executor 后台构建的线程池
+     */
+    public static synchronized void init(Instrumentation inst, Executor executor) {
+        final boolean initialized = null != active && active.inst == inst;
+        if (null == inst || initialized) {
+            return;
+        }
+        destroy();
+        ClassIndex index = new ClassIndex(inst, true);
+        inst.addTransformer(index.transformer, false);
+        active = index;
+        executor.execute(index::refresh);
+    }
+
+    /**
+     * 停用增量索引
+     */
+    public static synchronized void destroy() {
+        ClassIndex index = active;
+        if (null != index) {
+            active = null;
+            index.inst.removeTransformer(index.transformer);
+        }
+    }
+
+    /**
+     * 获取索引，未启用增量索引时返回一次性的快照索引
+     * @param inst {@link Instrumentation}
+     * @return 类索引
+     */
+    public static ClassIndex get(Instrumentation inst) {
+        ClassIndex index = active;
+        if (null != index && index.inst == inst) {
+            return index;
+        }
+        return new ClassIndex(inst, false);
+    }
+
+    /**
+     * 按类名搜索
+     * @param matcher 类名匹配
+     * @param limit 最大匹配数
+     * @return 匹配的类
+     */
+    public Set<Class<?>> search(Matcher<String> matcher, int limit) {
+        final Set<Class<?>> matches = new HashSet<>();
+        if (isLambdaPattern(matcher)) {
+            //Lambda类不在索引中
+            for (Class<?> clazz : inst.getAllLoadedClasses()) {
+                if (matches.size() >= limit) {
+                    break;
+                }
+                if (matcher.matching(clazz.getName())) {
+                    matches.add(clazz);
+                }
+            }
+            return matches;
+        }
+        synchronized (this) {
+            refresh();
+            Map<String, List<ClassRef>> range = names;
+            if (matcher instanceof EqualsMatcher) {
+                Object pattern = ((EqualsMatcher<?>) matcher).getPattern();
+                List<ClassRef> refs = pattern instanceof String ? names.get(pattern) : null;
+                range = null == refs ? Collections.emptyMap() : Collections.singletonMap((String) pattern, refs);
+            } else {
+                String prefix = literalPrefix(matcher);
+                if (!prefix.isEmpty()) {
+                    range = names.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+                }
+            }
+            for (Map.Entry<String, List<ClassRef>> entry : range.entrySet()) {
+                if (matches.size() >= limit) {
+                    break;
+                }
+                if (matcher.matching(entry.getKey())) {
+                    collect(entry.getValue(), matches, limit);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 搜索子类和实现类，结果包含自身
+     * @param classes 父类或接口
+     * @return 匹配的类
+     */
+    public synchronized Set<Class<?>> searchSubClass(Collection<Class<?>> classes) {
+        refresh();
+        final Set<Class<?>> matches = new HashSet<>(classes);
+        Deque<Class<?>> queue = new ArrayDeque<>(classes);
+        while (!queue.isEmpty()) {
+            List<ClassRef> refs = subTypes.get(queue.poll());
+            if (null == refs) {
+                continue;
+            }
+            for (ClassRef ref : refs) {
+                Class<?> clazz = ref.get();
+                if (null != clazz && matches.add(clazz)) {
+                    queue.add(clazz);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 按全限定类名查找
+     * @param name 类名
+     * @return 同名的类，可能来自不同的类加载器
+     */
+    public synchronized List<Class<?>> findByName(String name) {
+        refresh();
+        List<Class<?>> classes = new ArrayList<>(1);
+        collect(names.get(name), classes, Integer.MAX_VALUE);
+        return classes;
+    }
+
+    /**
+     * 获取所有加载过类的类加载器，不包括BootstrapClassLoader
+     * @return 类加载器
+     */
+    public synchronized Set<ClassLoader> getClassLoaders() {
+        refresh();
+        Set<ClassLoader> classLoaders = new HashSet<>();
+        loaders.forEach((loader, refs) -> {
+            if (!refs.isEmpty()) {
+                classLoaders.add(loader);
+            }
+        });
+        return classLoaders;
+    }
+
+    /**
+     * 获取类加载器加载的类
+     * @param loader 类加载器，null表示BootstrapClassLoader
+     * @return 类
+     */
+    public synchronized List<Class<?>> getClasses(ClassLoader loader) {
+        refresh();
+        List<ClassRef> refs = null == loader ? bootstrapClasses : loaders.get(loader);
+        List<Class<?>> classes = new ArrayList<>(null == refs ? 0 : refs.size());
+        collect(refs, classes, Integer.MAX_VALUE);
+        return classes;
+    }
+
+    /**
+     * 获取类加载器加载的类数量
+     * @param loader 类加载器，null表示BootstrapClassLoader
+     * @return 数量
+     */
+    public synchronized int getClassCount(ClassLoader loader) {
+        refresh();
+        List<ClassRef> refs = null == loader ? bootstrapClasses : loaders.get(loader);
+        return null == refs ? 0 : refs.size();
+    }
+
+    /**
+     * 索引的类数量
+     * @return 数量
+     */
+    public synchronized int size() {
+        refresh();
+        int size = 0;
+        for (List<ClassRef> refs : names.values()) {
+            size += refs.size();
+        }
+        return size;
+    }
+
+    /**
+     * 类定义时记录类名，不修改字节码
+     * @param loader 定义类的类加载器，null表示BootstrapClassLoader
+     * @param className 内部类名
+     */
+    void onDefine(ClassLoader loader, String className) {
+        if (overflow) {
+            return;
+        }
+        synchronized (pendingLock) {
+            if (pendingCount >= MAX_PENDING) {
+                overflow = true;
+                pending.clear();
+                pendingCount = 0;
+                return;
+            }
+            addPending(loader, className.replace('/', '.'), Boolean.FALSE);
+        }
+    }
+
+    /**
+     * 移除已卸载的类，首次调用时全量构建，之后补齐新定义的类
+     */
+    synchronized void refresh() {
+        purge();
+        if (!built || overflow) {
+            rebuild();
+            return;
+        }
+        Map<ClassLoader, Map<String, Boolean>> defined;
+        synchronized (pendingLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            defined = new HashMap<>(pending);
+            pending.clear();
+            pendingCount = 0;
+        }
+        defined.forEach((loader, classNames) -> {
+            for (Class<?> clazz : inst.getInitiatedClasses(loader)) {
+                //初始类加载器也包含委派加载的类，只补齐由其定义的类
+                final boolean defines = clazz.getClassLoader() == loader && null != classNames.remove(clazz.getName());
+                if (defines) {
+                    add(clazz);
+                }
+            }
+            //查询可能发生在类定义完成之前，未找到的类名再保留一次
+            synchronized (pendingLock) {
+                classNames.forEach((name, retried) -> {
+                    if (!Boolean.TRUE.equals(retried)) {
+                        addPending(loader, name, Boolean.TRUE);
+                    }
+                });
+            }
+        });
+    }
+
+    private void addPending(ClassLoader loader, String name, Boolean retried) {
+        Map<String, Boolean> classNames = pending.get(loader);
+        if (null == classNames) {
+            classNames = new HashMap<>(16);
+            pending.put(loader, classNames);
+        }
+        if (null == classNames.putIfAbsent(name, retried)) {
+            ++pendingCount;
+        }
+    }
+
+    /**
+     * 提取类名匹配的字面前缀，所有匹配的类名都以该前缀开头
+     * @param matcher 类名匹配
+     * @return 前缀，无法确定时为空字符串
+     */
+    static String literalPrefix(Matcher<String> matcher) {
+        StringBuilder sb = new StringBuilder();
+        if (matcher instanceof WildcardMatcher) {
+            String pattern = ((WildcardMatcher) matcher).getPattern();
+            for (int i = 0; null != pattern && i < pattern.length(); ++i) {
+                char c = pattern.charAt(i);
+                if ('*' == c || '?' == c) {
+                    break;
+                }
+                if ('\\' == c) {
+                    if (++i >= pattern.length()) {
+                        break;
+                    }
+                    c = pattern.charAt(i);
+                }
+                sb.append(c);
+            }
+        } else if (matcher instanceof RegexMatcher) {
+            String pattern = ((RegexMatcher) matcher).getPattern();
+            if (null == pattern || pattern.indexOf(REGEX_OR) >= 0) {
+                return sb.toString();
+            }
+            int i = 0;
+            for (; i < pattern.length(); ++i) {
+                char c = pattern.charAt(i);
+                final boolean escaped = '\\' == c && i + 1 < pattern.length()
+                        && !Character.isLetterOrDigit(pattern.charAt(i + 1));
+                if (escaped) {
+                    c = pattern.charAt(++i);
+                } else if (REGEX_META.indexOf(c) >= 0) {
+                    break;
+                }
+                sb.append(c);
+            }
+            //前缀最后一个字符可能是可选的
+            final boolean optional = i < pattern.length() && REGEX_OPTIONAL.indexOf(pattern.charAt(i)) >= 0;
+            if (optional && sb.length() > 0) {
+                sb.setLength(sb.length() - 1);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isLambdaPattern(Matcher<String> matcher) {
+        String pattern = null;
+        if (matcher instanceof WildcardMatcher) {
+            pattern = ((WildcardMatcher) matcher).getPattern();
+        } else if (matcher instanceof RegexMatcher) {
+            pattern = ((RegexMatcher) matcher).getPattern();
+        }
+        return null != pattern && pattern.contains(LAMBDA);
+    }
+
+    private static void collect(List<ClassRef> refs, Collection<Class<?>> classes, int limit) {
+        if (null == refs) {
+            return;
+        }
+        for (ClassRef ref : refs) {
+            if (classes.size() >= limit) {
+                break;
+            }
+            Class<?> clazz = ref.get();
+            if (null != clazz) {
+                classes.add(clazz);
+            }
+        }
+    }
+
+    private void rebuild() {
+        names.clear();
+        subTypes.clear();
+        loaders.clear();
+        bootstrapClasses.clear();
+        while (null != queue.poll()) {
+            //旧的引用已不在索引中
+        }
+        overflow = false;
+        built = true;
+        for (Class<?> clazz : inst.getAllLoadedClasses()) {
+            add(clazz);
+        }
+    }
+
+    private void add(Class<?> clazz) {
+        final boolean ignore = clazz.isArray() || clazz.isPrimitive() || ClassUtils.isLambdaClass(clazz);
+        if (ignore) {
+            return;
+        }
+        List<ClassRef> refs = names.computeIfAbsent(clazz.getName(), k -> new ArrayList<>(1));
+        for (ClassRef ref : refs) {
+            if (ref.get() == clazz) {
+                return;
+            }
+        }
+        ClassRef ref = new ClassRef(clazz, queue);
+        ref.attach(refs);
+        Class<?> superClass = clazz.getSuperclass();
+        if (null != superClass) {
+            ref.attach(subTypes.computeIfAbsent(superClass, k -> new ArrayList<>(2)));
+        }
+        for (Class<?> face : clazz.getInterfaces()) {
+            ref.attach(subTypes.computeIfAbsent(face, k -> new ArrayList<>(2)));
+        }
+        ClassLoader loader = clazz.getClassLoader();
+        ref.attach(null == loader ? bootstrapClasses : loaders.computeIfAbsent(loader, k -> new ArrayList<>()));
+    }
+
+    private void purge() {
+        Reference<? extends Class<?>> reference;
+        while (null != (reference = queue.poll())) {
+            ClassRef ref = (ClassRef) reference;
+            for (List<ClassRef> owner : ref.owners) {
+                owner.remove(ref);
+            }
+            List<ClassRef> refs = names.get(ref.name);
+            if (null != refs && refs.isEmpty()) {
+                names.remove(ref.name);
+            }
+        }
+    }
+
+    /**
+     * 类的弱引用，记录所在的列表以便卸载后移除
+     */
+    private static class ClassRef extends WeakReference<Class<?>> {
+        private final String name;
+        private final List<List<ClassRef>> owners = new ArrayList<>(4);
+
+        ClassRef(Class<?> clazz, ReferenceQueue<Class<?>> queue) {
+            super(clazz, queue);
+            this.name = clazz.getName();
+        }
+
+        void attach(List<ClassRef> owner) {
+            owner.add(this);
+            owners.add(owner);
+        }
+    }
+
+    /**
+     * 只记录新定义的类，重转换时不会被调用
+     */
+    private class DefineListener implements ClassFileTransformer {
+        @Override
+        public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                                ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+            if (null == classBeingRedefined && null != className) {
+                onDefine(loader, className);
+            }
+            return null;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package io.github.majianzheng.jarboot.core.utils;
 
 import java.lang.instrument.Instrumentation;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -14,15 +13,7 @@ import java.util.Set;
 public class ClassLoaderUtils {
 
     public static Set<ClassLoader> getAllClassLoader(Instrumentation inst) {
-        Set<ClassLoader> classLoaderSet = new HashSet<>();
-
-        for (Class<?> clazz : inst.getAllLoadedClasses()) {
-            ClassLoader classLoader = clazz.getClassLoader();
-            if (classLoader != null) {
-                classLoaderSet.add(classLoader);
-            }
-        }
-        return classLoaderSet;
+        return ClassIndex.get(inst).getClassLoaders();
     }
 
     public static ClassLoader getClassLoader(Instrumentation inst, String hashCode) {
@@ -30,10 +21,8 @@ public class ClassLoaderUtils {
             return null;
         }
 
-        for (Class<?> clazz : inst.getAllLoadedClasses()) {
-            ClassLoader classLoader = clazz.getClassLoader();
-            if (classLoader != null &&
-                    Integer.toHexString(classLoader.hashCode()).equals(hashCode)) {
+        for (ClassLoader classLoader : getAllClassLoader(inst)) {
+            if (Integer.toHexString(classLoader.hashCode()).equals(hashCode)) {
                 return classLoader;
             }
         }
@@ -0,0 +1,200 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import io.github.majianzheng.jarboot.common.Pair;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 反编译结果缓存<br/>
+ * 反编译结果以类加载器、类名、字节码摘要和反编译选项为key，按LRU淘汰；
+ * 同时记录每个类最近一次dump的字节码摘要，类被增强、重置或重定义后失效，未失效时jad不必再次重转换。
+ * @author majianzheng
+ */
+public class DecompileCache {
+    /** 默认最多缓存的反编译结果数 */
+    static final int DEFAULT_MAX_ENTRIES = 256;
+    /** 默认最多缓存的源码字符数 */
+    static final long DEFAULT_MAX_CHARS = 8L * 1024 * 1024;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /** 字节码变化序号 */
+    private long modCount;
+    /** 类字节码最后一次变化时的序号 */
+    private final Map<Class<?>, Long> stamps = new WeakHashMap<>(16);
+    /** 最近一次dump的字节码摘要 */
+    private final Map<Class<?>, Version> versions = new WeakHashMap<>(16);
+    /** 反编译结果 */
+    private final LinkedHashMap<String, Pair<String, NavigableMap<Integer, Integer>>> results =
+            new LinkedHashMap<>(16, LOAD_FACTOR, true);
+    private final int maxEntries;
+    private final long maxChars;
+    private long chars;
+
+    DecompileCache(int maxEntries, long maxChars) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+    }
+
+    public static DecompileCache getInstance() {
+        return DecompileCacheHolder.INST;
+    }
+
+    /** instance holder */
+    private static class DecompileCacheHolder {
+        static final DecompileCache INST = new DecompileCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_CHARS);
+    }
+
+    /**
+     * 计算一组类字节码的摘要
+     * @param classBytes 类名和字节码
+     * @return 摘要
+     */
+    public static String digest(SortedMap<String, byte[]> classBytes) {
+        try {
+            MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            classBytes.forEach((name, bytes) -> {
+                md.update(name.getBytes(StandardCharsets.UTF_8));
+                md.update(bytes);
+            });
+            return Base64.getEncoder().encodeToString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 生成反编译结果的key
+     * @param clazz 类
+     * @param digest 字节码摘要
+     * @param options 反编译选项
+     * @return key
+     */
+    public static String key(Class<?> clazz, String digest, String options) {
+        return ClassLoaderUtils.classLoaderHash(clazz.getClassLoader()) + '|' + clazz.getName() + '|' + digest
+                + '|' + options;
+    }
+
+    /**
+     * 类的字节码发生变化，由增强、重置或重定义触发
+     * @param clazz 类
+     */
+    public synchronized void invalidate(Class<?> clazz) {
+        stamps.put(clazz, ++modCount);
+    }
+
+    /**
+     * 获取类字节码最后一次变化的序号，用于判断dump之后是否又发生了变化
+     * @param clazz 类
+     * @return 序号
+     */
+    public synchronized long stamp(Class<?> clazz) {
+        return stamps.getOrDefault(clazz, 0L);
+    }
+
+    /**
+     * 获取一组类字节码最后一次变化的序号，应在dump的重转换返回后获取
+     * @param classes 类
+     * @return 各个类的序号
+     */
+    public synchronized Map<Class<?>, Long> stamps(Collection<Class<?>> classes) {
+        Map<Class<?>, Long> result = new HashMap<>(classes.size());
+        for (Class<?> clazz : classes) {
+            result.put(clazz, stamps.getOrDefault(clazz, 0L));
+        }
+        return result;
+    }
+
+    /**
+     * 记录dump的字节码摘要，dump之后任何一个类又发生变化时不记录
+     * @param clazz 反编译的类
+     * @param digest 字节码摘要
+     * @param dumpStamps dump后各个类（包括内部类）的序号
+     */
+    public synchronized void putDigest(Class<?> clazz, String digest, Map<Class<?>, Long> dumpStamps) {
+        Version version = new Version(digest, dumpStamps);
+        if (isValid(version)) {
+            versions.put(clazz, version);
+        } else {
+            versions.remove(clazz);
+        }
+    }
+
+    /**
+     * 获取未失效的字节码摘要
+     * @param clazz 类
+     * @return 摘要，已失效或未dump过时为null
+     */
+    public synchronized String getDigest(Class<?> clazz) {
+        Version version = versions.get(clazz);
+        if (null == version) {
+            return null;
+        }
+        if (isValid(version)) {
+            return version.digest;
+        }
+        versions.remove(clazz);
+        return null;
+    }
+
+    public synchronized Pair<String, NavigableMap<Integer, Integer>> get(String key) {
+        return results.get(key);
+    }
+
+    public synchronized void put(String key, Pair<String, NavigableMap<Integer, Integer>> result) {
+        Pair<String, NavigableMap<Integer, Integer>> old = results.put(key, result);
+        if (null != old) {
+            chars -= old.getFirst().length();
+        }
+        chars += result.getFirst().length();
+        Iterator<Pair<String, NavigableMap<Integer, Integer>>> iterator = results.values().iterator();
+        while (results.size() > 1 && (results.size() > maxEntries || chars > maxChars)) {
+            chars -= iterator.next().getFirst().length();
+            iterator.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized void clear() {
+        results.clear();
+        versions.clear();
+        chars = 0;
+    }
+
+    private boolean isValid(Version version) {
+        for (int i = 0; i < version.classes.size(); ++i) {
+            Class<?> clazz = version.classes.get(i).get();
+            if (null == clazz || stamps.getOrDefault(clazz, 0L) != version.stamps[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * dump时的字节码摘要，弱引用包括内部类在内的所有类，避免阻止类卸载
+     */
+    private static class Version {
+        private final String digest;
+        private final List<WeakReference<Class<?>>> classes;
+        private final long[] stamps;
+
+        Version(String digest, Map<Class<?>, Long> dumpStamps) {
+            this.digest = digest;
+            this.classes = new ArrayList<>(dumpStamps.size());
+            this.stamps = new long[dumpStamps.size()];
+            int i = 0;
+            for (Map.Entry<Class<?>, Long> entry : dumpStamps.entrySet()) {
+                classes.add(new WeakReference<>(entry.getKey()));
+                stamps[i++] = entry.getValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import io.github.majianzheng.jarboot.core.cmd.model.GcEventVO;
+import io.github.majianzheng.jarboot.core.cmd.model.GcSummaryVO;
+import org.slf4j.Logger;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GC监控，订阅垃圾回收器的JMX通知，记录每次回收的耗时、原因和各内存池回收前后的用量。
+ * 按回收器统计无锁的耗时直方图，在定长的环形数组中保留最近的回收，
+ * 用上次回收后与本次回收前的堆用量之差推算两次回收之间的分配量，用老年代的增长推算晋升量。
+ * 并发回收器（如ZGC Cycles）报告的耗时为整个回收周期而非停顿时间。
+ * @author majianzheng
+ */
+@SuppressWarnings("java:S1191")
+public class GcMonitor implements NotificationListener {
+    private static final Logger logger = LogUtils.getLogger();
+    /** 保留的回收记录个数 */
+    private static final int MAX_EVENTS = 256;
+    private static final String OLD_GEN = "Old";
+    private static final String TENURED_GEN = "Tenured";
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static volatile GcMonitor active;
+
+    /** 堆内存池名称 */
+    private final Set<String> heapPools;
+    /** JVM启动时间，回收的开始时间相对于该时间 */
+    private final long jvmStartTime;
+    private final long since = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, Collector> collectors = new ConcurrentHashMap<>(8);
+    private final AtomicReferenceArray<GcEventVO> events = new AtomicReferenceArray<>(MAX_EVENTS);
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder promoted = new LongAdder();
+    private final LongAccumulator maxPause = new LongAccumulator(Math::max, 0);
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    /** 上次回收后的堆用量，尚未回收时为-1 */
+    private long lastHeapAfter = -1;
+    private long lastEndTime;
+
+    GcMonitor(Set<String> heapPools, long jvmStartTime) {
+        this.heapPools = heapPools;
+        this.jvmStartTime = jvmStartTime;
+    }
+
+    /**
+     * 订阅垃圾回收通知
+     */
+    public static synchronized void init() {
+        if (null != active) {
+            return;
+        }
+        Set<String> heapPools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (MemoryType.HEAP.equals(pool.getType())) {
+                heapPools.add(pool.getName());
+            }
+        }
+        GcMonitor monitor = new GcMonitor(heapPools, ManagementFactory.getRuntimeMXBean().getStartTime());
+        try {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter) {
+                    NotificationEmitter emitter = (NotificationEmitter) gc;
+                    emitter.addNotificationListener(monitor, null, null);
+                    monitor.emitters.add(emitter);
+                }
+            }
+        } catch (Exception | LinkageError e) {
+            //不支持垃圾回收通知的JVM
+            logger.warn("gc monitor is not supported: {}", e.getMessage());
+            monitor.unsubscribe();
+            return;
+        }
+        active = monitor;
+    }
+
+    /**
+     * 取消订阅
+     */
+    public static synchronized void destroy() {
+        GcMonitor monitor = active;
+        if (null != monitor) {
+            active = null;
+            monitor.unsubscribe();
+        }
+    }
+
+    /**
+     * 获取GC监控
+     * @return 未启用时为null
+     */
+    public static GcMonitor get() {
+        return active;
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        try {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                    .from((CompositeData) notification.getUserData());
+            GcInfo gcInfo = info.getGcInfo();
+            record(info.getGcName(), info.getGcAction(), info.getGcCause(), gcInfo.getStartTime(),
+                    gcInfo.getEndTime(), gcInfo.getMemoryUsageBeforeGc(), gcInfo.getMemoryUsageAfterGc());
+        } catch (Exception e) {
+            logger.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 记录一次回收
+     * @param name 回收器
+     * @param action 动作，如end of minor GC
+     * @param cause 原因
+     * @param startTime 开始时间，相对JVM启动的毫秒数
+     * @param endTime 结束时间，相对JVM启动的毫秒数
+     * @param before 回收前各内存池的用量
+     * @param after 回收后各内存池的用量
+     */
+    void record(String name, String action, String cause, long startTime, long endTime,
+                Map<String, MemoryUsage> before, Map<String, MemoryUsage> after) {
+        long heapBefore = 0;
+        long heapAfter = 0;
+        long promotedBytes = 0;
+        List<GcEventVO.PoolUsage> pools = new ArrayList<>(after.size());
+        for (Map.Entry<String, MemoryUsage> entry : after.entrySet()) {
+            final String pool = entry.getKey();
+            MemoryUsage usage = before.get(pool);
+            final long used = null == usage ? 0 : usage.getUsed();
+            final long usedAfter = entry.getValue().getUsed();
+            pools.add(new GcEventVO.PoolUsage(pool, used, usedAfter));
+            if (heapPools.contains(pool)) {
+                heapBefore += used;
+                heapAfter += usedAfter;
+                if (isOldGen(pool)) {
+                    promotedBytes += Math.max(0, usedAfter - used);
+                }
+            }
+        }
+        long allocatedBytes = 0;
+        long interval = 0;
+        synchronized (this) {
+            if (lastHeapAfter >= 0) {
+                //并发回收期间也在分配，差值可能为负
+                allocatedBytes = Math.max(0, heapBefore - lastHeapAfter);
+                interval = startTime - lastEndTime;
+            }
+            lastHeapAfter = heapAfter;
+            lastEndTime = endTime;
+        }
+        final long duration = endTime - startTime;
+        GcEventVO event = new GcEventVO();
+        event.setName(name);
+        event.setAction(action);
+        event.setCause(cause);
+        event.setStartTime(jvmStartTime + startTime);
+        event.setDuration(duration);
+        event.setHeapBefore(heapBefore);
+        event.setHeapAfter(heapAfter);
+        event.setAllocated(allocatedBytes);
+        event.setAllocRate(rate(allocatedBytes, interval));
+        event.setPromoted(promotedBytes);
+        event.setPromotionRate(rate(promotedBytes, interval));
+        event.setPools(Collections.unmodifiableList(pools));
+
+        collectors.computeIfAbsent(name, k -> new Collector()).record(duration);
+        allocated.add(allocatedBytes);
+        promoted.add(promotedBytes);
+        maxPause.accumulate(duration);
+        final long id = sequence.incrementAndGet();
+        event.setId(id);
+        events.set((int) (id % MAX_EVENTS), event);
+    }
+
+    /**
+     * 最近的回收，最新的在前
+     * @param limit 个数
+     * @return 回收记录
+     */
+    public List<GcEventVO> recent(int limit) {
+        final long last = sequence.get();
+        final long first = Math.max(0, last - Math.min(limit, MAX_EVENTS));
+        List<GcEventVO> result = new ArrayList<>((int) (last - first));
+        for (long id = last; id > first; --id) {
+            GcEventVO event = events.get((int) (id % MAX_EVENTS));
+            //写入中或已被覆盖的位置跳过
+            if (null != event && event.getId() == id) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 各回收器的统计
+     * @return 统计
+     */
+    public List<GcSummaryVO> summaries() {
+        List<GcSummaryVO> result = new ArrayList<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            GcSummaryVO vo = new GcSummaryVO();
+            vo.setName(gc.getName());
+            vo.setCollectionCount(gc.getCollectionCount());
+            vo.setCollectionTime(gc.getCollectionTime());
+            Collector collector = collectors.get(gc.getName());
+            if (null != collector) {
+                LatencyHistogram.Snapshot snapshot = collector.histogram.snapshot();
+                final long total = collector.totalTime.sum();
+                vo.setCount(snapshot.getTotal());
+                vo.setTotalTime(total);
+                vo.setAvg(0 == snapshot.getTotal() ? 0 : (double) total / snapshot.getTotal());
+                vo.setP50(snapshot.percentile(0.5));
+                vo.setP90(snapshot.percentile(0.9));
+                vo.setP99(snapshot.percentile(0.99));
+                vo.setP999(snapshot.percentile(0.999));
+                vo.setMax(snapshot.getMax());
+            }
+            result.add(vo);
+        }
+        return result;
+    }
+
+    /**
+     * 监控开始的时间
+     * @return 毫秒时间戳
+     */
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * 监控开始后累计的分配量
+     * @return 字节
+     */
+    public long getAllocatedBytes() {
+        return allocated.sum();
+    }
+
+    /**
+     * 监控开始后累计的晋升量
+     * @return 字节
+     */
+    public long getPromotedBytes() {
+        return promoted.sum();
+    }
+
+    /**
+     * 上次调用后最长的一次回收耗时
+     * @return 毫秒
+     */
+    public long getMaxPauseThenReset() {
+        return maxPause.getThenReset();
+    }
+
+    private void unsubscribe() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                //ignore
+            }
+        }
+        emitters.clear();
+    }
+
+    private static boolean isOldGen(String pool) {
+        return pool.contains(OLD_GEN) || pool.contains(TENURED_GEN);
+    }
+
+    private static long rate(long bytes, long intervalMillis) {
+        return intervalMillis <= 0 ? 0 : bytes * MILLIS_PER_SECOND / intervalMillis;
+    }
+
+    /**
+     * 单个回收器的耗时统计
+     */
+    private static class Collector {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder totalTime = new LongAdder();
+
+        void record(long duration) {
+            histogram.record(duration);
+            totalTime.add(duration);
+        }
+    }
+}
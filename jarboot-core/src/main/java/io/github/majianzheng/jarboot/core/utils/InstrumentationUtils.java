@@ -40,8 +40,9 @@ public class InstrumentationUtils {
     }
 
     public static void trigerRetransformClasses(Instrumentation inst, Collection<String> classes) {
-        for (Class<?> clazz : inst.getAllLoadedClasses()) {
-            if (classes.contains(clazz.getName())) {
+        ClassIndex index = ClassIndex.get(inst);
+        for (String name : classes) {
+            for (Class<?> clazz : index.findByName(name)) {
                 try {
                     inst.retransformClasses(clazz);
                 } catch (Throwable e) {
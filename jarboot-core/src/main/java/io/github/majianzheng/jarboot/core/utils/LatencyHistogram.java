@@ -0,0 +1,129 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数分桶耗时直方图，每个2的幂区间再分为8个子桶，相对误差不超过12.5%。
+ * 桶在首次命中时创建，记录一次只有一次数组读取和LongAdder累加。
+ * @author majianzheng
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /** 覆盖全部非负long */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一个值
+     * @param value 值，负数按0处理
+     */
+    public void record(long value) {
+        final long v = Math.max(0, value);
+        final int index = index(v);
+        LongAdder bucket = buckets.get(index);
+        if (null == bucket) {
+            buckets.compareAndSet(index, null, new LongAdder());
+            bucket = buckets.get(index);
+        }
+        bucket.increment();
+        max.accumulate(v);
+    }
+
+    /**
+     * 取出当前的统计并清零
+     * @return 快照
+     */
+    public Snapshot snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    /**
+     * 当前的累计统计，不清零
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        return snapshot(false);
+    }
+
+    private Snapshot snapshot(boolean reset) {
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            LongAdder bucket = buckets.get(i);
+            if (null != bucket) {
+                counts[i] = reset ? bucket.sumThenReset() : bucket.sum();
+                total += counts[i];
+            }
+        }
+        return new Snapshot(counts, total, reset ? max.getThenReset() : max.get());
+    }
+
+    static int index(long v) {
+        if (v < SUB_COUNT) {
+            return (int) v;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        final int sub = (int) (v >>> shift) & (SUB_COUNT - 1);
+        return (shift + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * 桶的上界（包含）
+     */
+    static long upperBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_COUNT - 1;
+        final long sub = SUB_COUNT + (long) (index % SUB_COUNT);
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * 直方图快照
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long total, long max) {
+            this.counts = counts;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 百分位值，取所在桶的上界且不超过最大值
+         * @param percentile 百分位，0~1
+         * @return 值
+         */
+        public long percentile(double percentile) {
+            if (0 == total) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(percentile * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
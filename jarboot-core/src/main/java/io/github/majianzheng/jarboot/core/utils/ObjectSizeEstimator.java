@@ -0,0 +1,181 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import io.github.majianzheng.jarboot.core.basic.EnvironmentContext;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 估算对象图占用的内存，最多遍历有限个对象，结果用于容量控制而非精确统计。
+ * 有Instrumentation时使用其浅层大小，否则按对象头和字段数粗略估算。
+ * @author majianzheng
+ */
+public class ObjectSizeEstimator {
+    /** 默认最多遍历的对象数 */
+    public static final int DEFAULT_MAX_OBJECTS = 1024;
+    private static final long OBJECT_HEADER = 16;
+    private static final long REFERENCE_SIZE = Long.BYTES;
+    private static final long ALIGNMENT = Long.BYTES;
+    private static final Field[] EMPTY_FIELDS = new Field[0];
+    private static final ClassValue<Field[]> REFERENCE_FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            return referenceFields(type);
+        }
+    };
+
+    /**
+     * 估算对象图大小
+     * @param root 根对象
+     * @return 字节数
+     */
+    public static long estimate(Object root) {
+        return estimate(root, DEFAULT_MAX_OBJECTS);
+    }
+
+    /**
+     * 估算对象图大小
+     * @param root 根对象
+     * @param maxObjects 最多遍历的对象数
+     * @return 字节数
+     */
+    public static long estimate(Object root, int maxObjects) {
+        if (null == root) {
+            return 0;
+        }
+        final Instrumentation inst = EnvironmentContext.getInstrumentation();
+        final Map<Object, Boolean> visited = new IdentityHashMap<>(64);
+        final ArrayDeque<Object> stack = new ArrayDeque<>();
+        stack.push(root);
+        long size = 0;
+        int count = 0;
+        while (!stack.isEmpty() && count < maxObjects) {
+            Object obj = stack.pop();
+            if (null != visited.put(obj, Boolean.TRUE)) {
+                continue;
+            }
+            ++count;
+            size += shallowSize(inst, obj);
+            Class<?> type = obj.getClass();
+            if (type.isArray()) {
+                if (!type.getComponentType().isPrimitive()) {
+                    pushArray(stack, obj);
+                }
+            } else if (String.class != type) {
+                pushFields(stack, obj, REFERENCE_FIELDS.get(type));
+            }
+        }
+        return size;
+    }
+
+    private static long shallowSize(Instrumentation inst, Object obj) {
+        long size;
+        if (null == inst) {
+            size = estimateShallowSize(obj);
+        } else {
+            size = inst.getObjectSize(obj);
+        }
+        if (obj instanceof String) {
+            //高版本JDK中String的value字段不可反射访问，直接按字符数累加
+            size += OBJECT_HEADER + (long) ((String) obj).length() * Character.BYTES;
+        }
+        return size;
+    }
+
+    private static long estimateShallowSize(Object obj) {
+        Class<?> type = obj.getClass();
+        long size = OBJECT_HEADER;
+        if (type.isArray()) {
+            Class<?> component = type.getComponentType();
+            size += Array.getLength(obj) * elementSize(component);
+        } else {
+            for (Class<?> c = type; null != c; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += elementSize(field.getType());
+                    }
+                }
+            }
+        }
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static long elementSize(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return REFERENCE_SIZE;
+        }
+        if (long.class == type || double.class == type) {
+            return Long.BYTES;
+        }
+        if (int.class == type || float.class == type) {
+            return Integer.BYTES;
+        }
+        if (short.class == type || char.class == type) {
+            return Short.BYTES;
+        }
+        return Byte.BYTES;
+    }
+
+    private static void pushArray(ArrayDeque<Object> stack, Object array) {
+        for (Object element : (Object[]) array) {
+            if (isTraversable(element)) {
+                stack.push(element);
+            }
+        }
+    }
+
+    private static void pushFields(ArrayDeque<Object> stack, Object obj, Field[] fields) {
+        for (Field field : fields) {
+            try {
+                Object value = field.get(obj);
+                if (isTraversable(value)) {
+                    stack.push(value);
+                }
+            } catch (IllegalAccessException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * 类、类加载器和线程属于全局共享对象，不计入
+     * @param obj 对象
+     * @return 是否继续遍历
+     */
+    private static boolean isTraversable(Object obj) {
+        return null != obj && !(obj instanceof Class) && !(obj instanceof ClassLoader) && !(obj instanceof Thread);
+    }
+
+    private static Field[] referenceFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; null != c; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                final boolean reference = !Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive();
+                if (reference && trySetAccessible(field)) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields.isEmpty() ? EMPTY_FIELDS : fields.toArray(EMPTY_FIELDS);
+    }
+
+    @SuppressWarnings("java:S3011")
+    private static boolean trySetAccessible(Field field) {
+        try {
+            field.setAccessible(true);
+            return true;
+        } catch (RuntimeException e) {
+            //高版本JDK未开放的模块
+            return false;
+        }
+    }
+
+    private ObjectSizeEstimator() {}
+}
@@ -31,16 +31,7 @@ public class SearchUtils {
         if (classNameMatcher == null) {
             return Collections.emptySet();
         }
-        final Set<Class<?>> matches = new HashSet<>();
-        for (Class<?> clazz : inst.getAllLoadedClasses()) {
-            if (classNameMatcher.matching(clazz.getName())) {
-                matches.add(clazz);
-            }
-            if (matches.size() >= limit) {
-                break;
-            }
-        }
-        return matches;
+        return ClassIndex.get(inst).search(classNameMatcher, limit);
     }
 
     public static Set<Class<?>> searchClass(Instrumentation inst, Matcher<String> classNameMatcher) {
@@ -108,16 +99,7 @@ public class SearchUtils {
      * @return 匹配的子类集合
      */
     public static Set<Class<?>> searchSubClass(Instrumentation inst, Set<Class<?>> classSet) {
-        final Set<Class<?>> matches = new HashSet<>();
-        for (Class<?> clazz : inst.getAllLoadedClasses()) {
-            for (Class<?> superClass : classSet) {
-                if (superClass.isAssignableFrom(clazz)) {
-                    matches.add(clazz);
-                    break;
-                }
-            }
-        }
-        return matches;
+        return ClassIndex.get(inst).searchSubClass(classSet);
     }
 
 
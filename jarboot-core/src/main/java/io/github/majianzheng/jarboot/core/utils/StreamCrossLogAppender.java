@@ -1,13 +1,14 @@
 package io.github.majianzheng.jarboot.core.utils;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import ch.qos.logback.core.encoder.Encoder;
 import ch.qos.logback.core.spi.DeferredProcessingAware;
+import io.github.majianzheng.jarboot.common.protocol.LogRecordCodec;
 import io.github.majianzheng.jarboot.core.basic.WsClientFactory;
 import io.github.majianzheng.jarboot.core.stream.ResultStreamDistributor;
 
-import java.nio.charset.StandardCharsets;
-
 
 /**
  * 自定义日志Appender，集中管控，统一记录
@@ -38,10 +39,29 @@ public class StreamCrossLogAppender<E> extends UnsynchronizedAppenderBase<E> {
         }
         byte[] byteArray = this.encoder.encode(event);
         if (WsClientFactory.getInstance().isOnline()) {
-            String msg = new String(byteArray, StandardCharsets.UTF_8);
-            ResultStreamDistributor.getInstance().log(msg);
+            if (event instanceof ILoggingEvent) {
+                ILoggingEvent e = (ILoggingEvent) event;
+                ResultStreamDistributor.getInstance().log(e.getTimeStamp(), toLevel(e.getLevel()), byteArray);
+            } else {
+                ResultStreamDistributor.getInstance().log(System.currentTimeMillis(), LogRecordCodec.INFO, byteArray);
+            }
         } else {
             LogUtils.writeLocalLog(byteArray);
         }
     }
+
+    private static byte toLevel(Level level) {
+        switch (level.toInt()) {
+            case Level.ERROR_INT:
+                return LogRecordCodec.ERROR;
+            case Level.WARN_INT:
+                return LogRecordCodec.WARN;
+            case Level.DEBUG_INT:
+                return LogRecordCodec.DEBUG;
+            case Level.TRACE_INT:
+                return LogRecordCodec.TRACE;
+            default:
+                return LogRecordCodec.INFO;
+        }
+    }
 }
@@ -7,6 +7,8 @@ package io.github.majianzheng.jarboot.core.utils;
  * 以下代码来自开源项目Arthas
  */
 public class ThreadLocalWatch {
+    /** 未采样调用的占位 */
+    private static final long UNSAMPLED = Long.MIN_VALUE;
 
     @SuppressWarnings({"squid:S5164", "squid:S4065"})
     private final ThreadLocal<LongStack> timestampRef = new ThreadLocal<LongStack>() {
@@ -22,6 +24,21 @@ public class ThreadLocalWatch {
         return timestamp;
     }
 
+    /**
+     * 记录一次未采样的调用，退出时仍需出栈
+     */
+    public void skip() {
+        timestampRef.get().push(UNSAMPLED);
+    }
+
+    /**
+     * 当前调用是否被采样，不出栈
+     * @return 是否采样
+     */
+    public boolean isSampled() {
+        return UNSAMPLED != timestampRef.get().peek();
+    }
+
     public long cost() {
         return (System.nanoTime() - timestampRef.get().pop());
     }
@@ -67,6 +84,10 @@ public class ThreadLocalWatch {
             }
         }
 
+        public long peek() {
+            return pos > 0 ? array[pos - 1] : array[cap - 1];
+        }
+
         public long pop() {
             if (pos > 0) {
                 pos--;
@@ -1,5 +1,6 @@
 package io.github.majianzheng.jarboot.core.utils.affect;
 
+import io.github.majianzheng.jarboot.core.advisor.AdviceSampler;
 import io.github.majianzheng.jarboot.core.GlobalOptions;
 import io.github.majianzheng.jarboot.core.utils.ClassLoaderUtils;
 
@@ -23,6 +24,10 @@ public final class EnhancerAffect extends Affect {
     private final AtomicInteger mCnt = new AtomicInteger();
     private ClassFileTransformer transformer;
     private long listenerId;
+    /** 采样率，1为全部采集 */
+    private double sampleRate = AdviceSampler.FULL_RATE;
+    /** 每秒最多采集的次数，0为不限制 */
+    private int maxPerSecond;
 
     private Throwable throwable;
 
@@ -100,6 +105,22 @@ public final class EnhancerAffect extends Affect {
         this.listenerId = listenerId;
     }
 
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
     public Throwable getThrowable() {
         return throwable;
     }
@@ -137,6 +158,10 @@ public final class EnhancerAffect extends Affect {
                 mCnt(),
                 cost(),
                 listenerId));
+        if (sampleRate < AdviceSampler.FULL_RATE || maxPerSecond > 0) {
+            infoSB.append(format(", sample-rate: %s, max-per-second: %s", sampleRate,
+                    maxPerSecond > 0 ? String.valueOf(maxPerSecond) : "unlimited"));
+        }
         if (this.throwable != null) {
             infoSB.append("\nEnhance error! exception: ").append(this.throwable);
         }
@@ -19,4 +19,8 @@ public class EqualsMatcher<T> implements Matcher<T> {
     public boolean matching(T target) {
         return JarbootCheckUtils.isEquals(target, pattern);
     }
+
+    public T getPattern() {
+        return pattern;
+    }
 }
@@ -19,4 +19,8 @@ public class RegexMatcher implements Matcher<String> {
                 && null != pattern
                 && target.matches(pattern);
     }
-}
\ No newline at end of file
+
+    public String getPattern() {
+        return pattern;
+    }
+}
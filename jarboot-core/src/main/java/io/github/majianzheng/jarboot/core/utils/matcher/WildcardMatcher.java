@@ -111,4 +111,8 @@ public class WildcardMatcher implements Matcher<String> {
             pNdx++;
         }
     }
+
+    public String getPattern() {
+        return pattern;
+    }
 }
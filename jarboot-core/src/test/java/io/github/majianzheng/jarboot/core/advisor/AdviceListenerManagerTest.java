@@ -0,0 +1,164 @@
+package io.github.majianzheng.jarboot.core.advisor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author majianzheng
+ */
+public class AdviceListenerManagerTest {
+    private static final AtomicLong ID = new AtomicLong();
+
+    @Test
+    public void testMethodId() {
+        ClassLoader loader = new ClassLoader() {};
+        final int id = AdviceListenerManager.methodId(loader, "a/b/Foo", "bar", "()V");
+        Assert.assertEquals(id, AdviceListenerManager.methodId(loader, "a.b.Foo", "bar", "()V"));
+        Assert.assertNotEquals(id, AdviceListenerManager.methodId(new ClassLoader() {}, "a.b.Foo", "bar", "()V"));
+        AdviceMethod method = AdviceListenerManager.getMethod(id);
+        Assert.assertEquals("a.b.Foo", method.getClassName());
+        Assert.assertEquals("bar", method.getMethodName());
+        Assert.assertEquals(0, method.getListeners().length);
+        Assert.assertNull(AdviceListenerManager.getMethod(-1));
+        //同一方法的通知共用一个JarbootMethod
+        JarbootMethod jarbootMethod = method.getJarbootMethod(String.class);
+        Assert.assertSame(jarbootMethod, method.getJarbootMethod(String.class));
+        Assert.assertEquals("bar", jarbootMethod.getName());
+
+        //同一方法中调用同一方法的调用点共享监听器
+        final int site1 = AdviceListenerManager.invokeId(loader, "a/b/Foo", "a/b/Baz", "run", "()V", 10);
+        final int site2 = AdviceListenerManager.invokeId(loader, "a/b/Foo", "a/b/Baz", "run", "()V", 20);
+        Assert.assertNotEquals(site1, site2);
+        Assert.assertEquals(20, AdviceListenerManager.getMethod(site2).getLine());
+        Listener listener = new Listener();
+        AdviceListenerManager.registerTraceAdviceListener(loader, "a.b.Foo", "a/b/Baz", "run", "()V", listener);
+        Assert.assertSame(listener, AdviceListenerManager.getMethod(site1).getListeners()[0]);
+        Assert.assertSame(listener, AdviceListenerManager.getMethod(site2).getListeners()[0]);
+    }
+
+    @Test
+    public void testUnregister() {
+        ClassLoader loader = new ClassLoader() {};
+        Listener l1 = new Listener();
+        Listener l2 = new Listener();
+        AdviceListenerManager.registerAdviceListener(loader, "a.b.Foo", "bar", "()V", l1);
+        AdviceListenerManager.registerAdviceListener(loader, "a.b.Foo", "bar", "()V", l1);
+        AdviceListenerManager.registerAdviceListener(loader, "a.b.Foo", "bar", "()V", l2);
+        AdviceListenerManager.registerTraceAdviceListener(loader, "a.b.Foo", "a/b/Baz", "run", "()V", l1);
+        final int id = AdviceListenerManager.methodId(loader, "a.b.Foo", "bar", "()V");
+        final int site = AdviceListenerManager.invokeId(loader, "a.b.Foo", "a/b/Baz", "run", "()V", 1);
+        Assert.assertEquals(2, AdviceListenerManager.getMethod(id).getListeners().length);
+
+        AdviceListenerManager.unregisterAdviceListener(l1);
+        Assert.assertArrayEquals(new AdviceListener[]{l2}, AdviceListenerManager.getMethod(id).getListeners());
+        Assert.assertEquals(0, AdviceListenerManager.getMethod(site).getListeners().length);
+        AdviceListenerManager.unregisterAdviceListener(l2);
+        Assert.assertEquals(0, AdviceListenerManager.getMethod(id).getListeners().length);
+    }
+
+    @Test
+    public void testRejectLateRegister() {
+        ClassLoader loader = new ClassLoader() {};
+        Listener listener = new Listener();
+        AdviceListenerManager.registerAdviceListener(loader, "a.b.Foo", "late", "()V", listener);
+        AdviceListenerManager.unregisterAdviceListener(listener);
+        //仍在执行的transform迟到的注册
+        AdviceListenerManager.registerAdviceListener(loader, "a.b.Foo", "late", "()V", listener);
+        AdviceListenerManager.registerTraceAdviceListener(loader, "a.b.Foo", "a/b/Baz", "late", "()V", listener);
+        final int id = AdviceListenerManager.methodId(loader, "a.b.Foo", "late", "()V");
+        final int site = AdviceListenerManager.invokeId(loader, "a.b.Foo", "a/b/Baz", "late", "()V", 1);
+        Assert.assertEquals(0, AdviceListenerManager.getMethod(id).getListeners().length);
+        Assert.assertEquals(0, AdviceListenerManager.getMethod(site).getListeners().length);
+    }
+
+    @Test
+    public void testReleaseCollectedLoader() throws Exception {
+        final int id = AdviceListenerManager.methodId(new ClassLoader() {}, "a.b.Foo", "gone", "()V");
+        final int site = AdviceListenerManager.invokeId(new ClassLoader() {}, "a.b.Foo", "a/b/Baz", "run", "()V", 1);
+        Assert.assertNotNull(AdviceListenerManager.getMethod(id));
+        for (int i = 0; i < 50 && !released(id, site); ++i) {
+            System.gc();
+            Thread.sleep(20);
+            AdviceListenerManager.releaseCollected();
+        }
+        Assert.assertNull(AdviceListenerManager.getMethod(id));
+        Assert.assertNull(AdviceListenerManager.getMethod(site));
+    }
+
+    @Test
+    public void testConcurrentReadWhileUnregister() throws Exception {
+        ClassLoader loader = new ClassLoader() {};
+        final int id = AdviceListenerManager.methodId(loader, "a.b.Foo", "hot", "()V");
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicBoolean failed = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!stop.get()) {
+                try {
+                    for (AdviceListener l : AdviceListenerManager.getMethod(id).getListeners()) {
+                        l.id();
+                    }
+                } catch (Throwable e) {
+                    failed.set(true);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 2000; ++i) {
+            Listener l = new Listener();
+            AdviceListenerManager.registerAdviceListener(loader, "a.b.Foo", "hot", "()V", l);
+            AdviceListenerManager.unregisterAdviceListener(l);
+        }
+        stop.set(true);
+        reader.join();
+        Assert.assertFalse(failed.get());
+        Assert.assertEquals(0, AdviceListenerManager.getMethod(id).getListeners().length);
+    }
+
+    private static boolean released(int... ids) {
+        for (int id : ids) {
+            if (null != AdviceListenerManager.getMethod(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Listener implements AdviceListener {
+        private final long id = ID.incrementAndGet();
+
+        @Override
+        public long id() {
+            return id;
+        }
+
+        @Override
+        public void create() {
+            //ignore
+        }
+
+        @Override
+        public void destroy() {
+            //ignore
+        }
+
+        @Override
+        public void before(Class<?> clazz, JarbootMethod method, Object target, Object[] args) {
+            //ignore
+        }
+
+        @Override
+        public void afterReturning(Class<?> clazz, JarbootMethod method, Object target, Object[] args,
+                                   Object returnObject) {
+            //ignore
+        }
+
+        @Override
+        public void afterThrowing(Class<?> clazz, JarbootMethod method, Object target, Object[] args,
+                                  Throwable throwable) {
+            //ignore
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.majianzheng.jarboot.core.advisor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author majianzheng
+ */
+public class AdviceSamplerTest {
+
+    @Test
+    public void testSampleRate() {
+        AdviceSampler all = new AdviceSampler(1D, 0, () -> false);
+        AdviceSampler none = new AdviceSampler(0D, 0, () -> false);
+        AdviceSampler half = new AdviceSampler(0.5D, 0, () -> false);
+        Assert.assertFalse(all.isLimited());
+        Assert.assertTrue(half.isLimited());
+        int count = 0;
+        for (int i = 0; i < 10000; ++i) {
+            Assert.assertTrue(all.tryAcquire());
+            Assert.assertFalse(none.tryAcquire());
+            if (half.tryAcquire()) {
+                ++count;
+            }
+        }
+        Assert.assertTrue(count > 4000 && count < 6000);
+    }
+
+    @Test
+    public void testMaxPerSecond() {
+        AdviceSampler sampler = new AdviceSampler(1D, 10, () -> false);
+        int count = 0;
+        for (int i = 0; i < 1000; ++i) {
+            if (sampler.tryAcquire()) {
+                ++count;
+            }
+        }
+        //令牌桶容量为1秒的令牌数
+        Assert.assertTrue(count >= 10 && count <= 11);
+    }
+
+    @Test
+    public void testBackoff() throws InterruptedException {
+        AtomicBoolean congested = new AtomicBoolean(true);
+        AdviceSampler sampler = new AdviceSampler(1D, 0, congested::get);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(350);
+        while (System.nanoTime() < deadline) {
+            sampler.tryAcquire();
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        final int level = sampler.getBackoff();
+        Assert.assertTrue(level >= 2);
+
+        congested.set(false);
+        final long recover = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100L * (level + 2));
+        while (System.nanoTime() < recover && sampler.getBackoff() > 0) {
+            sampler.tryAcquire();
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        Assert.assertEquals(0, sampler.getBackoff());
+    }
+}
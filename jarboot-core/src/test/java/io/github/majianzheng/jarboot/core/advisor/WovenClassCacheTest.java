@@ -0,0 +1,32 @@
+package io.github.majianzheng.jarboot.core.advisor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * @author majianzheng
+ */
+public class WovenClassCacheTest {
+
+    @Test
+    public void testGetAndPut() {
+        WovenClassCache cache = new WovenClassCache();
+        byte[] original = new byte[] {1, 2, 3};
+        final String digest = WovenClassCache.digest(original, "true|true|bar(I)I;");
+        Assert.assertEquals(digest, WovenClassCache.digest(original, "true|true|bar(I)I;"));
+        //织入配置不同时不能复用
+        Assert.assertNotEquals(digest, WovenClassCache.digest(original, "false|true|bar(I)I;"));
+        Assert.assertNotEquals(digest, WovenClassCache.digest(new byte[] {1, 2, 4}, "true|true|bar(I)I;"));
+
+        Assert.assertNull(cache.get(String.class, digest));
+        WovenClassCache.WovenClass woven = new WovenClassCache.WovenClass(new byte[] {4, 5},
+                Collections.singletonList(new String[] {"bar", "(I)I"}), Collections.emptyList());
+        cache.put(String.class, digest, woven);
+        Assert.assertSame(woven, cache.get(String.class, digest));
+        Assert.assertNull(cache.get(Integer.class, digest));
+        cache.put(String.class, digest, woven);
+        Assert.assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.majianzheng.jarboot.core.cmd.express;
+
+import io.github.majianzheng.jarboot.core.advisor.Advice;
+import io.github.majianzheng.jarboot.core.advisor.JarbootMethod;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 条件表达式每次调用的开销，对比每次解析与预先解析，运行：在jarboot-core下执行 mvn test-compile 后以main方法启动
+ * @author majianzheng
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OgnlExpressBenchmark {
+    @Param({"params[0].length==1", "#cost > 10 && params[1] == null"})
+    private String condition;
+
+    private Advice advice;
+    private ParsedExpress parsed;
+
+    @Setup
+    public void setup() throws ExpressException {
+        JarbootMethod method = new JarbootMethod(String.class, "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;");
+        Object[] args = new Object[] {new String[] {"a"}, null};
+        advice = Advice.newForAfterRetuning(getClass().getClassLoader(), String.class, method, null, args, "a");
+        parsed = ExpressFactory.parse(condition);
+    }
+
+    @Benchmark
+    public boolean parseEachTime() throws ExpressException {
+        return ExpressFactory.threadLocalExpress(advice).bind(CoreConstant.COST_VARIABLE, 1.5D).is(condition);
+    }
+
+    @Benchmark
+    public boolean parsedOnce() throws ExpressException {
+        return ExpressFactory.threadLocalExpress(advice).bind(CoreConstant.COST_VARIABLE, 1.5D).is(parsed);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(OgnlExpressBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
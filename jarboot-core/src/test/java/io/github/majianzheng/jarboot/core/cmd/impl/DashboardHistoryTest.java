@@ -0,0 +1,75 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.core.cmd.model.DashboardHistoryVO;
+import io.github.majianzheng.jarboot.core.cmd.model.DashboardModel;
+import io.github.majianzheng.jarboot.core.cmd.model.MemoryEntryVO;
+import io.github.majianzheng.jarboot.core.cmd.model.RuntimeInfoVO;
+import io.github.majianzheng.jarboot.core.cmd.model.ThreadVO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author majianzheng
+ */
+public class DashboardHistoryTest {
+
+    @Test
+    public void testRing() {
+        DashboardHistory history = new DashboardHistory(3);
+        Assert.assertEquals(0, history.snapshot().getTimestamps().length);
+        history.add(model(1, 2, true));
+        history.add(model(2, 3, false));
+        DashboardHistoryVO vo = history.snapshot();
+        Assert.assertArrayEquals(new long[] {1, 2}, vo.getTimestamps());
+        Assert.assertArrayEquals(new int[] {2, 3}, vo.getThreads());
+        Assert.assertArrayEquals(new int[] {1, 1}, vo.getRunnable());
+        Assert.assertArrayEquals(new double[] {1.0, 1.5}, vo.getCpu(), 0.001);
+
+        history.add(model(3, 4, true));
+        history.add(model(4, 5, true));
+        history.add(model(5, 6, false));
+        Assert.assertEquals(3, history.size());
+        vo = history.snapshot();
+        Assert.assertArrayEquals(new long[] {3, 4, 5}, vo.getTimestamps());
+        Assert.assertArrayEquals(new int[] {4, 5, 6}, vo.getThreads());
+        Assert.assertEquals(2, vo.getMemory().size());
+        DashboardHistoryVO.MemorySeries heap = vo.getMemory().get(0);
+        Assert.assertEquals("heap", heap.getName());
+        Assert.assertArrayEquals(new long[] {300, 400, 500}, heap.getUsed());
+        //不存在的内存区域记为-1
+        DashboardHistoryVO.MemorySeries eden = vo.getMemory().get(1);
+        Assert.assertEquals("eden", eden.getName());
+        Assert.assertArrayEquals(new long[] {3000, 4000, -1}, eden.getTotal());
+    }
+
+    private static DashboardModel model(long timestamp, int threadCount, boolean eden) {
+        DashboardModel model = new DashboardModel();
+        RuntimeInfoVO runtimeInfo = new RuntimeInfoVO();
+        runtimeInfo.setTimestamp(timestamp);
+        model.setRuntimeInfo(runtimeInfo);
+        List<ThreadVO> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; ++i) {
+            ThreadVO thread = new ThreadVO();
+            thread.setState(0 == i ? Thread.State.RUNNABLE : Thread.State.WAITING);
+            thread.setCpu(0.5);
+            threads.add(thread);
+        }
+        model.setThreads(threads);
+        List<MemoryEntryVO> heap = new ArrayList<>();
+        heap.add(new MemoryEntryVO(MemoryEntryVO.TYPE_HEAP, "heap", timestamp * 100, timestamp * 200, -1));
+        if (eden) {
+            heap.add(new MemoryEntryVO(MemoryEntryVO.TYPE_HEAP, "eden", timestamp * 10, timestamp * 1000, -1));
+        }
+        Map<String, List<MemoryEntryVO>> memoryInfo = new LinkedHashMap<>();
+        memoryInfo.put(MemoryEntryVO.TYPE_HEAP, heap);
+        memoryInfo.put(MemoryEntryVO.TYPE_NON_HEAP, Collections.emptyList());
+        model.setMemoryInfo(memoryInfo);
+        return model;
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * @author majianzheng
+ */
+public class FlameGraphWriterTest {
+
+    @Test
+    public void testCollapsed() throws IOException {
+        FrameDictionary dictionary = new FrameDictionary();
+        StackTrie trie = new StackTrie(16);
+        record(trie, dictionary, 2, "demo.Main.main", "demo.Foo.run", "demo.Foo.calc");
+        record(trie, dictionary, 1, "demo.Main.main", "demo.Foo.run");
+        record(trie, dictionary, 3, "demo.Main.main", "demo.Bar.<init>");
+        Assert.assertEquals(5, trie.size());
+        Assert.assertEquals(4, dictionary.size());
+        Assert.assertEquals(6, trie.totals()[StackTrie.ROOT]);
+
+        StringWriter out = new StringWriter();
+        FlameGraphWriter.writeCollapsed(trie, dictionary, out);
+        Assert.assertEquals("demo.Main.main;demo.Foo.run 1\n" +
+                "demo.Main.main;demo.Foo.run;demo.Foo.calc 2\n" +
+                "demo.Main.main;demo.Bar.<init> 3\n", out.toString());
+
+        out = new StringWriter();
+        FlameGraphWriter.writeHtml(trie, dictionary, "cpu <profile>", out);
+        String html = out.toString();
+        Assert.assertTrue(html.contains("<title>cpu &lt;profile&gt;</title>"));
+        Assert.assertTrue(html.contains("\"demo.Bar.\\u003cinit\\u003e\""));
+        Assert.assertTrue(html.contains("var total=6;"));
+        Assert.assertTrue(html.contains("var nodes=[1,0,6,2,1,3,3,2,2,2,3,3];"));
+    }
+
+    @Test
+    public void testFull() {
+        FrameDictionary dictionary = new FrameDictionary();
+        StackTrie trie = new StackTrie(3);
+        final int a = trie.child(StackTrie.ROOT, dictionary.intern("a"));
+        final int b = trie.child(a, dictionary.intern("b"));
+        Assert.assertEquals(StackTrie.FULL, trie.child(b, dictionary.intern("c")));
+        Assert.assertEquals(b, trie.child(a, dictionary.intern("b")));
+        //超过初始容量后扩容
+        StackTrie large = new StackTrie(1 << 16);
+        int node = StackTrie.ROOT;
+        for (int i = 0; i < 5000; ++i) {
+            node = large.child(node, i % 7);
+        }
+        Assert.assertEquals(5001, large.size());
+        Assert.assertEquals(node, walk(large, 5000));
+    }
+
+    private static int walk(StackTrie trie, int depth) {
+        int node = StackTrie.ROOT;
+        for (int i = 0; i < depth; ++i) {
+            node = trie.child(node, i % 7);
+        }
+        return node;
+    }
+
+    private static void record(StackTrie trie, FrameDictionary dictionary, int count, String... frames) {
+        int node = StackTrie.ROOT;
+        for (String frame : frames) {
+            final int dot = frame.lastIndexOf('.');
+            node = trie.child(node, dictionary.intern(
+                    new StackTraceElement(frame.substring(0, dot), frame.substring(dot + 1), null, -1)));
+        }
+        trie.increment(node, count);
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.core.cmd.model.ThreadVO;
+import io.github.majianzheng.jarboot.core.utils.ThreadUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * @author majianzheng
+ */
+public class ThreadSamplerTest {
+
+    @Test
+    public void testTop() {
+        long[] keys = {5, 1, 9, 5, 7, 0, 3};
+        Assert.assertArrayEquals(new int[] {2, 4, 0}, ThreadSampler.top(keys, 3));
+        //值相同时下标小的在前
+        Assert.assertArrayEquals(new int[] {2, 4, 0, 3, 6, 1, 5}, ThreadSampler.top(keys, keys.length));
+        Assert.assertArrayEquals(new int[0], ThreadSampler.top(keys, 0));
+    }
+
+    @Test
+    public void testSample() {
+        ThreadSampler sampler = new ThreadSampler();
+        List<ThreadVO> threads = ThreadUtil.getThreads();
+        List<ThreadVO> first = sampler.sample(threads, 2, ThreadSampler.SortBy.CPU);
+        Assert.assertEquals(Math.min(2, threads.size()), first.size());
+        Assert.assertTrue(first.get(0).getTime() >= first.get(first.size() - 1).getTime());
+
+        threads = ThreadUtil.getThreads();
+        List<ThreadVO> stats = sampler.sample(threads, -1, ThreadSampler.SortBy.ALLOC);
+        Assert.assertEquals(threads.size(), stats.size());
+        for (int i = 1; i < stats.size(); ++i) {
+            Assert.assertTrue(stats.get(i - 1).getAllocRate() >= stats.get(i).getAllocRate());
+        }
+    }
+}
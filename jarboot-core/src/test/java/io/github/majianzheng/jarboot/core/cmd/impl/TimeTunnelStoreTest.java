@@ -0,0 +1,107 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.core.advisor.Advice;
+import io.github.majianzheng.jarboot.core.advisor.JarbootMethod;
+import io.github.majianzheng.jarboot.core.cmd.model.TimeFragmentVO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author majianzheng
+ */
+public class TimeTunnelStoreTest {
+
+    @Test
+    public void testFifo() {
+        TimeTunnelStore store = new TimeTunnelStore();
+        store.configure(3, null, null);
+        int first = store.put(fragment("a"));
+        int second = store.put(fragment("b"));
+        store.put(fragment("c"));
+        Assert.assertNotNull(store.get(first));
+        store.put(fragment("d"));
+        //FIFO不受查看影响
+        Assert.assertNull(store.get(first));
+        Assert.assertNotNull(store.get(second));
+        Assert.assertEquals(3, store.size());
+        Assert.assertEquals(1, store.getEvicted());
+    }
+
+    @Test
+    public void testLru() {
+        TimeTunnelStore store = new TimeTunnelStore();
+        store.configure(3, null, TimeTunnelStore.Eviction.LRU);
+        int first = store.put(fragment("a"));
+        int second = store.put(fragment("b"));
+        store.put(fragment("c"));
+        Assert.assertNotNull(store.get(first));
+        store.put(fragment("d"));
+        Assert.assertNotNull(store.get(first));
+        Assert.assertNull(store.get(second));
+    }
+
+    @Test
+    public void testMaxBytes() {
+        TimeTunnelStore store = new TimeTunnelStore();
+        TimeFragment big = fragment(new String(new char[4096]));
+        store.configure(null, big.getEstimatedBytes() * 2, null);
+        store.put(big);
+        store.put(fragment(new String(new char[4096])));
+        Assert.assertEquals(2, store.size());
+        store.put(fragment(new String(new char[4096])));
+        Assert.assertEquals(2, store.size());
+        Assert.assertTrue(store.getBytes() <= big.getEstimatedBytes() * 2);
+
+        //单个碎片超出上限时仍保留最新的一个
+        store.configure(null, 1L, null);
+        Assert.assertEquals(0, store.size());
+        int last = store.put(big);
+        Assert.assertNotNull(store.get(last));
+        Assert.assertTrue(store.remove(last));
+        Assert.assertEquals(0, store.getBytes());
+    }
+
+    @Test
+    public void testPage() {
+        TimeTunnelStore store = new TimeTunnelStore();
+        int first = store.put(fragment("a"));
+        for (int i = 0; i < 9; ++i) {
+            store.put(fragment("b"));
+        }
+        List<Map.Entry<Integer, TimeFragment>> page = store.page(4, 4);
+        Assert.assertEquals(4, page.size());
+        Assert.assertEquals(first + 4, page.get(0).getKey().intValue());
+        Assert.assertEquals(2, store.page(8, 4).size());
+        Assert.assertTrue(store.page(10, 4).isEmpty());
+        Assert.assertEquals(10, store.entries().size());
+        Assert.assertEquals(10, store.clear());
+    }
+
+    @Test
+    public void testSnapshot() {
+        TimeFragment tf = TimeFragment.snapshot(advice("hello"), new Date(), 1.5, 1, 1024);
+        Assert.assertTrue(tf.isSnapshot());
+        Assert.assertNull(tf.getAdvice());
+        TimeFragmentVO vo = tf.toVO(1000);
+        Assert.assertTrue(vo.isSnapshot());
+        Assert.assertEquals("valueOf", vo.getMethodName());
+        Assert.assertEquals(1, vo.getParams().length);
+        Assert.assertTrue(((String) vo.getParams()[0]).contains("hello"));
+        Assert.assertTrue(((String) vo.getReturnObj()).contains("hello"));
+        Assert.assertNull(vo.getThrowText());
+    }
+
+    private static TimeFragment fragment(String param) {
+        return new TimeFragment(advice(param), new Date(), 1);
+    }
+
+    private static Advice advice(String param) {
+        JarbootMethod method = new JarbootMethod(String.class, "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;");
+        return Advice.newForAfterRetuning(TimeTunnelStoreTest.class.getClassLoader(), String.class, method, null,
+                new Object[] {param}, param);
+    }
+}
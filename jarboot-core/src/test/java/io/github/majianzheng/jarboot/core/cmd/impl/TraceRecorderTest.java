@@ -0,0 +1,99 @@
+package io.github.majianzheng.jarboot.core.cmd.impl;
+
+import io.github.majianzheng.jarboot.core.advisor.AdviceListenerManager;
+import io.github.majianzheng.jarboot.core.cmd.model.MethodNode;
+import io.github.majianzheng.jarboot.core.cmd.model.ThrowNode;
+import io.github.majianzheng.jarboot.core.cmd.model.TraceModel;
+import io.github.majianzheng.jarboot.core.cmd.model.TraceNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author majianzheng
+ */
+public class TraceRecorderTest {
+
+    @Test
+    public void testBuild() {
+        ClassLoader loader = new ClassLoader() {};
+        final int root = AdviceListenerManager.methodId(loader, "a.b.Foo", "bar", "()V");
+        final int site = AdviceListenerManager.invokeId(loader, "a.b.Foo", "a/b/Baz", "run", "()V", 12);
+        TraceRecorder recorder = new TraceRecorder();
+        Assert.assertTrue(recorder.isIdle());
+        recorder.start(true);
+        recorder.enter(TraceRecorder.ENTER_METHOD, root, 100);
+        Assert.assertFalse(recorder.isIdle());
+        for (int i = 0; i < 3; ++i) {
+            recorder.enter(TraceRecorder.ENTER_INVOKE, site, 110 + i * 10);
+            Assert.assertFalse(recorder.exit(TraceRecorder.EXIT, site, 115 + i * 10));
+        }
+        Assert.assertTrue(recorder.exit(TraceRecorder.EXIT, root, 200));
+        Assert.assertEquals(100, recorder.rootCost());
+
+        TraceModel model = recorder.build(loader);
+        MethodNode rootNode = (MethodNode) model.getRoot().getChildren().get(0);
+        Assert.assertEquals("bar", rootNode.getMethodName());
+        Assert.assertEquals(100, rootNode.getCost());
+        //同一调用点合并统计
+        Assert.assertEquals(1, rootNode.getChildren().size());
+        MethodNode invoke = (MethodNode) rootNode.getChildren().get(0);
+        Assert.assertEquals(3, invoke.getTimes());
+        Assert.assertEquals(15, invoke.getTotalCost());
+        Assert.assertEquals(12, invoke.getLineNumber());
+
+        recorder.reset();
+        Assert.assertTrue(recorder.isIdle());
+        Assert.assertFalse(recorder.isRecording());
+    }
+
+    @Test
+    public void testThrow() {
+        ClassLoader loader = new ClassLoader() {};
+        final int root = AdviceListenerManager.methodId(loader, "a.b.Foo", "bar", "()V");
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.start(true);
+        recorder.enter(TraceRecorder.ENTER_METHOD, root, 0);
+        Assert.assertTrue(recorder.exit(new IllegalStateException("test"), 10));
+        MethodNode node = (MethodNode) recorder.build(loader).getRoot().getChildren().get(0);
+        Assert.assertTrue(node.getThrow());
+        ThrowNode throwNode = (ThrowNode) node.getChildren().get(0);
+        Assert.assertEquals(IllegalStateException.class.getName(), throwNode.getException());
+        recorder.reset();
+    }
+
+    @Test
+    public void testUnsampled() {
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.start(false);
+        recorder.enter(TraceRecorder.ENTER_METHOD, 1, 0);
+        recorder.enter(TraceRecorder.ENTER_METHOD, 1, 0);
+        Assert.assertFalse(recorder.exit(TraceRecorder.EXIT, 1, 0));
+        Assert.assertTrue(recorder.exit(TraceRecorder.EXIT, 1, 0));
+        Assert.assertTrue(recorder.isIdle());
+        Assert.assertEquals(0, recorder.rootCost());
+    }
+
+    @Test
+    public void testOverflow() {
+        ClassLoader loader = new ClassLoader() {};
+        final int root = AdviceListenerManager.methodId(loader, "a.b.Foo", "bar", "()V");
+        final int site = AdviceListenerManager.invokeId(loader, "a.b.Foo", "a/b/Baz", "run", "()V", 1);
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.start(true);
+        recorder.enter(TraceRecorder.ENTER_METHOD, root, 0);
+        //调用次数超过缓冲上限后不再记录，根方法的结束事件仍能写入
+        final int times = 1 << 18;
+        for (int i = 0; i < times; ++i) {
+            recorder.enter(TraceRecorder.ENTER_INVOKE, site, i);
+            recorder.enter(TraceRecorder.ENTER_INVOKE, site, i);
+            Assert.assertFalse(recorder.exit(TraceRecorder.EXIT, site, i));
+            Assert.assertFalse(recorder.exit(TraceRecorder.EXIT, site, i));
+        }
+        Assert.assertTrue(recorder.exit(TraceRecorder.EXIT, root, times));
+        Assert.assertEquals(times, recorder.rootCost());
+        TraceNode node = recorder.build(loader).getRoot().getChildren().get(0);
+        Assert.assertTrue(node.getMark().contains("nested calls not traced"));
+        recorder.reset();
+        Assert.assertTrue(recorder.isIdle());
+    }
+}
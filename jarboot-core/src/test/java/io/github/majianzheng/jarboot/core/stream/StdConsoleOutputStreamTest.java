@@ -0,0 +1,43 @@
+package io.github.majianzheng.jarboot.core.stream;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StdConsoleOutputStreamTest {
+    @Test
+    public void testWriteLargeArray() {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        AtomicInteger wakeups = new AtomicInteger();
+        StdConsoleOutputStream out = new StdConsoleOutputStream(wakeups::incrementAndGet);
+        out.setPrintHandler(printed::write);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            sb.append("line ").append(i).append(" 中文\n");
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        assertEquals(1, wakeups.get());
+        out.flush();
+        assertArrayEquals(bytes, printed.toByteArray());
+    }
+
+    @Test
+    public void testAnsiIncomplete() {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        StdConsoleOutputStream out = new StdConsoleOutputStream(() -> {});
+        out.setPrintHandler(printed::write);
+        byte[] head = "\033[31".getBytes(StandardCharsets.UTF_8);
+        out.write(head, 0, head.length);
+        out.flush();
+        assertEquals(0, printed.size());
+        byte[] tail = "mred".getBytes(StandardCharsets.UTF_8);
+        out.write(tail, 0, tail.length);
+        out.flush();
+        assertEquals("\033[31mred", new String(printed.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.majianzheng.jarboot.core.stream;
+
+import io.github.majianzheng.jarboot.common.protocol.TelemetryCodec;
+import io.github.majianzheng.jarboot.core.constant.CoreConstant;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author majianzheng
+ */
+public class TelemetryRecorderTest {
+
+    @Test
+    public void testSampleAndDrain() {
+        TelemetryRecorder recorder = new TelemetryRecorder();
+        final int count = 30;
+        for (int i = 0; i < count; ++i) {
+            recorder.sample();
+        }
+        List<byte[]> batches = new ArrayList<>();
+        recorder.drain(batches::add);
+        Assert.assertFalse(batches.isEmpty());
+        int total = 0;
+        for (byte[] body : batches) {
+            Assert.assertTrue(body.length <= CoreConstant.SOCKET_MAX_SEND);
+            TelemetryCodec.Batch batch = TelemetryCodec.decode(ByteBuffer.wrap(body));
+            Assert.assertNotNull(batch);
+            Assert.assertArrayEquals(recorder.getNames(), batch.getNames());
+            final int liveIndex = indexOf(batch.getNames(), "threads.live");
+            Assert.assertTrue(batch.getValues()[liveIndex] > 0);
+            total += batch.size();
+        }
+        Assert.assertEquals(count, total);
+        //已发送的不再重复发送
+        batches.clear();
+        recorder.drain(batches::add);
+        Assert.assertTrue(batches.isEmpty());
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; ++i) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
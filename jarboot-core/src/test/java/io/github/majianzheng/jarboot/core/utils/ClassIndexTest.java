@@ -0,0 +1,94 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import io.github.majianzheng.jarboot.core.utils.matcher.EqualsMatcher;
+import io.github.majianzheng.jarboot.core.utils.matcher.RegexMatcher;
+import io.github.majianzheng.jarboot.core.utils.matcher.WildcardMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * @author majianzheng
+ */
+public class ClassIndexTest {
+    private final List<Class<?>> loaded = new ArrayList<>(Arrays.asList(Object.class, String.class,
+            Number.class, Integer.class, Collection.class, List.class, AbstractCollection.class,
+            AbstractList.class, ArrayList.class, int.class, int[].class, ClassIndexTest.class));
+    private int fullScans;
+
+    @Test
+    public void testSearch() {
+        ClassIndex index = new ClassIndex(instrumentation(), false);
+        Assert.assertEquals(10, index.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(List.class, ArrayList.class, AbstractList.class)),
+                index.search(new WildcardMatcher("java.util.*List"), Integer.MAX_VALUE));
+        Assert.assertEquals(Collections.singleton(Integer.class),
+                index.search(new RegexMatcher("java\\.lang\\.Int.*"), Integer.MAX_VALUE));
+        Assert.assertEquals(Collections.singleton(String.class),
+                index.search(new EqualsMatcher<>("java.lang.String"), Integer.MAX_VALUE));
+        Assert.assertEquals(1, index.search(new WildcardMatcher("*"), 1).size());
+        Assert.assertTrue(index.search(new WildcardMatcher("int*"), Integer.MAX_VALUE).isEmpty());
+        Assert.assertEquals(Collections.singletonList(String.class), index.findByName("java.lang.String"));
+    }
+
+    @Test
+    public void testLiteralPrefix() {
+        Assert.assertEquals("java.util.", ClassIndex.literalPrefix(new WildcardMatcher("java.util.*List")));
+        Assert.assertEquals("a*b", ClassIndex.literalPrefix(new WildcardMatcher("a\\*b?")));
+        Assert.assertEquals("java.lang.", ClassIndex.literalPrefix(new RegexMatcher("java\\.lang\\..*")));
+        Assert.assertEquals("java", ClassIndex.literalPrefix(new RegexMatcher("java.lang")));
+        Assert.assertEquals("java", ClassIndex.literalPrefix(new RegexMatcher("javax?\\.lang")));
+        Assert.assertEquals("", ClassIndex.literalPrefix(new RegexMatcher("java|com.*")));
+        Assert.assertEquals("", ClassIndex.literalPrefix(new RegexMatcher("\\w+")));
+    }
+
+    @Test
+    public void testSubClassAndLoaders() {
+        ClassIndex index = new ClassIndex(instrumentation(), false);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(Collection.class, List.class, AbstractCollection.class,
+                AbstractList.class, ArrayList.class)), index.searchSubClass(Collections.singleton(Collection.class)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(Number.class, Integer.class)),
+                index.searchSubClass(Collections.singleton(Number.class)));
+
+        ClassLoader loader = ClassIndexTest.class.getClassLoader();
+        Assert.assertEquals(Collections.singleton(loader), index.getClassLoaders());
+        Assert.assertEquals(Collections.singletonList(ClassIndexTest.class), index.getClasses(loader));
+        Assert.assertEquals(9, index.getClassCount(null));
+    }
+
+    @Test
+    public void testIncremental() {
+        ClassIndex index = new ClassIndex(instrumentation(), true);
+        Assert.assertTrue(index.findByName("java.util.LinkedList").isEmpty());
+        fullScans = 0;
+        loaded.add(LinkedList.class);
+        loaded.add(AbstractSequentialList.class);
+        //未记录类定义时不会重新扫描
+        Assert.assertTrue(index.findByName("java.util.LinkedList").isEmpty());
+        index.onDefine(null, "java/util/LinkedList");
+        index.onDefine(null, "java/util/AbstractSequentialList");
+        index.onDefine(null, "not/Defined");
+        Assert.assertEquals(Collections.singletonList(LinkedList.class), index.findByName("java.util.LinkedList"));
+        Assert.assertTrue(index.searchSubClass(Collections.singleton(AbstractList.class)).contains(LinkedList.class));
+        Assert.assertEquals(12, index.size());
+        //增量补齐只遍历记录了类定义的类加载器
+        Assert.assertEquals(0, fullScans);
+    }
+
+    private Instrumentation instrumentation() {
+        return (Instrumentation) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {Instrumentation.class}, (proxy, method, args) -> {
+                    if ("getAllLoadedClasses".equals(method.getName())) {
+                        ++fullScans;
+                        return loaded.toArray(new Class<?>[0]);
+                    }
+                    if ("getInitiatedClasses".equals(method.getName())) {
+                        return loaded.stream().filter(c -> c.getClassLoader() == args[0]).toArray(Class<?>[]::new);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import io.github.majianzheng.jarboot.common.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * @author majianzheng
+ */
+public class DecompileCacheTest {
+
+    @Test
+    public void testDigest() {
+        DecompileCache cache = new DecompileCache(16, 1024);
+        final String digest = digest(new byte[] {1, 2, 3});
+        Assert.assertEquals(digest, digest(new byte[] {1, 2, 3}));
+        Assert.assertNotEquals(digest, digest(new byte[] {1, 2, 4}));
+        Assert.assertNull(cache.getDigest(String.class));
+
+        cache.putDigest(String.class, digest, stamps(cache, String.class, Integer.class));
+        Assert.assertEquals(digest, cache.getDigest(String.class));
+        //内部类变化时同样失效
+        cache.invalidate(Integer.class);
+        Assert.assertNull(cache.getDigest(String.class));
+
+        //dump之后又发生变化时不记录
+        Map<Class<?>, Long> stamps = stamps(cache, String.class);
+        cache.invalidate(String.class);
+        cache.putDigest(String.class, digest, stamps);
+        Assert.assertNull(cache.getDigest(String.class));
+
+        //dump自身的重转换返回后再记录序号
+        cache.invalidate(String.class);
+        cache.putDigest(String.class, digest, cache.stamps(Collections.singleton(String.class)));
+        Assert.assertEquals(digest, cache.getDigest(String.class));
+    }
+
+    @Test
+    public void testBound() {
+        DecompileCache cache = new DecompileCache(2, 10);
+        final String key = DecompileCache.key(String.class, "d", "null|false|true");
+        cache.put(key, result("abcd"));
+        Assert.assertEquals("abcd", cache.get(key).getFirst());
+        cache.put("b", result("abcd"));
+        cache.put("c", result("ab"));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get(key));
+        cache.put("d", result("abcdefghi"));
+        Assert.assertEquals(1, cache.size());
+        //单个结果超出上限时仍保留
+        cache.put("e", result("abcdefghijkl"));
+        Assert.assertNotNull(cache.get("e"));
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    private static String digest(byte[] bytes) {
+        SortedMap<String, byte[]> classBytes = new TreeMap<>();
+        classBytes.put("demo.Foo", bytes);
+        return DecompileCache.digest(classBytes);
+    }
+
+    private static Map<Class<?>, Long> stamps(DecompileCache cache, Class<?>... classes) {
+        Map<Class<?>, Long> stamps = new HashMap<>(4);
+        for (Class<?> clazz : classes) {
+            stamps.put(clazz, cache.stamp(clazz));
+        }
+        return stamps;
+    }
+
+    private static Pair<String, NavigableMap<Integer, Integer>> result(String source) {
+        return Pair.make(source, new TreeMap<>(Collections.singletonMap(1, 1)));
+    }
+}
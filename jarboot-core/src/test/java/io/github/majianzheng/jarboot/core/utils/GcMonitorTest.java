@@ -0,0 +1,86 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import io.github.majianzheng.jarboot.core.cmd.model.GcEventVO;
+import io.github.majianzheng.jarboot.core.cmd.model.GcSummaryVO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author majianzheng
+ */
+public class GcMonitorTest {
+    private static final long MB = 1024L * 1024;
+
+    @Test
+    public void testAllocationAndPromotion() {
+        GcMonitor monitor = new GcMonitor(new HashSet<>(Arrays.asList("Eden Space", "Old Gen")), 1000L);
+        monitor.record("Young", "end of minor GC", "Allocation Failure", 100, 110,
+                usage(100 * MB, 10 * MB), usage(0, 12 * MB));
+        //上次回收后堆为12MB，本次回收前为212MB，1秒内分配200MB，晋升3MB
+        monitor.record("Young", "end of minor GC", "Allocation Failure", 1110, 1130,
+                usage(200 * MB, 12 * MB), usage(0, 15 * MB));
+        List<GcEventVO> events = monitor.recent(10);
+        Assert.assertEquals(2, events.size());
+        GcEventVO last = events.get(0);
+        Assert.assertEquals(2, last.getId());
+        Assert.assertEquals(1000L + 1110, last.getStartTime());
+        Assert.assertEquals(20, last.getDuration());
+        Assert.assertEquals(212 * MB, last.getHeapBefore());
+        Assert.assertEquals(15 * MB, last.getHeapAfter());
+        Assert.assertEquals(200 * MB, last.getAllocated());
+        Assert.assertEquals(200 * MB, last.getAllocRate());
+        Assert.assertEquals(3 * MB, last.getPromoted());
+        Assert.assertEquals(3 * MB, last.getPromotionRate());
+        Assert.assertEquals(2, last.getPools().size());
+        //第一次回收之前的分配量未知
+        Assert.assertEquals(0, events.get(1).getAllocated());
+        Assert.assertEquals(200 * MB, monitor.getAllocatedBytes());
+        Assert.assertEquals(5 * MB, monitor.getPromotedBytes());
+        Assert.assertEquals(20, monitor.getMaxPauseThenReset());
+        Assert.assertEquals(0, monitor.getMaxPauseThenReset());
+    }
+
+    @Test
+    public void testEventLogAndPercentile() {
+        final String name = ManagementFactory.getGarbageCollectorMXBeans().get(0).getName();
+        GcMonitor monitor = new GcMonitor(new HashSet<>(), 0);
+        final int count = 1000;
+        for (int i = 1; i <= count; ++i) {
+            monitor.record(name, "end of minor GC", "test", i * 1000L, i * 1000L + i, usage(0, 0), usage(0, 0));
+        }
+        List<GcEventVO> events = monitor.recent(count);
+        //只保留最近的记录
+        Assert.assertEquals(256, events.size());
+        Assert.assertEquals(count, events.get(0).getId());
+        Assert.assertEquals(count - 255, events.get(255).getId());
+        Assert.assertEquals(3, monitor.recent(3).size());
+
+        GcSummaryVO summary = null;
+        for (GcSummaryVO vo : monitor.summaries()) {
+            if (name.equals(vo.getName())) {
+                summary = vo;
+            }
+        }
+        Assert.assertNotNull(summary);
+        Assert.assertEquals(count, summary.getCount());
+        Assert.assertEquals(count * (count + 1) / 2, summary.getTotalTime());
+        Assert.assertEquals(count, summary.getMax());
+        Assert.assertTrue(summary.getP50() >= 500 && summary.getP50() <= 500 * 1.125);
+        Assert.assertTrue(summary.getP99() >= 990 && summary.getP99() <= count);
+    }
+
+    private static Map<String, MemoryUsage> usage(long eden, long old) {
+        Map<String, MemoryUsage> map = new HashMap<>(4);
+        map.put("Eden Space", new MemoryUsage(0, eden, eden, -1));
+        map.put("Old Gen", new MemoryUsage(0, old, old, -1));
+        return map;
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author majianzheng
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucket() {
+        for (long v : new long[]{0, 1, 7, 8, 15, 16, 100, 12345, 1L << 40, Long.MAX_VALUE}) {
+            final int index = LatencyHistogram.index(v);
+            Assert.assertTrue(LatencyHistogram.upperBound(index) >= v);
+            if (index > 0) {
+                Assert.assertTrue(LatencyHistogram.upperBound(index - 1) < v);
+            }
+        }
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+        Assert.assertEquals(1000, snapshot.getTotal());
+        Assert.assertEquals(1000000L, snapshot.getMax());
+        assertNear(500000L, snapshot.percentile(0.5));
+        assertNear(900000L, snapshot.percentile(0.9));
+        assertNear(990000L, snapshot.percentile(0.99));
+
+        LatencyHistogram.Snapshot empty = histogram.snapshotAndReset();
+        Assert.assertEquals(0, empty.getTotal());
+        Assert.assertEquals(0, empty.percentile(0.99));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        Assert.assertTrue("expected " + expected + " but " + actual,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.majianzheng.jarboot.core.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author majianzheng
+ */
+public class ThreadLocalWatchTest {
+    @Test
+    public void testSkip() {
+        ThreadLocalWatch watch = new ThreadLocalWatch();
+        final long start = watch.start();
+        watch.skip();
+        Assert.assertFalse(watch.isSampled());
+        watch.cost();
+        //内层未采样的调用出栈后，外层取到自己的时间
+        Assert.assertTrue(watch.isSampled());
+        final long cost = watch.cost();
+        Assert.assertTrue(cost >= 0 && cost <= System.nanoTime() - start);
+    }
+}
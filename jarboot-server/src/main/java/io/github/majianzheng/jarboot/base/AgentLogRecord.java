@@ -0,0 +1,25 @@
+package io.github.majianzheng.jarboot.base;
+
+import lombok.Data;
+
+/**
+ * Agent日志记录
+ * @author majianzheng
+ */
+@Data
+public class AgentLogRecord {
+    /**
+     * 时间戳
+     */
+    private long timestamp;
+
+    /**
+     * 级别
+     */
+    private String level;
+
+    /**
+     * 日志内容
+     */
+    private String text;
+}
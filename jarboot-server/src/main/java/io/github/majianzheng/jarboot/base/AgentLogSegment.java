@@ -0,0 +1,257 @@
+package io.github.majianzheng.jarboot.base;
+
+import io.github.majianzheng.jarboot.common.protocol.LogRecordCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Agent日志的一个分段，数据文件顺序追加{@link LogRecordCodec}编码的记录，
+ * 每写满一个块在索引文件中记录该块的位置、时间范围和包含的级别，查询时跳过不相关的块。
+ * <pre>
+ * 索引项：块偏移(8) + 块长度(4) + 级别掩码(4) + 最早时间(8) + 最晚时间(8)
+ * </pre>
+ * @author majianzheng
+ */
+class AgentLogSegment {
+    static final String DATA_SUFFIX = ".seg";
+    static final String INDEX_SUFFIX = ".idx";
+    /** 块大小，索引的粒度 */
+    private static final int BLOCK_SIZE = 16 * 1024;
+    private static final int ENTRY_SIZE = 32;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final long createTime;
+    /** 已结束的块 */
+    private final List<Block> blocks = new ArrayList<>();
+    /** 正在写入的块 */
+    private Block current;
+    private FileChannel data;
+    private FileChannel index;
+    private long size;
+
+    /**
+     * 打开分段，已存在时加载索引，末尾未建索引的部分重新扫描
+     * @param dir 目录
+     * @param createTime 创建时间，即文件名
+     * @param writable 是否继续写入
+     * @throws IOException IO异常
+     */
+    AgentLogSegment(File dir, long createTime, boolean writable) throws IOException {
+        this.createTime = createTime;
+        this.dataFile = new File(dir, createTime + DATA_SUFFIX);
+        this.indexFile = new File(dir, createTime + INDEX_SUFFIX);
+        if (writable) {
+            data = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            index = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        load();
+    }
+
+    long getCreateTime() {
+        return createTime;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * 追加一批完整的记录
+     * @param batch 记录，不改变其位置
+     * @throws IOException IO异常
+     */
+    synchronized void append(ByteBuffer batch) throws IOException {
+        ByteBuffer buf = batch.duplicate();
+        int pos = buf.position();
+        final int limit = buf.limit();
+        if (null == current) {
+            current = new Block(size);
+        }
+        while (pos < limit) {
+            final long timestamp = buf.getLong(pos);
+            final int level = buf.get(pos + Long.BYTES);
+            final int len = buf.getInt(pos + Long.BYTES + 1);
+            current.add(timestamp, level, LogRecordCodec.HEADER_LEN + len);
+            pos += LogRecordCodec.HEADER_LEN + len;
+        }
+        while (buf.hasRemaining()) {
+            data.write(buf, size + (buf.position() - batch.position()));
+        }
+        size += batch.remaining();
+        if (current.length >= BLOCK_SIZE) {
+            sealBlock();
+        }
+    }
+
+    /**
+     * 停止写入，结束当前的块
+     * @throws IOException IO异常
+     */
+    synchronized void close() throws IOException {
+        if (null != current && current.length > 0) {
+            sealBlock();
+        }
+        if (null != data) {
+            data.close();
+            data = null;
+        }
+        if (null != index) {
+            index.close();
+            index = null;
+        }
+    }
+
+    /**
+     * 删除分段的文件
+     */
+    void delete() {
+        if (!dataFile.delete()) {
+            dataFile.deleteOnExit();
+        }
+        if (!indexFile.delete()) {
+            indexFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * 与查询条件相关的块
+     * @param from 开始时间
+     * @param to 结束时间
+     * @param levelMask 级别掩码
+     * @return 块列表
+     */
+    synchronized List<Block> match(long from, long to, int levelMask) {
+        List<Block> result = new ArrayList<>();
+        for (Block b : blocks) {
+            if (b.matches(from, to, levelMask)) {
+                result.add(b);
+            }
+        }
+        if (null != current && current.length > 0 && current.matches(from, to, levelMask)) {
+            result.add(current.copy());
+        }
+        return result;
+    }
+
+    /**
+     * 读取块的内容
+     * @param block 块
+     * @return 块中的记录
+     * @throws IOException IO异常
+     */
+    ByteBuffer read(Block block) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(block.length);
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, block.offset + buf.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private void sealBlock() throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        entry.putLong(current.offset);
+        entry.putInt(current.length);
+        entry.putInt(current.levelMask);
+        entry.putLong(current.firstTime);
+        entry.putLong(current.lastTime);
+        entry.flip();
+        final long pos = (long) blocks.size() * ENTRY_SIZE;
+        while (entry.hasRemaining()) {
+            index.write(entry, pos + entry.position());
+        }
+        blocks.add(current);
+        current = new Block(size);
+    }
+
+    private void load() throws IOException {
+        long indexed = 0;
+        if (indexFile.exists()) {
+            try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buf = ByteBuffer.allocate((int) (channel.size() / ENTRY_SIZE * ENTRY_SIZE));
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf, buf.position()) < 0) {
+                        break;
+                    }
+                }
+                buf.flip();
+                while (buf.remaining() >= ENTRY_SIZE) {
+                    Block b = new Block(buf.getLong());
+                    b.length = buf.getInt();
+                    b.levelMask = buf.getInt();
+                    b.firstTime = buf.getLong();
+                    b.lastTime = buf.getLong();
+                    blocks.add(b);
+                    indexed = b.offset + b.length;
+                }
+            }
+        }
+        size = dataFile.exists() ? dataFile.length() : 0;
+        if (size > indexed) {
+            //异常退出时末尾的块没有索引，重新扫描
+            Block tail = new Block(indexed);
+            tail.length = (int) (size - indexed);
+            ByteBuffer buf = read(tail);
+            tail.length = 0;
+            int pos = 0;
+            final int valid = LogRecordCodec.validLength(buf);
+            while (pos < valid) {
+                final int len = buf.getInt(pos + Long.BYTES + 1);
+                tail.add(buf.getLong(pos), buf.get(pos + Long.BYTES), LogRecordCodec.HEADER_LEN + len);
+                pos += LogRecordCodec.HEADER_LEN + len;
+            }
+            size = indexed + valid;
+            current = tail;
+            if (null != data) {
+                //丢弃末尾不完整的记录
+                data.truncate(size);
+            }
+        }
+    }
+
+    /**
+     * 数据块
+     */
+    static final class Block {
+        final long offset;
+        int length;
+        int levelMask;
+        long firstTime = Long.MAX_VALUE;
+        long lastTime = Long.MIN_VALUE;
+
+        Block(long offset) {
+            this.offset = offset;
+        }
+
+        void add(long timestamp, int level, int recordLength) {
+            length += recordLength;
+            levelMask |= 1 << (level & 0x7);
+            firstTime = Math.min(firstTime, timestamp);
+            lastTime = Math.max(lastTime, timestamp);
+        }
+
+        boolean matches(long from, long to, int mask) {
+            return 0 != (levelMask & mask) && lastTime >= from && firstTime <= to;
+        }
+
+        Block copy() {
+            Block b = new Block(offset);
+            b.length = length;
+            b.levelMask = levelMask;
+            b.firstTime = firstTime;
+            b.lastTime = lastTime;
+            return b;
+        }
+    }
+}
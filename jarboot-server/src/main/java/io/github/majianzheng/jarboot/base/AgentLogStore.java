@@ -0,0 +1,280 @@
+package io.github.majianzheng.jarboot.base;
+
+import io.github.majianzheng.jarboot.common.protocol.LogRecordCodec;
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.utils.SettingUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Agent日志存储，每个服务独立的目录，按大小和时间滚动分段，超出个数时删除最旧的分段。
+ * 查询时先按分段和块的时间范围、级别索引筛选，只读取相关的块。服务下线时关闭文件，删除服务时删除目录。
+ * @author majianzheng
+ */
+public class AgentLogStore {
+    private static final Logger logger = LoggerFactory.getLogger(AgentLogStore.class);
+    /** 单个分段的最大大小 */
+    private static final long SEGMENT_SIZE = Long.getLong("jarboot.agent-log.segment-size", 16L * 1024 * 1024);
+    /** 单个分段的最长时间 */
+    private static final long SEGMENT_MILLIS = Long.getLong("jarboot.agent-log.segment-millis", 24L * 3600 * 1000);
+    /** 每个服务保留的分段个数 */
+    private static final int MAX_SEGMENTS = Integer.getInteger("jarboot.agent-log.max-segments", 8);
+    /** 单次查询返回的最大条数 */
+    private static final int MAX_LIMIT = 5000;
+    private static final Pattern SID_PATTERN = Pattern.compile("[\\w\\-]+");
+
+    private final ConcurrentHashMap<String, ServiceLogs> logs = new ConcurrentHashMap<>(16);
+    private final File dir;
+
+    public static AgentLogStore getInstance() {
+        return AgentLogStoreHolder.INSTANCE;
+    }
+
+    /**
+     * 写入一批日志
+     * @param sid sid
+     * @param batch {@link LogRecordCodec}编码的记录，不改变其位置
+     */
+    public void append(String sid, ByteBuffer batch) {
+        ServiceLogs service = getOrOpen(sid, true);
+        if (null == service) {
+            return;
+        }
+        ByteBuffer valid = batch.duplicate();
+        valid.limit(valid.position() + LogRecordCodec.validLength(valid));
+        if (valid.hasRemaining()) {
+            service.append(valid);
+        }
+    }
+
+    /**
+     * 写入一条日志，兼容旧版本Agent逐条发送的日志
+     * @param sid sid
+     * @param text 日志
+     */
+    public void append(String sid, ByteBuffer text, byte level) {
+        ByteBuffer buf = ByteBuffer.allocate(LogRecordCodec.HEADER_LEN + text.remaining());
+        buf.putLong(System.currentTimeMillis());
+        buf.put(level);
+        buf.putInt(text.remaining());
+        buf.put(text.duplicate());
+        buf.flip();
+        append(sid, buf);
+    }
+
+    /**
+     * 查询日志
+     * @param sid sid
+     * @param from 开始时间，包含
+     * @param to 结束时间，包含
+     * @param minLevel 最低级别
+     * @param keyword 包含的文本，为空时不过滤
+     * @param limit 最多返回的条数，超出时返回最新的
+     * @return 按时间顺序的日志
+     */
+    public List<AgentLogRecord> query(String sid, long from, long to, int minLevel, String keyword, int limit) {
+        ServiceLogs service = getOrOpen(sid, false);
+        if (null == service) {
+            return Collections.emptyList();
+        }
+        final int max = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        final int mask = LogRecordCodec.levelMask(minLevel);
+        final byte[] key = StringUtils.isEmpty(keyword) ? null : keyword.getBytes(StandardCharsets.UTF_8);
+        ArrayDeque<AgentLogRecord> result = new ArrayDeque<>(max);
+        for (AgentLogSegment segment : service.snapshot()) {
+            try {
+                for (AgentLogSegment.Block block : segment.match(from, to, mask)) {
+                    scan(segment.read(block), from, to, mask, key, max, result);
+                }
+            } catch (IOException e) {
+                logger.debug(e.getMessage(), e);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static void scan(ByteBuffer buf, long from, long to, int mask, byte[] key,
+                             int max, ArrayDeque<AgentLogRecord> result) {
+        final int valid = LogRecordCodec.validLength(buf);
+        int pos = 0;
+        while (pos < valid) {
+            final long timestamp = buf.getLong(pos);
+            final int level = buf.get(pos + Long.BYTES);
+            final int len = buf.getInt(pos + Long.BYTES + 1);
+            final int textPos = pos + LogRecordCodec.HEADER_LEN;
+            pos = textPos + len;
+            final boolean matched = timestamp >= from && timestamp <= to && 0 != (mask & (1 << level))
+                    && (null == key || indexOf(buf.array(), textPos, len, key) >= 0);
+            if (!matched) {
+                continue;
+            }
+            AgentLogRecord record = new AgentLogRecord();
+            record.setTimestamp(timestamp);
+            record.setLevel(LogRecordCodec.levelName(level));
+            record.setText(new String(buf.array(), textPos, len, StandardCharsets.UTF_8));
+            if (result.size() >= max) {
+                result.pollFirst();
+            }
+            result.addLast(record);
+        }
+    }
+
+    private static int indexOf(byte[] buf, int off, int len, byte[] key) {
+        final int max = off + len - key.length;
+        for (int i = off; i <= max; ++i) {
+            int j = 0;
+            while (j < key.length && buf[i + j] == key[j]) {
+                ++j;
+            }
+            if (j == key.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 关闭服务正在写入的分段，再次写入或查询时重新打开
+     * @param sid sid
+     */
+    public void close(String sid) {
+        if (null == sid) {
+            return;
+        }
+        ServiceLogs service = logs.remove(sid);
+        if (null != service) {
+            service.close();
+        }
+    }
+
+    /**
+     * 关闭并删除服务的日志目录
+     * @param sid sid
+     */
+    public void delete(String sid) {
+        if (null == sid || !SID_PATTERN.matcher(sid).matches()) {
+            return;
+        }
+        close(sid);
+        FileUtils.deleteQuietly(FileUtils.getFile(dir, sid));
+    }
+
+    private ServiceLogs getOrOpen(String sid, boolean create) {
+        if (null == sid || !SID_PATTERN.matcher(sid).matches()) {
+            return null;
+        }
+        ServiceLogs service = logs.get(sid);
+        if (null != service) {
+            return service;
+        }
+        final File serviceDir = FileUtils.getFile(dir, sid);
+        if (create) {
+            return logs.computeIfAbsent(sid, k -> new ServiceLogs(serviceDir));
+        }
+        //只读取已离线服务的分段，不缓存
+        return serviceDir.isDirectory() ? new ServiceLogs(serviceDir) : null;
+    }
+
+    private AgentLogStore() {
+        dir = FileUtils.getFile(SettingUtils.getLogDir(), "agent");
+    }
+
+    private static class AgentLogStoreHolder {
+        static final AgentLogStore INSTANCE = new AgentLogStore();
+    }
+
+    /**
+     * 单个服务的分段列表，最后一个为正在写入的分段
+     */
+    private static final class ServiceLogs {
+        private final File dir;
+        private final List<AgentLogSegment> segments = new ArrayList<>();
+        private AgentLogSegment active;
+        private boolean closed;
+
+        ServiceLogs(File dir) {
+            this.dir = dir;
+            File[] files = dir.listFiles((d, name) -> name.endsWith(AgentLogSegment.DATA_SUFFIX));
+            if (null == files) {
+                return;
+            }
+            long[] times = new long[files.length];
+            int count = 0;
+            for (File f : files) {
+                final String name = f.getName();
+                try {
+                    times[count] = Long.parseLong(name.substring(0, name.length() - AgentLogSegment.DATA_SUFFIX.length()));
+                    ++count;
+                } catch (NumberFormatException e) {
+                    //ignore
+                }
+            }
+            Arrays.sort(times, 0, count);
+            for (int i = 0; i < count; ++i) {
+                try {
+                    segments.add(new AgentLogSegment(dir, times[i], false));
+                } catch (IOException e) {
+                    logger.warn("load agent log segment {} failed: {}", times[i], e.getMessage());
+                }
+            }
+        }
+
+        synchronized void append(ByteBuffer batch) {
+            if (closed) {
+                return;
+            }
+            try {
+                final long now = System.currentTimeMillis();
+                if (null == active || active.size() >= SEGMENT_SIZE || now - active.getCreateTime() >= SEGMENT_MILLIS) {
+                    roll(now);
+                }
+                active.append(batch);
+            } catch (IOException e) {
+                logger.warn("write agent log failed: {}", e.getMessage());
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (null == active) {
+                return;
+            }
+            try {
+                active.close();
+            } catch (IOException e) {
+                logger.debug("close agent log failed: {}", e.getMessage());
+            }
+            active = null;
+        }
+
+        synchronized List<AgentLogSegment> snapshot() {
+            return new ArrayList<>(segments);
+        }
+
+        private void roll(long now) throws IOException {
+            if (null != active) {
+                active.close();
+            }
+            FileUtils.forceMkdir(dir);
+            long createTime = now;
+            if (!segments.isEmpty()) {
+                //保证文件名递增
+                createTime = Math.max(now, segments.get(segments.size() - 1).getCreateTime() + 1);
+            }
+            active = new AgentLogSegment(dir, createTime, true);
+            segments.add(active);
+            while (segments.size() > MAX_SEGMENTS) {
+                segments.remove(0).delete();
+            }
+        }
+    }
+}
@@ -8,10 +8,12 @@ import io.github.majianzheng.jarboot.api.pojo.ServiceSetting;
 import io.github.majianzheng.jarboot.common.AnsiLog;
 import io.github.majianzheng.jarboot.common.PidFileHelper;
 import io.github.majianzheng.jarboot.common.notify.DefaultPublisher;
+import io.github.majianzheng.jarboot.common.notify.ShardedPublisher;
 import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.api.constant.CommonConst;
 import io.github.majianzheng.jarboot.common.protocol.CommandConst;
 import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
+import io.github.majianzheng.jarboot.common.protocol.LogRecordCodec;
 import io.github.majianzheng.jarboot.common.protocol.ResponseType;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 import io.github.majianzheng.jarboot.task.AttachStatus;
@@ -23,7 +25,7 @@ import io.github.majianzheng.jarboot.event.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.websocket.Session;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -34,6 +36,8 @@ import java.util.concurrent.TimeUnit;
  */
 @SuppressWarnings({"squid:S2274", "PrimitiveArrayArgumentToVarargsMethod"})
 public class AgentManager {
+    /** 激活窗口时要求回放最近的输出 */
+    private static final String REPLAY = "replay";
     private final Logger logger = LoggerFactory.getLogger(getClass());
     /** 客户端Map */
     private final ConcurrentHashMap<String, AgentOperator> clientMap = new ConcurrentHashMap<>(16);
@@ -44,10 +48,6 @@ public class AgentManager {
     /** 远程进程列表 */
     private final ConcurrentHashMap<String, JvmProcess> remoteProcesses = new ConcurrentHashMap<>(16);
 
-    /** 写日志方法 */
-    private java.lang.reflect.Method writeBytes = null;
-    /** 当前默认的日志Appender */
-    private ch.qos.logback.core.OutputStreamAppender<ch.qos.logback.classic.spi.ILoggingEvent> appender = null;
     /** 激活的窗口sid -> sessionId */
     private final Map<String, Map<String, Long>> activeWindow = new ConcurrentHashMap<>(16);
 
@@ -130,6 +130,10 @@ public class AgentManager {
         if (null == client) {
             return;
         }
+        //写入内存中未满的遥测数据块
+        TelemetryStore.getInstance().close(sid);
+        StdoutLogStore.getInstance().close(sid);
+        AgentLogStore.getInstance().close(sid);
         String pid = client.getPid();
         if (pid.isEmpty()) {
             if (sid.startsWith(CommonConst.REMOTE_SID_PREFIX)) {
@@ -463,11 +467,15 @@ public class AgentManager {
                 doHeartbeat(event.getUserDir(), event.getServiceName(), event.getSid(), event.getSession());
                 break;
             case STD_PRINT:
-                //启动中的控制台消息
-                MessageUtils.stdPrint(event.getResponse().getSessionId(), event.getSid(), resp.getBody());
+            case STD_BATCH:
+                onStdPrint(event.getSid(), resp);
                 break;
             case LOG_APPENDER:
-                onAgentLog(event.getSid(), resp.getBody());
+            case LOG_BATCH:
+                onAgentLog(event.getSid(), resp);
+                break;
+            case TELEMETRY_BATCH:
+                onTelemetry(event.getSid(), resp);
                 break;
             case NOTIFY:
                 this.onNotify(resp, event.getSid());
@@ -478,6 +486,17 @@ public class AgentManager {
         }
     }
 
+    private void onStdPrint(String sid, CommandResponse resp) {
+        final ByteBuffer body = resp.bodyBuffer();
+        //没有打开的窗口时Agent仍会发送，记录下来供窗口激活时回放，下线后到达的不再记录以免重新打开
+        if (clientMap.containsKey(sid)) {
+            StdoutLogStore.getInstance().append(sid, body);
+        }
+        if (StringUtils.isNotEmpty(resp.getSessionId())) {
+            MessageUtils.stdPrint(resp.getSessionId(), sid, body);
+        }
+    }
+
     private void trustOnce(String sid) {
         AgentOperator client = clientMap.getOrDefault(sid, null);
         if (null != client && !client.isTrusted()) {
@@ -510,17 +529,23 @@ public class AgentManager {
         return true;
     }
 
-    private void onAgentLog(String sid, String msg) {
+    private void onAgentLog(String sid, CommandResponse resp) {
         if (checkNotTrusted(sid)) {
             return;
         }
-        if (null != writeBytes) {
-            try {
-                writeBytes.invoke(appender, msg.getBytes(StandardCharsets.UTF_8));
-            } catch (Exception e) {
-                //ignore
-            }
+        if (ResponseType.LOG_BATCH.equals(resp.getResponseType())) {
+            AgentLogStore.getInstance().append(sid, resp.bodyBuffer());
+        } else {
+            //旧版本Agent逐条发送的日志
+            AgentLogStore.getInstance().append(sid, resp.bodyBuffer(), LogRecordCodec.INFO);
+        }
+    }
+
+    private void onTelemetry(String sid, CommandResponse resp) {
+        if (checkNotTrusted(sid)) {
+            return;
         }
+        TelemetryStore.getInstance().append(sid, resp.bodyBuffer());
     }
 
     private Set<String> getActiveWindow(String sid) {
@@ -611,12 +636,7 @@ public class AgentManager {
         if (checkNotTrusted(sid)) {
             return;
         }
-        final String sessionId = resp.getSessionId();
-        if (StringUtils.isEmpty(sessionId)) {
-            MessageUtils.notify(sid, resp.getSuccess(), resp.getBody());
-        } else {
-            MessageUtils.notify(sid, sessionId, resp.getSuccess(), resp.getBody());
-        }
+        MessageUtils.notify(sid, resp.getSessionId(), Boolean.TRUE.equals(resp.getSuccess()), resp.bodyBuffer());
     }
 
     private String formatErrorMsg(String serviceName, String msg) {
@@ -656,6 +676,9 @@ public class AgentManager {
                 releaseAgentSession(event.getSessionId());
                 break;
             case ACTIVE_WINDOW:
+                if (REPLAY.equals(event.getBody())) {
+                    replayStdout(event.getSid(), event.getSessionId());
+                }
                 changeWindowState(event.getSid(), event.getSessionId(), true);
                 break;
             case CLOSE_WINDOW:
@@ -685,6 +708,13 @@ public class AgentManager {
         windowActive(sid, sessionId, active);
     }
 
+    private void replayStdout(String sid, String sessionId) {
+        StdoutPage page = StdoutLogStore.getInstance().tail(sid);
+        if (null != page && StringUtils.isNotEmpty(page.getText())) {
+            MessageUtils.stdPrint(sessionId, sid, page.getText());
+        }
+    }
+
     private void windowActive(String sid, String sessionId, boolean active) {
         if (clientMap.containsKey(sid)) {
             sendInternalCommand(sid, "window -a " + active, sessionId);
@@ -703,7 +733,7 @@ public class AgentManager {
             public Class<? extends JarbootEvent> subscribeType() {
                 return AgentResponseEvent.class;
             }
-        }, new DefaultPublisher(32768, "agent.resp.publisher"));
+        }, new ShardedPublisher(32768, "agent.resp.publisher"));
 
         //服务启动完成事件
         NotifyReactor.getInstance().registerSubscriber(new Subscriber<ServiceStartedEvent>() {
@@ -732,21 +762,7 @@ public class AgentManager {
         }, new DefaultPublisher(16384, "func.req.publisher"));
     }
 
-    @SuppressWarnings("java:S3011")
     private AgentManager() {
-        //获取日志的appender，当宿主服务发来日志时，使用当前服务的日志系统记录
-        //这里解读了logback日志源码，反射获取写日志文件的类方法
-        ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger)LoggerFactory.getLogger("ROOT");
-        appender = (ch.qos.logback.core.OutputStreamAppender<ch.qos.logback.classic.spi.ILoggingEvent>) root
-                .getAppender("FILE");
-        try {
-            writeBytes = ch.qos.logback.core.OutputStreamAppender.class
-                    .getDeclaredMethod("writeBytes", byte[].class);
-            writeBytes.setAccessible(true);
-        } catch (Exception e) {
-            //ignore
-        }
-
         //注册事件订阅
         this.initSubscriber();
     }
@@ -5,8 +5,10 @@ import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.common.protocol.CommandConst;
 import io.github.majianzheng.jarboot.common.protocol.CommandRequest;
 import io.github.majianzheng.jarboot.common.protocol.CommandType;
+import io.github.majianzheng.jarboot.common.protocol.FrameCodec;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 import io.github.majianzheng.jarboot.event.SendCommandEvent;
+import io.github.majianzheng.jarboot.utils.CommonUtils;
 import io.github.majianzheng.jarboot.ws.MessageSenderEvent;
 import io.github.majianzheng.jarboot.ws.SessionOperator;
 
@@ -25,15 +27,20 @@ public final class AgentOperator extends SessionOperator {
     private ClientState state;
     private String pid;
     private boolean trusted;
+    /** Agent是否支持帧协议 */
+    private final boolean framed;
 
     public AgentOperator(String userDir, String name, String sid, final Session session) {
-        super(session);
+        //Agent连接不能因积压断开
+        super(session, false);
         this.userDir = userDir;
         this.name = name;
         this.sid = sid;
         this.state = ClientState.STARTING;
         this.pid = StringUtils.EMPTY;
         this.trusted = false;
+        this.framed = null != session
+                && String.valueOf(FrameCodec.VERSION).equals(CommonUtils.getSessionParam(FrameCodec.PROTOCOL_PARAM, session));
     }
 
     public String getUserDir() {
@@ -99,6 +106,10 @@ public final class AgentOperator extends SessionOperator {
         sendCommand(cmd, StringUtils.EMPTY, CommandType.INTERNAL, 1, 1);
     }
 
+    public boolean isFramed() {
+        return framed;
+    }
+
     public boolean isTrusted() {
         return trusted;
     }
@@ -114,7 +125,7 @@ public final class AgentOperator extends SessionOperator {
         request.setSessionId(sessionId);
         request.setRow(row);
         request.setCol(col);
-        newMessage(request.toRaw());
+        newMessage(framed ? FrameCodec.encodeRequest(request) : request.toRaw());
     }
 
     @Override
@@ -0,0 +1,147 @@
+package io.github.majianzheng.jarboot.base;
+
+import io.github.majianzheng.jarboot.utils.SettingUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 各服务的标准输出环形日志，保存最近的输出，窗口激活时回放，并支持向前翻页。
+ * 内容来自Agent已发送的输出，不需要Agent重新发送。服务下线时关闭文件，删除服务时删除文件。
+ * @author majianzheng
+ */
+public class StdoutLogStore {
+    private static final Logger logger = LoggerFactory.getLogger(StdoutLogStore.class);
+    /** 每个服务保留的输出大小 */
+    private static final int RING_SIZE = Integer.getInteger("jarboot.stdout.ring-size", 4 * 1024 * 1024);
+    /** 窗口激活时回放的大小 */
+    private static final int REPLAY_SIZE = Integer.getInteger("jarboot.stdout.replay-size", 256 * 1024);
+    /** 单页的最大大小 */
+    private static final int MAX_PAGE_SIZE = 1024 * 1024;
+    private static final Pattern SID_PATTERN = Pattern.compile("[\\w\\-]+");
+    private static final String SUFFIX = ".ring";
+
+    private final ConcurrentHashMap<String, StdoutRingLog> logs = new ConcurrentHashMap<>(16);
+    private final File dir;
+
+    public static StdoutLogStore getInstance() {
+        return StdoutLogStoreHolder.INSTANCE;
+    }
+
+    /**
+     * 记录一批输出
+     * @param sid sid
+     * @param body 输出内容，不改变其位置
+     */
+    public void append(String sid, ByteBuffer body) {
+        StdoutRingLog log = getOrOpen(sid);
+        if (null != log) {
+            log.append(body);
+        }
+    }
+
+    /**
+     * 最近的输出，用于窗口激活时回放
+     * @param sid sid
+     * @return 最近的输出，没有时返回null
+     */
+    public StdoutPage tail(String sid) {
+        return read(sid, 0, REPLAY_SIZE);
+    }
+
+    /**
+     * 读取指定偏移之前的一页
+     * @param sid sid
+     * @param before 结束偏移，小于等于0时为最新位置
+     * @param size 大小
+     * @return 一页内容，没有时返回null
+     */
+    public StdoutPage read(String sid, long before, int size) {
+        if (null == sid || !SID_PATTERN.matcher(sid).matches()) {
+            return null;
+        }
+        final int max = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        StdoutRingLog log = logs.get(sid);
+        if (null != log) {
+            return log.read(before, max);
+        }
+        //已下线的服务临时只读打开，读完即关闭
+        final File file = FileUtils.getFile(dir, sid + SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (StdoutRingLog closed = StdoutRingLog.openReadOnly(file)) {
+            return null == closed ? null : closed.read(before, max);
+        } catch (IOException e) {
+            logger.debug("read stdout log {} failed: {}", sid, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 关闭服务的环形日志，再次写入或读取时重新打开
+     * @param sid sid
+     */
+    public void close(String sid) {
+        if (null == sid) {
+            return;
+        }
+        StdoutRingLog log = logs.remove(sid);
+        if (null == log) {
+            return;
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.debug("close stdout log {} failed: {}", sid, e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭并删除服务的环形日志
+     * @param sid sid
+     */
+    public void delete(String sid) {
+        if (null == sid || !SID_PATTERN.matcher(sid).matches()) {
+            return;
+        }
+        close(sid);
+        FileUtils.deleteQuietly(FileUtils.getFile(dir, sid + SUFFIX));
+    }
+
+    private StdoutRingLog getOrOpen(String sid) {
+        if (null == sid || !SID_PATTERN.matcher(sid).matches()) {
+            return null;
+        }
+        StdoutRingLog log = logs.get(sid);
+        if (null != log) {
+            return log;
+        }
+        final File file = FileUtils.getFile(dir, sid + SUFFIX);
+        return logs.computeIfAbsent(sid, k -> open(file));
+    }
+
+    private StdoutRingLog open(File file) {
+        try {
+            FileUtils.forceMkdir(dir);
+            return new StdoutRingLog(file, RING_SIZE);
+        } catch (IOException e) {
+            logger.warn("open stdout log {} failed: {}", file.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private StdoutLogStore() {
+        dir = FileUtils.getFile(SettingUtils.getLogDir(), "stdout");
+    }
+
+    private static class StdoutLogStoreHolder {
+        static final StdoutLogStore INSTANCE = new StdoutLogStore();
+    }
+}
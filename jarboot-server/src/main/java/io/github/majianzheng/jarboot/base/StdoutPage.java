@@ -0,0 +1,30 @@
+package io.github.majianzheng.jarboot.base;
+
+import lombok.Data;
+
+/**
+ * 标准输出日志的一页
+ * @author majianzheng
+ */
+@Data
+public class StdoutPage {
+    /**
+     * 仍保留的最早偏移，start大于该值时可继续向前翻页
+     */
+    private long first;
+
+    /**
+     * 本页的起始偏移
+     */
+    private long start;
+
+    /**
+     * 本页的结束偏移
+     */
+    private long end;
+
+    /**
+     * 内容
+     */
+    private String text;
+}
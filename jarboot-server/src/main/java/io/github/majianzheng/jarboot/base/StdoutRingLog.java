@@ -0,0 +1,249 @@
+package io.github.majianzheng.jarboot.base;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 单个服务的标准输出环形日志，使用内存映射文件，写满后覆盖最旧的内容。
+ * 偏移量为自文件创建以来写入的总字节数，文件中只保留最近的容量大小的内容；
+ * 稀疏的偏移索引记录批次的起始位置，向前翻页时以批次起始对齐，不会从字符中间截断。
+ * <pre>
+ * 文件格式：头部(64) + 索引(long[1024]) + 数据(容量)
+ * 头部：magic(4) + 版本(4) + 容量(8) + 结束偏移(8) + 索引个数(8)
+ * </pre>
+ * @author majianzheng
+ */
+class StdoutRingLog implements Closeable {
+    private static final int MAGIC = 0x4a42534f;
+    private static final int VERSION = 1;
+    private static final int INDEX_SIZE = 1024;
+    private static final int HEADER_SIZE = 64;
+    private static final int CAPACITY_POS = 8;
+    private static final int END_POS = 16;
+    private static final int INDEX_COUNT_POS = 24;
+    private static final int DATA_OFFSET = HEADER_SIZE + INDEX_SIZE * Long.BYTES;
+    private static final byte LF = '\n';
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    /** 索引间隔，索引覆盖整个环形区 */
+    private final int indexInterval;
+    private long end;
+    private long indexCount;
+    private long lastIndexed;
+    private boolean closed;
+    /** 只读打开，不写入也不修改文件 */
+    private final boolean readOnly;
+
+    /**
+     * 打开或创建环形日志，已存在且容量一致时继续使用
+     * @param f 文件
+     * @param capacity 数据区容量
+     * @throws IOException IO异常
+     */
+    StdoutRingLog(File f, int capacity) throws IOException {
+        this.capacity = capacity;
+        this.indexInterval = Math.max(1, capacity / INDEX_SIZE);
+        this.readOnly = false;
+        this.file = new RandomAccessFile(f, "rw");
+        final long size = (long) DATA_OFFSET + capacity;
+        final boolean reuse = file.length() == size;
+        file.setLength(size);
+        this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (reuse && buffer.getInt(0) == MAGIC && buffer.getLong(CAPACITY_POS) == capacity) {
+            this.end = buffer.getLong(END_POS);
+            this.indexCount = buffer.getLong(INDEX_COUNT_POS);
+            this.lastIndexed = indexCount > 0 ? indexAt(indexCount - 1) : 0;
+        } else {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(Integer.BYTES, VERSION);
+            buffer.putLong(CAPACITY_POS, capacity);
+            this.end = 0;
+            this.indexCount = 0;
+            this.lastIndexed = 0;
+            writeHeader();
+        }
+    }
+
+    private StdoutRingLog(RandomAccessFile file, MappedByteBuffer buffer, int capacity) {
+        this.readOnly = true;
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.indexInterval = Math.max(1, capacity / INDEX_SIZE);
+        this.end = buffer.getLong(END_POS);
+        this.indexCount = buffer.getLong(INDEX_COUNT_POS);
+        this.lastIndexed = indexCount > 0 ? indexAt(indexCount - 1) : 0;
+    }
+
+    /**
+     * 只读打开已存在的环形日志，容量以文件头为准，不修改文件
+     * @param f 文件
+     * @return 环形日志，文件不完整或文件头不匹配时为null
+     * @throws IOException IO异常
+     */
+    static StdoutRingLog openReadOnly(File f) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(f, "r");
+        StdoutRingLog log = null;
+        try {
+            final long length = file.length();
+            if (length > DATA_OFFSET) {
+                MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+                final long capacity = buffer.getLong(CAPACITY_POS);
+                final boolean valid = buffer.getInt(0) == MAGIC && length == DATA_OFFSET + capacity
+                        && buffer.getLong(END_POS) >= 0 && buffer.getLong(INDEX_COUNT_POS) >= 0;
+                if (valid) {
+                    log = new StdoutRingLog(file, buffer, (int) capacity);
+                }
+            }
+            return log;
+        } finally {
+            if (null == log) {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * 追加一批输出
+     * @param src 输出内容，不改变其位置
+     */
+    synchronized void append(ByteBuffer src) {
+        ByteBuffer data = src.duplicate();
+        if (closed || readOnly || !data.hasRemaining()) {
+            return;
+        }
+        if (data.remaining() > capacity) {
+            //只保留最后的容量大小
+            end += data.remaining() - capacity;
+            data.position(data.limit() - capacity);
+        }
+        if (0 == indexCount || end - lastIndexed >= indexInterval) {
+            buffer.putLong(HEADER_SIZE + (int) (indexCount % INDEX_SIZE) * Long.BYTES, end);
+            ++indexCount;
+            lastIndexed = end;
+        }
+        while (data.hasRemaining()) {
+            final int pos = (int) (end % capacity);
+            final int n = Math.min(data.remaining(), capacity - pos);
+            ByteBuffer dst = buffer.duplicate();
+            dst.position(DATA_OFFSET + pos);
+            ByteBuffer part = data.duplicate();
+            part.limit(part.position() + n);
+            dst.put(part);
+            data.position(data.position() + n);
+            end += n;
+        }
+        writeHeader();
+    }
+
+    /**
+     * 仍保留的最早偏移
+     * @return 偏移
+     */
+    synchronized long getStart() {
+        return Math.max(0, end - capacity);
+    }
+
+    /**
+     * 结束偏移
+     * @return 偏移
+     */
+    synchronized long getEnd() {
+        return end;
+    }
+
+    /**
+     * 读取指定偏移之前的一页
+     * @param before 结束偏移，小于等于0时为最新位置
+     * @param maxBytes 最大字节数
+     * @return 一页内容
+     */
+    synchronized StdoutPage read(long before, int maxBytes) {
+        final long first = getStart();
+        final long to = before <= 0 ? end : Math.min(before, end);
+        long from = Math.max(first, to - maxBytes);
+        final boolean reachFirst = from == first;
+        if (from > 0 && from < to) {
+            from = align(from, to);
+        }
+        StdoutPage page = new StdoutPage();
+        //已到最早的内容时对齐后的位置即为最早位置，不再向前翻页
+        page.setFirst(reachFirst ? from : first);
+        page.setStart(from);
+        page.setEnd(to);
+        if (from >= to) {
+            page.setText("");
+            return page;
+        }
+        byte[] bytes = new byte[(int) (to - from)];
+        int copied = 0;
+        long offset = from;
+        while (copied < bytes.length) {
+            final int pos = (int) (offset % capacity);
+            final int n = Math.min(bytes.length - copied, capacity - pos);
+            ByteBuffer src = buffer.duplicate();
+            src.position(DATA_OFFSET + pos);
+            src.get(bytes, copied, n);
+            copied += n;
+            offset += n;
+        }
+        page.setText(new String(bytes, StandardCharsets.UTF_8));
+        return page;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        //映射在缓冲被回收时释放，关闭后不再写入，仍在读取的页不受影响
+        closed = true;
+        if (!readOnly) {
+            buffer.force();
+        }
+        file.close();
+    }
+
+    /**
+     * 对齐到不早于from的批次起始位置，没有索引时对齐到下一行
+     * @param from 起始偏移
+     * @param to 结束偏移
+     * @return 对齐后的偏移
+     */
+    private long align(long from, long to) {
+        long best = Long.MAX_VALUE;
+        final long count = Math.min(indexCount, INDEX_SIZE);
+        for (long i = indexCount - count; i < indexCount; ++i) {
+            final long e = indexAt(i);
+            if (e >= from && e < best) {
+                best = e;
+            }
+        }
+        if (best < to) {
+            return best;
+        }
+        for (long offset = from; offset < to - 1; ++offset) {
+            if (LF == buffer.get(DATA_OFFSET + (int) (offset % capacity))) {
+                return offset + 1;
+            }
+        }
+        return from;
+    }
+
+    private long indexAt(long i) {
+        return buffer.getLong(HEADER_SIZE + (int) (i % INDEX_SIZE) * Long.BYTES);
+    }
+
+    private void writeHeader() {
+        buffer.putLong(END_POS, end);
+        buffer.putLong(INDEX_COUNT_POS, indexCount);
+    }
+}
@@ -0,0 +1,279 @@
+package io.github.majianzheng.jarboot.base;
+
+import io.github.majianzheng.jarboot.common.protocol.TelemetryCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 遥测数据块的压缩编码，参考Gorilla时序压缩：时间戳保存二阶差分，指标值与同一指标的上一个值异或后只保存有效位。
+ * 固定间隔的采样时间戳每个只占1位，变化缓慢的指标大多只占1位或十几位。
+ * <pre>
+ * 格式：采样个数(4) + 指标个数(2) + [名称长度(2) + UTF-8名称] * 指标个数 + 位流
+ * 二阶差分：0 | 10 + 7位 | 110 + 9位 | 1110 + 12位 | 1111 + 64位
+ * 异或：0相同 | 10 + 沿用上一个的前导零和有效位长度 | 11 + 前导零(5) + 有效位长度-1(6) + 有效位
+ * </pre>
+ * @author majianzheng
+ */
+final class TelemetryBlock {
+    /** 二阶差分各档的位数 */
+    private static final int[] DOD_BITS = {7, 9, 12};
+    private static final int MAX_LEADING = 31;
+    private static final int LEADING_BITS = 5;
+    private static final int LENGTH_BITS = 6;
+
+    /**
+     * 压缩一块采样
+     * @param names 指标名称
+     * @param timestamps 时间戳
+     * @param values 指标值，按采样顺序排列，每次采样依次为各指标的值
+     * @param count 采样个数
+     * @return 压缩后的数据
+     */
+    static byte[] encode(String[] names, long[] timestamps, double[] values, int count) {
+        final int metricCount = names.length;
+        byte[][] nameBytes = new byte[metricCount][];
+        int headerLen = Integer.BYTES + Short.BYTES;
+        for (int j = 0; j < metricCount; ++j) {
+            nameBytes[j] = names[j].getBytes(StandardCharsets.UTF_8);
+            headerLen += Short.BYTES + nameBytes[j].length;
+        }
+        BitWriter out = new BitWriter(headerLen + count * (metricCount + 1) * 2);
+        out.write(count, Integer.SIZE);
+        out.write(metricCount, Short.SIZE);
+        for (byte[] bytes : nameBytes) {
+            out.write(bytes.length, Short.SIZE);
+            for (byte b : bytes) {
+                out.write(b, Byte.SIZE);
+            }
+        }
+        long prevTimestamp = 0;
+        long prevDelta = 0;
+        final long[] prevBits = new long[metricCount];
+        final int[] prevLeading = new int[metricCount];
+        final int[] prevTrailing = new int[metricCount];
+        Arrays.fill(prevLeading, -1);
+        for (int i = 0; i < count; ++i) {
+            final long timestamp = timestamps[i];
+            if (0 == i) {
+                out.write(timestamp, Long.SIZE);
+            } else {
+                final long delta = timestamp - prevTimestamp;
+                writeDod(out, delta - prevDelta);
+                prevDelta = delta;
+            }
+            prevTimestamp = timestamp;
+            final int base = i * metricCount;
+            for (int j = 0; j < metricCount; ++j) {
+                final long bits = Double.doubleToRawLongBits(values[base + j]);
+                if (0 == i) {
+                    out.write(bits, Long.SIZE);
+                } else {
+                    writeXor(out, bits ^ prevBits[j], j, prevLeading, prevTrailing);
+                }
+                prevBits[j] = bits;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解压一块采样
+     * @param src 压缩的数据，不改变其位置
+     * @return 采样
+     * @throws IllegalStateException 数据不完整
+     */
+    static TelemetryCodec.Batch decode(ByteBuffer src) {
+        BitReader in = new BitReader(src);
+        final int count = (int) in.read(Integer.SIZE);
+        final int metricCount = (int) in.read(Short.SIZE);
+        //每个时间戳和指标值至少占1位
+        if (count < 0 || (long) count * (metricCount + 1) > in.remaining()) {
+            throw new IllegalStateException("Broken telemetry block.");
+        }
+        String[] names = new String[metricCount];
+        for (int j = 0; j < metricCount; ++j) {
+            byte[] bytes = new byte[(int) in.read(Short.SIZE)];
+            for (int k = 0; k < bytes.length; ++k) {
+                bytes[k] = (byte) in.read(Byte.SIZE);
+            }
+            names[j] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        final long[] timestamps = new long[count];
+        final double[] values = new double[count * metricCount];
+        long prevTimestamp = 0;
+        long prevDelta = 0;
+        final long[] prevBits = new long[metricCount];
+        final int[] prevLeading = new int[metricCount];
+        final int[] prevTrailing = new int[metricCount];
+        for (int i = 0; i < count; ++i) {
+            long timestamp;
+            if (0 == i) {
+                timestamp = in.read(Long.SIZE);
+            } else {
+                prevDelta += readDod(in);
+                timestamp = prevTimestamp + prevDelta;
+            }
+            timestamps[i] = timestamp;
+            prevTimestamp = timestamp;
+            final int base = i * metricCount;
+            for (int j = 0; j < metricCount; ++j) {
+                long bits = 0 == i ? in.read(Long.SIZE) : prevBits[j] ^ readXor(in, j, prevLeading, prevTrailing);
+                values[base + j] = Double.longBitsToDouble(bits);
+                prevBits[j] = bits;
+            }
+        }
+        return new TelemetryCodec.Batch(names, timestamps, values);
+    }
+
+    private static void writeDod(BitWriter out, long dod) {
+        if (0 == dod) {
+            out.write(0, 1);
+            return;
+        }
+        for (int k = 0; k < DOD_BITS.length; ++k) {
+            final long bound = 1L << (DOD_BITS[k] - 1);
+            if (dod >= -bound && dod < bound) {
+                //k+1个1后跟一个0
+                out.write(((1L << (k + 1)) - 1) << 1, k + 2);
+                out.write(dod, DOD_BITS[k]);
+                return;
+            }
+        }
+        out.write((1L << (DOD_BITS.length + 1)) - 1, DOD_BITS.length + 1);
+        out.write(dod, Long.SIZE);
+    }
+
+    private static long readDod(BitReader in) {
+        int ones = 0;
+        while (ones <= DOD_BITS.length && 1 == in.read(1)) {
+            ++ones;
+        }
+        if (0 == ones) {
+            return 0;
+        }
+        final int bits = ones <= DOD_BITS.length ? DOD_BITS[ones - 1] : Long.SIZE;
+        return signExtend(in.read(bits), bits);
+    }
+
+    private static void writeXor(BitWriter out, long xor, int j, int[] prevLeading, int[] prevTrailing) {
+        if (0 == xor) {
+            out.write(0, 1);
+            return;
+        }
+        final int leading = Math.min(Long.numberOfLeadingZeros(xor), MAX_LEADING);
+        final int trailing = Long.numberOfTrailingZeros(xor);
+        final boolean reuse = prevLeading[j] >= 0 && leading >= prevLeading[j] && trailing >= prevTrailing[j];
+        if (reuse) {
+            out.write(0b10, 2);
+            out.write(xor >>> prevTrailing[j], Long.SIZE - prevLeading[j] - prevTrailing[j]);
+            return;
+        }
+        final int len = Long.SIZE - leading - trailing;
+        out.write(0b11, 2);
+        out.write(leading, LEADING_BITS);
+        out.write(len - 1L, LENGTH_BITS);
+        out.write(xor >>> trailing, len);
+        prevLeading[j] = leading;
+        prevTrailing[j] = trailing;
+    }
+
+    private static long readXor(BitReader in, int j, int[] prevLeading, int[] prevTrailing) {
+        if (0 == in.read(1)) {
+            return 0;
+        }
+        if (0 == in.read(1)) {
+            final int len = Long.SIZE - prevLeading[j] - prevTrailing[j];
+            return in.read(len) << prevTrailing[j];
+        }
+        final int leading = (int) in.read(LEADING_BITS);
+        final int len = (int) in.read(LENGTH_BITS) + 1;
+        final int trailing = Long.SIZE - leading - len;
+        if (trailing < 0) {
+            throw new IllegalStateException("Broken telemetry block.");
+        }
+        prevLeading[j] = leading;
+        prevTrailing[j] = trailing;
+        return in.read(len) << trailing;
+    }
+
+    private static long signExtend(long value, int bits) {
+        if (Long.SIZE == bits) {
+            return value;
+        }
+        final int shift = Long.SIZE - bits;
+        return (value << shift) >> shift;
+    }
+
+    /**
+     * 按位写入，高位在前
+     */
+    private static final class BitWriter {
+        private byte[] buf;
+        private long bitPos;
+
+        BitWriter(int capacity) {
+            buf = new byte[Math.max(capacity, Long.BYTES)];
+        }
+
+        void write(long value, int bits) {
+            int remaining = bits;
+            while (remaining > 0) {
+                final int index = (int) (bitPos >>> 3);
+                if (index >= buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length << 1);
+                }
+                final int free = Byte.SIZE - (int) (bitPos & 7);
+                final int take = Math.min(free, remaining);
+                final int chunk = (int) (value >>> (remaining - take)) & ((1 << take) - 1);
+                buf[index] |= (byte) (chunk << (free - take));
+                bitPos += take;
+                remaining -= take;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, (int) ((bitPos + 7) >>> 3));
+        }
+    }
+
+    /**
+     * 按位读取，高位在前
+     */
+    private static final class BitReader {
+        private final ByteBuffer buf;
+        private final int start;
+        private final long limit;
+        private long bitPos;
+
+        BitReader(ByteBuffer buf) {
+            this.buf = buf;
+            this.start = buf.position();
+            this.limit = (long) buf.remaining() << 3;
+        }
+
+        long read(int bits) {
+            if (bitPos + bits > limit) {
+                throw new IllegalStateException("Broken telemetry block.");
+            }
+            long value = 0;
+            int remaining = bits;
+            while (remaining > 0) {
+                final int avail = Byte.SIZE - (int) (bitPos & 7);
+                final int take = Math.min(avail, remaining);
+                final int b = buf.get(start + (int) (bitPos >>> 3)) & 0xFF;
+                value = (value << take) | ((b >>> (avail - take)) & ((1 << take) - 1));
+                bitPos += take;
+                remaining -= take;
+            }
+            return value;
+        }
+
+        long remaining() {
+            return limit - bitPos;
+        }
+    }
+
+    private TelemetryBlock() {}
+}
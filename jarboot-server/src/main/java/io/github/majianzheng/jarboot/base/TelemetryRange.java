@@ -0,0 +1,27 @@
+package io.github.majianzheng.jarboot.base;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 遥测数据的查询结果，按步长降采样，只包含有采样的区间
+ * @author majianzheng
+ */
+@Data
+public class TelemetryRange {
+    /**
+     * 降采样的步长，毫秒
+     */
+    private long step;
+
+    /**
+     * 各区间的开始时间
+     */
+    private long[] timestamps;
+
+    /**
+     * 各指标的序列
+     */
+    private List<TelemetrySeries> series;
+}
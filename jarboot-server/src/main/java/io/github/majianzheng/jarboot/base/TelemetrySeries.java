@@ -0,0 +1,30 @@
+package io.github.majianzheng.jarboot.base;
+
+import lombok.Data;
+
+/**
+ * 一个指标降采样后的序列，与{@link TelemetryRange#getTimestamps()}一一对应，区间内没有有效值时为NaN
+ * @author majianzheng
+ */
+@Data
+public class TelemetrySeries {
+    /**
+     * 指标名称
+     */
+    private String name;
+
+    /**
+     * 区间内的平均值
+     */
+    private double[] avg;
+
+    /**
+     * 区间内的最小值
+     */
+    private double[] min;
+
+    /**
+     * 区间内的最大值
+     */
+    private double[] max;
+}
@@ -0,0 +1,517 @@
+package io.github.majianzheng.jarboot.base;
+
+import io.github.majianzheng.jarboot.common.JarbootThreadFactory;
+import io.github.majianzheng.jarboot.common.protocol.TelemetryCodec;
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.utils.SettingUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Agent遥测数据的时序存储，每个服务独立的目录，按时间滚动文件，超出个数时删除最旧的文件。
+ * 采样先在内存中攒成块，满一块后用{@link TelemetryBlock}压缩追加到文件，查询时按块的时间范围跳过不相关的块并降采样。
+ * 写入在单独的线程中按顺序执行，不占用Agent响应的处理线程；服务下线时写入未满的块并释放内存，删除服务时删除目录。
+ * <pre>
+ * 块格式：数据长度(4) + 最早时间(8) + 最晚时间(8) + 压缩的数据
+ * </pre>
+ * @author majianzheng
+ */
+public class TelemetryStore {
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryStore.class);
+    /** 单个文件的最长时间 */
+    private static final long FILE_MILLIS = Long.getLong("jarboot.telemetry.file-millis", 6L * 3600 * 1000);
+    /** 每个服务保留的文件个数 */
+    private static final int MAX_FILES = Integer.getInteger("jarboot.telemetry.max-files", 28);
+    /** 一块的采样个数，未满的块只保存在内存中 */
+    private static final int BLOCK_SAMPLES = 120;
+    /** 单次查询返回的最大点数 */
+    private static final int MAX_POINTS = 2000;
+    private static final int BLOCK_HEADER_LEN = 20;
+    /** 等待写入的批次上限 */
+    private static final int MAX_QUEUED = 4096;
+    static final String DATA_SUFFIX = ".tsd";
+    private static final Pattern SID_PATTERN = Pattern.compile("[\\w\\-]+");
+
+    private final ConcurrentHashMap<String, ServiceSeries> services = new ConcurrentHashMap<>(16);
+    private final File dir;
+    /** 队列不设上限，只限制等待写入的批次，保证下线和删除不会被丢弃且在之前的批次之后执行 */
+    private final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), JarbootThreadFactory.createThreadFactory("telemetry.w-", true));
+    private final AtomicInteger queued = new AtomicInteger(0);
+
+    public static TelemetryStore getInstance() {
+        return TelemetryStoreHolder.INSTANCE;
+    }
+
+    /**
+     * 写入一批采样，解码后交给写入线程
+     * @param sid sid
+     * @param body {@link TelemetryCodec}编码的采样，不改变其位置
+     */
+    public void append(String sid, ByteBuffer body) {
+        TelemetryCodec.Batch batch = TelemetryCodec.decode(body);
+        if (null == batch || 0 == batch.size()) {
+            return;
+        }
+        if (queued.incrementAndGet() > MAX_QUEUED) {
+            queued.decrementAndGet();
+            logger.warn("Telemetry writer is busy, discard a batch.");
+            return;
+        }
+        writer.execute(() -> {
+            queued.decrementAndGet();
+            ServiceSeries service = getOrOpen(sid, true);
+            if (null != service) {
+                service.append(batch);
+            }
+        });
+    }
+
+    /**
+     * 写入内存中未满的块，关闭文件并释放内存，用于服务下线时
+     * @param sid sid
+     */
+    public void close(String sid) {
+        if (null == sid) {
+            return;
+        }
+        writer.execute(() -> release(sid));
+    }
+
+    /**
+     * 删除服务的遥测数据
+     * @param sid sid
+     */
+    public void delete(String sid) {
+        if (null == sid || !SID_PATTERN.matcher(sid).matches()) {
+            return;
+        }
+        writer.execute(() -> {
+            release(sid);
+            FileUtils.deleteQuietly(FileUtils.getFile(dir, sid));
+        });
+    }
+
+    private void release(String sid) {
+        ServiceSeries service = services.remove(sid);
+        if (null == service) {
+            return;
+        }
+        service.seal();
+        try {
+            service.close();
+        } catch (IOException e) {
+            logger.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 查询并降采样
+     * @param sid sid
+     * @param from 开始时间，包含
+     * @param to 结束时间，包含
+     * @param metrics 逗号分隔的指标名称前缀，为空时返回全部指标
+     * @param points 最多的点数
+     * @return 降采样的结果
+     */
+    public TelemetryRange query(String sid, long from, long to, String metrics, int points) {
+        final int max = Math.min(Math.max(points, 1), MAX_POINTS);
+        final long step = to < from ? 1 : (to - from) / max + 1;
+        Downsampler downsampler = new Downsampler(from, to, step, metrics);
+        ServiceSeries service = getOrOpen(sid, false);
+        if (null != service && to >= from) {
+            for (File file : service.files()) {
+                scan(file, from, to, downsampler);
+            }
+            downsampler.add(service.pending());
+        }
+        return downsampler.toRange();
+    }
+
+    /**
+     * 读取文件中时间范围相关的块
+     * @param file 文件
+     * @param from 开始时间
+     * @param to 结束时间
+     * @param downsampler 降采样
+     */
+    static void scan(File file, long from, long to, Downsampler downsampler) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_LEN);
+            long pos = 0;
+            while (size - pos >= BLOCK_HEADER_LEN) {
+                header.clear();
+                readFully(channel, header, pos);
+                final int len = header.getInt(0);
+                final long start = header.getLong(Integer.BYTES);
+                final long end = header.getLong(Integer.BYTES + Long.BYTES);
+                if (len < 0 || len > size - pos - BLOCK_HEADER_LEN) {
+                    //未写完整的块
+                    break;
+                }
+                if (end >= from && start <= to) {
+                    ByteBuffer data = ByteBuffer.allocate(len);
+                    readFully(channel, data, pos + BLOCK_HEADER_LEN);
+                    data.flip();
+                    decode(data, downsampler);
+                }
+                pos += BLOCK_HEADER_LEN + len;
+            }
+        } catch (IOException e) {
+            logger.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 完整的块的总长度
+     * @param channel 文件
+     * @return 长度
+     * @throws IOException IO异常
+     */
+    static long validLength(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        long pos = 0;
+        while (size - pos >= BLOCK_HEADER_LEN) {
+            header.clear();
+            readFully(channel, header, pos);
+            final int len = header.getInt(0);
+            if (len < 0 || len > size - pos - BLOCK_HEADER_LEN) {
+                break;
+            }
+            pos += BLOCK_HEADER_LEN + len;
+        }
+        return pos;
+    }
+
+    private static void decode(ByteBuffer data, Downsampler downsampler) {
+        try {
+            downsampler.add(TelemetryBlock.decode(data));
+        } catch (IllegalStateException e) {
+            logger.debug("skip broken telemetry block: {}", e.getMessage());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException {
+        long offset = pos;
+        while (buf.hasRemaining()) {
+            final int n = channel.read(buf, offset);
+            if (n < 0) {
+                throw new IOException("Unexpected end of telemetry file.");
+            }
+            offset += n;
+        }
+    }
+
+    private ServiceSeries getOrOpen(String sid, boolean create) {
+        if (null == sid || !SID_PATTERN.matcher(sid).matches()) {
+            return null;
+        }
+        ServiceSeries service = services.get(sid);
+        if (null != service) {
+            return service;
+        }
+        final File serviceDir = FileUtils.getFile(dir, sid);
+        if (create) {
+            return services.computeIfAbsent(sid, k -> new ServiceSeries(serviceDir));
+        }
+        //只读取已离线服务的文件，不缓存
+        return serviceDir.isDirectory() ? new ServiceSeries(serviceDir) : null;
+    }
+
+    private TelemetryStore() {
+        dir = FileUtils.getFile(SettingUtils.getLogDir(), "telemetry");
+    }
+
+    private static class TelemetryStoreHolder {
+        static final TelemetryStore INSTANCE = new TelemetryStore();
+    }
+
+    /**
+     * 单个服务的文件列表和尚未写入文件的块，最后一个文件为正在写入的文件
+     */
+    static final class ServiceSeries {
+        private final File dir;
+        private final List<Long> files = new ArrayList<>();
+        private FileChannel active;
+        private long activeCreateTime;
+        private String[] names;
+        private final long[] timestamps = new long[BLOCK_SAMPLES];
+        private double[] values = new double[0];
+        private int count;
+
+        ServiceSeries(File dir) {
+            this.dir = dir;
+            File[] list = dir.listFiles((d, name) -> name.endsWith(DATA_SUFFIX));
+            if (null == list) {
+                return;
+            }
+            for (File f : list) {
+                final String name = f.getName();
+                try {
+                    files.add(Long.parseLong(name.substring(0, name.length() - DATA_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    //ignore
+                }
+            }
+            Collections.sort(files);
+        }
+
+        synchronized void append(TelemetryCodec.Batch batch) {
+            //指标变化时（如服务重启后使用了不同的垃圾回收器）结束当前块
+            if (!Arrays.equals(names, batch.getNames())) {
+                seal();
+                names = batch.getNames();
+                values = new double[BLOCK_SAMPLES * names.length];
+            }
+            final int metricCount = names.length;
+            for (int i = 0; i < batch.size(); ++i) {
+                timestamps[count] = batch.getTimestamps()[i];
+                System.arraycopy(batch.getValues(), i * metricCount, values, count * metricCount, metricCount);
+                if (++count == BLOCK_SAMPLES) {
+                    seal();
+                }
+            }
+        }
+
+        synchronized List<File> files() {
+            List<File> result = new ArrayList<>(files.size());
+            for (Long createTime : files) {
+                result.add(file(createTime));
+            }
+            return result;
+        }
+
+        /**
+         * 尚未写入文件的采样
+         * @return 采样，没有时为null
+         */
+        synchronized TelemetryCodec.Batch pending() {
+            if (0 == count) {
+                return null;
+            }
+            return new TelemetryCodec.Batch(names, Arrays.copyOf(timestamps, count),
+                    Arrays.copyOf(values, count * names.length));
+        }
+
+        /**
+         * 压缩并写入当前块
+         */
+        synchronized void seal() {
+            if (0 == count) {
+                return;
+            }
+            long start = Long.MAX_VALUE;
+            long end = Long.MIN_VALUE;
+            for (int i = 0; i < count; ++i) {
+                start = Math.min(start, timestamps[i]);
+                end = Math.max(end, timestamps[i]);
+            }
+            byte[] data = TelemetryBlock.encode(names, timestamps, values, count);
+            count = 0;
+            ByteBuffer buf = ByteBuffer.allocate(BLOCK_HEADER_LEN + data.length);
+            buf.putInt(data.length);
+            buf.putLong(start);
+            buf.putLong(end);
+            buf.put(data);
+            buf.flip();
+            try {
+                final long now = System.currentTimeMillis();
+                if (null == active || now - activeCreateTime >= FILE_MILLIS) {
+                    roll(now);
+                }
+                while (buf.hasRemaining()) {
+                    active.write(buf);
+                }
+            } catch (IOException e) {
+                logger.warn("write telemetry failed: {}", e.getMessage());
+            }
+        }
+
+        synchronized void close() throws IOException {
+            if (null != active) {
+                active.close();
+                active = null;
+            }
+        }
+
+        private void roll(long now) throws IOException {
+            close();
+            FileUtils.forceMkdir(dir);
+            long createTime = now;
+            if (!files.isEmpty()) {
+                final long last = files.get(files.size() - 1);
+                if (now - last < FILE_MILLIS) {
+                    //继续写入未到期的文件，截掉异常退出时未写完整的块
+                    FileChannel channel = FileChannel.open(file(last).toPath(), StandardOpenOption.WRITE);
+                    channel.truncate(validLength(channel));
+                    channel.position(channel.size());
+                    active = channel;
+                    activeCreateTime = last;
+                    return;
+                }
+                //保证文件名递增
+                createTime = Math.max(now, last + 1);
+            }
+            active = FileChannel.open(file(createTime).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            activeCreateTime = createTime;
+            files.add(createTime);
+            while (files.size() > MAX_FILES) {
+                FileUtils.deleteQuietly(file(files.remove(0)));
+            }
+        }
+
+        private File file(long createTime) {
+            return new File(dir, createTime + DATA_SUFFIX);
+        }
+    }
+
+    /**
+     * 降采样，按步长划分区间，统计每个指标在区间内的平均、最小和最大值，忽略NaN
+     */
+    static final class Downsampler {
+        private final long from;
+        private final long to;
+        private final long step;
+        private final String[] prefixes;
+        private final int buckets;
+        private final boolean[] used;
+        private final Map<String, Integer> index = new LinkedHashMap<>(64);
+        private final List<double[]> sums = new ArrayList<>();
+        private final List<double[]> mins = new ArrayList<>();
+        private final List<double[]> maxs = new ArrayList<>();
+        private final List<int[]> counts = new ArrayList<>();
+
+        Downsampler(long from, long to, long step, String metrics) {
+            this.from = from;
+            this.to = to;
+            this.step = step;
+            this.prefixes = StringUtils.isBlank(metrics) ? new String[0] : metrics.trim().split("\\s*,\\s*");
+            this.buckets = to < from ? 0 : (int) ((to - from) / step) + 1;
+            this.used = new boolean[buckets];
+        }
+
+        void add(TelemetryCodec.Batch batch) {
+            if (null == batch) {
+                return;
+            }
+            final String[] names = batch.getNames();
+            final int[] columns = new int[names.length];
+            for (int j = 0; j < names.length; ++j) {
+                columns[j] = matches(names[j]) ? column(names[j]) : -1;
+            }
+            final long[] timestamps = batch.getTimestamps();
+            final double[] values = batch.getValues();
+            for (int i = 0; i < timestamps.length; ++i) {
+                final long timestamp = timestamps[i];
+                if (timestamp < from || timestamp > to) {
+                    continue;
+                }
+                final int b = (int) ((timestamp - from) / step);
+                used[b] = true;
+                final int base = i * names.length;
+                for (int j = 0; j < names.length; ++j) {
+                    final double value = values[base + j];
+                    final int column = columns[j];
+                    if (column < 0 || Double.isNaN(value)) {
+                        continue;
+                    }
+                    final int[] cnt = counts.get(column);
+                    final double[] min = mins.get(column);
+                    final double[] max = maxs.get(column);
+                    sums.get(column)[b] += value;
+                    min[b] = 0 == cnt[b] ? value : Math.min(min[b], value);
+                    max[b] = 0 == cnt[b] ? value : Math.max(max[b], value);
+                    ++cnt[b];
+                }
+            }
+        }
+
+        TelemetryRange toRange() {
+            int size = 0;
+            for (boolean u : used) {
+                if (u) {
+                    ++size;
+                }
+            }
+            long[] timestamps = new long[size];
+            int k = 0;
+            for (int b = 0; b < buckets; ++b) {
+                if (used[b]) {
+                    timestamps[k++] = from + b * step;
+                }
+            }
+            List<TelemetrySeries> series = new ArrayList<>(index.size());
+            for (Map.Entry<String, Integer> entry : index.entrySet()) {
+                final int column = entry.getValue();
+                final int[] cnt = counts.get(column);
+                double[] avg = new double[size];
+                double[] min = new double[size];
+                double[] max = new double[size];
+                k = 0;
+                for (int b = 0; b < buckets; ++b) {
+                    if (!used[b]) {
+                        continue;
+                    }
+                    final boolean empty = 0 == cnt[b];
+                    avg[k] = empty ? Double.NaN : sums.get(column)[b] / cnt[b];
+                    min[k] = empty ? Double.NaN : mins.get(column)[b];
+                    max[k] = empty ? Double.NaN : maxs.get(column)[b];
+                    ++k;
+                }
+                TelemetrySeries s = new TelemetrySeries();
+                s.setName(entry.getKey());
+                s.setAvg(avg);
+                s.setMin(min);
+                s.setMax(max);
+                series.add(s);
+            }
+            TelemetryRange range = new TelemetryRange();
+            range.setStep(step);
+            range.setTimestamps(timestamps);
+            range.setSeries(series);
+            return range;
+        }
+
+        private boolean matches(String name) {
+            if (0 == prefixes.length) {
+                return true;
+            }
+            for (String prefix : prefixes) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int column(String name) {
+            Integer column = index.get(name);
+            if (null != column) {
+                return column.intValue();
+            }
+            final int next = sums.size();
+            index.put(name, next);
+            sums.add(new double[buckets]);
+            mins.add(new double[buckets]);
+            maxs.add(new double[buckets]);
+            counts.add(new int[buckets]);
+            return next;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package io.github.majianzheng.jarboot.config;
 
 import io.github.majianzheng.jarboot.common.JarbootThreadFactory;
-import io.github.majianzheng.jarboot.common.notify.DefaultPublisher;
+import io.github.majianzheng.jarboot.common.notify.ShardedPublisher;
 import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.ws.MessageSenderSubscriber;
 import io.github.majianzheng.jarboot.ws.SendCommandSubscriber;
@@ -58,12 +58,12 @@ public class JarBootConfig implements WebMvcConfigurer {
                 .getInstance()
                 .registerSubscriber(
                         new MessageSenderSubscriber(),
-                        new DefaultPublisher(32768, "fe.sender.publisher"));
+                        new ShardedPublisher(32768, "fe.sender.publisher"));
         NotifyReactor
                 .getInstance()
                 .registerSubscriber(
                         new SendCommandSubscriber(),
-                        new DefaultPublisher(16384, "send.command.publisher"));
+                        new ShardedPublisher(16384, "send.command.publisher"));
     }
 
     @Override
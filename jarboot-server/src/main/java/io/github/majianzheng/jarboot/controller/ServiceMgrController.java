@@ -5,9 +5,16 @@ import io.github.majianzheng.jarboot.api.pojo.JvmProcess;
 import io.github.majianzheng.jarboot.api.pojo.ServiceInstance;
 import io.github.majianzheng.jarboot.api.pojo.ServiceSetting;
 import io.github.majianzheng.jarboot.api.service.ServiceManager;
+import io.github.majianzheng.jarboot.base.AgentLogRecord;
+import io.github.majianzheng.jarboot.base.AgentLogStore;
+import io.github.majianzheng.jarboot.base.StdoutLogStore;
+import io.github.majianzheng.jarboot.base.StdoutPage;
+import io.github.majianzheng.jarboot.base.TelemetryRange;
+import io.github.majianzheng.jarboot.base.TelemetryStore;
 import io.github.majianzheng.jarboot.common.annotation.EnableAuditLog;
 import io.github.majianzheng.jarboot.common.annotation.PrivilegeCheck;
 import io.github.majianzheng.jarboot.common.pojo.ResponseVo;
+import io.github.majianzheng.jarboot.common.protocol.LogRecordCodec;
 import io.github.majianzheng.jarboot.common.pojo.ResponseSimple;
 import io.github.majianzheng.jarboot.common.pojo.ResultCodeConst;
 import io.github.majianzheng.jarboot.common.utils.HttpResponseUtils;
@@ -18,6 +25,7 @@ import javax.annotation.Resource;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * 服务管理
@@ -27,6 +35,7 @@ import java.util.List;
 @RestController
 @PrivilegeCheck(value = {"SERVICES_MGR", "ONLINE_DEBUG"})
 public class ServiceMgrController {
+    private static final String SERVICE_NOT_EXIST = "服务不存在！";
     @Resource
     private ServiceManager serviceManager;
 
@@ -58,6 +67,96 @@ public class ServiceMgrController {
         return HttpResponseUtils.success(serviceManager.getJvmGroup());
     }
 
+    /**
+     * 分页读取服务最近的标准输出
+     * @param sid sid
+     * @param before 结束偏移，为空时从最新位置
+     * @param size 大小
+     * @return 一页输出
+     */
+    @GetMapping("/stdout")
+    public ResponseVo<StdoutPage> getStdout(@RequestParam String sid,
+                                            @RequestParam(required = false) Long before,
+                                            @RequestParam(required = false) Integer size) {
+        if (!isOwnService(sid)) {
+            return new ResponseVo<>(ResultCodeConst.NOT_EXIST, SERVICE_NOT_EXIST);
+        }
+        final int defaultSize = 64 * 1024;
+        StdoutPage page = StdoutLogStore
+                .getInstance()
+                .read(sid, null == before ? 0 : before, null == size ? defaultSize : size);
+        return HttpResponseUtils.success(page);
+    }
+
+    /**
+     * 查询服务的Agent日志
+     * @param sid sid
+     * @param from 开始时间
+     * @param to 结束时间
+     * @param level 最低级别
+     * @param keyword 关键字
+     * @param limit 最多条数，超出时返回最新的
+     * @return 日志
+     */
+    @GetMapping("/agentLog")
+    public ResponseVo<List<AgentLogRecord>> getAgentLog(@RequestParam String sid,
+                                                        @RequestParam(required = false) Long from,
+                                                        @RequestParam(required = false) Long to,
+                                                        @RequestParam(required = false) String level,
+                                                        @RequestParam(required = false) String keyword,
+                                                        @RequestParam(required = false) Integer limit) {
+        if (!isOwnService(sid)) {
+            return new ResponseVo<>(ResultCodeConst.NOT_EXIST, SERVICE_NOT_EXIST);
+        }
+        final int defaultLimit = 200;
+        List<AgentLogRecord> records = AgentLogStore
+                .getInstance()
+                .query(sid,
+                        null == from ? 0 : from,
+                        null == to ? Long.MAX_VALUE : to,
+                        StringUtils.isEmpty(level) ? LogRecordCodec.TRACE : LogRecordCodec.parseLevel(level),
+                        keyword,
+                        null == limit ? defaultLimit : limit);
+        return HttpResponseUtils.success(records);
+    }
+
+    /**
+     * 查询服务的JVM遥测数据，按点数降采样
+     * @param sid sid
+     * @param from 开始时间，默认为结束时间前1小时
+     * @param to 结束时间，默认为当前时间
+     * @param metrics 逗号分隔的指标名称前缀，为空时返回全部指标
+     * @param points 最多的点数
+     * @return 降采样的序列
+     */
+    @GetMapping("/telemetry")
+    public ResponseVo<TelemetryRange> getTelemetry(@RequestParam String sid,
+                                                   @RequestParam(required = false) Long from,
+                                                   @RequestParam(required = false) Long to,
+                                                   @RequestParam(required = false) String metrics,
+                                                   @RequestParam(required = false) Integer points) {
+        if (!isOwnService(sid)) {
+            return new ResponseVo<>(ResultCodeConst.NOT_EXIST, SERVICE_NOT_EXIST);
+        }
+        final long defaultSpan = 3600L * 1000;
+        final int defaultPoints = 360;
+        final long end = null == to ? System.currentTimeMillis() : to;
+        final long start = null == from ? end - defaultSpan : from;
+        TelemetryRange range = TelemetryStore
+                .getInstance()
+                .query(sid, start, end, metrics, null == points ? defaultPoints : points);
+        return HttpResponseUtils.success(range);
+    }
+
+    /**
+     * sid是否属于当前用户目录下的服务
+     * @param sid sid
+     * @return 是否属于
+     */
+    private boolean isOwnService(String sid) {
+        return serviceManager.getServiceList().stream().anyMatch(service -> Objects.equals(sid, service.getSid()));
+    }
+
     /**
      * 启动服务
      * @param services 服务列表
@@ -6,6 +6,9 @@ import io.github.majianzheng.jarboot.common.notify.FrontEndNotifyEventType;
 import io.github.majianzheng.jarboot.common.protocol.NotifyType;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * 前端消息推送事件
  * @author majianzheng
@@ -14,20 +17,78 @@ public abstract class AbstractMessageEvent implements JarbootEvent {
     protected String sid = StringUtils.EMPTY;
     protected FrontEndNotifyEventType type;
     protected String body = StringUtils.EMPTY;
+    /** 未解码的消息体，来自Agent的输出直接以二进制转发，不创建字符串 */
+    protected ByteBuffer rawBody;
+    /** 序列化后的消息，广播时仅序列化一次供所有会话共用，发布后不再修改 */
+    private String text;
+    private int textHeaderLength;
+    private byte[] binary;
+    private int binaryHeaderLength;
 
     /**
      * 前端交互协议封装
      * @return 封装后内容
      */
     public String message() {
+        String result = this.text;
+        if (null != result) {
+            return result;
+        }
+        if (null != rawBody) {
+            //集群转发等仍需文本的场景才解码
+            body = StandardCharsets.UTF_8.decode(rawBody.duplicate()).toString();
+        }
+        final String head = header();
+        result = head + body;
+        this.textHeaderLength = head.length();
+        this.text = result;
+        return result;
+    }
+
+    /**
+     * 协议头的长度，文本消息为字符数，二进制消息为字节数
+     * @param binaryMessage 是否二进制消息
+     * @return 长度
+     */
+    public int headerLength(boolean binaryMessage) {
+        if (binaryMessage) {
+            binaryMessage();
+            return binaryHeaderLength;
+        }
+        message();
+        return textHeaderLength;
+    }
+
+    private String header() {
         //使用\r作为分隔符
-        return new StringBuilder()
-                .append(sid)
-                .append(StringUtils.CR)
-                .append(type.ordinal())
-                .append(StringUtils.CR)
-                .append(body)
-                .toString();
+        return sid + StringUtils.CR + type.ordinal() + StringUtils.CR;
+    }
+
+    /**
+     * 是否以二进制消息发送
+     * @return 是否二进制
+     */
+    public boolean isBinary() {
+        return null != rawBody;
+    }
+
+    /**
+     * 前端交互协议的二进制封装，与{@link #message()}格式一致，仅编码一次供所有会话共用
+     * @return 封装后内容
+     */
+    public byte[] binaryMessage() {
+        byte[] result = this.binary;
+        if (null != result) {
+            return result;
+        }
+        final byte[] head = header().getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer src = rawBody.duplicate();
+        result = new byte[head.length + src.remaining()];
+        System.arraycopy(head, 0, result, 0, head.length);
+        src.get(result, head.length, src.remaining());
+        this.binaryHeaderLength = head.length;
+        this.binary = result;
+        return result;
     }
 
     public String getSid() {
@@ -1,6 +1,6 @@
 package io.github.majianzheng.jarboot.event;
 
-import io.github.majianzheng.jarboot.api.event.JarbootEvent;
+import io.github.majianzheng.jarboot.common.notify.ShardedEvent;
 import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 
@@ -9,7 +9,7 @@ import javax.websocket.Session;
 /**
  * @author majianzheng
  */
-public class AgentResponseEvent implements JarbootEvent {
+public class AgentResponseEvent implements ShardedEvent {
     private String userDir;
     private final String serviceName;
     private final String sid;
@@ -47,4 +47,9 @@ public class AgentResponseEvent implements JarbootEvent {
     public void setUserDir(String userDir) {
         this.userDir = userDir;
     }
+
+    @Override
+    public String shardKey() {
+        return this.sid;
+    }
 }
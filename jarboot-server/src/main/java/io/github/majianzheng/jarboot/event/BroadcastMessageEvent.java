@@ -3,6 +3,7 @@ package io.github.majianzheng.jarboot.event;
 import io.github.majianzheng.jarboot.common.notify.FrontEndNotifyEventType;
 import io.github.majianzheng.jarboot.common.protocol.NotifyType;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -26,6 +27,11 @@ public class BroadcastMessageEvent extends AbstractMessageEvent {
         return this;
     }
 
+    public BroadcastMessageEvent body(ByteBuffer body) {
+        this.rawBody = body;
+        return this;
+    }
+
     public BroadcastMessageEvent body(String text, NotifyType level) {
         this.noticeBody(text, level);
         return this;
@@ -3,6 +3,8 @@ package io.github.majianzheng.jarboot.event;
 import io.github.majianzheng.jarboot.common.notify.FrontEndNotifyEventType;
 import io.github.majianzheng.jarboot.common.protocol.NotifyType;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author majianzheng
  */
@@ -19,6 +21,11 @@ public class MessageEvent extends AbstractMessageEvent {
         return this;
     }
 
+    public MessageEvent body(ByteBuffer body) {
+        this.rawBody = body;
+        return this;
+    }
+
     public MessageEvent body(String text, NotifyType level) {
         this.noticeBody(text, level);
         return this;
@@ -7,6 +7,7 @@ import io.github.majianzheng.jarboot.common.JarbootException;
 import io.github.majianzheng.jarboot.common.PidFileHelper;
 import io.github.majianzheng.jarboot.common.pojo.ResponseSimple;
 import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
+import io.github.majianzheng.jarboot.common.protocol.FrameCodec;
 import io.github.majianzheng.jarboot.common.utils.HttpResponseUtils;
 import io.github.majianzheng.jarboot.common.utils.NetworkUtils;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
@@ -80,6 +81,7 @@ public class AgentClientController {
 
         AgentClient agentClient = new AgentClient();
         agentClient.setDiagnose(true);
+        agentClient.setProtocolVersion((int) FrameCodec.VERSION);
         String server = StringUtils.isEmpty(command) ? ("NoName-" + pid) : TaskUtils.parseCommandSimple(command);
         agentClient.setServiceName(server);
         String clientAddr = CommonUtils.getActualIpAddr(request);
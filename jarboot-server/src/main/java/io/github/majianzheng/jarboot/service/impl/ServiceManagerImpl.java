@@ -10,7 +10,10 @@ import io.github.majianzheng.jarboot.api.exception.JarbootRunException;
 import io.github.majianzheng.jarboot.api.pojo.JvmProcess;
 import io.github.majianzheng.jarboot.api.pojo.ServiceInstance;
 import io.github.majianzheng.jarboot.api.pojo.ServiceSetting;
+import io.github.majianzheng.jarboot.base.AgentLogStore;
 import io.github.majianzheng.jarboot.base.AgentManager;
+import io.github.majianzheng.jarboot.base.StdoutLogStore;
+import io.github.majianzheng.jarboot.base.TelemetryStore;
 import io.github.majianzheng.jarboot.cluster.ClusterClientManager;
 import io.github.majianzheng.jarboot.common.JarbootException;
 import io.github.majianzheng.jarboot.common.notify.AbstractEventRegistry;
@@ -304,6 +307,9 @@ public class ServiceManagerImpl implements ServiceManager, Subscriber<ServiceOff
         executorService.execute(() -> {
             try {
                 FileUtils.deleteDirectory(FileUtils.getFile(path));
+                StdoutLogStore.getInstance().delete(sid);
+                AgentLogStore.getInstance().delete(sid);
+                TelemetryStore.getInstance().delete(sid);
                 MessageUtils.globalEvent(FrontEndNotifyEventType.WORKSPACE_CHANGE);
                 MessageUtils.info("删除" + serviceName + "成功！");
             } catch (IOException e) {
@@ -3,6 +3,7 @@ package io.github.majianzheng.jarboot.terminal;
 import io.github.majianzheng.jarboot.api.constant.CommonConst;
 import io.github.majianzheng.jarboot.common.JarbootException;
 import io.github.majianzheng.jarboot.common.JarbootThreadFactory;
+import io.github.majianzheng.jarboot.common.StreamTextDecoder;
 import io.github.majianzheng.jarboot.common.utils.BannerUtils;
 import io.github.majianzheng.jarboot.common.utils.OSUtils;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
@@ -17,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.websocket.Session;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -131,22 +133,28 @@ public class TerminalProcess {
     }
 
     private void run() {
+        final int bufferSize = 2048;
+        //跨块的多字节字符和控制符留到下一块，避免乱码
+        StreamTextDecoder decoder = new StreamTextDecoder(Charset.defaultCharset(), bufferSize);
         try (InputStream inputStream = process.getInputStream()) {
             int i = 0;
-            byte[] buffer = new byte[2048];
+            byte[] buffer = new byte[bufferSize];
             while ((i = inputStream.read(buffer)) != -1) {
-                String msg = new String(buffer, 0, i);
-                sendMsg(msg);
+                sendMsg(decoder.decode(buffer, 0, i));
             }
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         } finally {
+            sendMsg(decoder.flush());
             operator.newMessage("Terminal process exit.");
             operator.close();
         }
     }
 
     private void sendMsg(String str) {
+        if (str.isEmpty()) {
+            return;
+        }
         try {
             operator.newMessage(str);
         } catch (Exception e) {
@@ -3,6 +3,7 @@ package io.github.majianzheng.jarboot.utils;
 import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.common.protocol.NotifyType;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
+import io.github.majianzheng.jarboot.event.AbstractMessageEvent;
 import io.github.majianzheng.jarboot.event.BroadcastMessageEvent;
 import io.github.majianzheng.jarboot.common.notify.FrontEndNotifyEventType;
 import io.github.majianzheng.jarboot.event.MessageEvent;
@@ -10,6 +11,7 @@ import io.github.majianzheng.jarboot.task.AttachStatus;
 
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -50,6 +52,20 @@ public class MessageUtils {
                         .type(FrontEndNotifyEventType.STD_PRINT));
     }
 
+    /**
+     * 浏览器控制台打印Agent的原始输出，以二进制转发不解码
+     * @param sessionIds session ids
+     * @param sid sid
+     * @param body UTF-8字节
+     */
+    public static void stdPrint(String sessionIds, String sid, ByteBuffer body) {
+        NotifyReactor
+                .getInstance()
+                .publishEvent(new BroadcastMessageEvent(sessionIds, sid)
+                        .body(body)
+                        .type(FrontEndNotifyEventType.STD_PRINT));
+    }
+
     /**
      * 命令执行失败
      * @param sid sid
@@ -219,6 +235,27 @@ public class MessageUtils {
                         .body(wrapNotifyBody(success, body)));
     }
 
+    /**
+     * notify，消息体为Agent的原始字节
+     * @param sid sid
+     * @param sessionId session id，为空时广播
+     * @param success 是否成功
+     * @param body UTF-8字节
+     */
+    public static void notify(String sid, String sessionId, boolean success, ByteBuffer body) {
+        AbstractMessageEvent event;
+        if (StringUtils.isEmpty(sessionId)) {
+            event = new BroadcastMessageEvent(sid)
+                    .type(FrontEndNotifyEventType.NOTIFY)
+                    .body(wrapNotifyBody(success, body));
+        } else {
+            event = new MessageEvent(sid, sessionId)
+                    .type(FrontEndNotifyEventType.NOTIFY)
+                    .body(wrapNotifyBody(success, body));
+        }
+        NotifyReactor.getInstance().publishEvent(event);
+    }
+
     /**
      * 打印异常到控制台
      * @param sid SID
@@ -248,5 +285,13 @@ public class MessageUtils {
         return flag + body;
     }
 
+    private static ByteBuffer wrapNotifyBody(boolean success, ByteBuffer body) {
+        ByteBuffer buf = ByteBuffer.allocate(body.remaining() + 1);
+        buf.put((byte) (success ? '0' : '1'));
+        buf.put(body.duplicate());
+        buf.flip();
+        return buf;
+    }
+
     private MessageUtils() {}
 }
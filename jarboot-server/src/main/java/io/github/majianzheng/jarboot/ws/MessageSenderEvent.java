@@ -1,23 +1,25 @@
 package io.github.majianzheng.jarboot.ws;
 
-import io.github.majianzheng.jarboot.api.event.JarbootEvent;
+import io.github.majianzheng.jarboot.common.notify.FrontEndNotifyEventType;
+import io.github.majianzheng.jarboot.common.notify.ShardedEvent;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.github.majianzheng.jarboot.event.AbstractMessageEvent;
 
 import javax.websocket.Session;
-import java.nio.ByteBuffer;
 
 /**
  * 消息发送
  * @author jianzhengma
  */
-public class MessageSenderEvent implements JarbootEvent {
-    protected static final Logger logger = LoggerFactory.getLogger(MessageSenderEvent.class);
+public class MessageSenderEvent implements ShardedEvent {
     protected final transient Session session;
     protected final String message;
     protected final byte[] buf;
     protected final boolean binary;
+    /** 前端消息的类型和sid，用于发送队列合并输出、丢弃过期状态 */
+    protected FrontEndNotifyEventType type;
+    protected String sid;
+    protected int headerLength;
 
     public MessageSenderEvent(Session session, String message) {
         this.session = session;
@@ -33,30 +35,38 @@ public class MessageSenderEvent implements JarbootEvent {
         this.binary = true;
     }
 
-    public void send() {
-        if (!session.isOpen()) {
-            return;
-        }
-        if (this.binary) {
-            sendBinary();
-        } else {
-            sendText();
-        }
+    /**
+     * 标记前端消息的类型
+     * @param source 前端消息
+     * @return this
+     */
+    MessageSenderEvent tag(AbstractMessageEvent source) {
+        this.type = source.getType();
+        this.sid = source.getSid();
+        this.headerLength = source.headerLength(binary);
+        return this;
     }
 
-    private void sendText() {
-        try {
-            session.getBasicRemote().sendText(message);
-        } catch (Exception e) {
-            logger.warn(e.getMessage(), e);
-        }
+    /**
+     * 消息大小，文本为字符数
+     * @return 大小
+     */
+    int size() {
+        return binary ? buf.length : message.length();
     }
 
-    private void sendBinary() {
-        try {
-            session.getBasicRemote().sendBinary(ByteBuffer.wrap(this.buf));
-        } catch (Exception e) {
-            logger.warn(e.getMessage(), e);
+    @Override
+    public String shardKey() {
+        return session.getId();
+    }
+
+    /**
+     * 经由会话的发送队列发送
+     */
+    public void send() {
+        if (!session.isOpen()) {
+            return;
         }
+        SessionSendQueue.of(session).offer(this);
     }
 }
@@ -0,0 +1,137 @@
+package io.github.majianzheng.jarboot.ws;
+
+import io.github.majianzheng.jarboot.common.utils.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 浏览器会话索引，按用户目录的服务sid前缀分组，服务的消息通过前缀直接找到订阅的会话，
+ * 不再逐个会话比较前缀。会话的上下线远少于消息推送，分组使用写时复制的数组，推送时无锁遍历。
+ * @author majianzheng
+ */
+class SessionIndex {
+    /** 服务sid的固定前缀 */
+    static final String SERVICE_PREFIX = "service-";
+    /** 用户目录前缀的长度，格式：service- + uuid哈希(8位) + 用户目录哈希(8位) */
+    static final int SERVICE_SID_PREFIX_LENGTH = SERVICE_PREFIX.length() + 16;
+    private static final SessionOperator[] EMPTY = new SessionOperator[0];
+
+    private final ConcurrentHashMap<String, SessionOperator> sessions = new ConcurrentHashMap<>(32);
+    /** 服务sid前缀 -> 订阅的会话 */
+    private volatile Map<String, SessionOperator[]> subscribers = new HashMap<>(16);
+    /** 未限定用户目录的会话，接收所有服务的消息 */
+    private volatile SessionOperator[] wildcard = EMPTY;
+    private volatile SessionOperator[] all = EMPTY;
+
+    /**
+     * 添加会话
+     * @param sessionId 会话id
+     * @param operator 会话
+     */
+    synchronized void add(String sessionId, SessionOperator operator) {
+        SessionOperator old = sessions.put(sessionId, operator);
+        if (null != old) {
+            unindex(old);
+        }
+        all = append(all, operator);
+        final String prefix = operator.getServiceSidPrefix();
+        if (StringUtils.isEmpty(prefix)) {
+            wildcard = append(wildcard, operator);
+            return;
+        }
+        Map<String, SessionOperator[]> map = new HashMap<>(subscribers);
+        map.put(prefix, append(map.getOrDefault(prefix, EMPTY), operator));
+        subscribers = map;
+    }
+
+    /**
+     * 移除会话
+     * @param sessionId 会话id
+     */
+    synchronized void remove(String sessionId) {
+        SessionOperator operator = sessions.remove(sessionId);
+        if (null != operator) {
+            unindex(operator);
+        }
+    }
+
+    /**
+     * 获取会话
+     * @param sessionId 会话id
+     * @return 会话，不存在时返回null
+     */
+    SessionOperator get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * 遍历所有会话
+     * @param action 操作
+     */
+    void forEach(Consumer<SessionOperator> action) {
+        for (SessionOperator operator : all) {
+            action.accept(operator);
+        }
+    }
+
+    /**
+     * 遍历接收该sid消息的会话
+     * @param sid 消息的sid
+     * @param action 操作
+     */
+    void forEachSubscriber(String sid, Consumer<SessionOperator> action) {
+        if (StringUtils.isEmpty(sid) || !sid.startsWith(SERVICE_PREFIX)) {
+            forEach(action);
+            return;
+        }
+        final String prefix = sid.length() > SERVICE_SID_PREFIX_LENGTH ? sid.substring(0, SERVICE_SID_PREFIX_LENGTH) : sid;
+        SessionOperator[] operators = subscribers.get(prefix);
+        if (null != operators) {
+            for (SessionOperator operator : operators) {
+                action.accept(operator);
+            }
+        }
+        for (SessionOperator operator : wildcard) {
+            action.accept(operator);
+        }
+    }
+
+    private void unindex(SessionOperator operator) {
+        all = removeFrom(all, operator);
+        final String prefix = operator.getServiceSidPrefix();
+        if (StringUtils.isEmpty(prefix)) {
+            wildcard = removeFrom(wildcard, operator);
+            return;
+        }
+        Map<String, SessionOperator[]> map = new HashMap<>(subscribers);
+        SessionOperator[] operators = removeFrom(map.getOrDefault(prefix, EMPTY), operator);
+        if (operators.length == 0) {
+            map.remove(prefix);
+        } else {
+            map.put(prefix, operators);
+        }
+        subscribers = map;
+    }
+
+    private static SessionOperator[] append(SessionOperator[] array, SessionOperator operator) {
+        SessionOperator[] result = new SessionOperator[array.length + 1];
+        System.arraycopy(array, 0, result, 0, array.length);
+        result[array.length] = operator;
+        return result;
+    }
+
+    private static SessionOperator[] removeFrom(SessionOperator[] array, SessionOperator operator) {
+        for (int i = 0; i < array.length; ++i) {
+            if (array[i] == operator) {
+                SessionOperator[] result = new SessionOperator[array.length - 1];
+                System.arraycopy(array, 0, result, 0, i);
+                System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+                return result;
+            }
+        }
+        return array;
+    }
+}
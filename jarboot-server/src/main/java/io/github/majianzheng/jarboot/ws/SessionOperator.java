@@ -1,7 +1,5 @@
 package io.github.majianzheng.jarboot.ws;
 
-import io.github.majianzheng.jarboot.common.JarbootException;
-import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
 import io.github.majianzheng.jarboot.event.AbstractMessageEvent;
 import io.github.majianzheng.jarboot.utils.SettingUtils;
@@ -18,13 +16,27 @@ public class SessionOperator {
     protected Session session;
     protected String userDir;
     private String serviceSidPrefix;
-    
+    /** 发送队列，异步发送不阻塞推送线程 */
+    private final SessionSendQueue sendQueue;
+
     public SessionOperator(Session session) {
+        this(session, true);
+    }
+
+    /**
+     * 构造
+     * @param session 会话
+     * @param evictSlow 是否断开慢速的会话，只用于浏览器
+     */
+    protected SessionOperator(Session session, boolean evictSlow) {
         this.session = session;
+        this.sendQueue = SessionSendQueue.of(session, evictSlow);
     }
+
     public SessionOperator(String userDir, Session session) {
         this.userDir = userDir;
         this.session = session;
+        this.sendQueue = SessionSendQueue.of(session);
         if (StringUtils.isEmpty(userDir)) {
             return;
         }
@@ -54,17 +66,39 @@ public class SessionOperator {
      */
     public void newMessage(AbstractMessageEvent msg) {
         if (StringUtils.isEmpty(msg.getSid()) || StringUtils.isEmpty(serviceSidPrefix)) {
-            newMessage(msg.message());
+            send(msg);
             return;
         }
-        final String servicePrefix = "service-";
-        if (msg.getSid().startsWith(servicePrefix)) {
+        if (msg.getSid().startsWith(SessionIndex.SERVICE_PREFIX)) {
             if (msg.getSid().startsWith(serviceSidPrefix)) {
-                newMessage(msg.message());
+                send(msg);
             }
             return;
         }
-        newMessage(msg.message());
+        send(msg);
+    }
+
+    /**
+     * 投递已按服务筛选过的消息
+     * @param msg 消息
+     */
+    void deliver(AbstractMessageEvent msg) {
+        send(msg);
+    }
+
+    private void send(AbstractMessageEvent msg) {
+        MessageSenderEvent event = msg.isBinary()
+                ? new MessageSenderEvent(session, msg.binaryMessage())
+                : new MessageSenderEvent(session, msg.message());
+        publish(event.tag(msg));
+    }
+
+    /**
+     * 当前用户目录下服务sid的前缀，为空时接收所有服务的消息
+     * @return 前缀
+     */
+    public String getServiceSidPrefix() {
+        return serviceSidPrefix;
     }
 
     /**
@@ -76,17 +110,21 @@ public class SessionOperator {
     }
 
     /**
-     * 关闭
+     * 发送完已投递的消息后关闭
      */
     public void close() {
-        try {
-            this.session.close();
-        } catch (Exception e) {
-            throw new JarbootException(e.getMessage(), e);
-        }
+        sendQueue.closeAfterDrain();
+    }
+
+    /**
+     * 积压未发送的消息大小
+     * @return 大小
+     */
+    public long getPendingSize() {
+        return sendQueue.getPending();
     }
 
     protected void publish(MessageSenderEvent event) {
-        NotifyReactor.getInstance().publishEvent(event);
+        sendQueue.offer(event);
     }
 }
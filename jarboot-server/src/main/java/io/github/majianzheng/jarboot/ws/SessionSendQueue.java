@@ -0,0 +1,334 @@
+package io.github.majianzheng.jarboot.ws;
+
+import io.github.majianzheng.jarboot.common.notify.FrontEndNotifyEventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 会话的有界发送队列，使用异步发送，同一时刻每个会话只有一条消息在发送，
+ * 慢速的浏览器只会积压自己的队列，不会阻塞其他会话。同一会话的所有消息都经由该队列发送，避免与异步发送并发写。
+ * <ul>
+ *     <li>同一服务相邻的标准输出合并为一帧</li>
+ *     <li>同一服务的状态变化只保留最新的一条</li>
+ *     <li>浏览器会话积压超过上限或单条消息发送超时，断开连接由浏览器重连；Agent连接不断开</li>
+ * </ul>
+ * @author majianzheng
+ */
+class SessionSendQueue implements SendHandler {
+    private static final Logger logger = LoggerFactory.getLogger(SessionSendQueue.class);
+    /** 积压的最大字节数，超出时断开 */
+    private static final long MAX_PENDING = Long.getLong("jarboot.ws.send-queue.max-pending", 8L * 1024 * 1024);
+    /** 单条消息发送的最长时间，超出时断开 */
+    private static final long STALL_TIMEOUT_MILLIS = Long.getLong("jarboot.ws.send-queue.stall-timeout", 30_000L);
+    /** 合并后单帧的最大大小 */
+    private static final int MAX_MERGE_SIZE = 64 * 1024;
+    private static final String QUEUE_KEY = SessionSendQueue.class.getName();
+
+    private final Session session;
+    /** 是否断开慢速的会话 */
+    private final boolean evictSlow;
+    private final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    private long pending = 0;
+    private boolean sending = false;
+    private long sendStartTime = 0;
+    private boolean closed = false;
+    private boolean closeWhenDrained = false;
+    /** 当前调用异步发送的线程，发送在调用内同步完成时由该线程继续发送下一条，避免递归 */
+    private Thread sendingThread = null;
+    private boolean completedInline = false;
+    private long coalescedCount = 0;
+    private long droppedCount = 0;
+
+    SessionSendQueue(Session session, boolean evictSlow) {
+        this.session = session;
+        this.evictSlow = evictSlow;
+    }
+
+    /**
+     * 获取会话的发送队列，不存在时创建，队列保存在会话的属性中
+     * @param session 会话
+     * @return 发送队列
+     */
+    static SessionSendQueue of(Session session) {
+        return of(session, true);
+    }
+
+    /**
+     * 获取会话的发送队列，不存在时创建，队列保存在会话的属性中
+     * @param session 会话
+     * @param evictSlow 创建时是否断开慢速的会话，已存在时不改变
+     * @return 发送队列
+     */
+    static SessionSendQueue of(Session session, boolean evictSlow) {
+        if (null == session) {
+            return new SessionSendQueue(null, evictSlow);
+        }
+        final Map<String, Object> properties = session.getUserProperties();
+        synchronized (properties) {
+            Object queue = properties.get(QUEUE_KEY);
+            if (queue instanceof SessionSendQueue) {
+                return (SessionSendQueue) queue;
+            }
+            SessionSendQueue created = new SessionSendQueue(session, evictSlow);
+            properties.put(QUEUE_KEY, created);
+            return created;
+        }
+    }
+
+    /**
+     * 消息入队，空闲时立即开始发送
+     * @param event 消息
+     */
+    void offer(MessageSenderEvent event) {
+        Outbound first;
+        synchronized (this) {
+            if (closed || closeWhenDrained) {
+                return;
+            }
+            enqueue(event);
+            final boolean slow = evictSlow && (pending > MAX_PENDING || isStalled());
+            if (slow) {
+                closeSlowConsumer();
+                return;
+            }
+            if (sending) {
+                return;
+            }
+            first = pollNext();
+        }
+        drain(first);
+    }
+
+    /**
+     * 发送完队列中的消息后关闭会话
+     */
+    void closeAfterDrain() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (sending) {
+                closeWhenDrained = true;
+                return;
+            }
+            closed = true;
+        }
+        closeSession(null);
+    }
+
+    synchronized long getPending() {
+        return pending;
+    }
+
+    synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public void onResult(SendResult result) {
+        if (!result.isOK()) {
+            logger.debug("send message to {} failed: {}", session.getId(), result.getException().getMessage());
+        }
+        Outbound next;
+        synchronized (this) {
+            if (Thread.currentThread() == sendingThread) {
+                completedInline = true;
+                return;
+            }
+            next = pollNext();
+        }
+        drain(next);
+    }
+
+    private void closeIfDrained() {
+        synchronized (this) {
+            if (!closeWhenDrained || sending || closed) {
+                return;
+            }
+            closed = true;
+        }
+        closeSession(null);
+    }
+
+    private void drain(Outbound first) {
+        Outbound msg = first;
+        if (null == msg) {
+            closeIfDrained();
+            return;
+        }
+        while (null != msg) {
+            synchronized (this) {
+                sendingThread = Thread.currentThread();
+                completedInline = false;
+            }
+            try {
+                msg.send(session, this);
+            } catch (Exception e) {
+                logger.debug("send message to {} failed: {}", session.getId(), e.getMessage());
+                synchronized (this) {
+                    completedInline = true;
+                }
+            }
+            synchronized (this) {
+                sendingThread = null;
+                if (!completedInline) {
+                    //异步完成后由回调继续发送
+                    return;
+                }
+                msg = pollNext();
+            }
+        }
+        closeIfDrained();
+    }
+
+    /**
+     * 取出下一条待发送的消息，需持有锁
+     * @return 消息，队列为空时返回null
+     */
+    private Outbound pollNext() {
+        Outbound next = closed ? null : queue.pollFirst();
+        if (null == next) {
+            sending = false;
+            return null;
+        }
+        pending -= next.size;
+        sending = true;
+        sendStartTime = System.currentTimeMillis();
+        return next;
+    }
+
+    private void enqueue(MessageSenderEvent event) {
+        if (FrontEndNotifyEventType.STD_PRINT == event.type) {
+            Outbound tail = queue.peekLast();
+            if (null != tail && tail.canMerge(event) && tail.size + event.size() <= MAX_MERGE_SIZE) {
+                final int before = tail.size;
+                tail.merge(event);
+                pending += tail.size - before;
+                ++coalescedCount;
+                return;
+            }
+        } else if (isStatus(event.type)) {
+            //状态变化只需最新的一条，移除尚未发送的旧状态
+            Iterator<Outbound> it = queue.iterator();
+            while (it.hasNext()) {
+                Outbound o = it.next();
+                if (o.type == event.type && Objects.equals(o.sid, event.sid)) {
+                    it.remove();
+                    pending -= o.size;
+                    ++droppedCount;
+                }
+            }
+        }
+        Outbound o = new Outbound(event);
+        queue.addLast(o);
+        pending += o.size;
+    }
+
+    private boolean isStalled() {
+        return sending && System.currentTimeMillis() - sendStartTime > STALL_TIMEOUT_MILLIS;
+    }
+
+    private void closeSlowConsumer() {
+        logger.warn("WebSocket session {} is too slow, pending: {}, closing.", session.getId(), pending);
+        closed = true;
+        droppedCount += queue.size();
+        queue.clear();
+        pending = 0;
+        closeSession(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "slow consumer"));
+    }
+
+    private void closeSession(CloseReason reason) {
+        try {
+            if (null == reason) {
+                session.close();
+            } else {
+                session.close(reason);
+            }
+        } catch (Exception e) {
+            logger.debug(e.getMessage(), e);
+        }
+    }
+
+    private static boolean isStatus(FrontEndNotifyEventType type) {
+        return FrontEndNotifyEventType.SERVER_STATUS == type || FrontEndNotifyEventType.JVM_PROCESS_CHANGE == type;
+    }
+
+    /**
+     * 待发送的消息，标准输出合并时在原消息后追加消息体
+     */
+    private static final class Outbound {
+        private final FrontEndNotifyEventType type;
+        private final String sid;
+        private final boolean binary;
+        private final int headerLength;
+        private StringBuilder text;
+        private String message;
+        private byte[] buf;
+        private int size;
+
+        Outbound(MessageSenderEvent event) {
+            this.type = event.type;
+            this.sid = event.sid;
+            this.binary = event.binary;
+            this.headerLength = event.headerLength;
+            this.message = event.message;
+            this.buf = event.buf;
+            this.size = event.size();
+        }
+
+        boolean canMerge(MessageSenderEvent event) {
+            return type == event.type && binary == event.binary && Objects.equals(sid, event.sid);
+        }
+
+        /**
+         * 追加同一服务的标准输出，跳过后一条消息的协议头
+         * @param event 消息
+         */
+        void merge(MessageSenderEvent event) {
+            if (binary) {
+                appendBytes(event.buf, event.headerLength, event.buf.length - event.headerLength);
+                return;
+            }
+            if (null == text) {
+                text = new StringBuilder(message.length() + event.message.length());
+                text.append(message);
+                message = null;
+            }
+            text.append(event.message, event.headerLength, event.message.length());
+            size = text.length();
+        }
+
+        private void appendBytes(byte[] src, int off, int len) {
+            //首次追加时数组已满，必然扩容，不会写入多个会话共用的原数组
+            if (size + len > buf.length) {
+                byte[] grown = new byte[Math.max(size + len, Math.min(MAX_MERGE_SIZE, buf.length * 2))];
+                System.arraycopy(buf, 0, grown, 0, size);
+                buf = grown;
+            }
+            System.arraycopy(src, off, buf, size, len);
+            size += len;
+        }
+
+        void send(Session session, SendHandler handler) {
+            if (binary) {
+                session.getAsyncRemote().sendBinary(ByteBuffer.wrap(buf, 0, size), handler);
+            } else {
+                session.getAsyncRemote().sendText(null == text ? message : text.toString(), handler);
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package io.github.majianzheng.jarboot.ws;
 import io.github.majianzheng.jarboot.base.AgentManager;
 import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.common.protocol.CommandResponse;
+import io.github.majianzheng.jarboot.common.protocol.FrameAssembler;
+import io.github.majianzheng.jarboot.common.protocol.FrameCodec;
 import io.github.majianzheng.jarboot.event.AgentResponseEvent;
 import io.github.majianzheng.jarboot.utils.MessageUtils;
 import org.slf4j.Logger;
@@ -11,6 +13,7 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
+import java.nio.ByteBuffer;
 
 /**
  * @author majianzheng
@@ -19,6 +22,8 @@ import javax.websocket.server.ServerEndpoint;
 @RestController
 public class WebSocketAgentServer {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketAgentServer.class);
+    /** 帧重组器，每个连接一个，同一连接的消息顺序回调 */
+    private static final String ASSEMBLER_KEY = "frameAssembler";
 
     /**
      * 连接建立成功调用的方法
@@ -55,7 +60,19 @@ public class WebSocketAgentServer {
                                 @PathParam("service") String serviceName,
                                 @PathParam("userDir") String userDir,
                                 @PathParam("sid") String sid) {
-        CommandResponse resp = CommandResponse.createFromRaw(message);
+        CommandResponse resp;
+        if (FrameCodec.isFrame(message)) {
+            FrameAssembler assembler = (FrameAssembler) session
+                    .getUserProperties()
+                    .computeIfAbsent(ASSEMBLER_KEY, k -> new FrameAssembler());
+            resp = assembler.onFrame(ByteBuffer.wrap(message));
+            if (null == resp) {
+                // 等待后续的帧
+                return;
+            }
+        } else {
+            resp = CommandResponse.createFromRaw(message);
+        }
         NotifyReactor
                 .getInstance()
                 .publishEvent(new AgentResponseEvent(userDir, serviceName, sid, resp, session));
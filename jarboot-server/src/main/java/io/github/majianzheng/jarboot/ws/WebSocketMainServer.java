@@ -7,7 +7,7 @@ import io.github.majianzheng.jarboot.cluster.ClusterClientManager;
 import io.github.majianzheng.jarboot.config.WsConfigurator;
 import io.github.majianzheng.jarboot.dao.UserDao;
 import io.github.majianzheng.jarboot.event.FromOtherClusterServerMessageEvent;
-import io.github.majianzheng.jarboot.common.notify.DefaultPublisher;
+import io.github.majianzheng.jarboot.common.notify.ShardedPublisher;
 import io.github.majianzheng.jarboot.common.notify.NotifyReactor;
 import io.github.majianzheng.jarboot.common.utils.JsonUtils;
 import io.github.majianzheng.jarboot.common.utils.StringUtils;
@@ -21,7 +21,6 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 向浏览器推送消息
@@ -32,9 +31,9 @@ import java.util.concurrent.ConcurrentHashMap;
 @SuppressWarnings({"java:S2696"})
 public class WebSocketMainServer {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketMainServer.class);
-    private static final ConcurrentHashMap<String, SessionOperator> SESSIONS = new ConcurrentHashMap<>(32);
+    private static final SessionIndex SESSIONS = new SessionIndex();
     /** 推送前端消息 */
-    public static final DefaultPublisher PUBLISHER = new DefaultPublisher(32768, "fe.push.publisher");
+    public static final ShardedPublisher PUBLISHER = new ShardedPublisher(32768, "fe.push.publisher");
     private static UserDao userDao;
 
     static {
@@ -53,7 +52,7 @@ public class WebSocketMainServer {
     public void onOpen(Session session) {
         String username = session.getUserPrincipal().getName();
         String userDir = userDao.getUserDirByName(username);
-        SESSIONS.put(session.getId(), new SessionOperator(userDir, session));
+        SESSIONS.add(session.getId(), new SessionOperator(userDir, session));
     }
 
     /**
@@ -80,9 +79,15 @@ public class WebSocketMainServer {
             return;
         }
         if (CommonConst.PING.equals(message)) {
-            NotifyReactor
-                    .getInstance()
-                    .publishEvent(new MessageSenderEvent(session, CommonConst.PING));
+            //经由会话的发送队列回复，避免与异步发送并发写
+            SessionOperator operator = SESSIONS.get(session.getId());
+            if (null == operator) {
+                NotifyReactor
+                        .getInstance()
+                        .publishEvent(new MessageSenderEvent(session, CommonConst.PING));
+            } else {
+                operator.newMessage(CommonConst.PING);
+            }
             return;
         }
         FuncReceivedEvent event = JsonUtils.readValue(message, FuncReceivedEvent.class);
@@ -122,7 +127,7 @@ public class WebSocketMainServer {
                     sessionId = sessionId.substring(index + 1);
                     handleClusterEvent(event, sessionId, host);
                 } else {
-                    SessionOperator operator = SESSIONS.getOrDefault(event.getSessionId(), null);
+                    SessionOperator operator = SESSIONS.get(event.getSessionId());
                     if (null != operator) {
                         operator.newMessage(event);
                     }
@@ -139,10 +144,14 @@ public class WebSocketMainServer {
             @Override
             public void onEvent(BroadcastMessageEvent event) {
                 if (event.getSessionIds().isEmpty()) {
-                    SESSIONS.values().forEach(operator -> operator.newMessage(event));
-                    FromOtherClusterServerMessageEvent messageEvent = new FromOtherClusterServerMessageEvent();
-                    messageEvent.setMessage(event.message());
-                    ClusterClientManager.getInstance().notifyToOtherCluster(messageEvent);
+                    //按服务sid前缀查找订阅的会话，消息只序列化一次
+                    SESSIONS.forEachSubscriber(event.getSid(), operator -> operator.deliver(event));
+                    //未启用集群时不需要转发，不构建字符串消息
+                    if (ClusterClientManager.getInstance().isEnabled()) {
+                        FromOtherClusterServerMessageEvent messageEvent = new FromOtherClusterServerMessageEvent();
+                        messageEvent.setMessage(event.message());
+                        ClusterClientManager.getInstance().notifyToOtherCluster(messageEvent);
+                    }
                     return;
                 }
                 // 定点广播
@@ -160,9 +169,9 @@ public class WebSocketMainServer {
             @Override
             public void onEvent(FromOtherClusterServerMessageEvent event) {
                 if (StringUtils.isEmpty(event.getSessionId())) {
-                    SESSIONS.values().forEach(operator -> operator.newMessage(event.getMessage()));
+                    SESSIONS.forEach(operator -> operator.newMessage(event.getMessage()));
                 } else {
-                    SessionOperator operator = SESSIONS.getOrDefault(event.getSessionId(), null);
+                    SessionOperator operator = SESSIONS.get(event.getSessionId());
                     if (null != operator) {
                         operator.newMessage(event.getMessage());
                     }
@@ -178,7 +187,7 @@ public class WebSocketMainServer {
 
     private static void handleClusterEvent(MessageEvent event, String sessionId, String host) {
         if (Objects.equals(ClusterClientManager.getInstance().getSelfHost(), host)) {
-            SessionOperator operator = SESSIONS.getOrDefault(sessionId, null);
+            SessionOperator operator = SESSIONS.get(sessionId);
             if (null != operator) {
                 operator.newMessage(event);
             }
@@ -194,7 +203,7 @@ public class WebSocketMainServer {
             sessionId = sessionId.substring(index + 1);
             if (Objects.equals(ClusterClientManager.getInstance().getSelfHost(), host)) {
                 // 连接的当前节点
-                SessionOperator operator = SESSIONS.getOrDefault(sessionId, null);
+                SessionOperator operator = SESSIONS.get(sessionId);
                 if (null != operator) {
                     operator.newMessage(event);
                 }
@@ -202,7 +211,7 @@ public class WebSocketMainServer {
             }
             ClusterClientManager.getInstance().notifyToOtherCluster(host, new FromOtherClusterServerMessageEvent(event.getSid(), sessionId, event.message()));
         } else {
-            SessionOperator operator = SESSIONS.getOrDefault(sessionId, null);
+            SessionOperator operator = SESSIONS.get(sessionId);
             if (null != operator) {
                 operator.newMessage(event);
             }
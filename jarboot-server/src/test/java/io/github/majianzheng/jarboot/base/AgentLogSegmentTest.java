@@ -0,0 +1,76 @@
+package io.github.majianzheng.jarboot.base;
+
+import io.github.majianzheng.jarboot.common.protocol.LogRecordCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AgentLogSegmentTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIndexAndReopen() throws Exception {
+        File dir = folder.newFolder("s1");
+        AgentLogSegment segment = new AgentLogSegment(dir, 1000L, true);
+        for (int i = 0; i < 2000; ++i) {
+            byte level = 0 == i % 100 ? LogRecordCodec.ERROR : LogRecordCodec.INFO;
+            segment.append(batch(10_000L + i, level, "message " + i));
+        }
+        List<AgentLogSegment.Block> all = segment.match(0, Long.MAX_VALUE, LogRecordCodec.ALL_LEVELS);
+        assertTrue(all.size() > 1);
+        //按时间范围跳过不相关的块
+        assertEquals(1, segment.match(10_000L, 10_001L, LogRecordCodec.ALL_LEVELS).size());
+        //模拟异常退出，末尾的块没有索引
+        final long size = segment.size();
+
+        AgentLogSegment reopened = new AgentLogSegment(dir, 1000L, false);
+        assertEquals(size, reopened.size());
+        int errors = 0;
+        for (AgentLogSegment.Block b : reopened.match(0, Long.MAX_VALUE, LogRecordCodec.levelMask(LogRecordCodec.ERROR))) {
+            ByteBuffer buf = reopened.read(b);
+            assertEquals(b.length, LogRecordCodec.validLength(buf));
+            int pos = 0;
+            while (pos < buf.limit()) {
+                if (LogRecordCodec.ERROR == buf.get(pos + Long.BYTES)) {
+                    ++errors;
+                }
+                pos += LogRecordCodec.HEADER_LEN + buf.getInt(pos + Long.BYTES + 1);
+            }
+        }
+        assertEquals(20, errors);
+        segment.close();
+    }
+
+    @Test
+    public void testTruncateBrokenTail() throws Exception {
+        File dir = folder.newFolder("s2");
+        AgentLogSegment segment = new AgentLogSegment(dir, 1L, true);
+        segment.append(batch(1L, LogRecordCodec.INFO, "hello"));
+        segment.close();
+        final long size = segment.size();
+        try (java.io.FileOutputStream out = new java.io.FileOutputStream(new File(dir, "1.seg"), true)) {
+            out.write(new byte[]{1, 2, 3});
+        }
+        AgentLogSegment reopened = new AgentLogSegment(dir, 1L, true);
+        assertEquals(size, reopened.size());
+        reopened.append(batch(2L, LogRecordCodec.WARN, "world"));
+        assertEquals(2, reopened.match(0, Long.MAX_VALUE, LogRecordCodec.ALL_LEVELS).size());
+        reopened.close();
+    }
+
+    private static ByteBuffer batch(long ts, byte level, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(LogRecordCodec.HEADER_LEN + bytes.length);
+        LogRecordCodec.encode(buf, ts, level, bytes, 0, bytes.length);
+        buf.flip();
+        return buf;
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.majianzheng.jarboot.base;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class StdoutRingLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWrapAndPage() throws Exception {
+        File file = folder.newFile("s1.ring");
+        final int capacity = 4096;
+        StringBuilder all = new StringBuilder();
+        try (StdoutRingLog log = new StdoutRingLog(file, capacity)) {
+            for (int i = 0; i < 500; ++i) {
+                String line = "line " + i + " 中文\n";
+                all.append(line);
+                log.append(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+            }
+            final byte[] bytes = all.toString().getBytes(StandardCharsets.UTF_8);
+            assertEquals(bytes.length, log.getEnd());
+            assertEquals(bytes.length - capacity, log.getStart());
+
+            StdoutPage page = log.read(0, 1000);
+            assertEquals(bytes.length, page.getEnd());
+            assertTrue(page.getEnd() - page.getStart() <= 1000);
+            assertTrue(page.getText().startsWith("line "));
+            assertTrue(all.toString().endsWith(page.getText()));
+
+            //向前翻页直到最早的内容，拼接后与保留的内容一致
+            StringBuilder sb = new StringBuilder(page.getText());
+            while (page.getStart() > page.getFirst()) {
+                page = log.read(page.getStart(), 1000);
+                sb.insert(0, page.getText());
+            }
+            assertTrue(all.toString().endsWith(sb.toString()));
+            assertFalse(sb.toString().contains("�"));
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        File file = folder.newFile("s2.ring");
+        try (StdoutRingLog log = new StdoutRingLog(file, 1024)) {
+            log.append(ByteBuffer.wrap("hello\n".getBytes(StandardCharsets.UTF_8)));
+        }
+        try (StdoutRingLog log = new StdoutRingLog(file, 1024)) {
+            assertEquals(6, log.getEnd());
+            log.append(ByteBuffer.wrap("world\n".getBytes(StandardCharsets.UTF_8)));
+            assertEquals("hello\nworld\n", log.read(0, 1024).getText());
+        }
+    }
+
+    @Test
+    public void testOpenReadOnly() throws Exception {
+        File file = folder.newFile("s4.ring");
+        try (StdoutRingLog log = new StdoutRingLog(file, 1024)) {
+            log.append(ByteBuffer.wrap("hello\n".getBytes(StandardCharsets.UTF_8)));
+        }
+        final long length = file.length();
+        //容量以文件头为准，不修改文件
+        try (StdoutRingLog log = StdoutRingLog.openReadOnly(file)) {
+            assertNotNull(log);
+            assertEquals("hello\n", log.read(0, 1024).getText());
+            log.append(ByteBuffer.wrap("late\n".getBytes(StandardCharsets.UTF_8)));
+            assertEquals(6, log.getEnd());
+        }
+        assertEquals(length, file.length());
+
+        //不完整的文件不读取也不覆盖
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 1);
+        }
+        assertNull(StdoutRingLog.openReadOnly(file));
+        assertEquals(length - 1, file.length());
+    }
+
+    @Test
+    public void testAppendAfterClose() throws Exception {
+        File file = folder.newFile("s3.ring");
+        StdoutRingLog log = new StdoutRingLog(file, 1024);
+        log.append(ByteBuffer.wrap("hello\n".getBytes(StandardCharsets.UTF_8)));
+        log.close();
+        log.close();
+        log.append(ByteBuffer.wrap("late\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(6, log.getEnd());
+    }
+}
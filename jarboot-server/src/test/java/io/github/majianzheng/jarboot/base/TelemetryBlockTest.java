@@ -0,0 +1,91 @@
+package io.github.majianzheng.jarboot.base;
+
+import io.github.majianzheng.jarboot.common.protocol.TelemetryCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TelemetryBlockTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() {
+        String[] names = {"heap.used", "threads.live", "cpu.process"};
+        final int count = 120;
+        long[] timestamps = new long[count];
+        double[] values = new double[count * names.length];
+        for (int i = 0; i < count; ++i) {
+            //偶尔有抖动的采样间隔
+            timestamps[i] = 1_700_000_000_000L + i * 5000L + (0 == i % 10 ? 3 : 0);
+            values[i * 3] = 64L * 1024 * 1024 + i * 4096;
+            values[i * 3 + 1] = 0 == i % 20 ? 40 : 41;
+            values[i * 3 + 2] = 0 == i % 7 ? Double.NaN : 0.5 * i;
+        }
+        timestamps[count - 1] += 100_000_000L;
+        byte[] data = TelemetryBlock.encode(names, timestamps, values, count);
+        //原始数据为每个采样8+3*8字节
+        assertTrue(data.length < count * 32 / 2);
+
+        TelemetryCodec.Batch batch = TelemetryBlock.decode(ByteBuffer.wrap(data));
+        assertArrayEquals(names, batch.getNames());
+        assertArrayEquals(timestamps, batch.getTimestamps());
+        assertArrayEquals(values, batch.getValues(), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBroken() {
+        byte[] data = TelemetryBlock.encode(new String[]{"a"}, new long[]{1, 2}, new double[]{1, 2}, 2);
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        buf.limit(data.length - 8);
+        TelemetryBlock.decode(buf);
+    }
+
+    @Test
+    public void testDownsample() throws Exception {
+        File dir = folder.newFolder("s1");
+        TelemetryStore.ServiceSeries series = new TelemetryStore.ServiceSeries(dir);
+        String[] names = {"heap.used", "gc.g1_young.count"};
+        //跨多个块
+        for (int k = 0; k < 5; ++k) {
+            final int n = 60;
+            long[] timestamps = new long[n];
+            double[] values = new double[n * 2];
+            for (int i = 0; i < n; ++i) {
+                final int seq = k * n + i;
+                timestamps[i] = seq * 1000L;
+                values[i * 2] = seq;
+                values[i * 2 + 1] = 1;
+            }
+            series.append(new TelemetryCodec.Batch(names, timestamps, values));
+        }
+        series.close();
+        List<File> files = series.files();
+        assertEquals(1, files.size());
+
+        TelemetryStore.Downsampler downsampler = new TelemetryStore.Downsampler(0, 299_999L, 100_000L, "heap");
+        try (FileChannel channel = FileChannel.open(files.get(0).toPath(), StandardOpenOption.READ)) {
+            assertEquals(channel.size(), TelemetryStore.validLength(channel));
+        }
+        for (File file : files) {
+            TelemetryStore.scan(file, 0, 299_999L, downsampler);
+        }
+        downsampler.add(series.pending());
+        TelemetryRange range = downsampler.toRange();
+        assertArrayEquals(new long[]{0, 100_000L, 200_000L}, range.getTimestamps());
+        assertEquals(1, range.getSeries().size());
+        TelemetrySeries heap = range.getSeries().get(0);
+        assertEquals("heap.used", heap.getName());
+        assertArrayEquals(new double[]{49.5, 149.5, 249.5}, heap.getAvg(), 1e-9);
+        assertArrayEquals(new double[]{0, 100, 200}, heap.getMin(), 0);
+        assertArrayEquals(new double[]{99, 199, 299}, heap.getMax(), 0);
+    }
+}
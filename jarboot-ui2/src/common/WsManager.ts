@@ -36,6 +36,8 @@ class WsManager {
   private static readonly LOADING_MAP = new Map<string, any>();
   /** websocket句柄 */
   private static websocket: WebSocket | null = null;
+  /** 二进制消息的UTF-8解码器 */
+  private static readonly decoder = new TextDecoder('utf-8');
   /** 重连setInterval的句柄 */
   private static fd: any = null;
   private static RECONNECT_SUCCESS_HANDLER: (() => void)[] = [];
@@ -127,6 +129,7 @@ class WsManager {
       ? `${protocol}://${window.location.hostname}:9899/jarboot/main/service/ws`
       : `${protocol}://${window.location.host}/jarboot/main/service/ws`;
     WsManager.websocket = new WebSocket(url);
+    WsManager.websocket.binaryType = 'arraybuffer';
     WsManager.websocket.onmessage = WsManager.onMessage;
     WsManager.websocket.onopen = WsManager.onOpen;
     WsManager.websocket.onclose = WsManager.onClose;
@@ -160,12 +163,16 @@ class WsManager {
    * @param e 事件
    */
   private static onMessage = (e: MessageEvent) => {
-    if (!StringUtil.isString(e?.data)) {
+    let resp: string;
+    if (e?.data instanceof ArrayBuffer) {
+      //Agent的输出以二进制转发，格式与文本消息一致
+      resp = WsManager.decoder.decode(e.data);
+    } else if (StringUtil.isString(e?.data)) {
+      resp = e.data;
+    } else {
       Logger.error('Unknown websocket message:', e);
-      //二进制数据
       return;
     }
-    const resp: string = e.data;
     if ('ping' === resp) {
       return;
     }
@@ -72,6 +72,7 @@ declare module '@vue/runtime-core' {
     LanguageSwitch: typeof import('./components/language-switch.vue')['default']
     MenuContainer: typeof import('./components/menu-container.vue')['default']
     ModifyUserDialog: typeof import('./components/modify-user-dialog.vue')['default']
+    ProfilerView: typeof import('./components/super-panel/profiler-view.vue')['default']
     RouterLink: typeof import('vue-router')['RouterLink']
     RouterView: typeof import('vue-router')['RouterView']
     SuperPanel: typeof import('./components/super-panel/super-panel.vue')['default']
@@ -20,6 +20,7 @@ import java.util.Locale;
 @SuppressWarnings({"java:S1874"})
 public class ShCommandProcessor implements CommandProcessor {
     private static final boolean IS_WINDOWS;
+    private static final int BUFFER_SIZE = 4096;
     private Process process;
     static {
         String os = System.getProperty("os.name").toLowerCase(Locale.ENGLISH);
@@ -45,10 +46,11 @@ public class ShCommandProcessor implements CommandProcessor {
             try {
                 process = Runtime.getRuntime().exec(sb.toString(), null, dir);
                 InputStream inputStream = process.getInputStream();
-                int b = -1;
-                while (-1 != (b = inputStream.read())) {
-                    //最终会使用jarboot-core中的StdConsoleOutputStream来实现
-                    System.out.write(b);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int len;
+                while (-1 != (len = inputStream.read(buffer))) {
+                    //原始字节整块写入，最终由jarboot-core中的StdConsoleOutputStream处理跨块的字符
+                    System.out.write(buffer, 0, len);
                 }
                 process.waitFor();
             } catch (InterruptedException e) {